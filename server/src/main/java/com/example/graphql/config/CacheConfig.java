@@ -0,0 +1,52 @@
+package com.example.graphql.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String TABLE_METADATA = "tableMetadata";
+    public static final String TABLE_SCHEMA = "tableSchema";
+
+    @Value("${data-platform.metadata.cache-size:1000}")
+    private long metadataCacheSize;
+
+    @Value("${data-platform.metadata.refresh-interval:300}")
+    private long metadataTtlSeconds;
+
+    @Value("${data-platform.metadata.schema-cache-size:5000}")
+    private long schemaCacheSize;
+
+    @Value("${data-platform.metadata.schema-cache-ttl:60}")
+    private long schemaTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // 未在下面单独注册的缓存也使用有上限的默认策略
+        cacheManager.setCaffeine(boundedCache(metadataCacheSize, metadataTtlSeconds));
+        cacheManager.registerCustomCache(TABLE_METADATA,
+                boundedCache(metadataCacheSize, metadataTtlSeconds).build());
+        // 表结构按用户权限过滤，缓存键为（表, 权限指纹）
+        cacheManager.registerCustomCache(TABLE_SCHEMA,
+                boundedCache(schemaCacheSize, schemaTtlSeconds).build());
+        return cacheManager;
+    }
+
+    private static Caffeine<Object, Object> boundedCache(long maximumSize, long ttlSeconds) {
+        // 开启 recordStats()，Actuator 才会为每个缓存导出 cache.gets/cache.evictions
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats();
+    }
+}
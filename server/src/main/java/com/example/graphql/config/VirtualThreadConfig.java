@@ -0,0 +1,22 @@
+package com.example.graphql.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Tomcat 请求在虚拟线程上执行，阻塞在 Trino JDBC 上的请求不再占用平台线程；
+ * 查询并发由 AsyncQueryScheduler 各资源组的名额限制，而不是请求线程数
+ */
+@Configuration
+@ConditionalOnProperty(name = "data-platform.virtual-threads.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.graphqldgstrino.datafetcher;
+
+import com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.CacheStatistics;
+import com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.PaginationInput;
+import com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.TableInfo;
+import com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.TableListFilter;
+import com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.UpdatePermissionsInput;
+import com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.UserPermissions;
+import com.example.graphqldgstrino.service.DataPlatformService;
+import com.netflix.graphql.dgs.DgsComponent;
+import com.netflix.graphql.dgs.DgsData;
+import com.netflix.graphql.dgs.InputArgument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+import java.util.List;
+
+@DgsComponent
+public class DataPlatformDataFetcher {
+
+    @Autowired
+    private DataPlatformService dataPlatformService;
+
+    @DgsData(parentType = "Query", field = "listTables")
+    public List<TableInfo> listTables(@InputArgument TableListFilter filter,
+                                      @InputArgument PaginationInput pagination,
+                                      @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        return dataPlatformService.listTables(filter, pagination, userId);
+    }
+
+    @DgsData(parentType = "Query", field = "searchTables")
+    public List<TableInfo> searchTables(@InputArgument String searchTerm,
+                                        @InputArgument String database,
+                                        @InputArgument PaginationInput pagination,
+                                        @RequestHeader(value = "X-User-Id", required = false) String userId) {
+        return dataPlatformService.searchTables(searchTerm, database, pagination, userId);
+    }
+
+    @DgsData(parentType = "Query", field = "cacheStatistics")
+    public CacheStatistics cacheStatistics() {
+        return dataPlatformService.getCacheStatistics();
+    }
+
+    @DgsData(parentType = "Mutation", field = "clearQueryCache")
+    public Boolean clearQueryCache(@InputArgument String pattern) {
+        return dataPlatformService.clearQueryCache(pattern);
+    }
+
+    @DgsData(parentType = "Mutation", field = "updateUserPermissions")
+    public UserPermissions updateUserPermissions(@InputArgument UpdatePermissionsInput input,
+                                                 @RequestHeader(value = "X-User-Id", required = false) String operatorUserId) {
+        return dataPlatformService.updateUserPermissions(input, operatorUserId);
+    }
+}
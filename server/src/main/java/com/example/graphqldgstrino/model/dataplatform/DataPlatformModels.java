@@ -114,6 +114,7 @@ public class DataPlatformModels {
         private Integer length;
         private boolean isPrimaryKey;
         private boolean isPartitionKey;
+        private ColumnStatistics statistics;
         private Map<String, Object> properties;
 
         public ColumnInfo() {}
@@ -154,6 +155,9 @@ public class DataPlatformModels {
         public boolean isPartitionKey() { return isPartitionKey; }
         public void setPartitionKey(boolean partitionKey) { isPartitionKey = partitionKey; }
 
+        public ColumnStatistics getStatistics() { return statistics; }
+        public void setStatistics(ColumnStatistics statistics) { this.statistics = statistics; }
+
         public Map<String, Object> getProperties() { return properties; }
         public void setProperties(Map<String, Object> properties) { this.properties = properties; }
     }
@@ -259,6 +263,45 @@ public class DataPlatformModels {
         public void setProperties(Map<String, Object> properties) { this.properties = properties; }
     }
 
+    /**
+     * Column statistics collected from Trino SHOW STATS, optionally with a sampled histogram.
+     * Histogram values are equi-depth bucket boundaries of a numeric column, lowest first;
+     * n + 1 boundaries describe n buckets holding roughly the same number of rows.
+     */
+    public static class ColumnStatistics {
+        private Double distinctValuesCount;
+        private Double nullsFraction;
+        private Long dataSize;
+        private String lowValue;
+        private String highValue;
+        private List<Double> histogram;
+        private LocalDateTime lastAnalyzed;
+
+        public ColumnStatistics() {}
+
+        // Getters and Setters
+        public Double getDistinctValuesCount() { return distinctValuesCount; }
+        public void setDistinctValuesCount(Double distinctValuesCount) { this.distinctValuesCount = distinctValuesCount; }
+
+        public Double getNullsFraction() { return nullsFraction; }
+        public void setNullsFraction(Double nullsFraction) { this.nullsFraction = nullsFraction; }
+
+        public Long getDataSize() { return dataSize; }
+        public void setDataSize(Long dataSize) { this.dataSize = dataSize; }
+
+        public String getLowValue() { return lowValue; }
+        public void setLowValue(String lowValue) { this.lowValue = lowValue; }
+
+        public String getHighValue() { return highValue; }
+        public void setHighValue(String highValue) { this.highValue = highValue; }
+
+        public List<Double> getHistogram() { return histogram; }
+        public void setHistogram(List<Double> histogram) { this.histogram = histogram; }
+
+        public LocalDateTime getLastAnalyzed() { return lastAnalyzed; }
+        public void setLastAnalyzed(LocalDateTime lastAnalyzed) { this.lastAnalyzed = lastAnalyzed; }
+    }
+
     // ============ Permission related models ============
 
     /**
@@ -396,6 +439,118 @@ public class DataPlatformModels {
         DENIED          // Denied access
     }
 
+    /**
+     * Input for replacing a user's permissions
+     */
+    public static class UpdatePermissionsInput {
+        private String userId;
+        private List<TablePermissionInput> tablePermissions;
+        private List<String> globalPermissions;
+        private List<String> resourceGroups;
+        private Integer maxQueryTimeout;
+        private Integer maxResultRows;
+        private List<String> roles;
+
+        public UpdatePermissionsInput() {}
+
+        // Getters and Setters
+        public String getUserId() { return userId; }
+        public void setUserId(String userId) { this.userId = userId; }
+
+        public List<TablePermissionInput> getTablePermissions() { return tablePermissions; }
+        public void setTablePermissions(List<TablePermissionInput> tablePermissions) { this.tablePermissions = tablePermissions; }
+
+        public List<String> getGlobalPermissions() { return globalPermissions; }
+        public void setGlobalPermissions(List<String> globalPermissions) { this.globalPermissions = globalPermissions; }
+
+        public List<String> getResourceGroups() { return resourceGroups; }
+        public void setResourceGroups(List<String> resourceGroups) { this.resourceGroups = resourceGroups; }
+
+        public Integer getMaxQueryTimeout() { return maxQueryTimeout; }
+        public void setMaxQueryTimeout(Integer maxQueryTimeout) { this.maxQueryTimeout = maxQueryTimeout; }
+
+        public Integer getMaxResultRows() { return maxResultRows; }
+        public void setMaxResultRows(Integer maxResultRows) { this.maxResultRows = maxResultRows; }
+
+        public List<String> getRoles() { return roles; }
+        public void setRoles(List<String> roles) { this.roles = roles; }
+    }
+
+    /**
+     * Role grant input; members of the role receive its global and table permissions
+     */
+    public static class RolePermissionsInput {
+        private String roleName;
+        private List<String> globalPermissions;
+        private List<TablePermissionInput> tablePermissions;
+
+        public RolePermissionsInput() {}
+
+        // Getters and Setters
+        public String getRoleName() { return roleName; }
+        public void setRoleName(String roleName) { this.roleName = roleName; }
+
+        public List<String> getGlobalPermissions() { return globalPermissions; }
+        public void setGlobalPermissions(List<String> globalPermissions) { this.globalPermissions = globalPermissions; }
+
+        public List<TablePermissionInput> getTablePermissions() { return tablePermissions; }
+        public void setTablePermissions(List<TablePermissionInput> tablePermissions) { this.tablePermissions = tablePermissions; }
+    }
+
+    /**
+     * Table permission input
+     */
+    public static class TablePermissionInput {
+        private String tableName;
+        private String database;
+        private List<String> permissions;
+        private List<FieldPermissionInput> fieldPermissions;
+        private String rowLevelFilter;
+        private Integer maxRows;
+
+        public TablePermissionInput() {}
+
+        // Getters and Setters
+        public String getTableName() { return tableName; }
+        public void setTableName(String tableName) { this.tableName = tableName; }
+
+        public String getDatabase() { return database; }
+        public void setDatabase(String database) { this.database = database; }
+
+        public List<String> getPermissions() { return permissions; }
+        public void setPermissions(List<String> permissions) { this.permissions = permissions; }
+
+        public List<FieldPermissionInput> getFieldPermissions() { return fieldPermissions; }
+        public void setFieldPermissions(List<FieldPermissionInput> fieldPermissions) { this.fieldPermissions = fieldPermissions; }
+
+        public String getRowLevelFilter() { return rowLevelFilter; }
+        public void setRowLevelFilter(String rowLevelFilter) { this.rowLevelFilter = rowLevelFilter; }
+
+        public Integer getMaxRows() { return maxRows; }
+        public void setMaxRows(Integer maxRows) { this.maxRows = maxRows; }
+    }
+
+    /**
+     * Field permission input
+     */
+    public static class FieldPermissionInput {
+        private String fieldName;
+        private FieldPermissionType permission;
+        private String maskingRule;
+
+        public FieldPermissionInput() {}
+
+        // Getters and Setters
+        public String getFieldName() { return fieldName; }
+        public void setFieldName(String fieldName) { this.fieldName = fieldName; }
+
+        public FieldPermissionType getPermission() { return permission; }
+        public void setPermission(FieldPermissionType permission) { this.permission = permission; }
+
+        public String getMaskingRule() { return maskingRule; }
+        public void setMaskingRule(String maskingRule) { this.maskingRule = maskingRule; }
+    }
+
     // ============ Query related models ============
 
     /**
@@ -690,6 +845,8 @@ public class DataPlatformModels {
         private String message;
         private Long estimatedTimeMs;
         private Long elapsedTimeMs;
+        private Integer queuePosition; // 1-based position in the resource group queue, null unless queued
+        private String trinoQueryId; // query id reported by the Trino coordinator, null until submitted
         private LocalDateTime lastUpdated;
         private Map<String, Object> properties;
 
@@ -720,6 +877,12 @@ public class DataPlatformModels {
         public Long getElapsedTimeMs() { return elapsedTimeMs; }
         public void setElapsedTimeMs(Long elapsedTimeMs) { this.elapsedTimeMs = elapsedTimeMs; }
 
+        public Integer getQueuePosition() { return queuePosition; }
+        public void setQueuePosition(Integer queuePosition) { this.queuePosition = queuePosition; }
+
+        public String getTrinoQueryId() { return trinoQueryId; }
+        public void setTrinoQueryId(String trinoQueryId) { this.trinoQueryId = trinoQueryId; }
+
         public LocalDateTime getLastUpdated() { return lastUpdated; }
         public void setLastUpdated(LocalDateTime lastUpdated) { this.lastUpdated = lastUpdated; }
 
@@ -967,4 +1130,137 @@ public class DataPlatformModels {
         public Map<String, Object> getProperties() { return properties; }
         public void setProperties(Map<String, Object> properties) { this.properties = properties; }
     }
+
+    // ============ Cache related models ============
+
+    /**
+     * Cache statistics, aggregated and broken down by table, user and cache tier
+     */
+    public static class CacheStatistics {
+        private int totalEntries;
+        private int maxSize;
+        private int defaultTtlMinutes;
+        private long hitCount;
+        private long missCount;
+        private double hitRate;
+        private long putCount;
+        private long evictionCount;
+        private long expirationCount;
+        private LatencySummary lookupLatency;
+        private List<CacheStatisticsBreakdown> byTable;
+        private List<CacheStatisticsBreakdown> byUser;
+        private List<CacheStatisticsBreakdown> byTier;
+
+        public CacheStatistics() {}
+
+        // Getters and Setters
+        public int getTotalEntries() { return totalEntries; }
+        public void setTotalEntries(int totalEntries) { this.totalEntries = totalEntries; }
+
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+        public int getDefaultTtlMinutes() { return defaultTtlMinutes; }
+        public void setDefaultTtlMinutes(int defaultTtlMinutes) { this.defaultTtlMinutes = defaultTtlMinutes; }
+
+        public long getHitCount() { return hitCount; }
+        public void setHitCount(long hitCount) { this.hitCount = hitCount; }
+
+        public long getMissCount() { return missCount; }
+        public void setMissCount(long missCount) { this.missCount = missCount; }
+
+        public double getHitRate() { return hitRate; }
+        public void setHitRate(double hitRate) { this.hitRate = hitRate; }
+
+        public long getPutCount() { return putCount; }
+        public void setPutCount(long putCount) { this.putCount = putCount; }
+
+        public long getEvictionCount() { return evictionCount; }
+        public void setEvictionCount(long evictionCount) { this.evictionCount = evictionCount; }
+
+        public long getExpirationCount() { return expirationCount; }
+        public void setExpirationCount(long expirationCount) { this.expirationCount = expirationCount; }
+
+        public LatencySummary getLookupLatency() { return lookupLatency; }
+        public void setLookupLatency(LatencySummary lookupLatency) { this.lookupLatency = lookupLatency; }
+
+        public List<CacheStatisticsBreakdown> getByTable() { return byTable; }
+        public void setByTable(List<CacheStatisticsBreakdown> byTable) { this.byTable = byTable; }
+
+        public List<CacheStatisticsBreakdown> getByUser() { return byUser; }
+        public void setByUser(List<CacheStatisticsBreakdown> byUser) { this.byUser = byUser; }
+
+        public List<CacheStatisticsBreakdown> getByTier() { return byTier; }
+        public void setByTier(List<CacheStatisticsBreakdown> byTier) { this.byTier = byTier; }
+    }
+
+    /**
+     * Cache statistics for a single table, user or cache tier
+     */
+    public static class CacheStatisticsBreakdown {
+        private String key;
+        private long hitCount;
+        private long missCount;
+        private double hitRate;
+        private LatencySummary lookupLatency;
+        private LatencySummary queryLatency;
+
+        public CacheStatisticsBreakdown() {}
+
+        public CacheStatisticsBreakdown(String key) {
+            this.key = key;
+        }
+
+        // Getters and Setters
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+
+        public long getHitCount() { return hitCount; }
+        public void setHitCount(long hitCount) { this.hitCount = hitCount; }
+
+        public long getMissCount() { return missCount; }
+        public void setMissCount(long missCount) { this.missCount = missCount; }
+
+        public double getHitRate() { return hitRate; }
+        public void setHitRate(double hitRate) { this.hitRate = hitRate; }
+
+        public LatencySummary getLookupLatency() { return lookupLatency; }
+        public void setLookupLatency(LatencySummary lookupLatency) { this.lookupLatency = lookupLatency; }
+
+        public LatencySummary getQueryLatency() { return queryLatency; }
+        public void setQueryLatency(LatencySummary queryLatency) { this.queryLatency = queryLatency; }
+    }
+
+    /**
+     * Latency distribution summary in milliseconds
+     */
+    public static class LatencySummary {
+        private long count;
+        private double meanMillis;
+        private double p50Millis;
+        private double p90Millis;
+        private double p99Millis;
+        private double maxMillis;
+
+        public LatencySummary() {}
+
+        // Getters and Setters
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        public double getMeanMillis() { return meanMillis; }
+        public void setMeanMillis(double meanMillis) { this.meanMillis = meanMillis; }
+
+        public double getP50Millis() { return p50Millis; }
+        public void setP50Millis(double p50Millis) { this.p50Millis = p50Millis; }
+
+        public double getP90Millis() { return p90Millis; }
+        public void setP90Millis(double p90Millis) { this.p90Millis = p90Millis; }
+
+        public double getP99Millis() { return p99Millis; }
+        public void setP99Millis(double p99Millis) { this.p99Millis = p99Millis; }
+
+        public double getMaxMillis() { return maxMillis; }
+        public void setMaxMillis(double maxMillis) { this.maxMillis = maxMillis; }
+    }
 }
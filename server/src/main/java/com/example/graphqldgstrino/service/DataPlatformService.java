@@ -1,15 +1,40 @@
 package com.example.graphqldgstrino.service;
 
-import com.example.graphqldgstrino.model.dataplatform.*;
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+import com.example.graphqldgstrino.model.dataplatform.TableQueryResult;
+import com.example.graphqldgstrino.service.dataplatform.AsyncQueryScheduler;
+import com.example.graphqldgstrino.service.dataplatform.CompiledPermissions;
+import com.example.graphqldgstrino.service.dataplatform.MetadataService;
+import com.example.graphqldgstrino.service.dataplatform.PermissionService;
+import com.example.graphqldgstrino.service.dataplatform.QueryCacheService;
+import com.example.graphqldgstrino.service.dataplatform.QueryCostEstimator;
+import com.example.graphqldgstrino.service.dataplatform.QueryResultSpool;
+import com.example.graphqldgstrino.service.dataplatform.SpooledResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.trino.jdbc.QueryStats;
+import io.trino.jdbc.TrinoStatement;
+import com.example.graphqldgstrino.service.dataplatform.MaskingPlan;
+import com.example.graphqldgstrino.service.dataplatform.QueryPredicate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.stereotype.Service;
 import org.springframework.cache.annotation.Cacheable;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -32,11 +57,45 @@ public class DataPlatformService {
     @Autowired
     private QueryCacheService cacheService;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private QueryCostEstimator costEstimator;
+    
+    @Autowired
+    private AsyncQueryScheduler asyncQueryScheduler;
+    
+    @Autowired
+    private QueryResultSpool resultSpool;
+    
+    // 把 MASK/HASH 字段改写为 Trino 表达式，敏感数据不离开 Trino
+    @Value("${data-platform.permissions.masking-pushdown:false}")
+    private boolean maskingPushdown;
+    
+    // 同步查询的预估执行时间上限，超出时要求改用异步查询；0 表示不限制
+    @Value("${data-platform.cost.max-sync-duration-ms:0}")
+    private long maxSyncDurationMillis;
+    
+    // 预估执行时间超过该值的普通优先级异步查询进入 batch 资源组
+    @Value("${data-platform.cost.batch-threshold-ms:300000}")
+    private long batchThresholdMillis;
+    
+    // 落盘结果单页最多返回的行数，未指定分页时也按此截断
+    @Value("${data-platform.async.max-page-size:10000}")
+    private int maxResultPageSize;
+    
+    private static final int ASYNC_FETCH_SIZE = 8192;
+    // 脱敏下推时源表的别名
+    private static final String SOURCE_ALIAS = "src";
+    
+    // 用于生成缓存键，Map 按键排序保证同一查询序列化结果一致
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
     
     // 异步查询任务管理
     private final Map<String, AsyncQueryTask> queryTasks = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<QueryResult>> runningQueries = new ConcurrentHashMap<>();
+    private final Map<String, QueryCostEstimator.Estimate> taskEstimates = new ConcurrentHashMap<>();
+    // 异步查询最近一次从 Trino 语句协议取得的状态和统计
+    private final Map<String, QueryStats> trinoStats = new ConcurrentHashMap<>();
     
     /**
      * 通用表查询 - 核心查询接口
@@ -51,33 +110,65 @@ public class DataPlatformService {
             throw new SecurityException("用户无权限访问表: " + tableName);
         }
         
-        // 2. 字段权限过滤
+        // 2. 字段权限过滤，空的字段选择等同于未指定；过滤后没有可读字段时拒绝，不退回 SELECT *
+        if (fieldSelection != null && fieldSelection.isEmpty()) {
+            fieldSelection = null;
+        }
         List<String> allowedFields = permissionService.filterAllowedFields(permissions, tableName, fieldSelection);
+        if (allowedFields != null && allowedFields.isEmpty()) {
+            throw new SecurityException("用户无权限读取表的任何所选字段: " + tableName);
+        }
         
-        // 3. 构建查询缓存键
-        String cacheKey = buildCacheKey(tableName, filter, pagination, allowedFields, orderBy);
+        // 3. 用户过滤条件转换为规范化谓词，行级过滤始终在顶层 AND，不受用户的 OR/NOT 影响
+        QueryPredicate userFilter = QueryPredicate.fromFilter(filter);
+        QueryPredicate where = QueryPredicate.and(Arrays.asList(
+            userFilter, permissionService.getRowFilter(permissions, tableName)));
         
-        // 4. 检查缓存
-        TableQueryResult cachedResult = cacheService.getQueryResult(cacheKey);
+        // 4. 构建查询缓存键，按有效策略指纹区分，策略相同的用户共享缓存
+        String policyFingerprint = permissionService.effectivePolicyFingerprint(permissions, tableName, allowedFields);
+        String cacheKey = buildCacheKey(tableName, policyFingerprint, userFilter, pagination, allowedFields, orderBy);
+        
+        // 5. 检查缓存
+        TableQueryResult cachedResult = cacheService.getQueryResult(cacheKey, tableName, userId);
         if (cachedResult != null) {
             return cachedResult;
         }
         
-        // 5. 构建SQL查询
+        // 6. 准入控制：按统计信息和执行历史估算代价，超过同步上限的查询拒绝执行
+        QueryCostEstimator.Estimate estimate = costEstimator.estimate(tableName, where,
+            pagination != null ? pagination.getLimit() : null);
+        if (maxSyncDurationMillis > 0 && estimate.getSource() != QueryCostEstimator.Source.DEFAULT
+                && estimate.getDurationMillis() > maxSyncDurationMillis) {
+            throw new IllegalArgumentException("预估执行时间 " + estimate.getDurationMillis()
+                + "ms 超过同步查询上限 " + maxSyncDurationMillis + "ms，请使用异步查询: " + tableName);
+        }
+        
+        // 7. 构建参数化SQL查询，条件常量全部作为绑定参数
         long startTime = System.currentTimeMillis();
-        String sql = buildDynamicQuery(tableName, filter, pagination, allowedFields, orderBy, permissions);
+        long startNanos = System.nanoTime();
+        MaskingPlan pushedDownMasking = null;
+        if (maskingPushdown) {
+            pushedDownMasking = permissionService.getMaskingPlan(permissions, tableName, allowedFields);
+            if (pushedDownMasking == null) {
+                throw new SecurityException("用户无权限读取表的任何字段: " + tableName);
+            }
+        }
+        List<Object> params = new ArrayList<>();
+        String sql = buildDynamicQuery(tableName, where, pagination, allowedFields, orderBy, pushedDownMasking, params);
         
         try {
-            // 6. 执行查询
-            List<Map<String, Object>> rawData = jdbcTemplate.queryForList(sql);
+            // 8. 执行查询，占用同步查询专用的并发名额，不排在异步查询之后
+            List<Map<String, Object>> rawData = asyncQueryScheduler.runInteractive(
+                () -> jdbcTemplate.queryForList(sql, params.toArray()));
             
-            // 7. 数据脱敏处理
-            List<Map<String, Object>> maskedData = permissionService.applyDataMasking(rawData, permissions, tableName);
+            // 9. 数据脱敏处理（已下推到SQL时无需再处理）
+            List<Map<String, Object>> maskedData = pushedDownMasking != null
+                ? rawData : permissionService.applyDataMasking(rawData, permissions, tableName);
             
-            // 8. 获取总数（如果需要分页）
-            int totalCount = getTotalCount(tableName, filter, permissions);
+            // 10. 获取总数（如果需要分页）
+            int totalCount = asyncQueryScheduler.runInteractive(() -> getTotalCount(tableName, where));
             
-            // 9. 构建结果
+            // 11. 构建结果
             long executionTime = System.currentTimeMillis() - startTime;
             QueryMetadata metadata = buildQueryMetadata(sql, executionTime);
             
@@ -90,8 +181,12 @@ public class DataPlatformService {
                 .metadata(metadata)
                 .build();
             
-            // 10. 缓存结果
-            cacheService.cacheQueryResult(cacheKey, result);
+            // 12. 缓存结果
+            long elapsedNanos = System.nanoTime() - startNanos;
+            costEstimator.recordExecution(estimate, elapsedNanos);
+            cacheService.recordQueryExecution(tableName, userId, elapsedNanos);
+            cacheService.cacheQueryResult(cacheKey, tableName, userId, result);
+            cacheService.recordQueryHistory(userId, sql, tableName, executionTime, maskedData.size(), false);
             
             return result;
             
@@ -104,78 +199,152 @@ public class DataPlatformService {
      * 提交异步查询
      */
     public AsyncQueryTask submitAsyncQuery(AsyncQueryInput input, String userId) {
-        // 1. 权限检查
-        if (input.getTableName() != null) {
-            UserPermissions permissions = permissionService.getUserPermissions(userId, input.getTableName());
-            if (!permissionService.hasTablePermission(permissions, input.getTableName(), "SELECT")) {
-                throw new SecurityException("用户无权限访问表: " + input.getTableName());
-            }
+        // 1. 校验查询类型：SQL 和 GRAPHQL 查询还不能按用户权限改写，提交时直接拒绝，不进入排队
+        if (input.getQueryType() != QueryType.TABLE_SCAN) {
+            throw new UnsupportedOperationException(
+                "异步查询暂不支持该查询类型: " + input.getQueryType() + "，目前只支持 TABLE_SCAN");
         }
+        if (input.getTableName() == null || input.getTableName().isEmpty()) {
+            throw new IllegalArgumentException("TABLE_SCAN 异步查询缺少 tableName");
+        }
+
+        // 2. 权限检查
+        UserPermissions permissions = permissionService.getUserPermissions(userId, input.getTableName());
+        if (!permissionService.hasTablePermission(permissions, input.getTableName(), "SELECT")) {
+            throw new SecurityException("用户无权限访问表: " + input.getTableName());
+        }
+        QueryPredicate rowFilter = permissionService.getRowFilter(permissions, input.getTableName());
         
-        // 2. 创建查询任务
+        // 3. 创建查询任务，按实际执行的表扫描（含行级过滤）预估耗时，决定资源组和进度
         String taskId = UUID.randomUUID().toString();
+        QueryCostEstimator.Estimate estimate = costEstimator.estimate(input.getTableName(), rowFilter, null);
         AsyncQueryTask task = AsyncQueryTask.builder()
             .taskId(taskId)
-            .status(QueryStatus.SUBMITTED)
+            .status(QueryStatus.QUEUED)
             .submittedAt(LocalDateTime.now())
             .priority(input.getPriority())
-            .resourceGroup(determineResourceGroup(input, userId))
-            .estimatedDuration(estimateQueryDuration(input))
+            .resourceGroup(determineResourceGroup(input, estimate))
+            .estimatedDuration(estimate.getDurationSeconds())
             .build();
+        // 落盘结果已按提交者的权限脱敏，只能由提交者读取
+        task.setUserId(userId);
         
         queryTasks.put(taskId, task);
+        taskEstimates.put(taskId, estimate);
         
-        // 3. 异步执行查询
-        CompletableFuture<QueryResult> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                task.setStatus(QueryStatus.RUNNING);
-                return executeAsyncQuery(input, userId, taskId);
-            } catch (Exception e) {
-                task.setStatus(QueryStatus.FAILED);
-                throw new RuntimeException(e);
-            }
-        });
+        // 4. 在资源组中排队，按优先级和用户并发上限调度执行
+        CompletableFuture<QueryResult> future;
+        try {
+            future = asyncQueryScheduler.submit(taskId, task.getResourceGroup(), input.getPriority(), userId, () -> {
+                try {
+                    task.setStatus(QueryStatus.RUNNING);
+                    task.setStartedAt(LocalDateTime.now());
+                    long startNanos = System.nanoTime();
+                    QueryResult result = executeAsyncQuery(input, userId, taskId);
+                    long elapsedNanos = System.nanoTime() - startNanos;
+                    costEstimator.recordExecution(estimate, elapsedNanos);
+                    task.setExecutionTime((int) (elapsedNanos / 1_000_000));
+                    task.setCompletedAt(LocalDateTime.now());
+                    task.setStatus(QueryStatus.COMPLETED);
+                    return result;
+                } catch (Exception e) {
+                    task.setStatus(QueryStatus.FAILED);
+                    task.setCompletedAt(LocalDateTime.now());
+                    throw new RuntimeException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            queryTasks.remove(taskId);
+            taskEstimates.remove(taskId);
+            throw e;
+        }
         
         runningQueries.put(taskId, future);
+        // 任务结束后状态与落盘结果一起保留 result-ttl-ms，过期后从内存中移除
+        future.whenComplete((result, error) -> resultSpool.onExpire(taskId, () -> evictTask(taskId)));
         
         return task;
     }
     
+    private void evictTask(String taskId) {
+        queryTasks.remove(taskId);
+        runningQueries.remove(taskId);
+        taskEstimates.remove(taskId);
+        trinoStats.remove(taskId);
+    }
+    
     /**
      * 获取查询任务状态
      */
     public QueryTaskStatus getQueryTaskStatus(String taskId) {
         AsyncQueryTask task = queryTasks.get(taskId);
         if (task == null) {
-            throw new IllegalArgumentException("查询任务不存在: " + taskId);
+            throw new IllegalArgumentException("查询任务不存在或已过期: " + taskId);
         }
         
         CompletableFuture<QueryResult> future = runningQueries.get(taskId);
         float progress = calculateProgress(task, future);
+        QueryStats stats = trinoStats.get(taskId);
         
         return QueryTaskStatus.builder()
             .taskId(taskId)
             .status(task.getStatus())
             .progress(progress)
+            .trinoQueryId(stats != null ? stats.getQueryId() : null)
+            .rowsProcessed(stats != null ? (int) Math.min(stats.getProcessedRows(), Integer.MAX_VALUE) : null)
+            .queuePosition(asyncQueryScheduler.getQueuePosition(taskId))
             .submittedAt(task.getSubmittedAt())
             .startedAt(task.getStartedAt())
             .completedAt(task.getCompletedAt())
             .executionTime(task.getExecutionTime())
+            .error(failureMessage(future))
             .build();
     }
     
     /**
-     * 获取查询结果
+     * 任务失败或被取消时的原因，其他情况返回 null
      */
-    public QueryResult getQueryResult(String taskId, PaginationInput pagination) {
+    private static String failureMessage(CompletableFuture<QueryResult> future) {
+        if (future == null || !future.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            return cause.getMessage();
+        }
+    }
+    
+    /**
+     * 获取查询结果，只有提交查询的用户可以读取
+     */
+    public QueryResult getQueryResult(String taskId, PaginationInput pagination, String userId) {
+        AsyncQueryTask task = queryTasks.get(taskId);
         CompletableFuture<QueryResult> future = runningQueries.get(taskId);
-        if (future == null) {
-            throw new IllegalArgumentException("查询任务不存在: " + taskId);
+        if (task == null || future == null) {
+            throw new IllegalArgumentException("查询任务不存在或已过期: " + taskId);
+        }
+        if (userId == null || !userId.equals(task.getUserId())) {
+            throw new SecurityException("用户无权限读取查询结果: " + taskId);
         }
         
         try {
             QueryResult result = future.get();
             
+            // 落盘的结果只读取该页覆盖的块
+            SpooledResult spooled = resultSpool.get(taskId);
+            if (spooled != null) {
+                return readSpooledPage(result, spooled, pagination);
+            }
+            if (result.getTotalCount() != null && result.getTotalCount() > 0) {
+                throw new IllegalArgumentException("查询结果已过期: " + taskId);
+            }
+            
             // 应用分页
             if (pagination != null) {
                 return applyPagination(result, pagination);
@@ -196,23 +365,35 @@ public class DataPlatformService {
     }
     
     /**
-     * 列出表信息
+     * 列出用户可访问的表，过滤和分页在元数据服务中完成，取满一页即停止
      */
-    public List<TableInfo> listTables(TableListFilter filter, String userId) {
-        // 获取用户可访问的表列表
-        UserPermissions permissions = permissionService.getUserPermissions(userId, null);
-        List<String> accessibleTables = permissionService.getAccessibleTables(permissions);
-        
-        return metadataService.listTables(filter)
-            .stream()
-            .filter(table -> accessibleTables.contains(table.getTableName()))
-            .collect(Collectors.toList());
+    public List<TableInfo> listTables(TableListFilter filter, PaginationInput pagination, String userId) {
+        // 用户可读表集合随权限快照预先计算，管理员不限制范围
+        CompiledPermissions permissions = permissionService.getCompiledPermissions(userId);
+        if (permissions == null) {
+            return new ArrayList<>();
+        }
+        Set<String> tableScope = permissions.isAdmin() ? null : permissions.getReadableTables();
+        return metadataService.listTables(filter, pagination, tableScope);
+    }
+    
+    /**
+     * 按相关度搜索用户可访问的表，匹配表名、描述、标签和字段名
+     */
+    public List<TableInfo> searchTables(String searchTerm, String database, PaginationInput pagination, String userId) {
+        CompiledPermissions permissions = permissionService.getCompiledPermissions(userId);
+        if (permissions == null) {
+            return new ArrayList<>();
+        }
+        Set<String> tableScope = permissions.isAdmin() ? null : permissions.getReadableTables();
+        return metadataService.searchTables(searchTerm, database, pagination, tableScope);
     }
     
     /**
-     * 获取表结构
+     * 获取表结构（按表和权限指纹缓存，权限不同的用户不会共享字段视图）
      */
-    @Cacheable(value = "tableSchema", key = "#tableName")
+    @Cacheable(value = "tableSchema",
+               key = "#tableName + ':' + @permissionService.permissionFingerprint(#userId, #tableName)")
     public TableSchema getTableSchema(String tableName, String userId) {
         // 权限检查
         UserPermissions permissions = permissionService.getUserPermissions(userId, tableName);
@@ -230,52 +411,76 @@ public class DataPlatformService {
         return schema.toBuilder().columns(allowedColumns).build();
     }
     
+    /**
+     * 获取查询缓存统计
+     */
+    public CacheStatistics getCacheStatistics() {
+        return cacheService.getCacheStatistics();
+    }
+    
+    /**
+     * 按模式清理查询缓存，如 table:orders、user:u1001、tag:pii*
+     */
+    public boolean clearQueryCache(String pattern) {
+        cacheService.clearCacheByPattern(pattern);
+        return true;
+    }
+    
+    /**
+     * 更新用户权限（仅管理员），新权限立即生效
+     */
+    public UserPermissions updateUserPermissions(UpdatePermissionsInput input, String operatorUserId) {
+        CompiledPermissions operator = permissionService.getCompiledPermissions(operatorUserId);
+        if (operator == null || !operator.isAdmin()) {
+            throw new SecurityException("只有管理员可以修改用户权限");
+        }
+        return permissionService.updateUserPermissions(input);
+    }
+    
     // ========== 私有辅助方法 ==========
     
-    private String buildDynamicQuery(String tableName, TableFilter filter, PaginationInput pagination,
+    /**
+     * 构建查询SQL，where 中的常量按出现顺序追加到 params
+     */
+    private String buildDynamicQuery(String tableName, QueryPredicate where, PaginationInput pagination,
                                     List<String> fieldSelection, List<OrderByInput> orderBy,
-                                    UserPermissions permissions) {
+                                    MaskingPlan maskingPlan, List<Object> params) {
         StringBuilder sql = new StringBuilder();
         
-        // SELECT子句
+        // SELECT子句，有脱敏计划时把 MASK/HASH 字段改写为表达式
+        boolean maskedSelect = maskingPlan != null && !maskingPlan.isIdentity();
         sql.append("SELECT ");
         if (fieldSelection != null && !fieldSelection.isEmpty()) {
-            sql.append(String.join(", ", fieldSelection));
+            if (maskedSelect) {
+                sql.append(fieldSelection.stream()
+                    .map(maskingPlan::toSelectItem)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.joining(", ")));
+            } else {
+                sql.append(String.join(", ", fieldSelection));
+            }
         } else {
             sql.append("*");
         }
         
-        // FROM子句
+        // FROM子句，脱敏下推时给表加别名，排序可以引用原始列
         sql.append(" FROM ").append(tableName);
-        
-        // WHERE子句
-        List<String> whereConditions = new ArrayList<>();
-        
-        // 添加过滤条件
-        if (filter != null && filter.getConditions() != null) {
-            for (FilterCondition condition : filter.getConditions()) {
-                whereConditions.add(buildFilterCondition(condition));
-            }
+        if (maskedSelect) {
+            sql.append(" AS ").append(SOURCE_ALIAS);
         }
         
-        // 添加行级权限过滤
-        String rowLevelFilter = permissionService.getRowLevelFilter(permissions, tableName);
-        if (rowLevelFilter != null) {
-            whereConditions.add(rowLevelFilter);
+        // WHERE子句（用户条件与行级过滤已在顶层 AND 组合），WHERE 中看不到 SELECT 别名，始终按原始列过滤
+        if (where != null) {
+            sql.append(" WHERE ").append(where.toSql(params));
         }
         
-        if (!whereConditions.isEmpty()) {
-            sql.append(" WHERE ");
-            String operator = (filter != null && filter.getOperator() != null) ? 
-                filter.getOperator().name() : "AND";
-            sql.append(String.join(" " + operator + " ", whereConditions));
-        }
-        
-        // ORDER BY子句
+        // ORDER BY子句：脱敏列的 SELECT 别名指向脱敏后的值，按原始列排序，与 JVM 中脱敏时的顺序一致
         if (orderBy != null && !orderBy.isEmpty()) {
             sql.append(" ORDER BY ");
             List<String> orderClauses = orderBy.stream()
-                .map(order -> order.getField() + " " + order.getDirection().name())
+                .map(order -> (maskedSelect && maskingPlan.isMasked(order.getField())
+                    ? SOURCE_ALIAS + "." + order.getField() : order.getField())
+                    + " " + order.getDirection().name())
                 .collect(Collectors.toList());
             sql.append(String.join(", ", orderClauses));
         }
@@ -291,80 +496,45 @@ public class DataPlatformService {
         return sql.toString();
     }
     
-    private String buildFilterCondition(FilterCondition condition) {
-        String field = condition.getField();
-        ComparisonOperator operator = condition.getOperator();
-        Object value = condition.getValue();
-        
-        switch (operator) {
-            case EQ:
-                return field + " = '" + value + "'";
-            case NE:
-                return field + " != '" + value + "'";
-            case GT:
-                return field + " > " + value;
-            case GTE:
-                return field + " >= " + value;
-            case LT:
-                return field + " < " + value;
-            case LTE:
-                return field + " <= " + value;
-            case LIKE:
-                return field + " LIKE '" + value + "'";
-            case NOT_LIKE:
-                return field + " NOT LIKE '" + value + "'";
-            case IN:
-                List<Object> values = condition.getValues();
-                String inValues = values.stream()
-                    .map(v -> "'" + v + "'")
-                    .collect(Collectors.joining(", "));
-                return field + " IN (" + inValues + ")";
-            case NOT_IN:
-                List<Object> notInValues = condition.getValues();
-                String notInValuesStr = notInValues.stream()
-                    .map(v -> "'" + v + "'")
-                    .collect(Collectors.joining(", "));
-                return field + " NOT IN (" + notInValuesStr + ")";
-            case IS_NULL:
-                return field + " IS NULL";
-            case IS_NOT_NULL:
-                return field + " IS NOT NULL";
-            default:
-                throw new IllegalArgumentException("不支持的操作符: " + operator);
+    /**
+     * 缓存键：表名 + 有效策略指纹 + 查询参数的规范 JSON 摘要
+     *
+     * 查询参数对象没有实现 hashCode，按内容序列化后计算摘要，内容相同的查询得到相同的键。
+     * 过滤条件使用谓词的规范形式，条件顺序不同但语义相同的查询也会命中同一缓存。
+     */
+    private String buildCacheKey(String tableName, String policyFingerprint, QueryPredicate filter,
+                                 PaginationInput pagination, List<String> fieldSelection, List<OrderByInput> orderBy) {
+        try {
+            String canonical = objectMapper.writeValueAsString(Arrays.asList(
+                filter != null ? filter.canonical() : null, pagination, fieldSelection, orderBy));
+            return String.format("query:%s:%s:%s", tableName, policyFingerprint, sha256Hex(canonical).substring(0, 16));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("构建缓存键失败: " + e.getMessage(), e);
         }
     }
     
-    private String buildCacheKey(String tableName, TableFilter filter, PaginationInput pagination,
-                                List<String> fieldSelection, List<OrderByInput> orderBy) {
-        return String.format("query:%s:%s:%s:%s:%s", 
-            tableName,
-            filter != null ? filter.hashCode() : "null",
-            pagination != null ? pagination.hashCode() : "null",
-            fieldSelection != null ? fieldSelection.hashCode() : "null",
-            orderBy != null ? orderBy.hashCode() : "null");
+    private static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
     }
     
-    private int getTotalCount(String tableName, TableFilter filter, UserPermissions permissions) {
-        // 构建COUNT查询
+    private int getTotalCount(String tableName, QueryPredicate where) {
+        // 构建COUNT查询，与数据查询使用相同的条件
         StringBuilder countSql = new StringBuilder("SELECT COUNT(*) FROM ").append(tableName);
-        
-        List<String> whereConditions = new ArrayList<>();
-        if (filter != null && filter.getConditions() != null) {
-            for (FilterCondition condition : filter.getConditions()) {
-                whereConditions.add(buildFilterCondition(condition));
-            }
+        List<Object> params = new ArrayList<>();
+        if (where != null) {
+            countSql.append(" WHERE ").append(where.toSql(params));
         }
         
-        String rowLevelFilter = permissionService.getRowLevelFilter(permissions, tableName);
-        if (rowLevelFilter != null) {
-            whereConditions.add(rowLevelFilter);
-        }
-        
-        if (!whereConditions.isEmpty()) {
-            countSql.append(" WHERE ").append(String.join(" AND ", whereConditions));
-        }
-        
-        return jdbcTemplate.queryForObject(countSql.toString(), Integer.class);
+        return jdbcTemplate.queryForObject(countSql.toString(), Integer.class, params.toArray());
     }
     
     private boolean hasNextPage(PaginationInput pagination, int totalCount) {
@@ -382,36 +552,97 @@ public class DataPlatformService {
     }
     
     private QueryResult executeAsyncQuery(AsyncQueryInput input, String userId, String taskId) {
-        // 实际的异步查询执行逻辑
-        // 这里应该调用Trino的异步查询接口
+        // 表扫描按权限生成SQL，结果从 ResultSet 流式写入本地列式文件，不在内存中保留
+        // 查询类型和 tableName 已在提交时校验
+        String tableName = input.getTableName();
+        UserPermissions permissions = permissionService.getUserPermissions(userId, tableName);
+        List<String> allowedFields = permissionService.filterAllowedFields(permissions, tableName, null);
+        MaskingPlan maskingPlan = permissionService.getMaskingPlan(permissions, tableName, allowedFields);
+        if (maskingPlan == null || (allowedFields != null && allowedFields.isEmpty())) {
+            throw new SecurityException("用户无权限读取表的任何字段: " + tableName);
+        }
+        
+        List<Object> params = new ArrayList<>();
+        String sql = buildDynamicQuery(tableName, permissionService.getRowFilter(permissions, tableName),
+            null, allowedFields, null, null, params);
+        SpooledResult spooled = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(ASYNC_FETCH_SIZE);
+            if (statement.isWrapperFor(TrinoStatement.class)) {
+                // 驱动每次轮询 nextUri 都会带回语句的状态和统计块
+                statement.unwrap(TrinoStatement.class).setProgressMonitor(stats -> onTrinoProgress(taskId, stats));
+            }
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            return statement;
+        }, (ResultSetExtractor<SpooledResult>) rs -> resultSpool.spool(taskId, rs, maskingPlan));
+        
         return QueryResult.builder()
             .taskId(taskId)
             .status(QueryStatus.COMPLETED)
             .data(new ArrayList<>())
+            .totalCount((int) Math.min(spooled.getRowCount(), Integer.MAX_VALUE))
             .build();
     }
     
-    private String determineResourceGroup(AsyncQueryInput input, String userId) {
-        // 根据用户、查询类型、优先级等确定资源组
-        if (input.getPriority() == QueryPriority.HIGH || input.getPriority() == QueryPriority.URGENT) {
-            return "high_priority";
+    /**
+     * 按 Trino 上报的状态更新任务：在 Trino 资源组中排队时为 QUEUED，按已完成比例修正预估总耗时
+     */
+    private void onTrinoProgress(String taskId, QueryStats stats) {
+        trinoStats.put(taskId, stats);
+        AsyncQueryTask task = queryTasks.get(taskId);
+        if (task == null || task.getStatus() == QueryStatus.COMPLETED || task.getStatus() == QueryStatus.FAILED) {
+            return;
+        }
+        task.setStatus(stats.isQueued() ? QueryStatus.QUEUED : QueryStatus.RUNNING);
+        double percentage = stats.getProgressPercentage().orElse(0.0);
+        if (percentage > 0) {
+            task.setEstimatedDuration((int) Math.ceil(stats.getElapsedTimeMillis() / (percentage / 100.0) / 1000.0));
         }
-        return "default";
     }
     
-    private int estimateQueryDuration(AsyncQueryInput input) {
-        // 基于历史数据估算查询执行时间
-        return 60; // 默认60秒
+    private QueryResult readSpooledPage(QueryResult result, SpooledResult spooled, PaginationInput pagination)
+            throws IOException {
+        int offset = pagination != null ? pagination.getOffset() : 0;
+        int limit = pagination != null ? Math.min(pagination.getLimit(), maxResultPageSize) : maxResultPageSize;
+        List<Map<String, Object>> data = spooled.read(offset, limit);
+        return result.toBuilder()
+            .data(data)
+            .hasNextPage(offset + data.size() < spooled.getRowCount())
+            .build();
+    }
+    
+    private String determineResourceGroup(AsyncQueryInput input, QueryCostEstimator.Estimate estimate) {
+        // 高优先级查询优先；预估耗时长的普通查询进入 batch，不占用交互查询的资源
+        if (input.getPriority() == QueryPriority.HIGH || input.getPriority() == QueryPriority.URGENT) {
+            return AsyncQueryScheduler.HIGH_PRIORITY_GROUP;
+        }
+        // 没有统计信息和执行历史时代价未知，按耗时长的查询处理，有了历史后再按预估分组
+        if (estimate.getSource() == QueryCostEstimator.Source.DEFAULT
+                || estimate.getDurationMillis() > batchThresholdMillis) {
+            return AsyncQueryScheduler.BATCH_GROUP;
+        }
+        return AsyncQueryScheduler.DEFAULT_GROUP;
     }
     
     private float calculateProgress(AsyncQueryTask task, CompletableFuture<QueryResult> future) {
         if (future == null) return 0.0f;
         if (future.isDone()) return 1.0f;
+        if (task.getStartedAt() == null) return 0.0f;
+        
+        // Trino 上报了完成比例（按 split 计算）时直接使用，结果写完前不报告 1；在 Trino 中排队时没有进度
+        QueryStats stats = trinoStats.get(task.getTaskId());
+        if (stats != null && stats.isQueued()) {
+            return 0.0f;
+        }
+        if (stats != null && stats.getProgressPercentage().isPresent()) {
+            return (float) Math.min(stats.getProgressPercentage().getAsDouble() / 100.0, 0.99);
+        }
         
-        // 基于时间估算进度
-        long elapsed = System.currentTimeMillis() - task.getSubmittedAt().toEpochSecond(java.time.ZoneOffset.UTC) * 1000;
-        long estimated = task.getEstimatedDuration() * 1000L;
-        return Math.min(0.95f, (float) elapsed / estimated);
+        // 否则按开始执行后的时间与预估耗时估算进度，排队时间不计入
+        long elapsed = Duration.between(task.getStartedAt(), LocalDateTime.now()).toMillis();
+        return costEstimator.progress(taskEstimates.get(task.getTaskId()), elapsed);
     }
     
     private QueryResult applyPagination(QueryResult result, PaginationInput pagination) {
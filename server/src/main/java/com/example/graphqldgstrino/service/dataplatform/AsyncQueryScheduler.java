@@ -0,0 +1,287 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 异步查询调度器 - 按资源组排队和限流，组内按优先级调度并随等待时间提升优先级
+ *
+ * 每个资源组有独立的并发名额（信号量）和队列，batch 查询占满自己的名额后只会在本组排队，
+ * 不会占用 high_priority 和 default 组的名额。查询在虚拟线程上执行，阻塞在 JDBC 上不占用平台线程，
+ * 并发上限只由各组的名额决定。同步查询通过 runInteractive 占用单独的 interactive 名额，
+ * 不与异步查询争用，异步查询排满时同步查询也不会被阻塞。
+ * 组内按 URGENT > HIGH > NORMAL > LOW 调度，
+ * 每等待 aging-interval-ms 相当于提升一级，低优先级查询不会一直被后来的高优先级查询压住。
+ * 同一用户在一个资源组内同时运行的查询数有上限，达到上限的用户的查询留在队列中，
+ * 调度时跳过，不阻塞其他用户。未知的资源组按 default 处理。
+ */
+@Component
+public class AsyncQueryScheduler implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncQueryScheduler.class);
+
+    public static final String HIGH_PRIORITY_GROUP = "high_priority";
+    public static final String DEFAULT_GROUP = "default";
+    public static final String BATCH_GROUP = "batch";
+    // 同步查询专用，只有名额没有队列，异步查询不能进入
+    public static final String INTERACTIVE_GROUP = "interactive";
+
+    @Value("${data-platform.scheduler.high-priority-concurrency:8}")
+    private int highPriorityConcurrency;
+
+    @Value("${data-platform.scheduler.default-concurrency:16}")
+    private int defaultConcurrency;
+
+    @Value("${data-platform.scheduler.batch-concurrency:4}")
+    private int batchConcurrency;
+
+    @Value("${data-platform.scheduler.interactive-concurrency:16}")
+    private int interactiveConcurrency;
+
+    // 每个资源组最多排队的查询数，超出时拒绝提交
+    @Value("${data-platform.scheduler.max-queued:1000}")
+    private int maxQueued;
+
+    // 同一用户在一个资源组内同时运行的查询数上限
+    @Value("${data-platform.scheduler.user-max-concurrency:4}")
+    private int userMaxConcurrency;
+
+    // 排队每满该时长，调度顺序相当于提升一个优先级
+    @Value("${data-platform.scheduler.aging-interval-ms:60000}")
+    private long agingIntervalMs;
+
+    // 同步查询等待并发名额的最长时间，超时后拒绝
+    @Value("${data-platform.scheduler.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    @Value("${data-platform.virtual-threads.enabled:true}")
+    private boolean virtualThreads;
+
+    private final Map<String, ResourceGroup> groups = new LinkedHashMap<>();
+    // 排队中的查询，taskId -> 查询；和各组队列一起在 this 上加锁修改
+    private final Map<String, ScheduledQuery<?>> queuedQueries = new HashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private long sequence;
+    private int interactiveSlots;
+    private Semaphore interactivePermits;
+
+    @PostConstruct
+    public void init() {
+        groups.put(HIGH_PRIORITY_GROUP, new ResourceGroup(HIGH_PRIORITY_GROUP, highPriorityConcurrency, virtualThreads));
+        groups.put(DEFAULT_GROUP, new ResourceGroup(DEFAULT_GROUP, defaultConcurrency, virtualThreads));
+        groups.put(BATCH_GROUP, new ResourceGroup(BATCH_GROUP, batchConcurrency, virtualThreads));
+        interactiveSlots = Math.max(interactiveConcurrency, 1);
+        interactivePermits = new Semaphore(interactiveSlots);
+        logger.info("异步查询调度器已启动: high_priority={}, default={}, batch={}, interactive={}, userMaxConcurrency={}, "
+                + "agingInterval={}ms, virtualThreads={}", highPriorityConcurrency, defaultConcurrency,
+            batchConcurrency, interactiveSlots, userMaxConcurrency, agingIntervalMs, virtualThreads);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        for (ResourceGroup group : groups.values()) {
+            for (ScheduledQuery<?> query : group.queue) {
+                query.future.completeExceptionally(new CancellationException("服务关闭，排队中的查询已取消"));
+            }
+            group.queue.clear();
+            group.executor.shutdownNow();
+        }
+        queuedQueries.clear();
+    }
+
+    /**
+     * 把查询放入资源组排队，返回在调度器线程上完成的 future
+     *
+     * 对返回的 future 调用 cancel 后，尚未开始的查询不会再执行。
+     */
+    public synchronized <T> CompletableFuture<T> submit(String taskId, String resourceGroup, QueryPriority priority,
+                                                        String userId, Supplier<T> work) {
+        ResourceGroup group = groups.getOrDefault(resourceGroup, groups.get(DEFAULT_GROUP));
+        if (group.queue.size() >= maxQueued) {
+            rejected.increment();
+            throw new IllegalStateException("资源组 " + group.name + " 排队查询已满，请稍后重试");
+        }
+        // 提升一级等价于提前 agingIntervalMs 提交，排序键不随时间变化
+        long rank = priority != null ? priority.ordinal() : QueryPriority.NORMAL.ordinal();
+        long sortKey = System.currentTimeMillis() - rank * agingIntervalMs;
+        ScheduledQuery<T> query = new ScheduledQuery<>(taskId, userId, group, sortKey, sequence++, work);
+        group.queue.add(query);
+        queuedQueries.put(taskId, query);
+        dispatch(group);
+        return query.future;
+    }
+
+    /**
+     * 在调用线程上执行同步查询，执行期间占用 interactive 的一个并发名额
+     *
+     * 名额在 acquire-timeout-ms 内仍不可用时抛出 IllegalStateException，不会无限堆积等待的请求。
+     */
+    public <T> T runInteractive(Supplier<T> work) {
+        try {
+            if (!interactivePermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new IllegalStateException("资源组 " + INTERACTIVE_GROUP + " 并发已满，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待资源组 " + INTERACTIVE_GROUP + " 的并发名额时被中断", e);
+        }
+        try {
+            return work.get();
+        } finally {
+            interactivePermits.release();
+        }
+    }
+
+    /**
+     * 查询在资源组队列中的位置（从 1 开始），未在排队时返回 null
+     *
+     * 位置按当前调度顺序计算，提交者的并发达到上限时实际开始时间可能更晚。
+     */
+    public synchronized Integer getQueuePosition(String taskId) {
+        ScheduledQuery<?> query = queuedQueries.get(taskId);
+        if (query == null) {
+            return null;
+        }
+        int position = 1;
+        for (ScheduledQuery<?> queued : query.group.queue) {
+            if (queued == query) {
+                return position;
+            }
+            position++;
+        }
+        return null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (ResourceGroup group : groups.values()) {
+            Gauge.builder("dataplatform.query.scheduler.queued", group, g -> g.queuedCount)
+                .tag("group", group.name).register(registry);
+            Gauge.builder("dataplatform.query.scheduler.running", group, g -> g.concurrency - g.permits.availablePermits())
+                .tag("group", group.name).register(registry);
+        }
+        Gauge.builder("dataplatform.query.scheduler.running", interactivePermits,
+                permits -> interactiveSlots - permits.availablePermits())
+            .tag("group", INTERACTIVE_GROUP).register(registry);
+        FunctionCounter.builder("dataplatform.query.scheduler.rejected", rejected, LongAdder::sum)
+            .register(registry);
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    /**
+     * 按调度顺序启动资源组中可以运行的查询；调用方需持有 this 的锁
+     */
+    private void dispatch(ResourceGroup group) {
+        Iterator<ScheduledQuery<?>> iterator = group.queue.iterator();
+        while (group.permits.availablePermits() > 0 && iterator.hasNext()) {
+            ScheduledQuery<?> query = iterator.next();
+            if (query.future.isDone()) {
+                // 排队时已被取消
+                iterator.remove();
+                queuedQueries.remove(query.taskId);
+                continue;
+            }
+            if (group.runningByUser.getOrDefault(query.userId, 0) >= userMaxConcurrency) {
+                continue;
+            }
+            if (!group.permits.tryAcquire()) {
+                break;
+            }
+            iterator.remove();
+            queuedQueries.remove(query.taskId);
+            group.runningByUser.merge(query.userId, 1, Integer::sum);
+            group.executor.execute(() -> run(query));
+        }
+        group.queuedCount = group.queue.size();
+    }
+
+    private <T> void run(ScheduledQuery<T> query) {
+        try {
+            if (!query.future.isDone()) {
+                query.future.complete(query.work.get());
+            }
+        } catch (Throwable e) {
+            query.future.completeExceptionally(e);
+        } finally {
+            release(query);
+        }
+    }
+
+    private synchronized void release(ScheduledQuery<?> query) {
+        ResourceGroup group = query.group;
+        group.permits.release();
+        group.runningByUser.computeIfPresent(query.userId, (user, count) -> count > 1 ? count - 1 : null);
+        if (!group.executor.isShutdown()) {
+            dispatch(group);
+        }
+    }
+
+    private static final class ResourceGroup {
+        final String name;
+        final int concurrency;
+        final ExecutorService executor;
+        final NavigableSet<ScheduledQuery<?>> queue = new TreeSet<>(
+            Comparator.<ScheduledQuery<?>>comparingLong(query -> query.sortKey)
+                .thenComparingLong(query -> query.sequence));
+        final Map<String, Integer> runningByUser = new HashMap<>();
+        final Semaphore permits;
+        // 供指标读取，不需要加锁
+        volatile int queuedCount;
+
+        ResourceGroup(String name, int concurrency, boolean virtualThreads) {
+            this.name = name;
+            this.concurrency = Math.max(concurrency, 1);
+            this.permits = new Semaphore(this.concurrency);
+            // 只在取得名额后才提交任务，执行器本身不排队
+            if (virtualThreads) {
+                this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("async-query-" + name + "-", 1).factory());
+            } else {
+                AtomicInteger threadNumber = new AtomicInteger();
+                this.executor = Executors.newFixedThreadPool(this.concurrency, r -> {
+                    Thread thread = new Thread(r, "async-query-" + name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    private static final class ScheduledQuery<T> {
+        final String taskId;
+        final String userId;
+        final ResourceGroup group;
+        final long sortKey;
+        final long sequence;
+        final Supplier<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        ScheduledQuery(String taskId, String userId, ResourceGroup group, long sortKey, long sequence,
+                       Supplier<T> work) {
+            this.taskId = taskId;
+            this.userId = userId;
+            this.group = group;
+            this.sortKey = sortKey;
+            this.sequence = sequence;
+            this.work = work;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存键二级索引 - 按表和用户查找缓存键
+ *
+ * 缓存条目按有效策略在用户之间共享，一个键可以登记在多个用户下。
+ * 精确值查找为 O(1)，通配符模式只遍历不同的表名/用户名，再合并匹配到的键集合，
+ * 因此按表或用户失效的开销与匹配的条目数成正比，而不是与缓存总量成正比。
+ */
+public class CacheKeyIndex {
+
+    private final Map<String, Set<String>> keysByTable = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByUser = new ConcurrentHashMap<>();
+
+    public void add(String cacheKey, String tableName, Collection<String> userIds) {
+        addTo(keysByTable, tableName, cacheKey);
+        for (String userId : userIds) {
+            addTo(keysByUser, userId, cacheKey);
+        }
+    }
+
+    public void remove(String cacheKey, String tableName, Collection<String> userIds) {
+        removeFrom(keysByTable, tableName, cacheKey);
+        for (String userId : userIds) {
+            removeFrom(keysByUser, userId, cacheKey);
+        }
+    }
+
+    /**
+     * 索引中名称匹配的表
+     */
+    public Set<String> matchTables(GlobPattern tablePattern) {
+        if (tablePattern.isLiteral()) {
+            return keysByTable.containsKey(tablePattern.getLiteral())
+                ? Collections.singleton(tablePattern.getLiteral()) : Collections.emptySet();
+        }
+        Set<String> result = new HashSet<>();
+        for (String tableName : keysByTable.keySet()) {
+            if (tablePattern.matches(tableName)) {
+                result.add(tableName);
+            }
+        }
+        return result;
+    }
+
+    public Set<String> keysForTable(String tableName) {
+        Set<String> keys = keysByTable.get(tableName);
+        return keys != null ? new HashSet<>(keys) : new HashSet<>();
+    }
+
+    public Set<String> keysForUser(String userId) {
+        Set<String> keys = keysByUser.get(userId);
+        return keys != null ? new HashSet<>(keys) : new HashSet<>();
+    }
+
+    public Set<String> keysForUsers(GlobPattern userPattern) {
+        return lookup(keysByUser, userPattern);
+    }
+
+    public void clear() {
+        keysByTable.clear();
+        keysByUser.clear();
+    }
+
+    private static Set<String> lookup(Map<String, Set<String>> index, GlobPattern pattern) {
+        if (pattern.isLiteral()) {
+            Set<String> keys = index.get(pattern.getLiteral());
+            return keys != null ? new HashSet<>(keys) : new HashSet<>();
+        }
+        Set<String> result = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+            if (pattern.matches(entry.getKey())) {
+                result.addAll(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static void addTo(Map<String, Set<String>> index, String value, String cacheKey) {
+        if (value == null) {
+            return;
+        }
+        // 在 compute 中修改，避免与移除空集合的操作交错而丢失键
+        index.compute(value, (k, keys) -> {
+            Set<String> target = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            target.add(cacheKey);
+            return target;
+        });
+    }
+
+    private static void removeFrom(Map<String, Set<String>> index, String value, String cacheKey) {
+        if (value == null) {
+            return;
+        }
+        index.computeIfPresent(value, (k, keys) -> {
+            keys.remove(cacheKey);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
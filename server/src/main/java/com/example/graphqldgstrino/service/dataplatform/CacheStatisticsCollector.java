@@ -0,0 +1,304 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 缓存统计收集器 - 基于 LongAdder 的无锁计数和延迟直方图
+ *
+ * 按表、用户、缓存层级三个维度分别统计命中/未命中和延迟分布。
+ * 层级维度导出为 Micrometer 指标；表维度最多为 table-meters-limit 张表注册指标，之后新增的表只在 GraphQL 中提供，
+ * 避免目录同步不断增加时间序列。用户维度基数不可控，不导出指标，只保留最近活跃的 max-tracked-users 个用户，
+ * 超出或空闲超过 user-idle-minutes 的用户统计被丢弃，再次出现时从零开始计数。
+ * 计数器单调递增，清空缓存不会重置统计。
+ */
+@Component
+public class CacheStatisticsCollector implements MeterBinder {
+
+    public static final String TIER_MEMORY = "memory";
+    public static final String TIER_DISK = "disk";
+
+    private static final String UNKNOWN = "unknown";
+
+    // 按用户统计保留的用户数上限，每个用户约占 20KB（两个延迟直方图）
+    @Value("${data-platform.cache.statistics.max-tracked-users:1000}")
+    private int maxTrackedUsers;
+
+    @Value("${data-platform.cache.statistics.user-idle-minutes:60}")
+    private long userIdleMinutes;
+
+    // 注册按表指标的表数上限，0 表示不导出按表指标
+    @Value("${data-platform.cache.statistics.table-meters-limit:200}")
+    private int tableMetersLimit;
+
+    private final Map<String, StatsCell> tableStats = new ConcurrentHashMap<>();
+    private Cache<String, StatsCell> userStats;
+    private final Map<String, StatsCell> tierStats = new ConcurrentHashMap<>();
+    // 已注册指标的表数，在 this 上加锁修改
+    private int boundTables;
+
+    private final StatsCell overall = new StatsCell(null);
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // 后台维护任务
+    private final LongAdder maintenanceRuns = new LongAdder();
+    private final LatencyHistogram maintenanceDuration = new LatencyHistogram();
+    private final LatencyHistogram maintenanceLag = new LatencyHistogram();
+    private volatile long maintenanceIntervalMillis;
+    private volatile long lastMaintenanceMillis;
+    private volatile int pendingExpirations;
+
+    private volatile MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        userStats = Caffeine.newBuilder()
+            .maximumSize(Math.max(maxTrackedUsers, 0))
+            .expireAfterAccess(Duration.ofMinutes(Math.max(userIdleMinutes, 1)))
+            .build();
+    }
+
+    /**
+     * 记录一次缓存查找的最终结果（任一层级命中即为命中）
+     */
+    public void recordLookup(String tableName, String userId, boolean hit, long latencyNanos) {
+        overall.record(hit, latencyNanos);
+        tableCell(tableName).record(hit, latencyNanos);
+        userCell(userId).record(hit, latencyNanos);
+    }
+
+    /**
+     * 记录单个缓存层级的查找结果
+     */
+    public void recordTierLookup(String tier, boolean hit, long latencyNanos) {
+        tierCell(tier).record(hit, latencyNanos);
+    }
+
+    /**
+     * 记录一次实际执行（未命中缓存）的查询耗时
+     */
+    public void recordQueryExecution(String tableName, String userId, long latencyNanos) {
+        tableCell(tableName).queryLatency.recordNanos(latencyNanos);
+        userCell(userId).queryLatency.recordNanos(latencyNanos);
+    }
+
+    public void recordPut() {
+        puts.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public void recordExpiration() {
+        expirations.increment();
+    }
+
+    /**
+     * 记录一次后台维护任务的执行情况
+     *
+     * @param lagNanos 实际开始时间相对计划时间的延迟
+     * @param pendingExpirations 时间轮中尚未到期的条目数
+     */
+    public void recordMaintenanceRun(long intervalMillis, long lagNanos, long durationNanos, int pendingExpirations) {
+        maintenanceRuns.increment();
+        maintenanceLag.recordNanos(lagNanos);
+        maintenanceDuration.recordNanos(durationNanos);
+        this.maintenanceIntervalMillis = intervalMillis;
+        this.pendingExpirations = pendingExpirations;
+        this.lastMaintenanceMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 生成统计快照
+     */
+    public CacheStatistics snapshot(int totalEntries, int maxSize, int defaultTtlMinutes) {
+        CacheStatistics stats = new CacheStatistics();
+        stats.setTotalEntries(totalEntries);
+        stats.setMaxSize(maxSize);
+        stats.setDefaultTtlMinutes(defaultTtlMinutes);
+
+        long hits = overall.hits.sum();
+        long misses = overall.misses.sum();
+        stats.setHitCount(hits);
+        stats.setMissCount(misses);
+        stats.setHitRate(hitRate(hits, misses));
+        stats.setPutCount(puts.sum());
+        stats.setEvictionCount(evictions.sum());
+        stats.setExpirationCount(expirations.sum());
+        stats.setLookupLatency(overall.lookupLatency.toSummary());
+
+        stats.setByTable(breakdown(tableStats));
+        stats.setByUser(breakdown(userStats.asMap()));
+        stats.setByTier(breakdown(tierStats));
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+
+        FunctionCounter.builder("dataplatform.cache.requests", overall.hits, LongAdder::sum)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("dataplatform.cache.requests", overall.misses, LongAdder::sum)
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("dataplatform.cache.puts", puts, LongAdder::sum).register(registry);
+        FunctionCounter.builder("dataplatform.cache.evictions", evictions, LongAdder::sum).register(registry);
+        FunctionCounter.builder("dataplatform.cache.expirations", expirations, LongAdder::sum).register(registry);
+        registerLatencyGauges(registry, "dataplatform.cache.lookup.latency", Tags.empty(), overall.lookupLatency);
+
+        FunctionCounter.builder("dataplatform.cache.maintenance.runs", maintenanceRuns, LongAdder::sum)
+            .register(registry);
+        Gauge.builder("dataplatform.cache.maintenance.interval", this, c -> c.maintenanceIntervalMillis)
+            .baseUnit("milliseconds").register(registry);
+        Gauge.builder("dataplatform.cache.maintenance.last.run.age", this, CacheStatisticsCollector::lastMaintenanceAgeMillis)
+            .baseUnit("milliseconds").register(registry);
+        Gauge.builder("dataplatform.cache.expiry.pending", this, c -> c.pendingExpirations).register(registry);
+        registerLatencyGauges(registry, "dataplatform.cache.maintenance.lag", Tags.empty(), maintenanceLag);
+        registerLatencyGauges(registry, "dataplatform.cache.maintenance.duration", Tags.empty(), maintenanceDuration);
+
+        tableStats.values().forEach(this::bindTable);
+        tierStats.values().forEach(cell -> cell.bind(registry, "tier"));
+    }
+
+    private StatsCell tableCell(String tableName) {
+        return cell(tableStats, tableName, this::bindTable);
+    }
+
+    private StatsCell userCell(String userId) {
+        return userStats.get(userId != null ? userId : UNKNOWN, StatsCell::new);
+    }
+
+    private StatsCell tierCell(String tier) {
+        return cell(tierStats, tier, created -> {
+            MeterRegistry registry = meterRegistry;
+            if (registry != null) {
+                created.bind(registry, "tier");
+            }
+        });
+    }
+
+    private StatsCell cell(Map<String, StatsCell> cells, String key, Consumer<StatsCell> onCreate) {
+        String normalized = key != null ? key : UNKNOWN;
+        StatsCell cell = cells.get(normalized);
+        if (cell != null) {
+            return cell;
+        }
+        return cells.computeIfAbsent(normalized, k -> {
+            StatsCell created = new StatsCell(k);
+            onCreate.accept(created);
+            return created;
+        });
+    }
+
+    /**
+     * 为表注册指标，已注册的表数达到上限后不再注册
+     */
+    private synchronized void bindTable(StatsCell cell) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null || cell.bound || boundTables >= tableMetersLimit) {
+            return;
+        }
+        boundTables++;
+        cell.bound = true;
+        cell.bind(registry, "table");
+    }
+
+    private List<CacheStatisticsBreakdown> breakdown(Map<String, StatsCell> cells) {
+        return cells.values().stream()
+            .map(StatsCell::toBreakdown)
+            .sorted(Comparator.comparingLong((CacheStatisticsBreakdown b) -> b.getHitCount() + b.getMissCount()).reversed())
+            .collect(Collectors.toList());
+    }
+
+    private double lastMaintenanceAgeMillis() {
+        long last = lastMaintenanceMillis;
+        return last > 0 ? System.currentTimeMillis() - last : 0.0;
+    }
+
+    private static double hitRate(long hits, long misses) {
+        return hits + misses > 0 ? (double) hits / (hits + misses) : 0.0;
+    }
+
+    private static void registerLatencyGauges(MeterRegistry registry, String name, Tags tags, LatencyHistogram histogram) {
+        Gauge.builder(name, histogram, h -> h.getPercentileMillis(0.50))
+            .tags(tags).tag("quantile", "0.5").baseUnit("milliseconds").register(registry);
+        Gauge.builder(name, histogram, h -> h.getPercentileMillis(0.90))
+            .tags(tags).tag("quantile", "0.9").baseUnit("milliseconds").register(registry);
+        Gauge.builder(name, histogram, h -> h.getPercentileMillis(0.99))
+            .tags(tags).tag("quantile", "0.99").baseUnit("milliseconds").register(registry);
+    }
+
+    /**
+     * 单个维度值的统计单元
+     */
+    private static class StatsCell {
+        private final String key;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LatencyHistogram lookupLatency = new LatencyHistogram();
+        private final LatencyHistogram queryLatency = new LatencyHistogram();
+        // 是否已注册按表指标，在收集器上加锁修改
+        private boolean bound;
+
+        StatsCell(String key) {
+            this.key = key;
+        }
+
+        void record(boolean hit, long latencyNanos) {
+            if (hit) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            lookupLatency.recordNanos(latencyNanos);
+        }
+
+        void bind(MeterRegistry registry, String tagName) {
+            // Prometheus 要求同名指标的标签键一致，因此每个维度使用独立的指标名
+            Tags tags = Tags.of(tagName, key);
+            String prefix = "dataplatform.cache." + tagName;
+            FunctionCounter.builder(prefix + ".requests", hits, LongAdder::sum)
+                .tags(tags).tag("result", "hit").register(registry);
+            FunctionCounter.builder(prefix + ".requests", misses, LongAdder::sum)
+                .tags(tags).tag("result", "miss").register(registry);
+            registerLatencyGauges(registry, prefix + ".lookup.latency", tags, lookupLatency);
+            if ("table".equals(tagName)) {
+                registerLatencyGauges(registry, "dataplatform.query.latency", tags, queryLatency);
+            }
+        }
+
+        CacheStatisticsBreakdown toBreakdown() {
+            CacheStatisticsBreakdown breakdown = new CacheStatisticsBreakdown(key);
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            breakdown.setHitCount(hitCount);
+            breakdown.setMissCount(missCount);
+            breakdown.setHitRate(hitRate(hitCount, missCount));
+            breakdown.setLookupLatency(lookupLatency.toSummary());
+            breakdown.setQueryLatency(queryLatency.toSummary());
+            return breakdown;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 表目录搜索索引 - 表名、描述、标签和字段名上的三元组倒排索引，随目录变化增量维护
+ *
+ * 每个字段的小写文本在写入时计算一次，末尾补两个 \0 后切分为三元组，因此任意长度的子串
+ * 都能由倒排表找到候选：长度不小于 3 的词取各三元组倒排表的交集，更短的词取以它开头的
+ * 三元组倒排表的并集。候选再用预先小写的文本做一次子串校验，结果与逐表 contains 一致。
+ *
+ * 结果按得分降序排列，得分相同时按文档编号升序，即最近一次写入索引的先后。排序键把得分和文档编号编码为一个 long，
+ * 用基本类型数组排序。同一查询（搜索词和库）的完整排序结果缓存在索引中，不同分页和不同用户共用，
+ * 按用户可读范围过滤时只遍历排序结果；可读范围较小时直接对范围内的表打分。
+ * 缓存在索引写入时清空。
+ *
+ * 文档编号单调递增，倒排表按编号有序追加；表更新时删除旧文档再以新编号写入。
+ * 搜索持有读锁，写入持有写锁，写入只来自元数据的注册和目录同步。
+ */
+public final class CatalogSearchIndex {
+
+    private static final char PAD = '\0';
+    // 拼接多个标签或字段名时的分隔符，用于在一个字符串上判断完全相等
+    private static final char SEPARATOR = '\u0001';
+    private static final int MAX_CACHED_QUERIES = 128;
+    // 可读范围不超过该数量时直接对范围内的表打分
+    private static final int SCOPE_SCAN_LIMIT = 4096;
+
+    // 各字段的匹配得分，完全相等 > 词首匹配 > 子串匹配
+    private static final int NAME_EXACT = 100;
+    private static final int NAME_PREFIX = 50;
+    private static final int NAME_CONTAINS = 20;
+    private static final int TAG_EXACT = 30;
+    private static final int TAG_CONTAINS = 10;
+    private static final int COLUMN_EXACT = 15;
+    private static final int COLUMN_CONTAINS = 5;
+    private static final int DESCRIPTION_CONTAINS = 5;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 三元组 -> 文档编号倒排表
+    private final Map<String, Postings> grams = new HashMap<>();
+    // 全部三元组的有序集合，只在三元组新增或消失时修改，用于短词的前缀查找
+    private final NavigableSet<String> gramKeys = new TreeSet<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    // "库.表" -> 当前文档编号
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private int nextId;
+    // 查询 -> 按得分降序、文档编号升序排列的全部匹配文档编号
+    private final Map<String, int[]> rankedQueries = Collections.synchronizedMap(
+        new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > MAX_CACHED_QUERIES;
+            }
+        });
+
+    /**
+     * 写入或替换一张表，schema 可以为 null（只索引表名、描述和标签）
+     */
+    public void put(TableInfo table, TableSchema schema) {
+        // 小写和切分在锁外完成
+        Document document = new Document(table, schema);
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.key);
+            int id = nextId++;
+            documents.put(id, document);
+            documentIds.put(document.key, id);
+            for (String gram : document.grams) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    postings = new Postings();
+                    grams.put(gram, postings);
+                    gramKeys.add(gram);
+                }
+                postings.append(id);
+            }
+            rankedQueries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除一张表
+     */
+    public void remove(String database, String tableName) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(database + "." + tableName);
+            rankedQueries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索表，按得分降序返回一页结果
+     *
+     * searchTerm 按空白切分为多个词，每个词都需在表名、描述、标签或字段名之一中出现；
+     * 为空时返回范围内的全部表。database 和 tableScope（"库.表" 集合）为 null 时不限制。
+     */
+    public List<TableInfo> search(String searchTerm, String database, Set<String> tableScope, int offset, int limit) {
+        String[] terms = searchTerm != null ? searchTerm.trim().toLowerCase().split("\\s+") : new String[0];
+        if (terms.length == 1 && terms[0].isEmpty()) {
+            terms = new String[0];
+        }
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        int skip = Math.max(offset, 0);
+
+        lock.readLock().lock();
+        try {
+            if (tableScope != null && tableScope.size() <= SCOPE_SCAN_LIMIT) {
+                return searchScope(terms, database, tableScope, skip, limit);
+            }
+            List<TableInfo> page = new ArrayList<>(Math.min(limit, 128));
+            for (int id : ranked(terms, database)) {
+                Document document = documents.get(id);
+                if (tableScope != null && !tableScope.contains(document.key)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                page.add(document.table);
+                if (page.size() >= limit) {
+                    break;
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== 检索与打分 ==========
+
+    /**
+     * 查询的完整排序结果，未缓存时由倒排表计算；调用方需持有读锁
+     */
+    private int[] ranked(String[] terms, String database) {
+        String cacheKey = database + SEPARATOR + String.join(" ", terms);
+        int[] ranked = rankedQueries.get(cacheKey);
+        if (ranked != null) {
+            return ranked;
+        }
+
+        String[] wordStarts = wordStarts(terms);
+        long[] hits;
+        int count = 0;
+        if (terms.length == 0) {
+            hits = new long[documents.size()];
+            for (Map.Entry<Integer, Document> entry : documents.entrySet()) {
+                if (database == null || database.equals(entry.getValue().database)) {
+                    hits[count++] = sortKey(0, entry.getKey());
+                }
+            }
+        } else {
+            int[] candidates = candidates(terms);
+            hits = new long[candidates.length];
+            for (int id : candidates) {
+                Document document = documents.get(id);
+                if (database != null && !database.equals(document.database)) {
+                    continue;
+                }
+                int score = score(document, terms, wordStarts);
+                if (score > 0) {
+                    hits[count++] = sortKey(score, id);
+                }
+            }
+        }
+        Arrays.sort(hits, 0, count);
+
+        ranked = new int[count];
+        for (int i = 0; i < count; i++) {
+            ranked[i] = (int) hits[i];
+        }
+        rankedQueries.put(cacheKey, ranked);
+        return ranked;
+    }
+
+    /**
+     * 可读范围较小时只对范围内的表打分，不使用排序缓存
+     */
+    private List<TableInfo> searchScope(String[] terms, String database, Set<String> tableScope, int skip, int limit) {
+        String[] wordStarts = wordStarts(terms);
+        long[] hits = new long[tableScope.size()];
+        int count = 0;
+        for (String key : tableScope) {
+            Integer id = documentIds.get(key);
+            if (id == null) {
+                continue;
+            }
+            Document document = documents.get(id);
+            if (database != null && !database.equals(document.database)) {
+                continue;
+            }
+            int score = terms.length == 0 ? 0 : score(document, terms, wordStarts);
+            if (score > 0 || terms.length == 0) {
+                hits[count++] = sortKey(score, id);
+            }
+        }
+        Arrays.sort(hits, 0, count);
+
+        int from = Math.min(skip, count);
+        int to = (int) Math.min((long) from + limit, count);
+        List<TableInfo> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(documents.get((int) hits[i]).table);
+        }
+        return page;
+    }
+
+    /**
+     * 排序键：高 32 位为反转的得分，低 32 位为文档编号，升序即得分降序、编号升序
+     */
+    private static long sortKey(int score, int id) {
+        return ((long) (Integer.MAX_VALUE - score) << 32) | id;
+    }
+
+    /**
+     * 每个词的候选文档取交集，从最小的集合开始
+     */
+    private int[] candidates(String[] terms) {
+        List<int[]> lists = new ArrayList<>(terms.length);
+        for (String term : terms) {
+            int[] candidates = term.length() >= 3 ? intersectGrams(term) : unionGramsWithPrefix(term);
+            if (candidates.length == 0) {
+                return candidates;
+            }
+            lists.add(candidates);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private int[] intersectGrams(String term) {
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            Postings postings = grams.get(term.substring(i, i + 3));
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i).toArray());
+        }
+        return result;
+    }
+
+    private int[] unionGramsWithPrefix(String term) {
+        // 补齐的三元组保证长度 1、2 的子串一定是某个三元组的前缀
+        String upper = term + Character.MAX_VALUE;
+        BitSet union = new BitSet();
+        for (String gram : gramKeys.subSet(term, true, upper, false)) {
+            Postings postings = grams.get(gram);
+            for (int i = 0; i < postings.size; i++) {
+                union.set(postings.ids[i]);
+            }
+        }
+        return union.stream().toArray();
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static String[] wordStarts(String[] terms) {
+        String[] wordStarts = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            wordStarts[i] = "_" + terms[i];
+        }
+        return wordStarts;
+    }
+
+    /**
+     * 所有词都匹配时返回总分，任一词不匹配返回 0；候选来自倒排表，这里同时完成子串校验
+     */
+    private static int score(Document document, String[] terms, String[] wordStarts) {
+        int total = 0;
+        for (int i = 0; i < terms.length; i++) {
+            String term = terms[i];
+            int score = 0;
+            if (document.name.equals(term)) {
+                score += NAME_EXACT;
+            } else if (document.name.startsWith(term) || document.name.contains(wordStarts[i])) {
+                score += NAME_PREFIX;
+            } else if (document.name.contains(term)) {
+                score += NAME_CONTAINS;
+            }
+            score += fieldScore(document.tags, term, TAG_EXACT, TAG_CONTAINS);
+            score += fieldScore(document.columns, term, COLUMN_EXACT, COLUMN_CONTAINS);
+            if (document.description.contains(term)) {
+                score += DESCRIPTION_CONTAINS;
+            }
+            if (score == 0) {
+                return 0;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    /**
+     * 在用分隔符拼接的多值字段上匹配：某个值与词完全相等得 exact 分，否则包含该词得 contains 分
+     */
+    private static int fieldScore(String joined, String term, int exact, int contains) {
+        int index = joined.indexOf(term);
+        if (index < 0) {
+            return 0;
+        }
+        while (index >= 0) {
+            int end = index + term.length();
+            if (index > 0 && end < joined.length()
+                    && joined.charAt(index - 1) == SEPARATOR && joined.charAt(end) == SEPARATOR) {
+                return exact;
+            }
+            index = joined.indexOf(term, index + 1);
+        }
+        return contains;
+    }
+
+    // ========== 维护 ==========
+
+    private void removeLocked(String key) {
+        Integer id = documentIds.remove(key);
+        if (id == null) {
+            return;
+        }
+        Document document = documents.remove(id);
+        for (String gram : document.grams) {
+            Postings postings = grams.get(gram);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                grams.remove(gram);
+                gramKeys.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * 有序的文档编号数组，新编号总是最大，直接追加
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void append(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /**
+     * 一张表的索引文档，小写文本和三元组集合在构造时计算
+     */
+    private static final class Document {
+        final String key;
+        final String database;
+        final TableInfo table;
+        final String name;
+        final String description;
+        // 标签和字段名以分隔符拼接，首尾也带分隔符
+        final String tags;
+        final String columns;
+        final Set<String> grams = new HashSet<>();
+
+        Document(TableInfo table, TableSchema schema) {
+            this.table = table;
+            this.database = table.getDatabase();
+            this.key = database + "." + table.getTableName();
+            this.name = table.getTableName().toLowerCase();
+            this.description = table.getDescription() != null ? table.getDescription().toLowerCase() : "";
+            addGrams(name);
+            addGrams(description);
+
+            StringBuilder tagText = new StringBuilder().append(SEPARATOR);
+            if (table.getTags() != null) {
+                for (String tag : table.getTags()) {
+                    String value = tag.toLowerCase();
+                    tagText.append(value).append(SEPARATOR);
+                    addGrams(value);
+                }
+            }
+            this.tags = tagText.toString();
+
+            StringBuilder columnText = new StringBuilder().append(SEPARATOR);
+            if (schema != null && schema.getColumns() != null) {
+                for (ColumnInfo column : schema.getColumns()) {
+                    String value = column.getName().toLowerCase();
+                    columnText.append(value).append(SEPARATOR);
+                    addGrams(value);
+                }
+            }
+            this.columns = columnText.toString();
+        }
+
+        private void addGrams(String text) {
+            if (text.isEmpty()) {
+                return;
+            }
+            String padded = text + PAD + PAD;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+    }
+}
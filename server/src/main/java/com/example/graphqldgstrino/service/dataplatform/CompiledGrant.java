@@ -0,0 +1,30 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.*;
+
+/**
+ * 编译后的一组授权 - 角色授权或用户的直接授权，只在授权内容变化时编译一次
+ *
+ * 同一角色的所有成员共享这里的 CompiledTablePermission 对象，
+ * 因此也共享字段位图、脱敏计划缓存和权限指纹。
+ */
+public final class CompiledGrant {
+
+    private final String name;
+    private final List<String> globalPermissions;
+    private final List<CompiledTablePermission> tables;
+
+    CompiledGrant(String name, List<String> globalPermissions, List<TablePermission> tablePermissions) {
+        this.name = name;
+        this.globalPermissions = globalPermissions != null
+            ? Collections.unmodifiableList(new ArrayList<>(globalPermissions))
+            : Collections.emptyList();
+        this.tables = Collections.unmodifiableList(CompiledPermissions.compileTables(tablePermissions));
+    }
+
+    public String getName() { return name; }
+    public List<String> getGlobalPermissions() { return globalPermissions; }
+    public List<CompiledTablePermission> getTables() { return tables; }
+}
@@ -0,0 +1,152 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的用户权限 - 按 "库.表" 建立哈希索引，每个用户每个权限版本编译一次
+ *
+ * 同时按不带库名的表名建立索引，用于调用方只传表名的场景；
+ * 与原来按列表顺序查找一致，同一张表有多条配置时以第一条为准。
+ * getTables 按配置顺序返回去重后的表权限。
+ * 行级过滤条件中的 ${user.xxx} 在首次使用时用本用户的属性绑定，并随快照缓存。
+ */
+public final class CompiledPermissions {
+
+    private final String userId;
+    private final long version;
+    private final boolean admin;
+    private final Set<String> globalPermissions;
+    private final Map<String, CompiledTablePermission> tablesByQualifiedName;
+    private final Map<String, CompiledTablePermission> tablesByName;
+    private final Set<String> databases;
+    // 有读权限的 "库.表"，列出表时用于过滤，避免逐个遍历权限配置
+    private final Set<String> readableTables;
+    // 行级过滤条件可引用的用户属性（id、roles、resourceGroups）
+    private final Map<String, Object> attributes;
+    // 含用户属性引用的行级过滤条件绑定后的结果
+    private final Map<CompiledTablePermission, QueryPredicate> boundRowFilters = new ConcurrentHashMap<>();
+
+    CompiledPermissions(UserPermissions userPermissions, long version) {
+        this(userPermissions.getUserId(), version, userPermissions.getGlobalPermissions(),
+            compileTables(userPermissions.getTablePermissions()),
+            userAttributes(userPermissions.getUserId(), null, userPermissions.getResourceGroups()));
+    }
+
+    /**
+     * 由已编译的表权限组装，表权限对象可以在多个用户之间共享（如来自同一角色）
+     */
+    CompiledPermissions(String userId, long version, Collection<String> globalPermissions,
+                        List<CompiledTablePermission> tables, Map<String, Object> attributes) {
+        this.userId = userId;
+        this.attributes = attributes != null ? Collections.unmodifiableMap(attributes) : Collections.emptyMap();
+        this.version = version;
+        this.globalPermissions = globalPermissions != null
+            ? Collections.unmodifiableSet(new HashSet<>(globalPermissions))
+            : Collections.emptySet();
+        this.admin = this.globalPermissions.contains("ADMIN");
+
+        // 保持配置顺序，getTables 按该顺序返回
+        Map<String, CompiledTablePermission> qualified = new LinkedHashMap<>();
+        Map<String, CompiledTablePermission> byName = new HashMap<>();
+        Set<String> databaseNames = new HashSet<>();
+        Set<String> readable = new HashSet<>();
+        for (CompiledTablePermission compiled : tables) {
+            String key = qualifiedName(compiled.getDatabase(), compiled.getTableName());
+            if (qualified.putIfAbsent(key, compiled) != null) {
+                continue;
+            }
+            byName.putIfAbsent(compiled.getTableName(), compiled);
+            databaseNames.add(compiled.getDatabase());
+            if (compiled.hasPermission("READ")) {
+                readable.add(key);
+            }
+        }
+        this.tablesByQualifiedName = Collections.unmodifiableMap(qualified);
+        this.tablesByName = Collections.unmodifiableMap(byName);
+        this.databases = Collections.unmodifiableSet(databaseNames);
+        this.readableTables = Collections.unmodifiableSet(readable);
+    }
+
+    static List<CompiledTablePermission> compileTables(List<TablePermission> tablePermissions) {
+        if (tablePermissions == null || tablePermissions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CompiledTablePermission> compiled = new ArrayList<>(tablePermissions.size());
+        for (TablePermission tablePermission : tablePermissions) {
+            compiled.add(new CompiledTablePermission(tablePermission));
+        }
+        return compiled;
+    }
+
+    /**
+     * 行级过滤条件可引用的用户属性
+     */
+    static Map<String, Object> userAttributes(String userId, List<String> roles, List<String> resourceGroups) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("id", userId);
+        attributes.put("roles", roles != null ? roles : Collections.emptyList());
+        attributes.put("resourceGroups", resourceGroups != null ? resourceGroups : Collections.emptyList());
+        return attributes;
+    }
+
+    public String getUserId() { return userId; }
+    public long getVersion() { return version; }
+    public boolean isAdmin() { return admin; }
+    public Set<String> getGlobalPermissions() { return globalPermissions; }
+    public Set<String> getDatabases() { return databases; }
+
+    /**
+     * 有读权限的表（"库.表"），管理员不受该集合限制
+     */
+    public Set<String> getReadableTables() { return readableTables; }
+
+    /**
+     * 是否可以读取该表
+     */
+    public boolean canRead(String database, String tableName) {
+        return admin || readableTables.contains(qualifiedName(database, tableName));
+    }
+
+    public Collection<CompiledTablePermission> getTables() {
+        return tablesByQualifiedName.values();
+    }
+
+    /**
+     * 按库名和表名查找表权限，没有配置时返回 null
+     */
+    public CompiledTablePermission forTable(String database, String tableName) {
+        return tablesByQualifiedName.get(qualifiedName(database, tableName));
+    }
+
+    /**
+     * 按 "库.表" 或表名查找表权限，没有配置时返回 null
+     */
+    public CompiledTablePermission forTable(String tableName) {
+        if (tableName == null) {
+            return null;
+        }
+        CompiledTablePermission compiled = tablesByQualifiedName.get(tableName);
+        return compiled != null ? compiled : tablesByName.get(tableName);
+    }
+
+    /**
+     * 绑定本用户属性后的行级过滤条件，管理员或没有行级过滤时返回 null
+     */
+    public QueryPredicate rowFilter(CompiledTablePermission table) {
+        if (admin || table == null || table.getRowFilter() == null) {
+            return null;
+        }
+        QueryPredicate filter = table.getRowFilter();
+        if (!filter.hasAttributes()) {
+            return filter;
+        }
+        return boundRowFilters.computeIfAbsent(table, t -> t.getRowFilter().bind(attributes));
+    }
+
+    static String qualifiedName(String database, String tableName) {
+        return database + "." + tableName;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的表级权限 - 字段权限按列序号存放在位图中，检查为 O(1)
+ *
+ * 列序号为字段在权限配置中的顺序。没有字段级配置的表视为所有字段 ALLOW；
+ * 有字段级配置时未列出的字段默认拒绝，与未编译时的判断规则一致。
+ */
+public final class CompiledTablePermission {
+
+    private static final int MAX_MASKING_PLANS = 256;
+    private static final int MAX_POLICY_FINGERPRINTS = 256;
+
+    private final TablePermission source;
+    private final String database;
+    private final String tableName;
+    private final Set<String> permissions;
+    private final boolean fieldRestricted;
+    private final Map<String, Integer> ordinals;
+    private final String[] fieldNames;
+    private final BitSet allow = new BitSet();
+    private final BitSet deny = new BitSet();
+    private final BitSet mask = new BitSet();
+    private final BitSet hash = new BitSet();
+    private final String[] maskingRules;
+    private final String rowLevelFilter;
+    // 解析后的行级过滤条件，可能包含 ${user.xxx} 属性引用，按用户绑定后使用
+    private final QueryPredicate rowFilter;
+    private final Integer maxRows;
+    // 按查询列缓存的脱敏计划，权限重新编译后随之失效
+    private final Map<List<String>, MaskingPlan> maskingPlans = new ConcurrentHashMap<>();
+    // 按查询列缓存的有效策略指纹
+    private final Map<List<String>, String> policyFingerprints = new ConcurrentHashMap<>();
+    // 权限指纹，首次使用时计算，随编译结果一起随权限快照替换
+    private volatile String fingerprint;
+
+    CompiledTablePermission(TablePermission tablePermission) {
+        this.source = tablePermission;
+        this.database = tablePermission.getDatabase();
+        this.tableName = tablePermission.getTableName();
+        this.permissions = tablePermission.getPermissions() != null
+            ? Collections.unmodifiableSet(new HashSet<>(tablePermission.getPermissions()))
+            : Collections.emptySet();
+        this.maxRows = tablePermission.getMaxRows();
+
+        List<FieldPermission> fieldPermissions = tablePermission.getFieldPermissions();
+        this.fieldRestricted = fieldPermissions != null && !fieldPermissions.isEmpty();
+        int fieldCount = fieldRestricted ? fieldPermissions.size() : 0;
+        this.ordinals = new HashMap<>(fieldCount * 2);
+        this.fieldNames = new String[fieldCount];
+        this.maskingRules = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            FieldPermission fieldPermission = fieldPermissions.get(i);
+            // 同名字段以第一条配置为准
+            if (ordinals.putIfAbsent(fieldPermission.getFieldName(), i) != null) {
+                continue;
+            }
+            fieldNames[i] = fieldPermission.getFieldName();
+            maskingRules[i] = fieldPermission.getMaskingRule();
+            FieldPermissionType type = fieldPermission.getPermission();
+            if (type == FieldPermissionType.ALLOW) {
+                allow.set(i);
+            } else if (type == FieldPermissionType.MASK) {
+                mask.set(i);
+            } else if (type == FieldPermissionType.HASH) {
+                hash.set(i);
+            } else {
+                deny.set(i);
+            }
+        }
+
+        String filter = tablePermission.getRowLevelFilter();
+        this.rowLevelFilter = filter != null && !filter.trim().isEmpty() ? filter.trim() : null;
+        // 编译时解析一次，语法错误的配置直接拒绝，不会在查询时才暴露
+        this.rowFilter = RowFilterParser.parse(rowLevelFilter);
+    }
+
+    /**
+     * 编译所用的原始表权限配置，调用方应视为只读
+     */
+    public TablePermission getSource() { return source; }
+    public String getDatabase() { return database; }
+    public String getTableName() { return tableName; }
+    public Set<String> getPermissions() { return permissions; }
+    public Integer getMaxRows() { return maxRows; }
+    public String getRowLevelFilter() { return rowLevelFilter; }
+
+    /**
+     * 解析后的行级过滤条件（未绑定用户属性），没有行级过滤时返回 null
+     */
+    public QueryPredicate getRowFilter() { return rowFilter; }
+
+    /**
+     * 是否有表级操作权限，SELECT 与 READ 视为同一权限
+     */
+    public boolean hasPermission(String permission) {
+        if (permissions.contains(permission)) {
+            return true;
+        }
+        if ("SELECT".equals(permission)) {
+            return permissions.contains("READ");
+        }
+        if ("READ".equals(permission)) {
+            return permissions.contains("SELECT");
+        }
+        return false;
+    }
+
+    public boolean isFieldRestricted() {
+        return fieldRestricted;
+    }
+
+    /**
+     * 字段在权限配置中的列序号，未配置时返回 -1
+     */
+    public int ordinalOf(String fieldName) {
+        Integer ordinal = ordinals.get(fieldName);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * 字段的权限类型，未配置的字段在有字段级限制时为 DENY，否则为 ALLOW
+     */
+    public FieldPermissionType fieldPermission(String fieldName) {
+        if (!fieldRestricted) {
+            return FieldPermissionType.ALLOW;
+        }
+        int ordinal = ordinalOf(fieldName);
+        if (ordinal < 0) {
+            return FieldPermissionType.DENY;
+        }
+        if (allow.get(ordinal)) {
+            return FieldPermissionType.ALLOW;
+        }
+        if (mask.get(ordinal)) {
+            return FieldPermissionType.MASK;
+        }
+        if (hash.get(ordinal)) {
+            return FieldPermissionType.HASH;
+        }
+        return FieldPermissionType.DENY;
+    }
+
+    /**
+     * 字段是否可以明文读取
+     */
+    public boolean isAllowed(String fieldName) {
+        return fieldPermission(fieldName) == FieldPermissionType.ALLOW;
+    }
+
+    /**
+     * 字段是否可以出现在结果中（明文、脱敏或哈希）
+     */
+    public boolean isReadable(String fieldName) {
+        return fieldPermission(fieldName) != FieldPermissionType.DENY;
+    }
+
+    /**
+     * MASK 字段的脱敏规则，其他字段返回 null
+     */
+    public String maskingRule(String fieldName) {
+        int ordinal = ordinalOf(fieldName);
+        return ordinal >= 0 && mask.get(ordinal) ? maskingRules[ordinal] : null;
+    }
+
+    /**
+     * 获取给定查询列的脱敏计划，首次使用时编译
+     */
+    public MaskingPlan maskingPlan(Collection<String> columns) {
+        if (!fieldRestricted) {
+            return MaskingPlan.compile(this, Collections.emptyList());
+        }
+        List<String> projection = new ArrayList<>(columns);
+        MaskingPlan plan = maskingPlans.get(projection);
+        if (plan == null) {
+            if (maskingPlans.size() >= MAX_MASKING_PLANS) {
+                maskingPlans.clear();
+            }
+            plan = maskingPlans.computeIfAbsent(projection, p -> MaskingPlan.compile(this, p));
+        }
+        return plan;
+    }
+
+    /**
+     * 表权限指纹：只由影响结果的权限内容决定（表级权限、字段权限、脱敏规则、行级过滤），
+     * 内容相同的表权限得到相同的指纹
+     */
+    public String getFingerprint() {
+        String value = fingerprint;
+        if (value == null) {
+            StringBuilder canonical = new StringBuilder();
+            canonical.append(database).append('.').append(tableName)
+                .append('|').append(new TreeSet<>(permissions))
+                .append('|').append(rowFilter != null ? rowFilter.canonical() : null);
+            if (fieldRestricted) {
+                new TreeMap<>(ordinals).forEach((field, ordinal) -> canonical.append('|').append(field)
+                    .append('=').append(fieldPermission(field))
+                    .append(':').append(mask.get(ordinal) ? maskingRules[ordinal] : null));
+            }
+            value = sha256Hex(canonical.toString()).substring(0, 16);
+            fingerprint = value;
+        }
+        return value;
+    }
+
+    /**
+     * 有效策略指纹：对给定查询列实际生效的策略（输出列、各列的脱敏/哈希规则、行级过滤）
+     *
+     * 与 getFingerprint 不同，未被查询的字段上的配置差异不影响该指纹，
+     * 因此字段配置不完全相同的用户查询相同的列时也可以共享查询结果缓存。
+     * 行级过滤条件含用户属性引用时，这里只包含模板，调用方还需要加入绑定后的条件。
+     */
+    public String policyFingerprint(List<String> columns) {
+        List<String> projection = columns != null ? new ArrayList<>(columns) : Collections.emptyList();
+        String value = policyFingerprints.get(projection);
+        if (value == null) {
+            if (policyFingerprints.size() >= MAX_POLICY_FINGERPRINTS) {
+                policyFingerprints.clear();
+            }
+            value = policyFingerprints.computeIfAbsent(projection, p -> sha256Hex(
+                p + "|" + maskingPlan(p).signature() + "|" + (rowFilter != null ? rowFilter.canonical() : null)).substring(0, 16));
+        }
+        return value;
+    }
+
+    public String maskingRule(int ordinal) {
+        return maskingRules[ordinal];
+    }
+
+    public String fieldName(int ordinal) {
+        return fieldNames[ordinal];
+    }
+
+    public BitSet getAllowBits() { return (BitSet) allow.clone(); }
+    public BitSet getDenyBits() { return (BitSet) deny.clone(); }
+    public BitSet getMaskBits() { return (BitSet) mask.clone(); }
+    public BitSet getHashBits() { return (BitSet) hash.clone(); }
+
+    static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
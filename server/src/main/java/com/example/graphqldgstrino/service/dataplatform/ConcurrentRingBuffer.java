@@ -0,0 +1,72 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 定长无锁环形缓冲区 - 多线程并发写入，写满后覆盖最老的元素
+ *
+ * 每个槽位保存写入序号，读取时跳过尚未写完或已被覆盖的槽位，
+ * 因此读取结果始终按写入顺序排列，且不会返回重复元素。
+ */
+public class ConcurrentRingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ConcurrentRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * 追加元素，O(1) 且不加锁
+     */
+    public void add(T value) {
+        long seq = sequence.getAndIncrement();
+        slots.set((int) (seq % capacity), new Slot<>(seq, value));
+    }
+
+    /**
+     * 按写入顺序返回最近的 limit 个元素
+     */
+    public List<T> latest(int limit) {
+        long end = sequence.get();
+        long start = Math.max(0L, end - Math.min(limit, capacity));
+        List<T> result = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            Slot<T> slot = slots.get((int) (seq % capacity));
+            if (slot != null && slot.sequence == seq) {
+                result.add(slot.value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 已写入的元素总数（包括已被覆盖的）
+     */
+    public long totalAdded() {
+        return sequence.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private static final class Slot<T> {
+        private final long sequence;
+        private final T value;
+
+        Slot(long sequence, T value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * 本地 JSON 文件权限来源，用于本地开发和小规模部署
+ *
+ * 文件格式为 {"roles": [RolePermissionsInput, ...], "users": [UpdatePermissionsInput, ...]}，
+ * 用户字段与 updateUserPermissions 的输入一致，roles 可以省略。
+ * 游标为文件的修改时间和大小，文件未变化时不读取内容；文件变化后重新解析，
+ * 按用户和角色比较内容摘要，只返回内容变化的条目和被删除的条目。
+ * 新摘要在变更集成功应用（commit）后才生效，应用失败时下一次同步仍返回同样的变更。
+ * 无法解析的条目跳过并记录日志，不影响同一文件中的其他条目：增量同步时保留该条目原有的授权，
+ * 全量加载时该条目视为不存在。条目修正后在下一次同步中重新加载。
+ * 只应在单个同步线程中使用。
+ */
+public class FilePermissionSource implements PermissionSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilePermissionSource.class);
+
+    private final Path path;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    // 用户ID / 角色名 -> 上次成功应用的内容摘要
+    private Map<String, String> userDigests = new HashMap<>();
+    private Map<String, String> roleDigests = new HashMap<>();
+    // 最近一次返回但尚未提交的变更集对应的摘要
+    private PendingDigests pending;
+
+    public FilePermissionSource(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public String getName() {
+        return "file:" + path;
+    }
+
+    @Override
+    public PermissionChangeSet loadAll() throws IOException {
+        String cursor = fileCursor();
+        JsonNode root = readRoot();
+        Map<String, JsonNode> users = readEntries(root, "users", "userId", true);
+        Map<String, JsonNode> roles = readEntries(root, "roles", "roleName", false);
+        Map<String, String> nextUserDigests = new HashMap<>();
+        Map<String, String> nextRoleDigests = new HashMap<>();
+        List<UpdatePermissionsInput> userUpserts =
+            diff(users, Collections.emptyMap(), nextUserDigests, UpdatePermissionsInput.class);
+        List<RolePermissionsInput> roleUpserts =
+            diff(roles, Collections.emptyMap(), nextRoleDigests, RolePermissionsInput.class);
+        pending = new PendingDigests(cursor, nextUserDigests, nextRoleDigests);
+        return PermissionChangeSet.full(userUpserts, roleUpserts, cursor);
+    }
+
+    @Override
+    public PermissionChangeSet changesSince(String cursor) throws IOException {
+        String current = fileCursor();
+        if (current.equals(cursor)) {
+            return PermissionChangeSet.empty(cursor);
+        }
+        // 游标不是本实例产生的（例如重启后），退化为全量加载
+        if (cursor == null || userDigests.isEmpty()) {
+            return loadAll();
+        }
+
+        JsonNode root = readRoot();
+        Map<String, JsonNode> users = readEntries(root, "users", "userId", true);
+        Map<String, JsonNode> roles = readEntries(root, "roles", "roleName", false);
+        Map<String, String> nextUserDigests = new HashMap<>(userDigests);
+        Map<String, String> nextRoleDigests = new HashMap<>(roleDigests);
+        List<UpdatePermissionsInput> userUpserts =
+            diff(users, userDigests, nextUserDigests, UpdatePermissionsInput.class);
+        List<RolePermissionsInput> roleUpserts =
+            diff(roles, roleDigests, nextRoleDigests, RolePermissionsInput.class);
+        Set<String> removedUsers = removedKeys(users, nextUserDigests);
+        Set<String> removedRoles = removedKeys(roles, nextRoleDigests);
+        pending = new PendingDigests(current, nextUserDigests, nextRoleDigests);
+        return new PermissionChangeSet(false, userUpserts, removedUsers, roleUpserts, removedRoles, current);
+    }
+
+    @Override
+    public void commit(PermissionChangeSet changes) {
+        if (pending != null && pending.cursor.equals(changes.getCursor())) {
+            userDigests = pending.userDigests;
+            roleDigests = pending.roleDigests;
+        }
+        pending = null;
+    }
+
+    private JsonNode readRoot() throws IOException {
+        JsonNode root = objectMapper.readTree(path.toFile());
+        if (root == null || !root.isObject()) {
+            throw new IOException("权限文件格式错误: " + path);
+        }
+        return root;
+    }
+
+    private Map<String, JsonNode> readEntries(JsonNode root, String arrayName, String keyField, boolean required)
+            throws IOException {
+        JsonNode entries = root.path(arrayName);
+        if (entries.isMissingNode() && !required) {
+            return Collections.emptyMap();
+        }
+        if (!entries.isArray()) {
+            throw new IOException("权限文件格式错误，缺少 " + arrayName + " 数组: " + path);
+        }
+        // 同一用户或角色出现多次时以最后一次为准
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode entry : entries) {
+            String key = entry.path(keyField).asText(null);
+            if (key == null || key.trim().isEmpty()) {
+                throw new IOException("权限文件中存在没有 " + keyField + " 的条目: " + path);
+            }
+            byKey.put(key.trim(), entry);
+        }
+        return byKey;
+    }
+
+    /**
+     * 返回摘要相对 committed 发生变化的条目，并把它们的新摘要写入 next；无法解析的条目跳过，保留原摘要
+     */
+    private <T> List<T> diff(Map<String, JsonNode> entries, Map<String, String> committed,
+                             Map<String, String> next, Class<T> type) {
+        List<T> changed = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : entries.entrySet()) {
+            String digest = digest(entry.getValue());
+            if (digest.equals(committed.get(entry.getKey()))) {
+                continue;
+            }
+            try {
+                changed.add(objectMapper.treeToValue(entry.getValue(), type));
+                next.put(entry.getKey(), digest);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("跳过无法解析的权限条目: file={}, key={}, {}", path, entry.getKey(), e.getMessage());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 返回上次存在而本次消失的条目并从 digests 中移除
+     */
+    private static Set<String> removedKeys(Map<String, JsonNode> entries, Map<String, String> digests) {
+        Set<String> removed = new HashSet<>(digests.keySet());
+        removed.removeAll(entries.keySet());
+        digests.keySet().removeAll(removed);
+        return removed;
+    }
+
+    private String fileCursor() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+    }
+
+    private static String digest(JsonNode entry) {
+        return CompiledTablePermission.sha256Hex(entry.toString());
+    }
+
+    private static final class PendingDigests {
+        final String cursor;
+        final Map<String, String> userDigests;
+        final Map<String, String> roleDigests;
+
+        PendingDigests(String cursor, Map<String, String> userDigests, Map<String, String> roleDigests) {
+            this.cursor = cursor;
+            this.userDigests = userDigests;
+            this.roleDigests = roleDigests;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 通配符模式 - 支持 * （任意字符序列）和 ? （单个字符）
+ *
+ * 不含通配符的模式按字面量比较，abc*、*abc、*abc* 形式分别按前缀、后缀、包含比较，
+ * 其余情况才编译为正则表达式。编译结果不可变，按模式字符串缓存，缓存条目数有上限。
+ */
+public final class GlobPattern {
+
+    private static final int MAX_CACHED_PATTERNS = 1024;
+    private static final Map<String, GlobPattern> CACHE = new ConcurrentHashMap<>();
+
+    private final String pattern;
+    private final String literal;
+    private final String prefix;
+    private final String suffix;
+    private final String infix;
+    private final Pattern regex;
+    // 第一个通配符之前的字面量部分，可用于有序索引的范围查找
+    private final String literalPrefix;
+
+    private GlobPattern(String pattern) {
+        this.pattern = pattern;
+        int firstWildcard = indexOfWildcard(pattern, 0);
+        this.literalPrefix = firstWildcard < 0 ? pattern : pattern.substring(0, firstWildcard);
+        String literalValue = null;
+        String prefixValue = null;
+        String suffixValue = null;
+        String infixValue = null;
+        Pattern regexValue = null;
+        int last = pattern.length() - 1;
+        if (firstWildcard < 0) {
+            literalValue = pattern;
+        } else if (pattern.indexOf('?') >= 0) {
+            regexValue = Pattern.compile(toRegex(pattern));
+        } else if (firstWildcard == last) {
+            prefixValue = pattern.substring(0, last);
+        } else if (firstWildcard == 0 && indexOfWildcard(pattern, 1) < 0) {
+            suffixValue = pattern.substring(1);
+        } else if (firstWildcard == 0 && indexOfWildcard(pattern, 1) == last && last > 0) {
+            infixValue = pattern.substring(1, last);
+        } else {
+            regexValue = Pattern.compile(toRegex(pattern));
+        }
+        this.literal = literalValue;
+        this.prefix = prefixValue;
+        this.suffix = suffixValue;
+        this.infix = infixValue;
+        this.regex = regexValue;
+    }
+
+    public static GlobPattern compile(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("模式不能为空");
+        }
+        GlobPattern compiled = CACHE.get(pattern);
+        if (compiled == null) {
+            if (CACHE.size() >= MAX_CACHED_PATTERNS) {
+                CACHE.clear();
+            }
+            compiled = CACHE.computeIfAbsent(pattern, GlobPattern::new);
+        }
+        return compiled;
+    }
+
+    public boolean matches(String value) {
+        if (value == null) {
+            return false;
+        }
+        if (literal != null) {
+            return literal.equals(value);
+        }
+        if (prefix != null) {
+            return value.startsWith(prefix);
+        }
+        if (suffix != null) {
+            return value.endsWith(suffix);
+        }
+        if (infix != null) {
+            return value.contains(infix);
+        }
+        return regex.matcher(value).matches();
+    }
+
+    /**
+     * 匹配的值一定以该字面量开头（第一个通配符之前的部分，模式以通配符开头时为空串）
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * 是否为不含通配符的字面量，字面量可直接用于哈希查找
+     */
+    public boolean isLiteral() {
+        return literal != null;
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    private static int indexOfWildcard(String pattern, int from) {
+        for (int i = from; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literalPart = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literalPart.length() > 0) {
+                    regex.append(Pattern.quote(literalPart.toString()));
+                    literalPart.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literalPart.append(c);
+            }
+        }
+        if (literalPart.length() > 0) {
+            regex.append(Pattern.quote(literalPart.toString()));
+        }
+        return regex.toString();
+    }
+}
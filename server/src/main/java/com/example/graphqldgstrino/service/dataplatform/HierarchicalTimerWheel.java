@@ -0,0 +1,152 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮 - 按到期时间调度元素，添加和到期均为 O(1) 均摊
+ *
+ * 共 4 层，每层 64 个槽位。第 0 层每槽一个 tick，第 l 层每槽 64^l 个 tick，
+ * tick 为 1 秒时可覆盖约 194 天，更远的到期时间放在最高层并在级联时重新定位。
+ * 时间推进到某一层的新周期时，把该层对应槽位的元素级联到更低层，最终在第 0 层到期。
+ *
+ * 不支持取消：调用方在到期回调中自行判断元素是否仍然有效，因此元素应尽量小（例如只含键和版本），
+ * 不要引用取消后需要尽快回收的大对象。
+ * 非线程安全，只应由单个维护线程使用。
+ */
+public class HierarchicalTimerWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<List<Timer<T>>> slots = new ArrayList<>(LEVELS * WHEEL_SIZE);
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimerWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tick必须大于0: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (int i = 0; i < LEVELS * WHEEL_SIZE; i++) {
+            slots.add(null);
+        }
+    }
+
+    /**
+     * 调度元素在 deadlineMillis 到期，已过期的元素在下一个 tick 到期
+     */
+    public void schedule(T value, long deadlineMillis) {
+        long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        insert(new Timer<>(value, Math.max(deadlineTick, currentTick + 1)));
+        size++;
+    }
+
+    /**
+     * 推进到 nowMillis，对每个到期元素调用 onExpire，返回到期元素数量
+     */
+    public int advance(long nowMillis, Consumer<T> onExpire) {
+        long targetTick = nowMillis / tickMillis;
+        int expired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // 从高层到低层级联，保证元素逐层下沉
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+                }
+            }
+
+            List<Timer<T>> due = takeSlot(0, (int) (currentTick & WHEEL_MASK));
+            if (due == null) {
+                continue;
+            }
+            for (Timer<T> timer : due) {
+                if (timer.deadlineTick <= currentTick) {
+                    size--;
+                    expired++;
+                    onExpire.accept(timer.value);
+                } else {
+                    insert(timer);
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 尚未到期的元素数量（包括调用方已不再关心的元素）
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 丢弃所有尚未到期的元素
+     */
+    public void clear() {
+        for (int i = 0; i < slots.size(); i++) {
+            slots.set(i, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * 时间轮当前推进到的时间
+     */
+    public long currentTimeMillis() {
+        return currentTick * tickMillis;
+    }
+
+    private void cascade(int level, int index) {
+        List<Timer<T>> timers = takeSlot(level, index);
+        if (timers != null) {
+            for (Timer<T> timer : timers) {
+                insert(timer);
+            }
+        }
+    }
+
+    private void insert(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                addToSlot(level, (int) ((timer.deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK), timer);
+                return;
+            }
+        }
+        // 超出时间轮范围，先放在最高层最远的槽位，级联时会重新计算位置
+        int top = LEVELS - 1;
+        long farthestTick = currentTick + (1L << (WHEEL_BITS * LEVELS)) - 1;
+        addToSlot(top, (int) ((farthestTick >>> (WHEEL_BITS * top)) & WHEEL_MASK), timer);
+    }
+
+    private void addToSlot(int level, int index, Timer<T> timer) {
+        int position = level * WHEEL_SIZE + index;
+        List<Timer<T>> slot = slots.get(position);
+        if (slot == null) {
+            slot = new ArrayList<>();
+            slots.set(position, slot);
+        }
+        slot.add(timer);
+    }
+
+    private List<Timer<T>> takeSlot(int level, int index) {
+        return slots.set(level * WHEEL_SIZE + index, null);
+    }
+
+    private static final class Timer<T> {
+        private final T value;
+        private final long deadlineTick;
+
+        Timer(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
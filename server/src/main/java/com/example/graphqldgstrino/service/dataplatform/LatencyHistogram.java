@@ -0,0 +1,117 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图 - HDR风格的对数线性分桶，记录无锁
+ *
+ * 以微秒为单位：0~63us 每个值一个桶，之后每个2的幂区间再均分为32个子桶，
+ * 相对误差约3%，最大可记录约 2^41us（约25天），超出部分计入最后一个桶。
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * 记录一次耗时（纳秒）
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0L, nanos / 1000L);
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 平均耗时（毫秒）
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : totalMicros.sum() / 1000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * 指定分位数的耗时（毫秒），quantile 取值 0~1
+     */
+    public double getPercentileMillis(double quantile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(bucketMidpoint(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * 生成对外展示用的摘要
+     */
+    public LatencySummary toSummary() {
+        LatencySummary summary = new LatencySummary();
+        summary.setCount(getCount());
+        summary.setMeanMillis(getMeanMillis());
+        summary.setP50Millis(getPercentileMillis(0.50));
+        summary.setP90Millis(getPercentileMillis(0.90));
+        summary.setP99Millis(getPercentileMillis(0.99));
+        summary.setMaxMillis(getMaxMillis());
+        return summary;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketMidpoint(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS + 1;
+        int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        long width = 1L << shift;
+        return lower + width / 2;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 脱敏计划 - 针对（用户权限版本, 表, 查询列）编译的列转换数组
+ *
+ * 编译时确定每一列的处理方式（保留、脱敏、哈希或移除），执行时只访问需要处理的列，
+ * 不再按单元格查找脱敏规则。行数据原地修改，不为每一行创建新的 Map。
+ * 行数较多时按块拆分到 ForkJoin 公共线程池并行处理。
+ * 也可以通过 toSelectItem 把整个计划改写为 SELECT 列表，由 Trino 完成脱敏。
+ */
+public final class MaskingPlan {
+
+    static final int PARALLEL_THRESHOLD = 16_384;
+    private static final int CHUNK_SIZE = 4_096;
+
+    private static final MaskingPlan IDENTITY = new MaskingPlan(new String[0], new MaskingRule[0], new String[0]);
+
+    private final String[] maskedColumns;
+    private final MaskingRule[] rules;
+    private final String[] droppedColumns;
+
+    private MaskingPlan(String[] maskedColumns, MaskingRule[] rules, String[] droppedColumns) {
+        this.maskedColumns = maskedColumns;
+        this.rules = rules;
+        this.droppedColumns = droppedColumns;
+    }
+
+    /**
+     * 根据表权限为给定的查询列编译脱敏计划
+     */
+    public static MaskingPlan compile(CompiledTablePermission table, Collection<String> columns) {
+        List<String> masked = new ArrayList<>();
+        List<MaskingRule> maskedRules = new ArrayList<>();
+        List<String> dropped = new ArrayList<>();
+        for (String column : columns) {
+            FieldPermissionType type = table.fieldPermission(column);
+            if (type == FieldPermissionType.MASK) {
+                masked.add(column);
+                maskedRules.add(MaskingRule.forName(table.maskingRule(column)));
+            } else if (type == FieldPermissionType.HASH) {
+                masked.add(column);
+                maskedRules.add(MaskingRule.SHA256_HASH);
+            } else if (type == FieldPermissionType.DENY) {
+                dropped.add(column);
+            }
+        }
+        if (masked.isEmpty() && dropped.isEmpty()) {
+            return IDENTITY;
+        }
+        return new MaskingPlan(masked.toArray(new String[0]), maskedRules.toArray(new MaskingRule[0]),
+            dropped.toArray(new String[0]));
+    }
+
+    /**
+     * 不做任何处理的计划
+     */
+    public static MaskingPlan identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * 计划内容的规范描述，内容相同的计划描述相同
+     */
+    public String signature() {
+        StringBuilder signature = new StringBuilder();
+        for (int i = 0; i < maskedColumns.length; i++) {
+            signature.append(maskedColumns[i]).append('=').append(rules[i].name()).append(',');
+        }
+        for (String dropped : droppedColumns) {
+            signature.append('-').append(dropped).append(',');
+        }
+        return signature.toString();
+    }
+
+    public boolean isIdentity() {
+        return maskedColumns.length == 0 && droppedColumns.length == 0;
+    }
+
+    /**
+     * 生成该列在 SELECT 列表中的表达式：需要脱敏的列改写为 SQL 表达式，被拒绝的列返回 null
+     */
+    public String toSelectItem(String column) {
+        for (int i = 0; i < maskedColumns.length; i++) {
+            if (maskedColumns[i].equals(column)) {
+                return rules[i].toSql(column) + " AS " + column;
+            }
+        }
+        return isDropped(column) ? null : column;
+    }
+
+    /**
+     * 对行数据执行脱敏（原地修改），返回同一个列表
+     */
+    public List<Map<String, Object>> apply(List<Map<String, Object>> rows) {
+        if (isIdentity() || rows.isEmpty()) {
+            return rows;
+        }
+        List<Map<String, Object>> indexed = rows instanceof RandomAccess ? rows : new ArrayList<>(rows);
+        if (indexed.size() < PARALLEL_THRESHOLD) {
+            applyRange(indexed, 0, indexed.size());
+        } else {
+            ForkJoinPool.commonPool().invoke(new MaskTask(indexed, 0, indexed.size()));
+        }
+        return indexed;
+    }
+
+    /**
+     * 对列式数据中的一列执行脱敏（原地修改），该列不需要处理时直接返回
+     */
+    public void applyColumn(String column, Object[] values) {
+        for (int i = 0; i < maskedColumns.length; i++) {
+            if (maskedColumns[i].equals(column)) {
+                MaskingRule rule = rules[i];
+                for (int row = 0; row < values.length; row++) {
+                    values[row] = rule.apply(values[row]);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 该列是否会被脱敏或哈希，处理后的值统一为字符串
+     */
+    public boolean isMasked(String column) {
+        for (String masked : maskedColumns) {
+            if (masked.equals(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 列式数据中该列是否应被移除
+     */
+    public boolean isDropped(String column) {
+        for (String dropped : droppedColumns) {
+            if (dropped.equals(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void applyRange(List<Map<String, Object>> rows, int from, int to) {
+        for (int row = from; row < to; row++) {
+            Map<String, Object> values = rows.get(row);
+            for (int i = 0; i < maskedColumns.length; i++) {
+                Object value = values.get(maskedColumns[i]);
+                if (value != null) {
+                    values.put(maskedColumns[i], rules[i].apply(value));
+                }
+            }
+            for (String dropped : droppedColumns) {
+                values.remove(dropped);
+            }
+        }
+    }
+
+    private final class MaskTask extends RecursiveAction {
+        private final List<Map<String, Object>> rows;
+        private final int from;
+        private final int to;
+
+        MaskTask(List<Map<String, Object>> rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                applyRange(rows, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MaskTask(rows, from, middle), new MaskTask(rows, middle, to));
+        }
+    }
+}
@@ -5,18 +5,48 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
 
 /**
  * 元数据服务 - 管理表结构、字段信息、统计信息等
+ *
+ * 所有读取只访问内存，不会调用 Trino。启用 Trino 目录同步时由 TrinoCatalogLoader
+ * 在后台写入最新的元数据，写入按表整体替换，读取方看到的始终是某张表完整的一个版本。
+ * 启用元数据快照时，启动后先以内存映射的快照文件作为后备数据提供读取，后台逐表载入内存，
+ * 载入完成前内存中已有的表（如目录同步刚写入的）优先于快照，期间的按相关度搜索只覆盖已载入的表。
  */
 @Service
 public class MetadataService {
     
-    // 模拟元数据存储
-    private final Map<String, TableMetadata> tableMetadataCache = new HashMap<>();
-    private final Map<String, TableSchema> tableSchemaCache = new HashMap<>();
-    private final Map<String, List<TableInfo>> databaseTablesCache = new HashMap<>();
+    // 元数据存储，启动时为模拟数据，启用目录同步后由后台任务替换
+    private final Map<String, TableMetadata> tableMetadataCache = new ConcurrentHashMap<>();
+    private final Map<String, TableSchema> tableSchemaCache = new ConcurrentHashMap<>();
+    // "库.表" -> 字段名 -> 列级统计，与表结构一起整体替换，供选择率估算按字段名直接查找
+    private final Map<String, Map<String, ColumnStatistics>> columnStatisticsCache = new ConcurrentHashMap<>();
+    // 库内表列表整体替换，不在原列表上修改
+    private final Map<String, List<TableInfo>> databaseTablesCache = new ConcurrentHashMap<>();
+    // 按 "库.表" 排序的全部表，列出表时按该顺序遍历，分页结果稳定
+    private final NavigableMap<String, TableInfo> tableIndex = new ConcurrentSkipListMap<>();
+    // 表名、描述、标签和字段名上的搜索索引，与 tableIndex 同步维护
+    private final CatalogSearchIndex searchIndex = new CatalogSearchIndex();
+    // 表名前缀、类型、所有者、标签、修改时间上的二级索引，与 tableIndex 同步维护
+    private final TableAttributeIndex attributeIndex = new TableAttributeIndex();
+    // 目录中的表数，ConcurrentSkipListMap.size() 需要遍历，单独计数
+    private volatile int tableCount;
+    // 写入方（目录同步线程）之间互斥，读取不加锁
+    private final Object writeLock = new Object();
+    // 按需刷新单张表的回调，由目录同步组件注册；未注册时只更新修改时间
+    private volatile BiConsumer<String, String> refreshRequester;
+    // "库.表" -> 目录同步写入时的版本标记，随快照持久化，重启后据此跳过未变化的表
+    private final Map<String, String> syncTokens = new ConcurrentHashMap<>();
+    // 每次写入或删除递增，检查点据此判断目录是否变化
+    private volatile long catalogVersion;
+    // 启动时恢复的快照，全部载入内存前作为只读后备数据，载入完成后置为 null
+    private volatile MetadataSnapshot snapshot;
+    // 快照载入期间删除的表，不再从快照读取或载入
+    private final Set<String> removedFromSnapshot = ConcurrentHashMap.newKeySet();
     
     public MetadataService() {
         initializeMockData();
@@ -27,7 +57,12 @@ public class MetadataService {
      */
     public TableMetadata getTableMetadata(String database, String tableName) {
         String key = database + "." + tableName;
-        return tableMetadataCache.get(key);
+        TableMetadata metadata = tableMetadataCache.get(key);
+        if (metadata == null && snapshot != null) {
+            MetadataSnapshot.Entry entry = loadFromSnapshot(key);
+            return entry != null ? entry.metadata : null;
+        }
+        return metadata;
     }
     
     /**
@@ -35,38 +70,88 @@ public class MetadataService {
      */
     public TableSchema getTableSchema(String database, String tableName) {
         String key = database + "." + tableName;
-        return tableSchemaCache.get(key);
+        TableSchema schema = tableSchemaCache.get(key);
+        if (schema == null && snapshot != null) {
+            MetadataSnapshot.Entry entry = loadFromSnapshot(key);
+            return entry != null ? entry.schema : null;
+        }
+        return schema;
     }
     
     /**
      * 获取数据库中的所有表
      */
     public List<TableInfo> listTables(String database, TableListFilter filter, PaginationInput pagination) {
+        MetadataSnapshot current = snapshot;
+        if (current != null) {
+            return collectPage(mergedTables(current, database, null), new TableMatcher(filter), pagination);
+        }
         List<TableInfo> tables = databaseTablesCache.getOrDefault(database, new ArrayList<>());
-        
-        // 应用过滤器
-        if (filter != null) {
-            tables = tables.stream()
-                .filter(table -> applyTableFilter(table, filter))
-                .collect(Collectors.toList());
+        return collectPage(tables.iterator(), new TableMatcher(filter), pagination);
+    }
+    
+    /**
+     * 分页列出表，按 "库.表" 排序
+     *
+     * tableScope 为 null 时遍历整个目录，否则只遍历其中的 "库.表"（如用户有读权限的表）。
+     * 库、权限范围、表类型、所有者、标签、修改时间、名称模式的字面量前缀中，
+     * 选出候选表最少的一项，只按 "库.表" 顺序逐个查找这些表，不扫描整个目录。取满一页后立即停止遍历。
+     */
+    public List<TableInfo> listTables(TableListFilter filter, PaginationInput pagination, Set<String> tableScope) {
+        String database = filter != null ? filter.getDatabase() : null;
+        MetadataSnapshot current = snapshot;
+        if (current != null) {
+            // 快照载入期间二级索引不完整，合并遍历内存和快照中的有序键
+            return collectPage(mergedTables(current, database, tableScope), new TableMatcher(filter), pagination);
         }
+        NavigableMap<String, TableInfo> candidates = database != null
+            // "." 之后的下一个字符是 "/"，该区间正好是库内的所有表
+            ? tableIndex.subMap(database + ".", true, database + "/", false)
+            : tableIndex;
+        int candidateCount = database != null
+            ? databaseTablesCache.getOrDefault(database, Collections.emptyList()).size()
+            : tableCount;
         
-        // 应用分页
-        if (pagination != null) {
-            int start = pagination.getOffset();
-            int end = Math.min(start + pagination.getLimit(), tables.size());
-            if (start < tables.size()) {
-                return tables.subList(start, end);
-            }
+        Set<String> keys = tableScope != null && tableScope.size() < candidateCount ? tableScope : null;
+        Set<String> indexed = selectiveKeys(filter, keys != null ? keys.size() : candidateCount);
+        if (indexed != null) {
+            keys = indexed;
         }
         
-        return tables;
+        Iterator<TableInfo> tables;
+        if (keys != null) {
+            boolean checkScope = tableScope != null && keys != tableScope;
+            tables = new TreeSet<>(keys).stream()
+                .filter(key -> !checkScope || tableScope.contains(key))
+                .map(candidates::get)
+                .filter(Objects::nonNull)
+                .iterator();
+        } else if (tableScope == null) {
+            tables = candidates.values().iterator();
+        } else {
+            tables = candidates.entrySet().stream()
+                .filter(entry -> tableScope.contains(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .iterator();
+        }
+        return collectPage(tables, new TableMatcher(filter), pagination);
     }
     
     /**
      * 获取所有数据库列表
      */
     public List<String> listDatabases() {
+        MetadataSnapshot current = snapshot;
+        if (current != null) {
+            Set<String> databases = new TreeSet<>(databaseTablesCache.keySet());
+            for (String database : current.getDatabases()) {
+                // 快照中的表可能已全部删除
+                if (!databases.contains(database) && mergedTables(current, database, null).hasNext()) {
+                    databases.add(database);
+                }
+            }
+            return new ArrayList<>(databases);
+        }
         return new ArrayList<>(databaseTablesCache.keySet());
     }
     
@@ -74,21 +159,20 @@ public class MetadataService {
      * 搜索表
      */
     public List<TableInfo> searchTables(String searchTerm, String database) {
-        List<TableInfo> allTables = new ArrayList<>();
-        
-        if (database != null) {
-            allTables.addAll(databaseTablesCache.getOrDefault(database, new ArrayList<>()));
-        } else {
-            databaseTablesCache.values().forEach(allTables::addAll);
-        }
-        
-        return allTables.stream()
-            .filter(table -> 
-                table.getTableName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                (table.getDescription() != null && table.getDescription().toLowerCase().contains(searchTerm.toLowerCase())) ||
-                (table.getTags() != null && table.getTags().stream().anyMatch(tag -> tag.toLowerCase().contains(searchTerm.toLowerCase())))
-            )
-            .collect(Collectors.toList());
+        return searchTables(searchTerm, database, null, null);
+    }
+    
+    /**
+     * 按相关度搜索表，匹配表名、描述、标签和字段名，结果按得分降序分页
+     *
+     * 搜索走倒排索引，耗时与候选数量相关而与目录大小无关。
+     * tableScope 为 null 时搜索整个目录，否则只返回其中的 "库.表"（如用户有读权限的表）。
+     */
+    public List<TableInfo> searchTables(String searchTerm, String database, PaginationInput pagination,
+                                        Set<String> tableScope) {
+        int offset = pagination != null && pagination.getOffset() != null ? pagination.getOffset() : 0;
+        int limit = pagination != null && pagination.getLimit() != null ? pagination.getLimit() : Integer.MAX_VALUE;
+        return searchIndex.search(searchTerm, database, tableScope, offset, limit);
     }
     
     /**
@@ -99,12 +183,29 @@ public class MetadataService {
         return metadata != null ? metadata.getStatistics() : null;
     }
     
+    /**
+     * 获取表的列级统计，按字段名索引；未收集统计时返回空 Map
+     */
+    public Map<String, ColumnStatistics> getColumnStatistics(String database, String tableName) {
+        String key = database + "." + tableName;
+        if (snapshot != null && !tableIndex.containsKey(key)) {
+            loadFromSnapshot(key);
+        }
+        return columnStatisticsCache.getOrDefault(key, Collections.emptyMap());
+    }
+    
     /**
      * 刷新表的元数据（从Iceberg/Trino获取最新信息）
+     *
+     * 启用目录同步时只提交一次后台刷新，立即返回，刷新完成后新元数据替换旧版本。
      */
     public void refreshTableMetadata(String database, String tableName) {
-        // 实际实现中，这里会调用Trino API获取最新的表元数据
-        // 现在只是模拟更新时间
+        BiConsumer<String, String> requester = refreshRequester;
+        if (requester != null) {
+            requester.accept(database, tableName);
+            return;
+        }
+        // 未启用目录同步，只模拟更新时间
         String key = database + "." + tableName;
         TableMetadata metadata = tableMetadataCache.get(key);
         if (metadata != null) {
@@ -112,6 +213,128 @@ public class MetadataService {
         }
     }
     
+    /**
+     * 获取表的列表信息，不存在时返回 null
+     */
+    public TableInfo getTableInfo(String database, String tableName) {
+        String key = database + "." + tableName;
+        TableInfo info = tableIndex.get(key);
+        MetadataSnapshot current = snapshot;
+        if (info == null && current != null && !removedFromSnapshot.contains(key)) {
+            int index = current.find(key);
+            return index >= 0 ? current.info(index) : null;
+        }
+        return info;
+    }
+    
+    /**
+     * 当前目录中的全部 "库.表"
+     */
+    public Set<String> getTableNames() {
+        Set<String> tableNames = new TreeSet<>(tableIndex.keySet());
+        MetadataSnapshot current = snapshot;
+        if (current != null) {
+            for (int i = 0; i < current.size(); i++) {
+                tableNames.add(current.keyAt(i));
+            }
+            tableNames.removeAll(removedFromSnapshot);
+        }
+        return tableNames;
+    }
+    
+    /**
+     * 写入或替换一张表的元数据，供目录同步使用
+     */
+    public void putTable(TableInfo tableInfo, TableMetadata metadata, TableSchema schema) {
+        putTable(tableInfo, metadata, schema, null);
+    }
+    
+    /**
+     * 写入或替换一张表的元数据，syncToken 为目录同步对该版本的标记（如结构签名和快照ID）
+     */
+    public void putTable(TableInfo tableInfo, TableMetadata metadata, TableSchema schema, String syncToken) {
+        String key = tableInfo.getDatabase() + "." + tableInfo.getTableName();
+        synchronized (writeLock) {
+            storeTable(key, tableInfo, metadata, schema, syncToken);
+            rebuildDatabaseTables(tableInfo.getDatabase());
+            catalogVersion++;
+        }
+    }
+    
+    /**
+     * 批量写入一个同步周期内变化的表，每个库的表列表只在最后重建一次
+     */
+    void putTables(Collection<MetadataSnapshot.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Set<String> databases = new HashSet<>();
+            for (MetadataSnapshot.Entry entry : entries) {
+                String key = entry.info.getDatabase() + "." + entry.info.getTableName();
+                storeTable(key, entry.info, entry.metadata, entry.schema, entry.syncToken);
+                databases.add(entry.info.getDatabase());
+            }
+            for (String database : databases) {
+                rebuildDatabaseTables(database);
+            }
+            catalogVersion++;
+        }
+    }
+    
+    /**
+     * 目录同步写入该表时的版本标记，表不存在或未记录时返回 null
+     */
+    public String getSyncToken(String database, String tableName) {
+        String key = database + "." + tableName;
+        if (snapshot != null && !tableIndex.containsKey(key)) {
+            loadFromSnapshot(key);
+        }
+        return syncTokens.get(key);
+    }
+    
+    /**
+     * 删除一张表的元数据，供目录同步使用
+     */
+    public void removeTable(String database, String tableName) {
+        synchronized (writeLock) {
+            if (discardTable(database, tableName)) {
+                rebuildDatabaseTables(database);
+            }
+            catalogVersion++;
+        }
+    }
+    
+    /**
+     * 批量删除 "库.表"，每个库的表列表只在最后重建一次
+     */
+    void removeTables(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Set<String> databases = new HashSet<>();
+            for (String key : keys) {
+                int dot = key.indexOf('.');
+                String database = key.substring(0, dot);
+                if (discardTable(database, key.substring(dot + 1))) {
+                    databases.add(database);
+                }
+            }
+            for (String database : databases) {
+                rebuildDatabaseTables(database);
+            }
+            catalogVersion++;
+        }
+    }
+    
+    /**
+     * 注册按需刷新单张表的回调
+     */
+    public void setRefreshRequester(BiConsumer<String, String> refreshRequester) {
+        this.refreshRequester = refreshRequester;
+    }
+    
     /**
      * 获取字段的详细信息
      */
@@ -125,7 +348,11 @@ public class MetadataService {
      */
     public boolean tableExists(String database, String tableName) {
         String key = database + "." + tableName;
-        return tableMetadataCache.containsKey(key);
+        if (tableMetadataCache.containsKey(key)) {
+            return true;
+        }
+        MetadataSnapshot current = snapshot;
+        return current != null && !removedFromSnapshot.contains(key) && current.find(key) >= 0;
     }
     
     /**
@@ -136,28 +363,413 @@ public class MetadataService {
         return metadata != null ? metadata.getPartitionKeys() : new ArrayList<>();
     }
     
-    private boolean applyTableFilter(TableInfo table, TableListFilter filter) {
-        if (filter.getNamePattern() != null && !table.getTableName().matches(filter.getNamePattern())) {
-            return false;
+    /**
+     * 查找名称匹配的表，"库.表" 和表名两种形式都参与匹配，返回匹配到的形式
+     */
+    public Set<String> findTablesByName(GlobPattern namePattern) {
+        Set<String> tableNames = new HashSet<>();
+        for (Iterator<TableInfo> tables = allTables(); tables.hasNext(); ) {
+            TableInfo table = tables.next();
+            String qualifiedName = table.getDatabase() + "." + table.getTableName();
+            if (namePattern.matches(qualifiedName)) {
+                tableNames.add(qualifiedName);
+            }
+            if (namePattern.matches(table.getTableName())) {
+                tableNames.add(table.getTableName());
+            }
         }
-        if (filter.getTableType() != null && !filter.getTableType().equals(table.getTableType())) {
-            return false;
+        return tableNames;
+    }
+    
+    /**
+     * 查找带有匹配标签的表，返回 "库.表" 和表名两种形式
+     */
+    public Set<String> findTablesByTag(GlobPattern tagPattern) {
+        Set<String> tableNames = new HashSet<>();
+        for (Iterator<TableInfo> tables = allTables(); tables.hasNext(); ) {
+            TableInfo table = tables.next();
+            if (table.getTags() != null && table.getTags().stream().anyMatch(tagPattern::matches)) {
+                tableNames.add(table.getDatabase() + "." + table.getTableName());
+                tableNames.add(table.getTableName());
+            }
         }
-        if (filter.getOwner() != null && !filter.getOwner().equals(table.getOwner())) {
-            return false;
+        return tableNames;
+    }
+    
+    private List<TableInfo> collectPage(Iterator<TableInfo> tables, TableMatcher matcher, PaginationInput pagination) {
+        int skip = pagination != null && pagination.getOffset() != null ? Math.max(pagination.getOffset(), 0) : 0;
+        int limit = pagination != null && pagination.getLimit() != null ? pagination.getLimit() : Integer.MAX_VALUE;
+        
+        List<TableInfo> page = new ArrayList<>(Math.min(limit, 128));
+        while (page.size() < limit && tables.hasNext()) {
+            TableInfo table = tables.next();
+            if (!matcher.matches(table)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+            } else {
+                page.add(table);
+            }
         }
-        if (filter.getModifiedAfter() != null && table.getLastModified().isBefore(filter.getModifiedAfter())) {
-            return false;
+        return page;
+    }
+    
+    /**
+     * 由二级索引取出少于 bound 张的候选表，各过滤条件中取候选最少的一项；没有更小的候选时返回 null
+     */
+    private Set<String> selectiveKeys(TableListFilter filter, int bound) {
+        if (filter == null) {
+            return null;
         }
-        if (filter.getHasData() != null && filter.getHasData() && (table.getRowCount() == null || table.getRowCount() == 0)) {
+        Set<String> best = null;
+        int limit = bound - 1;
+        if (filter.getTableType() != null) {
+            Set<String> keys = attributeIndex.byTableType(filter.getTableType());
+            if (keys.size() <= limit) {
+                best = keys;
+                limit = keys.size() - 1;
+            }
+        }
+        if (filter.getOwner() != null && limit >= 0) {
+            Set<String> keys = attributeIndex.byOwner(filter.getOwner());
+            if (keys.size() <= limit) {
+                best = keys;
+                limit = keys.size() - 1;
+            }
+        }
+        if (filter.getNamePattern() != null && limit >= 0) {
+            String prefix = GlobPattern.compile(filter.getNamePattern()).getLiteralPrefix();
+            Set<String> keys = prefix.isEmpty() ? null : attributeIndex.byNamePrefix(prefix, limit);
+            if (keys != null) {
+                best = keys;
+                limit = keys.size() - 1;
+            }
+        }
+        if (filter.getTags() != null && !filter.getTags().isEmpty() && limit >= 0) {
+            Set<String> keys = attributeIndex.byAnyTag(filter.getTags(), limit);
+            if (keys != null) {
+                best = keys;
+                limit = keys.size() - 1;
+            }
+        }
+        if (filter.getModifiedAfter() != null && limit >= 0) {
+            Set<String> keys = attributeIndex.modifiedSince(filter.getModifiedAfter(), limit);
+            if (keys != null) {
+                best = keys;
+            }
+        }
+        return best;
+    }
+    
+    // ========== 元数据快照 ==========
+    
+    /**
+     * 挂载启动时恢复的快照，之后读取立即可以看到快照中的表；由 MetadataSnapshotStore 调用
+     */
+    void attachSnapshot(MetadataSnapshot restored) {
+        synchronized (writeLock) {
+            removedFromSnapshot.clear();
+            snapshot = restored;
+        }
+    }
+    
+    boolean isSnapshotAttached() {
+        return snapshot != null;
+    }
+    
+    long getCatalogVersion() {
+        return catalogVersion;
+    }
+    
+    /**
+     * 把快照中的表逐张载入内存，已在内存中或已删除的表跳过，完成后卸下快照
+     *
+     * 解码在锁外进行，写入时不重建库内表列表，全部载入后每个库只重建一次。
+     */
+    void hydrateSnapshot() {
+        MetadataSnapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        int skipped = 0;
+        for (int i = 0; i < current.size(); i++) {
+            String key = current.keyAt(i);
+            if (tableIndex.containsKey(key) || removedFromSnapshot.contains(key)) {
+                continue;
+            }
+            MetadataSnapshot.Entry entry = current.entry(i);
+            if (entry == null) {
+                // 记录损坏，留给目录同步重新读取
+                skipped++;
+                continue;
+            }
+            synchronized (writeLock) {
+                if (!tableIndex.containsKey(key) && !removedFromSnapshot.contains(key)) {
+                    storeTable(key, entry.info, entry.metadata, entry.schema, entry.syncToken);
+                }
+            }
+        }
+        synchronized (writeLock) {
+            for (String database : current.getDatabases()) {
+                rebuildDatabaseTables(database);
+            }
+            snapshot = null;
+            removedFromSnapshot.clear();
+        }
+        if (skipped > 0) {
+            throw new IllegalStateException("快照中有 " + skipped + " 张表的记录损坏，已跳过");
+        }
+    }
+    
+    /**
+     * 导出一张表的完整记录用于写检查点，表不存在时返回 null
+     */
+    MetadataSnapshot.Entry exportTable(String key) {
+        synchronized (writeLock) {
+            TableInfo info = tableIndex.get(key);
+            if (info == null) {
+                return null;
+            }
+            return new MetadataSnapshot.Entry(info, tableMetadataCache.get(key), tableSchemaCache.get(key),
+                syncTokens.get(key));
+        }
+    }
+    
+    /**
+     * 按需从快照载入单张表，不在快照中、已删除或记录损坏时返回 null
+     */
+    private MetadataSnapshot.Entry loadFromSnapshot(String key) {
+        MetadataSnapshot current = snapshot;
+        if (current == null || removedFromSnapshot.contains(key)) {
+            return null;
+        }
+        int index = current.find(key);
+        MetadataSnapshot.Entry entry = index >= 0 ? current.entry(index) : null;
+        if (entry != null) {
+            synchronized (writeLock) {
+                if (snapshot == current && !tableIndex.containsKey(key) && !removedFromSnapshot.contains(key)) {
+                    storeTable(key, entry.info, entry.metadata, entry.schema, entry.syncToken);
+                    rebuildDatabaseTables(entry.info.getDatabase());
+                }
+            }
+        }
+        return entry;
+    }
+    
+    /**
+     * 快照载入期间按 "库.表" 顺序合并遍历内存和快照，同一张表以内存为准
+     */
+    private Iterator<TableInfo> mergedTables(MetadataSnapshot current, String database, Set<String> tableScope) {
+        Iterator<Map.Entry<String, TableInfo>> memory = (database != null
+            ? tableIndex.subMap(database + ".", true, database + "/", false)
+            : tableIndex).entrySet().iterator();
+        int start = database != null ? current.lowerBound(database + ".") : 0;
+        int end = database != null ? current.lowerBound(database + "/") : current.size();
+        
+        return new Iterator<TableInfo>() {
+            private Map.Entry<String, TableInfo> memoryNext = advanceMemory();
+            private int snapshotIndex = start;
+            private String snapshotKey = advanceSnapshot();
+            private TableInfo next = advance();
+            
+            private Map.Entry<String, TableInfo> advanceMemory() {
+                while (memory.hasNext()) {
+                    Map.Entry<String, TableInfo> entry = memory.next();
+                    if (tableScope == null || tableScope.contains(entry.getKey())) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+            
+            private String advanceSnapshot() {
+                while (snapshotIndex < end) {
+                    String key = current.keyAt(snapshotIndex);
+                    if (!removedFromSnapshot.contains(key) && (tableScope == null || tableScope.contains(key))) {
+                        return key;
+                    }
+                    snapshotIndex++;
+                }
+                return null;
+            }
+            
+            private TableInfo advance() {
+                while (memoryNext != null || snapshotKey != null) {
+                    int order = memoryNext == null ? 1
+                        : snapshotKey == null ? -1
+                        : memoryNext.getKey().compareTo(snapshotKey);
+                    if (order <= 0) {
+                        TableInfo table = memoryNext.getValue();
+                        if (order == 0) {
+                            snapshotIndex++;
+                            snapshotKey = advanceSnapshot();
+                        }
+                        memoryNext = advanceMemory();
+                        return table;
+                    }
+                    TableInfo table = current.info(snapshotIndex);
+                    snapshotIndex++;
+                    snapshotKey = advanceSnapshot();
+                    if (table != null) {
+                        return table;
+                    }
+                }
+                return null;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+            
+            @Override
+            public TableInfo next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                TableInfo table = next;
+                next = advance();
+                return table;
+            }
+        };
+    }
+    
+    private Iterator<TableInfo> allTables() {
+        MetadataSnapshot current = snapshot;
+        return current != null ? mergedTables(current, null, null) : tableIndex.values().iterator();
+    }
+    
+    /**
+     * 从内存中的各项存储和索引删除一张表，不重建库内表列表，返回表是否在内存中；调用方需持有 writeLock
+     */
+    private boolean discardTable(String database, String tableName) {
+        String key = database + "." + tableName;
+        if (snapshot != null) {
+            removedFromSnapshot.add(key);
+        }
+        tableMetadataCache.remove(key);
+        tableSchemaCache.remove(key);
+        columnStatisticsCache.remove(key);
+        syncTokens.remove(key);
+        searchIndex.remove(database, tableName);
+        TableInfo previous = tableIndex.remove(key);
+        if (previous == null) {
             return false;
         }
-        if (filter.getTags() != null && !filter.getTags().isEmpty()) {
-            if (table.getTags() == null || Collections.disjoint(table.getTags(), filter.getTags())) {
+        tableCount--;
+        attributeIndex.remove(key, previous);
+        return true;
+    }
+    
+    /**
+     * 写入内存中的各项存储和索引，不重建库内表列表；调用方需持有 writeLock
+     */
+    private void storeTable(String key, TableInfo tableInfo, TableMetadata metadata, TableSchema schema,
+                            String syncToken) {
+        tableMetadataCache.put(key, metadata);
+        tableSchemaCache.put(key, schema);
+        indexColumnStatistics(key, schema);
+        if (syncToken != null) {
+            syncTokens.put(key, syncToken);
+        } else {
+            syncTokens.remove(key);
+        }
+        TableInfo previous = tableIndex.put(key, tableInfo);
+        if (previous == null) {
+            tableCount++;
+        }
+        attributeIndex.put(key, previous, tableInfo);
+        searchIndex.put(tableInfo, schema);
+    }
+    
+    private void registerTables(String database, List<TableInfo> tables) {
+        databaseTablesCache.put(database, tables);
+        for (TableInfo table : tables) {
+            String key = table.getDatabase() + "." + table.getTableName();
+            TableInfo previous = tableIndex.put(key, table);
+            if (previous == null) {
+                tableCount++;
+            }
+            attributeIndex.put(key, previous, table);
+            indexColumnStatistics(key, tableSchemaCache.get(key));
+            searchIndex.put(table, tableSchemaCache.get(key));
+        }
+    }
+    
+    /**
+     * 从表结构中提取列级统计，只保存有统计的字段
+     */
+    private void indexColumnStatistics(String key, TableSchema schema) {
+        Map<String, ColumnStatistics> statistics = new HashMap<>();
+        if (schema != null && schema.getColumns() != null) {
+            for (ColumnInfo column : schema.getColumns()) {
+                if (column.getStatistics() != null) {
+                    statistics.put(column.getName(), column.getStatistics());
+                }
+            }
+        }
+        if (statistics.isEmpty()) {
+            columnStatisticsCache.remove(key);
+        } else {
+            columnStatisticsCache.put(key, Collections.unmodifiableMap(statistics));
+        }
+    }
+    
+    /**
+     * 由排序索引重建库内表列表，库内已没有表时删除该库；调用方需持有 writeLock
+     */
+    private void rebuildDatabaseTables(String database) {
+        List<TableInfo> tables = new ArrayList<>(tableIndex.subMap(database + ".", true, database + "/", false).values());
+        if (tables.isEmpty()) {
+            databaseTablesCache.remove(database);
+        } else {
+            databaseTablesCache.put(database, Collections.unmodifiableList(tables));
+        }
+    }
+    
+    /**
+     * 表过滤条件，名称模式和标签集合在构造时编译一次
+     */
+    private static final class TableMatcher {
+        private final TableListFilter filter;
+        private final GlobPattern namePattern;
+        private final Set<String> tags;
+        
+        TableMatcher(TableListFilter filter) {
+            this.filter = filter;
+            this.namePattern = filter != null && filter.getNamePattern() != null
+                ? GlobPattern.compile(filter.getNamePattern()) : null;
+            this.tags = filter != null && filter.getTags() != null && !filter.getTags().isEmpty()
+                ? new HashSet<>(filter.getTags()) : null;
+        }
+        
+        boolean matches(TableInfo table) {
+            if (filter == null) {
+                return true;
+            }
+            if (namePattern != null && !namePattern.matches(table.getTableName())) {
                 return false;
             }
+            if (filter.getTableType() != null && !filter.getTableType().equals(table.getTableType())) {
+                return false;
+            }
+            if (filter.getOwner() != null && !filter.getOwner().equals(table.getOwner())) {
+                return false;
+            }
+            if (filter.getModifiedAfter() != null && table.getLastModified().isBefore(filter.getModifiedAfter())) {
+                return false;
+            }
+            if (filter.getHasData() != null && filter.getHasData() && (table.getRowCount() == null || table.getRowCount() == 0)) {
+                return false;
+            }
+            if (tags != null) {
+                if (table.getTags() == null || table.getTags().stream().noneMatch(tags::contains)) {
+                    return false;
+                }
+            }
+            return true;
         }
-        return true;
     }
     
     private void initializeMockData() {
@@ -228,12 +840,12 @@ public class MetadataService {
         // 订单表Schema
         List<ColumnInfo> orderColumns = Arrays.asList(
             createColumn("id", "BIGINT", false, "订单ID", false),
-            createColumn("user_id", "BIGINT", false, "用户ID", false),
-            createColumn("product_id", "BIGINT", false, "产品ID", false),
-            createColumn("quantity", "INTEGER", false, "数量", false),
+            withStatistics(createColumn("user_id", "BIGINT", false, "用户ID", false), 800000.0, 0.0, "1", "1000000"),
+            withStatistics(createColumn("product_id", "BIGINT", false, "产品ID", false), 10000.0, 0.0, "1", "10000"),
+            withStatistics(createColumn("quantity", "INTEGER", false, "数量", false), 20.0, 0.0, "1", "20"),
             createColumn("price", "DECIMAL(10,2)", false, "价格", false),
-            createColumn("order_date", "DATE", false, "订单日期", false),
-            createColumn("status", "VARCHAR(20)", false, "订单状态", false)
+            withStatistics(createColumn("order_date", "DATE", false, "订单日期", false), 365.0, 0.0, "2024-01-01", "2024-12-31"),
+            withStatistics(createColumn("status", "VARCHAR(20)", false, "订单状态", false), 5.0, 0.0, null, null)
         );
         
         TableSchema orderSchema = TableSchema.builder()
@@ -293,7 +905,7 @@ public class MetadataService {
             createTableInfo("products", "ecommerce", "ICEBERG", "产品信息表", Arrays.asList("product", "catalog"), "data_team", now, 100000L, 50000000L)
         );
         
-        databaseTablesCache.put("ecommerce", ecommerceTables);
+        registerTables("ecommerce", ecommerceTables);
         
         // 添加更多数据库和表
         List<TableInfo> analyticsTables = Arrays.asList(
@@ -301,7 +913,7 @@ public class MetadataService {
             createTableInfo("sales_summary", "analytics", "ICEBERG", "销售汇总表", Arrays.asList("sales", "summary"), "analytics_team", now, 1000000L, 200000000L)
         );
         
-        databaseTablesCache.put("analytics", analyticsTables);
+        registerTables("analytics", analyticsTables);
     }
     
     private ColumnInfo createColumn(String name, String dataType, boolean nullable, String comment, boolean sensitive) {
@@ -314,6 +926,18 @@ public class MetadataService {
         return column;
     }
     
+    private ColumnInfo withStatistics(ColumnInfo column, Double distinctValues, Double nullsFraction,
+                                      String lowValue, String highValue) {
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.setDistinctValuesCount(distinctValues);
+        statistics.setNullsFraction(nullsFraction);
+        statistics.setLowValue(lowValue);
+        statistics.setHighValue(highValue);
+        statistics.setLastAnalyzed(LocalDateTime.now());
+        column.setStatistics(statistics);
+        return column;
+    }
+    
     private TableInfo createTableInfo(String tableName, String database, String tableType, String description, 
                                      List<String> tags, String owner, LocalDateTime lastModified, Long rowCount, Long dataSize) {
         TableInfo tableInfo = new TableInfo();
@@ -0,0 +1,323 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * 元数据快照文件 - 目录、表结构和统计信息的只读检查点，内存映射后按需解码
+ *
+ * 文件布局：
+ *   头部（64 字节）：魔数、格式版本、表数、创建时间、目录版本、索引/键/库列表的偏移、头部 CRC32
+ *   数据区：每张表两条记录 [int CRC32][JSON]，一条是 TableInfo，一条是元数据、表结构和同步标记
+ *   键区：按 "库.表" 排序的键，UTF-8 连续存放
+ *   索引区：每张表 32 字节 [int 键偏移][int 键长度][long 列表记录偏移][int 长度][long 详情记录偏移][int 长度]
+ *   库列表：[int 数量]{[int 长度][UTF-8]}
+ * 打开时只校验头部，耗时与表数无关；按 "库.表" 二分查找索引，读取时才解码并校验记录。
+ * 映射文件不超过 2GB。
+ */
+final class MetadataSnapshot {
+
+    private static final long MAGIC = 0x4744505F4D455441L; // "GDP_META"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int INDEX_ENTRY_SIZE = 32;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int tableCount;
+    private final long createdAtMillis;
+    private final long catalogVersion;
+    private final int indexOffset;
+    private final int keysOffset;
+    private final List<String> databases;
+
+    private MetadataSnapshot(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(0) != MAGIC) {
+            throw new IOException("不是元数据快照文件: " + file);
+        }
+        if (buffer.getInt(8) != FORMAT_VERSION) {
+            throw new IOException("不支持的快照格式版本 " + buffer.getInt(8) + ": " + file);
+        }
+        if (crc(buffer, 0, 56) != buffer.getInt(56)) {
+            throw new IOException("快照头部校验失败: " + file);
+        }
+        this.tableCount = buffer.getInt(12);
+        this.createdAtMillis = buffer.getLong(16);
+        this.catalogVersion = buffer.getLong(24);
+        this.indexOffset = toInt(buffer.getLong(32));
+        this.keysOffset = toInt(buffer.getLong(40));
+        int databasesOffset = toInt(buffer.getLong(48));
+        if ((long) indexOffset + (long) tableCount * INDEX_ENTRY_SIZE > buffer.capacity()) {
+            throw new IOException("快照文件不完整: " + file);
+        }
+
+        int count = buffer.getInt(databasesOffset);
+        List<String> names = new ArrayList<>(count);
+        int position = databasesOffset + 4;
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt(position);
+            names.add(string(position + 4, length));
+            position += 4 + length;
+        }
+        this.databases = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * 只读映射快照文件并校验头部
+     */
+    static MetadataSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("快照文件超过 2GB: " + file);
+            }
+            // 映射在通道关闭后仍然有效
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MetadataSnapshot(file, mapped);
+        }
+    }
+
+    int size() {
+        return tableCount;
+    }
+
+    long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    List<String> getDatabases() {
+        return databases;
+    }
+
+    String keyAt(int index) {
+        int entry = indexOffset + index * INDEX_ENTRY_SIZE;
+        return string(keysOffset + buffer.getInt(entry), buffer.getInt(entry + 4));
+    }
+
+    /**
+     * 二分查找 "库.表"，不存在时返回 -1
+     */
+    int find(String key) {
+        int index = lowerBound(key);
+        return index < tableCount && keyAt(index).equals(key) ? index : -1;
+    }
+
+    /**
+     * 第一个不小于 key 的位置，键都小于 key 时返回 size()
+     */
+    int lowerBound(String key) {
+        int low = 0;
+        int high = tableCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle).compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 解码表的列表信息，记录损坏时返回 null
+     */
+    TableInfo info(int index) {
+        int entry = indexOffset + index * INDEX_ENTRY_SIZE;
+        return decode(buffer.getLong(entry + 8), buffer.getInt(entry + 16), TableInfo.class);
+    }
+
+    /**
+     * 解码表的完整记录，任一部分损坏时返回 null
+     */
+    Entry entry(int index) {
+        int entry = indexOffset + index * INDEX_ENTRY_SIZE;
+        TableInfo info = info(index);
+        Detail detail = decode(buffer.getLong(entry + 20), buffer.getInt(entry + 28), Detail.class);
+        if (info == null || detail == null) {
+            return null;
+        }
+        return new Entry(info, detail.metadata, detail.schema, detail.syncToken);
+    }
+
+    /**
+     * 把按 "库.表" 排序的表写入临时文件，刷盘后原子替换 file；读取方已映射的旧文件不受影响
+     */
+    static void write(Path file, SortedMap<String, Entry> tables, long catalogVersion) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            ByteArrayOutputStream keys = new ByteArrayOutputStream();
+            ByteBuffer index = ByteBuffer.allocate(tables.size() * INDEX_ENTRY_SIZE);
+            SortedSet<String> databases = new TreeSet<>();
+            long position = HEADER_SIZE;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                out.write(new byte[HEADER_SIZE]);
+                for (Map.Entry<String, Entry> table : tables.entrySet()) {
+                    Entry entry = table.getValue();
+                    byte[] info = OBJECT_MAPPER.writeValueAsBytes(entry.info);
+                    byte[] detail = OBJECT_MAPPER.writeValueAsBytes(
+                        new Detail(entry.metadata, entry.schema, entry.syncToken));
+                    byte[] key = table.getKey().getBytes(StandardCharsets.UTF_8);
+
+                    index.putInt(keys.size()).putInt(key.length);
+                    keys.write(key);
+                    index.putLong(position).putInt(info.length);
+                    position += writeRecord(out, info);
+                    index.putLong(position).putInt(detail.length);
+                    position += writeRecord(out, detail);
+                    databases.add(entry.info.getDatabase());
+                }
+                long keysOffset = position;
+                keys.writeTo(out);
+                long indexOffset = keysOffset + keys.size();
+                out.write(index.array());
+                long databasesOffset = indexOffset + index.capacity();
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(databases.size());
+                for (String database : databases) {
+                    byte[] name = database.getBytes(StandardCharsets.UTF_8);
+                    data.writeInt(name.length);
+                    data.write(name);
+                }
+                data.flush();
+                if (databasesOffset > Integer.MAX_VALUE) {
+                    throw new IOException("快照文件超过 2GB");
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putLong(0, MAGIC).putInt(8, FORMAT_VERSION).putInt(12, tables.size())
+                    .putLong(16, System.currentTimeMillis()).putLong(24, catalogVersion)
+                    .putLong(32, indexOffset).putLong(40, keysOffset).putLong(48, databasesOffset);
+                header.putInt(56, crc(header, 0, 56));
+                out.flush();
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    channel.write(header, 0);
+                    channel.force(true);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private static long writeRecord(OutputStream out, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int value = (int) crc.getValue();
+        out.write(new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+        out.write(payload);
+        return 4L + payload.length;
+    }
+
+    private <T> T decode(long offset, int length, Class<T> type) {
+        int position = toIntUnchecked(offset);
+        if (position < HEADER_SIZE || (long) position + 4 + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = bytes(position + 4, length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(position)) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(payload, type);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String string(int position, int length) {
+        return new String(bytes(position, length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(int position, int length) {
+        byte[] bytes = new byte[length];
+        // 绝对位置读取不改变共享缓冲区的状态，duplicate 保证并发读取互不影响
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static int crc(ByteBuffer buffer, int position, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        view.position(position).limit(position + length);
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private int toInt(long value) throws IOException {
+        if (value < 0 || value > buffer.capacity()) {
+            throw new IOException("快照偏移越界: " + file);
+        }
+        return (int) value;
+    }
+
+    private static int toIntUnchecked(long value) {
+        return value < 0 || value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * 一张表的完整记录
+     */
+    static final class Entry {
+        final TableInfo info;
+        final TableMetadata metadata;
+        final TableSchema schema;
+        final String syncToken;
+
+        Entry(TableInfo info, TableMetadata metadata, TableSchema schema, String syncToken) {
+            this.info = info;
+            this.metadata = metadata;
+            this.schema = schema;
+            this.syncToken = syncToken;
+        }
+    }
+
+    /**
+     * 详情记录的 JSON 结构
+     */
+    static final class Detail {
+        public TableMetadata metadata;
+        public TableSchema schema;
+        public String syncToken;
+
+        Detail() {
+        }
+
+        Detail(TableMetadata metadata, TableSchema schema, String syncToken) {
+            this.metadata = metadata;
+            this.schema = schema;
+            this.syncToken = syncToken;
+        }
+    }
+}
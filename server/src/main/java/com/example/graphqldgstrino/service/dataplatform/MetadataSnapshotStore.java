@@ -0,0 +1,146 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 元数据快照存储 - 定期把 MetadataService 的目录、表结构和统计信息写成本地快照，启动时恢复
+ *
+ * 启动时只映射快照文件并校验头部，耗时与表数无关，挂载后立即可以提供读取；
+ * 随后在后台线程把快照逐表载入内存，同时目录同步按快照中的同步标记只刷新变化的表。
+ * 检查点只在全部载入完成且目录版本变化后写入，写入先落临时文件再原子替换，关闭时再写一次。
+ */
+@Component
+public class MetadataSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataSnapshotStore.class);
+
+    @Autowired
+    private MetadataService metadataService;
+
+    @Value("${data-platform.metadata.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${data-platform.metadata.snapshot.file:./data/metadata.snapshot}")
+    private String snapshotFile;
+
+    @Value("${data-platform.metadata.snapshot.checkpoint-interval-ms:600000}")
+    private long checkpointIntervalMs;
+
+    private Path file;
+    private ScheduledExecutorService checkpointExecutor;
+    // 最近一次写入或恢复的快照对应的目录版本
+    private volatile long checkpointVersion = -1;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        file = Paths.get(snapshotFile);
+        checkpointExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metadata-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (restore()) {
+            checkpointExecutor.execute(this::hydrate);
+        }
+        checkpointExecutor.scheduleWithFixedDelay(this::checkpoint,
+            checkpointIntervalMs, checkpointIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (checkpointExecutor == null) {
+            return;
+        }
+        checkpointExecutor.shutdownNow();
+        checkpoint();
+    }
+
+    /**
+     * 写入检查点，快照尚未全部载入或目录没有变化时跳过
+     */
+    public synchronized void checkpoint() {
+        if (file == null || metadataService.isSnapshotAttached()) {
+            return;
+        }
+        long version = metadataService.getCatalogVersion();
+        if (version == checkpointVersion) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            SortedMap<String, MetadataSnapshot.Entry> tables = new TreeMap<>();
+            for (String key : metadataService.getTableNames()) {
+                MetadataSnapshot.Entry entry = metadataService.exportTable(key);
+                if (entry != null) {
+                    tables.put(key, entry);
+                }
+            }
+            MetadataSnapshot.write(file, tables, version);
+            checkpointVersion = version;
+            logger.info("元数据快照已写入: file={}, tables={}, elapsed={}ms",
+                file, tables.size(), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("写入元数据快照失败: file={}, {}", file, e.getMessage());
+        }
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    /**
+     * 映射并挂载快照，文件不存在或损坏时从空目录启动
+     */
+    private boolean restore() {
+        long start = System.nanoTime();
+        try {
+            MetadataSnapshot snapshot = MetadataSnapshot.open(file);
+            metadataService.attachSnapshot(snapshot);
+            // 载入快照不改变目录版本，目录同步没有写入变化时无需重写
+            checkpointVersion = metadataService.getCatalogVersion();
+            logger.info("元数据快照已挂载: file={}, tables={}, createdAt={}, elapsed={}us",
+                file, snapshot.size(), snapshot.getCreatedAtMillis(),
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return true;
+        } catch (NoSuchFileException e) {
+            logger.info("元数据快照不存在，从空目录启动: file={}", file);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("元数据快照不可用，从空目录启动: file={}, {}", file, e.getMessage());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // 下次检查点会覆盖
+            }
+        }
+        return false;
+    }
+
+    private void hydrate() {
+        long start = System.currentTimeMillis();
+        try {
+            metadataService.hydrateSnapshot();
+            logger.info("元数据快照已全部载入: elapsed={}ms", System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            logger.warn("载入元数据快照不完整: {}", e.getMessage());
+        }
+    }
+}
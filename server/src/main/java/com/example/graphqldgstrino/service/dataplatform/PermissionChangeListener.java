@@ -0,0 +1,16 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+/**
+ * 权限变更监听器 - 用户权限快照被替换后回调
+ *
+ * 回调在执行更新的线程中同步调用，实现应尽量轻量，只做失效或标记。
+ */
+@FunctionalInterface
+public interface PermissionChangeListener {
+
+    /**
+     * @param previousVersion 旧快照版本，新增用户时为 0
+     * @param newVersion 新快照版本，删除用户时为 0
+     */
+    void onPermissionsChanged(String userId, long previousVersion, long newVersion);
+}
@@ -0,0 +1,60 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.*;
+
+/**
+ * 权限变更集 - 一次同步得到的新增/修改与删除的用户和角色，以及下次增量同步使用的游标
+ *
+ * fullSnapshot 为 true 时表示来源中的全部用户和角色，未出现在其中的用户和角色应被删除。
+ */
+public final class PermissionChangeSet {
+
+    private final boolean fullSnapshot;
+    private final List<UpdatePermissionsInput> upserts;
+    private final Set<String> removedUserIds;
+    private final List<RolePermissionsInput> roleUpserts;
+    private final Set<String> removedRoles;
+    private final String cursor;
+
+    public PermissionChangeSet(boolean fullSnapshot, List<UpdatePermissionsInput> upserts,
+                               Set<String> removedUserIds, String cursor) {
+        this(fullSnapshot, upserts, removedUserIds, null, null, cursor);
+    }
+
+    public PermissionChangeSet(boolean fullSnapshot, List<UpdatePermissionsInput> upserts, Set<String> removedUserIds,
+                               List<RolePermissionsInput> roleUpserts, Set<String> removedRoles, String cursor) {
+        this.fullSnapshot = fullSnapshot;
+        this.upserts = upserts != null ? Collections.unmodifiableList(upserts) : Collections.emptyList();
+        this.removedUserIds = removedUserIds != null ? Collections.unmodifiableSet(removedUserIds) : Collections.emptySet();
+        this.roleUpserts = roleUpserts != null ? Collections.unmodifiableList(roleUpserts) : Collections.emptyList();
+        this.removedRoles = removedRoles != null ? Collections.unmodifiableSet(removedRoles) : Collections.emptySet();
+        this.cursor = cursor;
+    }
+
+    public static PermissionChangeSet full(List<UpdatePermissionsInput> users, String cursor) {
+        return new PermissionChangeSet(true, users, null, cursor);
+    }
+
+    public static PermissionChangeSet full(List<UpdatePermissionsInput> users, List<RolePermissionsInput> roles,
+                                           String cursor) {
+        return new PermissionChangeSet(true, users, null, roles, null, cursor);
+    }
+
+    public static PermissionChangeSet empty(String cursor) {
+        return new PermissionChangeSet(false, null, null, cursor);
+    }
+
+    public boolean isFullSnapshot() { return fullSnapshot; }
+    public List<UpdatePermissionsInput> getUpserts() { return upserts; }
+    public Set<String> getRemovedUserIds() { return removedUserIds; }
+    public List<RolePermissionsInput> getRoleUpserts() { return roleUpserts; }
+    public Set<String> getRemovedRoles() { return removedRoles; }
+    public String getCursor() { return cursor; }
+
+    public boolean isEmpty() {
+        return !fullSnapshot && upserts.isEmpty() && removedUserIds.isEmpty()
+            && roleUpserts.isEmpty() && removedRoles.isEmpty();
+    }
+}
@@ -1,172 +1,415 @@
 package com.example.graphqldgstrino.service.dataplatform;
 
 import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * 权限服务 - 管理用户权限、表级权限、字段级权限等
+ *
+ * 每个用户的权限保存为不可变快照（有效权限配置 + 编译结果），更新时创建新快照并原子替换，
+ * 读取只需一次 ConcurrentHashMap 查找，不加锁。
+ *
+ * 有效权限由用户的直接授权和所属角色的授权展开得到：同一张表以直接授权优先，其次按角色顺序取第一条。
+ * 角色授权只编译一次，所有成员共享同一组 CompiledTablePermission 和权限指纹；
+ * 角色或成员关系变化时通过反向索引只重新展开受影响的用户。写操作串行执行。
  */
 @Service
 public class PermissionService {
     
-    // 模拟权限存储
-    private final Map<String, UserPermissions> userPermissionsCache = new HashMap<>();
-    private final Map<String, Set<String>> rolePermissionsCache = new HashMap<>();
-    private final Map<String, List<String>> userRolesCache = new HashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(PermissionService.class);
+    
+    private static final String ADMIN_FINGERPRINT = CompiledTablePermission.sha256Hex("ADMIN").substring(0, 16);
+    private static final String NO_TABLE_FINGERPRINT = CompiledTablePermission.sha256Hex("").substring(0, 16);
+    
+    // 用户的有效权限快照，更新时整体替换
+    private final Map<String, PermissionSnapshot> snapshots = new ConcurrentHashMap<>();
+    // 快照版本号来源，全局单调递增
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final List<PermissionChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // 用户的直接授权（不含角色）及其编译结果
+    private final Map<String, UserPermissions> directPermissions = new ConcurrentHashMap<>();
+    private final Map<String, CompiledGrant> directGrants = new ConcurrentHashMap<>();
+    // 角色 -> 编译后的角色授权，由所有成员共享
+    private final Map<String, CompiledGrant> rolePermissionsCache = new ConcurrentHashMap<>();
+    // 用户 -> 角色，以及角色 -> 成员的反向索引
+    private final Map<String, List<String>> userRolesCache = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> roleMembers = new ConcurrentHashMap<>();
+    // 写操作锁，读操作只访问 snapshots，不需要加锁
+    private final Object updateLock = new Object();
     
     public PermissionService() {
         initializeMockPermissions();
     }
     
     /**
-     * 获取用户权限
+     * 获取用户权限，返回的对象属于当前快照，调用方不应修改
      */
     public UserPermissions getUserPermissions(String userId) {
-        return userPermissionsCache.get(userId);
+        PermissionSnapshot snapshot = getSnapshot(userId);
+        return snapshot != null ? snapshot.getPermissions() : null;
     }
     
     /**
-     * 检查用户是否有表的访问权限
+     * 获取用户权限（tableName 仅用于兼容调用方，权限按用户整体返回）
      */
-    public boolean hasTablePermission(String userId, String database, String tableName, String permission) {
-        UserPermissions userPerms = getUserPermissions(userId);
-        if (userPerms == null) {
-            return false;
+    public UserPermissions getUserPermissions(String userId, String tableName) {
+        return getUserPermissions(userId);
+    }
+    
+    /**
+     * 获取用户当前的权限快照，用户不存在时返回 null
+     */
+    public PermissionSnapshot getSnapshot(String userId) {
+        return userId != null ? snapshots.get(userId) : null;
+    }
+    
+    /**
+     * 获取编译后的用户权限，编译在快照创建时完成
+     */
+    public CompiledPermissions getCompiledPermissions(String userId) {
+        PermissionSnapshot snapshot = getSnapshot(userId);
+        return snapshot != null ? snapshot.getCompiled() : null;
+    }
+    
+    /**
+     * 获取用户当前的权限版本，用户不存在时返回 0
+     */
+    public long getPermissionVersion(String userId) {
+        PermissionSnapshot snapshot = getSnapshot(userId);
+        return snapshot != null ? snapshot.getVersion() : 0L;
+    }
+    
+    /**
+     * 注册权限变更监听器
+     */
+    public void addChangeListener(PermissionChangeListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * 用输入的配置整体替换用户的直接授权，返回新的有效权限
+     *
+     * input.roles 为 null 时保留原有角色，否则整体替换用户的角色。
+     */
+    public UserPermissions updateUserPermissions(UpdatePermissionsInput input) {
+        UserPermissions userPerms = toUserPermissions(input);
+        String userId = userPerms.getUserId();
+        PermissionSnapshot snapshot;
+        synchronized (updateLock) {
+            setDirectPermissions(userPerms);
+            if (input.getRoles() != null) {
+                setUserRoles(userId, input.getRoles());
+            }
+            rebuild(userId);
+            snapshot = snapshots.get(userId);
         }
-        
-        // 检查全局权限
-        if (userPerms.getGlobalPermissions() != null && userPerms.getGlobalPermissions().contains("ADMIN")) {
-            return true;
+        logger.info("用户权限已更新: userId={}, version={}", userId, snapshot.getVersion());
+        return snapshot.getPermissions();
+    }
+    
+    /**
+     * 创建或替换角色授权，只重新展开该角色的成员，返回受影响的用户数
+     */
+    public int updateRole(RolePermissionsInput input) {
+        CompiledGrant role = toRoleGrant(input);
+        synchronized (updateLock) {
+            rolePermissionsCache.put(role.getName(), role);
+            Set<String> members = new HashSet<>(roleMembers.getOrDefault(role.getName(), Collections.emptySet()));
+            members.forEach(this::rebuild);
+            logger.info("角色权限已更新: role={}, members={}", role.getName(), members.size());
+            return members.size();
         }
-        
-        // 检查表级权限
-        if (userPerms.getTablePermissions() != null) {
-            for (TablePermission tablePermission : userPerms.getTablePermissions()) {
-                if (matchesTable(tablePermission, database, tableName)) {
-                    return tablePermission.getPermissions() != null && 
-                           tablePermission.getPermissions().contains(permission);
-                }
+    }
+    
+    /**
+     * 删除角色授权，成员关系保留，角色重新定义后自动生效；返回受影响的用户数
+     */
+    public int removeRole(String roleName) {
+        synchronized (updateLock) {
+            if (roleName == null || rolePermissionsCache.remove(roleName) == null) {
+                return 0;
             }
+            Set<String> members = new HashSet<>(roleMembers.getOrDefault(roleName, Collections.emptySet()));
+            members.forEach(this::rebuild);
+            return members.size();
         }
-        
-        return false;
     }
     
     /**
-     * 检查用户是否有字段的访问权限
+     * 整体替换用户的角色，只重新展开该用户
      */
-    public boolean hasFieldPermission(String userId, String database, String tableName, String fieldName) {
-        UserPermissions userPerms = getUserPermissions(userId);
-        if (userPerms == null) {
-            return false;
+    public void assignUserRoles(String userId, List<String> roles) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new IllegalArgumentException("用户ID不能为空");
         }
-        
-        // 检查全局权限
-        if (userPerms.getGlobalPermissions() != null && userPerms.getGlobalPermissions().contains("ADMIN")) {
-            return true;
+        synchronized (updateLock) {
+            setUserRoles(userId.trim(), roles);
+            rebuild(userId.trim());
         }
-        
-        // 检查表级权限
-        if (userPerms.getTablePermissions() != null) {
-            for (TablePermission tablePermission : userPerms.getTablePermissions()) {
-                if (matchesTable(tablePermission, database, tableName)) {
-                    // 如果没有字段级权限配置，默认允许
-                    if (tablePermission.getFieldPermissions() == null || tablePermission.getFieldPermissions().isEmpty()) {
-                        return tablePermission.getPermissions() != null && 
-                               tablePermission.getPermissions().contains("READ");
+    }
+    
+    /**
+     * 获取用户的角色
+     */
+    public List<String> getUserRoles(String userId) {
+        List<String> roles = userId != null ? userRolesCache.get(userId) : null;
+        return roles != null ? roles : Collections.emptyList();
+    }
+    
+    /**
+     * 应用外部权限来源的变更集，返回实际新增、修改或删除的用户数
+     *
+     * 先应用角色变更，再应用用户变更，最后对所有受影响的用户各展开一次。
+     * 单个用户或角色的配置无效时跳过并记录日志，不影响其他条目。
+     * 全量变更集会删除未出现在其中的用户和角色。来源中用户的 roles 为 null 表示没有角色。
+     */
+    public int applyChanges(PermissionChangeSet changes) {
+        synchronized (updateLock) {
+            Set<String> affected = new HashSet<>();
+            
+            Set<String> presentRoles = new HashSet<>();
+            for (RolePermissionsInput roleInput : changes.getRoleUpserts()) {
+                try {
+                    CompiledGrant role = toRoleGrant(roleInput);
+                    presentRoles.add(role.getName());
+                    rolePermissionsCache.put(role.getName(), role);
+                    affected.addAll(roleMembers.getOrDefault(role.getName(), Collections.emptySet()));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("跳过无效的角色权限配置: role={}, {}", roleInput.getRoleName(), e.getMessage());
+                    if (roleInput.getRoleName() != null) {
+                        presentRoles.add(roleInput.getRoleName().trim());
                     }
-                    
-                    // 检查字段级权限
-                    for (FieldPermission fieldPermission : tablePermission.getFieldPermissions()) {
-                        if (fieldPermission.getFieldName().equals(fieldName)) {
-                            return fieldPermission.getPermission() == FieldPermissionType.ALLOW;
-                        }
+                }
+            }
+            Set<String> removedRoles = new HashSet<>(changes.getRemovedRoles());
+            if (changes.isFullSnapshot()) {
+                removedRoles.addAll(rolePermissionsCache.keySet());
+                removedRoles.removeAll(presentRoles);
+            }
+            for (String roleName : removedRoles) {
+                if (rolePermissionsCache.remove(roleName) != null) {
+                    affected.addAll(roleMembers.getOrDefault(roleName, Collections.emptySet()));
+                }
+            }
+            
+            Set<String> presentUsers = new HashSet<>();
+            for (UpdatePermissionsInput input : changes.getUpserts()) {
+                try {
+                    UserPermissions userPerms = toUserPermissions(input);
+                    presentUsers.add(userPerms.getUserId());
+                    setDirectPermissions(userPerms);
+                    setUserRoles(userPerms.getUserId(), input.getRoles());
+                    affected.add(userPerms.getUserId());
+                } catch (IllegalArgumentException e) {
+                    logger.warn("跳过无效的用户权限配置: userId={}, {}", input.getUserId(), e.getMessage());
+                    if (input.getUserId() != null) {
+                        presentUsers.add(input.getUserId().trim());
                     }
-                    
-                    // 如果字段没有明确配置，默认拒绝
-                    return false;
                 }
             }
+            Set<String> removedUsers = new HashSet<>(changes.getRemovedUserIds());
+            if (changes.isFullSnapshot()) {
+                removedUsers.addAll(snapshots.keySet());
+                removedUsers.removeAll(presentUsers);
+            }
+            for (String userId : removedUsers) {
+                clearUser(userId);
+                affected.add(userId);
+            }
+            
+            int changed = 0;
+            for (String userId : affected) {
+                if (rebuild(userId)) {
+                    changed++;
+                }
+            }
+            return changed;
         }
-        
-        return false;
+    }
+    
+    /**
+     * 删除用户的直接授权和角色，用户不存在时返回 false
+     */
+    public boolean removeUserPermissions(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        synchronized (updateLock) {
+            clearUser(userId);
+            return rebuild(userId);
+        }
+    }
+    
+    /**
+     * 检查用户是否有表的访问权限
+     */
+    public boolean hasTablePermission(String userId, String database, String tableName, String permission) {
+        CompiledPermissions compiled = getCompiledPermissions(userId);
+        if (compiled == null) {
+            return false;
+        }
+        if (compiled.isAdmin()) {
+            return true;
+        }
+        CompiledTablePermission table = compiled.forTable(database, tableName);
+        return table != null && table.hasPermission(permission);
+    }
+    
+    /**
+     * 检查用户是否有表的访问权限（tableName 可以是 "库.表" 或表名）
+     */
+    public boolean hasTablePermission(UserPermissions permissions, String tableName, String permission) {
+        CompiledPermissions compiled = permissions != null ? getCompiledPermissions(permissions.getUserId()) : null;
+        if (compiled == null) {
+            return false;
+        }
+        if (compiled.isAdmin()) {
+            return true;
+        }
+        CompiledTablePermission table = compiled.forTable(tableName);
+        return table != null && table.hasPermission(permission);
+    }
+    
+    /**
+     * 检查用户是否有字段的访问权限
+     */
+    public boolean hasFieldPermission(String userId, String database, String tableName, String fieldName) {
+        CompiledPermissions compiled = getCompiledPermissions(userId);
+        return compiled != null && hasFieldPermission(compiled, compiled.forTable(database, tableName), fieldName);
+    }
+    
+    /**
+     * 检查用户是否有字段的访问权限（tableName 可以是 "库.表" 或表名）
+     */
+    public boolean hasFieldPermission(UserPermissions permissions, String tableName, String fieldName) {
+        CompiledPermissions compiled = permissions != null ? getCompiledPermissions(permissions.getUserId()) : null;
+        return compiled != null && hasFieldPermission(compiled, compiled.forTable(tableName), fieldName);
     }
     
     /**
      * 获取用户可访问的字段列表
      */
     public List<String> getAccessibleFields(String userId, String database, String tableName, List<String> allFields) {
-        UserPermissions userPerms = getUserPermissions(userId);
-        if (userPerms == null) {
+        CompiledPermissions compiled = getCompiledPermissions(userId);
+        if (compiled == null) {
             return new ArrayList<>();
         }
+        if (compiled.isAdmin()) {
+            return new ArrayList<>(allFields);
+        }
         
-        // 检查全局权限
-        if (userPerms.getGlobalPermissions() != null && userPerms.getGlobalPermissions().contains("ADMIN")) {
+        CompiledTablePermission table = compiled.forTable(database, tableName);
+        if (table == null) {
+            return new ArrayList<>();
+        }
+        if (!table.isFieldRestricted()) {
+            // 如果没有字段级权限配置，返回所有字段
             return new ArrayList<>(allFields);
         }
+        return allFields.stream()
+            .filter(table::isAllowed)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * 过滤查询字段：保留可以出现在结果中的字段（明文、脱敏或哈希），脱敏在查询后进行
+     *
+     * 有字段级限制而未指定查询字段时返回所有可读字段，避免 SELECT * 带出被拒绝的字段。
+     */
+    public List<String> filterAllowedFields(UserPermissions permissions, String tableName, List<String> fieldSelection) {
+        CompiledPermissions compiled = permissions != null ? getCompiledPermissions(permissions.getUserId()) : null;
+        if (compiled == null) {
+            return new ArrayList<>();
+        }
+        if (compiled.isAdmin()) {
+            return fieldSelection;
+        }
         
-        // 检查表级权限
-        if (userPerms.getTablePermissions() != null) {
-            for (TablePermission tablePermission : userPerms.getTablePermissions()) {
-                if (matchesTable(tablePermission, database, tableName)) {
-                    if (tablePermission.getFieldPermissions() == null || tablePermission.getFieldPermissions().isEmpty()) {
-                        // 如果没有字段级权限配置，返回所有字段
-                        return new ArrayList<>(allFields);
-                    }
-                    
-                    // 根据字段权限过滤
-                    return allFields.stream()
-                        .filter(field -> {
-                            for (FieldPermission fieldPermission : tablePermission.getFieldPermissions()) {
-                                if (fieldPermission.getFieldName().equals(field)) {
-                                    return fieldPermission.getPermission() == FieldPermissionType.ALLOW;
-                                }
-                            }
-                            return false; // 默认拒绝未配置的字段
-                        })
-                        .collect(Collectors.toList());
-                }
+        CompiledTablePermission table = compiled.forTable(tableName);
+        if (table == null) {
+            return new ArrayList<>();
+        }
+        if (!table.isFieldRestricted()) {
+            return fieldSelection;
+        }
+        if (fieldSelection == null || fieldSelection.isEmpty()) {
+            List<String> readable = new ArrayList<>();
+            BitSet readableBits = table.getAllowBits();
+            readableBits.or(table.getMaskBits());
+            readableBits.or(table.getHashBits());
+            for (int i = readableBits.nextSetBit(0); i >= 0; i = readableBits.nextSetBit(i + 1)) {
+                readable.add(table.fieldName(i));
             }
+            return readable;
+        }
+        return fieldSelection.stream()
+            .filter(table::isReadable)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * 对查询结果执行字段脱敏（MASK/HASH）并移除被拒绝的字段，行数据原地修改
+     */
+    public List<Map<String, Object>> applyDataMasking(List<Map<String, Object>> rows, UserPermissions permissions,
+                                                     String tableName) {
+        CompiledPermissions compiled = permissions != null ? getCompiledPermissions(permissions.getUserId()) : null;
+        if (compiled == null) {
+            return new ArrayList<>();
+        }
+        // 管理员不需要脱敏
+        if (compiled.isAdmin() || rows == null || rows.isEmpty()) {
+            return rows;
         }
         
-        return new ArrayList<>();
+        CompiledTablePermission table = compiled.forTable(tableName);
+        if (table == null) {
+            return new ArrayList<>();
+        }
+        return table.maskingPlan(rows.get(0).keySet()).apply(rows);
     }
     
     /**
-     * 获取字段的脱敏规则
+     * 获取查询列的脱敏计划，用于把脱敏改写进 SQL；无权访问该表时返回 null
+     *
+     * 没有查询列表示 SELECT *，只有管理员或没有字段级限制的表可以不脱敏，有字段级限制时同样返回 null。
      */
-    public String getFieldMaskingRule(String userId, String database, String tableName, String fieldName) {
-        UserPermissions userPerms = getUserPermissions(userId);
-        if (userPerms == null) {
+    public MaskingPlan getMaskingPlan(UserPermissions permissions, String tableName, List<String> columns) {
+        CompiledPermissions compiled = permissions != null ? getCompiledPermissions(permissions.getUserId()) : null;
+        if (compiled == null) {
             return null;
         }
-        
-        // 管理员不需要脱敏
-        if (userPerms.getGlobalPermissions() != null && userPerms.getGlobalPermissions().contains("ADMIN")) {
+        if (compiled.isAdmin()) {
+            return MaskingPlan.identity();
+        }
+        CompiledTablePermission table = compiled.forTable(tableName);
+        if (table == null) {
             return null;
         }
-        
-        if (userPerms.getTablePermissions() != null) {
-            for (TablePermission tablePermission : userPerms.getTablePermissions()) {
-                if (matchesTable(tablePermission, database, tableName)) {
-                    if (tablePermission.getFieldPermissions() != null) {
-                        for (FieldPermission fieldPermission : tablePermission.getFieldPermissions()) {
-                            if (fieldPermission.getFieldName().equals(fieldName)) {
-                                if (fieldPermission.getPermission() == FieldPermissionType.MASK) {
-                                    return fieldPermission.getMaskingRule();
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        if (columns == null || columns.isEmpty()) {
+            return table.isFieldRestricted() ? null : MaskingPlan.identity();
         }
-        
-        return null;
+        return table.maskingPlan(columns);
+    }
+    
+    /**
+     * 获取字段的脱敏规则
+     */
+    public String getFieldMaskingRule(String userId, String database, String tableName, String fieldName) {
+        CompiledPermissions compiled = getCompiledPermissions(userId);
+        // 管理员不需要脱敏
+        if (compiled == null || compiled.isAdmin()) {
+            return null;
+        }
+        CompiledTablePermission table = compiled.forTable(database, tableName);
+        return table != null ? table.maskingRule(fieldName) : null;
     }
     
     /**
@@ -207,56 +450,304 @@ public class PermissionService {
     }
     
     /**
-     * 获取表的行级过滤条件
+     * 获取表的行级过滤条件（已绑定用户属性的规范形式，仅用于展示；生成 SQL 请使用 getRowFilter）
      */
     public String getRowLevelFilter(String userId, String database, String tableName) {
-        UserPermissions userPerms = getUserPermissions(userId);
-        if (userPerms == null) {
+        CompiledPermissions compiled = getCompiledPermissions(userId);
+        QueryPredicate filter = compiled != null ? compiled.rowFilter(compiled.forTable(database, tableName)) : null;
+        return filter != null ? filter.canonical() : null;
+    }
+    
+    /**
+     * 获取表的行级过滤条件（tableName 可以是 "库.表" 或表名）
+     */
+    public String getRowLevelFilter(UserPermissions permissions, String tableName) {
+        QueryPredicate filter = getRowFilter(permissions, tableName);
+        return filter != null ? filter.canonical() : null;
+    }
+    
+    /**
+     * 获取已绑定用户属性的行级过滤谓词，管理员或没有行级过滤时返回 null
+     *
+     * 调用方应在顶层与其他条件 AND 组合，不能放进用户的 OR/NOT 分组中。
+     */
+    public QueryPredicate getRowFilter(UserPermissions permissions, String tableName) {
+        CompiledPermissions compiled = permissions != null ? getCompiledPermissions(permissions.getUserId()) : null;
+        return compiled != null ? compiled.rowFilter(compiled.forTable(tableName)) : null;
+    }
+    
+    /**
+     * 检查用户是否可以访问指定数据库
+     */
+    public boolean canAccessDatabase(String userId, String database) {
+        CompiledPermissions compiled = getCompiledPermissions(userId);
+        if (compiled == null) {
+            return false;
+        }
+        return compiled.isAdmin() || compiled.getDatabases().contains(database);
+    }
+    
+    /**
+     * 计算用户对某张表的权限指纹
+     *
+     * 指纹只由影响结果的权限内容决定（管理员标记、表级权限、字段权限、脱敏规则、行级过滤），
+     * 权限相同的用户得到相同的指纹，可以共享按权限过滤后的缓存结果。
+     * 指纹在当前权限快照的编译结果上计算一次，权限更新后随快照一起替换。
+     * tableName 可以是 "库.表" 或表名。
+     */
+    public String permissionFingerprint(String userId, String tableName) {
+        CompiledPermissions compiled = getCompiledPermissions(userId);
+        if (compiled == null) {
+            return "none";
+        }
+        if (compiled.isAdmin()) {
+            return ADMIN_FINGERPRINT;
+        }
+        CompiledTablePermission table = compiled.forTable(tableName);
+        return table != null ? table.getFingerprint() : NO_TABLE_FINGERPRINT;
+    }
+    
+    /**
+     * 计算查询结果缓存使用的有效策略指纹，无权访问该表时返回 null
+     *
+     * 指纹覆盖输出列、脱敏计划和行级过滤，有效策略相同的用户（例如同一角色的分析师）
+     * 得到相同的指纹，可以安全地共享结果缓存。管理员不受限制，共用同一个指纹。
+     */
+    public String effectivePolicyFingerprint(UserPermissions permissions, String tableName, List<String> columns) {
+        CompiledPermissions compiled = permissions != null ? getCompiledPermissions(permissions.getUserId()) : null;
+        if (compiled == null) {
             return null;
         }
-        
-        // 管理员不需要行级过滤
-        if (userPerms.getGlobalPermissions() != null && userPerms.getGlobalPermissions().contains("ADMIN")) {
+        if (compiled.isAdmin()) {
+            return ADMIN_FINGERPRINT;
+        }
+        CompiledTablePermission table = compiled.forTable(tableName);
+        if (table == null) {
             return null;
         }
-        
-        if (userPerms.getTablePermissions() != null) {
-            for (TablePermission tablePermission : userPerms.getTablePermissions()) {
-                if (matchesTable(tablePermission, database, tableName)) {
-                    return tablePermission.getRowLevelFilter();
-                }
-            }
+        String fingerprint = table.policyFingerprint(columns);
+        // 行级过滤引用了用户属性时，不同用户绑定后的条件不同，不能共享同一个指纹
+        if (table.getRowFilter() != null && table.getRowFilter().hasAttributes()) {
+            fingerprint = CompiledTablePermission.sha256Hex(
+                fingerprint + "|" + compiled.rowFilter(table).canonical()).substring(0, 16);
         }
-        
-        return null;
+        return fingerprint;
+    }
+    
+    private boolean hasFieldPermission(CompiledPermissions compiled, CompiledTablePermission table, String fieldName) {
+        if (compiled.isAdmin()) {
+            return true;
+        }
+        if (table == null) {
+            return false;
+        }
+        // 如果没有字段级权限配置，有READ权限即可访问所有字段
+        if (!table.isFieldRestricted()) {
+            return table.hasPermission("READ");
+        }
+        return table.isAllowed(fieldName);
     }
     
     /**
-     * 检查用户是否可以访问指定数据库
+     * 由直接授权和角色授权重新展开用户的有效权限并替换快照，用户已没有任何授权时删除快照
+     *
+     * 展开结果与当前快照内容相同时保留当前快照，不递增版本也不通知监听器，
+     * 例如全量同步中未变化的角色或内容相同的重复更新。调用方需持有 updateLock。返回快照是否发生变化。
      */
-    public boolean canAccessDatabase(String userId, String database) {
-        UserPermissions userPerms = getUserPermissions(userId);
-        if (userPerms == null) {
+    private boolean rebuild(String userId) {
+        UserPermissions direct = directPermissions.get(userId);
+        List<String> roleNames = getUserRoles(userId);
+        if (direct == null && roleNames.isEmpty()) {
+            PermissionSnapshot removed = snapshots.remove(userId);
+            if (removed == null) {
+                return false;
+            }
+            notifyListeners(userId, removed.getVersion(), 0L);
+            return true;
+        }
+        
+        // 直接授权在前，同一张表以第一条为准
+        Set<String> globalPermissions = new LinkedHashSet<>();
+        List<CompiledTablePermission> tables = new ArrayList<>();
+        CompiledGrant directGrant = directGrants.get(userId);
+        if (directGrant != null) {
+            globalPermissions.addAll(directGrant.getGlobalPermissions());
+            tables.addAll(directGrant.getTables());
+        }
+        for (String roleName : roleNames) {
+            CompiledGrant role = rolePermissionsCache.get(roleName);
+            if (role != null) {
+                globalPermissions.addAll(role.getGlobalPermissions());
+                tables.addAll(role.getTables());
+            }
+        }
+        
+        List<Object> content = snapshotContent(globalPermissions, tables, roleNames, direct);
+        PermissionSnapshot current = snapshots.get(userId);
+        if (current != null && current.getContent().equals(content)) {
             return false;
         }
         
-        // 检查全局权限
-        if (userPerms.getGlobalPermissions() != null && userPerms.getGlobalPermissions().contains("ADMIN")) {
-            return true;
+        long version = versionSequence.incrementAndGet();
+        CompiledPermissions compiled = new CompiledPermissions(userId, version, globalPermissions, tables,
+            CompiledPermissions.userAttributes(userId, roleNames, direct != null ? direct.getResourceGroups() : null));
+        UserPermissions effective = new UserPermissions();
+        effective.setUserId(userId);
+        effective.setGlobalPermissions(Collections.unmodifiableList(new ArrayList<>(globalPermissions)));
+        effective.setTablePermissions(Collections.unmodifiableList(compiled.getTables().stream()
+            .map(CompiledTablePermission::getSource)
+            .collect(Collectors.toList())));
+        if (direct != null) {
+            effective.setResourceGroups(direct.getResourceGroups());
+            effective.setMaxQueryTimeout(direct.getMaxQueryTimeout());
+            effective.setMaxResultRows(direct.getMaxResultRows());
         }
         
-        // 检查是否有该数据库下任何表的权限
-        if (userPerms.getTablePermissions() != null) {
-            return userPerms.getTablePermissions().stream()
-                .anyMatch(tp -> database.equals(tp.getDatabase()));
+        PermissionSnapshot previous = snapshots.put(userId, new PermissionSnapshot(effective, compiled, content));
+        notifyListeners(userId, previous != null ? previous.getVersion() : 0L, version);
+        return true;
+    }
+    
+    /**
+     * 决定快照内容的全部输入：表权限按指纹比较，角色重新编译但内容不变时结果相同
+     */
+    private static List<Object> snapshotContent(Set<String> globalPermissions, List<CompiledTablePermission> tables,
+                                                List<String> roleNames, UserPermissions direct) {
+        List<Object> content = new ArrayList<>();
+        content.add(new ArrayList<>(globalPermissions));
+        for (CompiledTablePermission table : tables) {
+            content.add(table.getFingerprint());
+            content.add(table.getMaxRows());
+        }
+        content.add(roleNames);
+        if (direct != null) {
+            content.add(direct.getResourceGroups());
+            content.add(direct.getMaxQueryTimeout());
+            content.add(direct.getMaxResultRows());
+        }
+        return content;
+    }
+    
+    private void setDirectPermissions(UserPermissions userPerms) {
+        // 先编译：行级过滤条件语法错误时抛出异常，不修改已有授权
+        CompiledGrant grant = new CompiledGrant(userPerms.getUserId(),
+            userPerms.getGlobalPermissions(), userPerms.getTablePermissions());
+        directPermissions.put(userPerms.getUserId(), userPerms);
+        directGrants.put(userPerms.getUserId(), grant);
+    }
+    
+    /**
+     * 替换用户的角色并维护反向索引，调用方需持有 updateLock
+     */
+    private void setUserRoles(String userId, List<String> roles) {
+        for (String roleName : getUserRoles(userId)) {
+            Set<String> members = roleMembers.get(roleName);
+            if (members != null) {
+                members.remove(userId);
+                if (members.isEmpty()) {
+                    roleMembers.remove(roleName);
+                }
+            }
+        }
+        if (roles == null || roles.isEmpty()) {
+            userRolesCache.remove(userId);
+            return;
+        }
+        List<String> normalized = new ArrayList<>(new LinkedHashSet<>(roles));
+        userRolesCache.put(userId, Collections.unmodifiableList(normalized));
+        for (String roleName : normalized) {
+            roleMembers.computeIfAbsent(roleName, r -> new HashSet<>()).add(userId);
         }
+    }
+    
+    private void clearUser(String userId) {
+        directPermissions.remove(userId);
+        directGrants.remove(userId);
+        setUserRoles(userId, null);
+    }
+    
+    /**
+     * 把直接授权写入并展开，用于初始化模拟权限
+     */
+    private void installDirect(UserPermissions userPerms) {
+        synchronized (updateLock) {
+            setDirectPermissions(userPerms);
+            rebuild(userPerms.getUserId());
+        }
+    }
+    
+    private void notifyListeners(String userId, long previousVersion, long newVersion) {
+        for (PermissionChangeListener listener : listeners) {
+            try {
+                listener.onPermissionsChanged(userId, previousVersion, newVersion);
+            } catch (Exception e) {
+                logger.warn("权限变更通知失败: userId={}", userId, e);
+            }
+        }
+    }
+    
+    private UserPermissions toUserPermissions(UpdatePermissionsInput input) {
+        if (input == null || input.getUserId() == null || input.getUserId().trim().isEmpty()) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        
+        UserPermissions userPerms = new UserPermissions();
+        userPerms.setUserId(input.getUserId().trim());
+        userPerms.setGlobalPermissions(immutableCopy(input.getGlobalPermissions()));
+        userPerms.setResourceGroups(immutableCopy(input.getResourceGroups()));
+        userPerms.setMaxQueryTimeout(input.getMaxQueryTimeout());
+        userPerms.setMaxResultRows(input.getMaxResultRows());
         
-        return false;
+        List<TablePermission> tablePermissions = new ArrayList<>();
+        if (input.getTablePermissions() != null) {
+            for (TablePermissionInput tableInput : input.getTablePermissions()) {
+                tablePermissions.add(toTablePermission(tableInput));
+            }
+        }
+        userPerms.setTablePermissions(Collections.unmodifiableList(tablePermissions));
+        return userPerms;
+    }
+    
+    private CompiledGrant toRoleGrant(RolePermissionsInput input) {
+        if (input == null || input.getRoleName() == null || input.getRoleName().trim().isEmpty()) {
+            throw new IllegalArgumentException("角色名不能为空");
+        }
+        List<TablePermission> tablePermissions = new ArrayList<>();
+        if (input.getTablePermissions() != null) {
+            for (TablePermissionInput tableInput : input.getTablePermissions()) {
+                tablePermissions.add(toTablePermission(tableInput));
+            }
+        }
+        return new CompiledGrant(input.getRoleName().trim(), immutableCopy(input.getGlobalPermissions()),
+            Collections.unmodifiableList(tablePermissions));
+    }
+    
+    private TablePermission toTablePermission(TablePermissionInput input) {
+        if (input.getDatabase() == null || input.getTableName() == null) {
+            throw new IllegalArgumentException("表权限必须指定数据库和表名");
+        }
+        TablePermission tablePerm = new TablePermission();
+        tablePerm.setDatabase(input.getDatabase());
+        tablePerm.setTableName(input.getTableName());
+        tablePerm.setPermissions(immutableCopy(input.getPermissions()));
+        tablePerm.setRowLevelFilter(input.getRowLevelFilter());
+        tablePerm.setMaxRows(input.getMaxRows());
+        if (input.getFieldPermissions() != null) {
+            List<FieldPermission> fieldPerms = new ArrayList<>();
+            for (FieldPermissionInput fieldInput : input.getFieldPermissions()) {
+                if (fieldInput.getFieldName() == null || fieldInput.getPermission() == null) {
+                    throw new IllegalArgumentException("字段权限必须指定字段名和权限类型: " + input.getTableName());
+                }
+                fieldPerms.add(createFieldPermission(fieldInput.getFieldName(), fieldInput.getPermission(),
+                    fieldInput.getMaskingRule()));
+            }
+            tablePerm.setFieldPermissions(Collections.unmodifiableList(fieldPerms));
+        }
+        return tablePerm;
     }
     
-    private boolean matchesTable(TablePermission tablePermission, String database, String tableName) {
-        return database.equals(tablePermission.getDatabase()) && 
-               tableName.equals(tablePermission.getTableName());
+    private static List<String> immutableCopy(List<String> values) {
+        return values != null ? Collections.unmodifiableList(new ArrayList<>(values)) : null;
     }
     
     private void initializeMockPermissions() {
@@ -267,7 +758,7 @@ public class PermissionService {
         adminPerms.setResourceGroups(Arrays.asList("admin", "high_priority", "default"));
         adminPerms.setMaxQueryTimeout(3600); // 1小时
         adminPerms.setMaxResultRows(1000000); // 100万行
-        userPermissionsCache.put("admin", adminPerms);
+        installDirect(adminPerms);
         
         // 初始化普通用户
         UserPermissions userPerms = new UserPermissions();
@@ -304,7 +795,7 @@ public class PermissionService {
         orderTablePerm.setDatabase("ecommerce");
         orderTablePerm.setTableName("orders");
         orderTablePerm.setPermissions(Arrays.asList("READ"));
-        orderTablePerm.setRowLevelFilter("user_id = '" + userPerms.getUserId() + "'"); // 只能看自己的订单
+        orderTablePerm.setRowLevelFilter("user_id = ${user.id}"); // 只能看自己的订单
         orderTablePerm.setMaxRows(5000);
         tablePermissions.add(orderTablePerm);
         
@@ -317,7 +808,7 @@ public class PermissionService {
         tablePermissions.add(productTablePerm);
         
         userPerms.setTablePermissions(tablePermissions);
-        userPermissionsCache.put("user1", userPerms);
+        installDirect(userPerms);
         
         // 初始化分析师用户
         UserPermissions analystPerms = new UserPermissions();
@@ -373,7 +864,7 @@ public class PermissionService {
         analystTablePermissions.add(analystSalesTablePerm);
         
         analystPerms.setTablePermissions(analystTablePermissions);
-        userPermissionsCache.put("analyst1", analystPerms);
+        installDirect(analystPerms);
     }
     
     private FieldPermission createFieldPermission(String fieldName, FieldPermissionType permission, String maskingRule) {
@@ -0,0 +1,39 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.List;
+
+/**
+ * 用户权限快照 - 有效权限配置（直接授权与角色授权展开后）与编译结果的不可变组合
+ *
+ * 权限更新时创建新快照并整体替换，读取方拿到的快照在使用期间不会改变。
+ * 版本号全局单调递增，因此同一用户的版本也单调递增，删除后重建也不会复用旧版本号。
+ */
+public final class PermissionSnapshot {
+
+    private final long version;
+    private final UserPermissions permissions;
+    private final CompiledPermissions compiled;
+    // 展开快照的输入，内容相同的快照不需要替换
+    private final List<Object> content;
+
+    PermissionSnapshot(UserPermissions permissions, CompiledPermissions compiled, List<Object> content) {
+        this.version = compiled.getVersion();
+        this.permissions = permissions;
+        this.compiled = compiled;
+        this.content = content;
+    }
+
+    public String getUserId() { return permissions.getUserId(); }
+    public long getVersion() { return version; }
+
+    /**
+     * 原始权限配置，调用方应视为只读
+     */
+    public UserPermissions getPermissions() { return permissions; }
+
+    public CompiledPermissions getCompiled() { return compiled; }
+
+    List<Object> getContent() { return content; }
+}
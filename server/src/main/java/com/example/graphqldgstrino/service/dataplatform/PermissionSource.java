@@ -0,0 +1,33 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+/**
+ * 外部权限来源 - 由后台同步任务调用，把授权加载到内存中的权限快照
+ *
+ * 实现只在同步线程中被调用，不会出现在查询路径上，可以访问文件、数据库或远程策略服务。
+ * 游标由实现自行定义（时间戳、变更序号、文件版本等），对调用方不透明。
+ */
+public interface PermissionSource {
+
+    /**
+     * 来源名称，用于日志
+     */
+    String getName();
+
+    /**
+     * 全量加载所有用户权限，返回的变更集 fullSnapshot 为 true
+     */
+    PermissionChangeSet loadAll() throws Exception;
+
+    /**
+     * 加载游标之后的变更，没有变更时返回空变更集
+     */
+    PermissionChangeSet changesSince(String cursor) throws Exception;
+
+    /**
+     * 变更集已成功应用到权限快照后调用，实现在此推进内部状态
+     *
+     * 应用失败时不调用，下一次同步仍以上一次提交的状态为基准，重新返回这些变更。
+     */
+    default void commit(PermissionChangeSet changes) {
+    }
+}
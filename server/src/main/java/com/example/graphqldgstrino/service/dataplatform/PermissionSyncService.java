@@ -0,0 +1,119 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限同步 - 从外部权限来源加载授权，并在后台增量同步到 PermissionService 的权限快照
+ *
+ * 启动时同步完成一次全量加载，之后按固定间隔拉取增量变更。查询路径只读取内存中的快照，
+ * 不会访问权限来源；同步失败时保留上一次成功加载的权限，下个周期重试。
+ * source 为 mock 时使用 PermissionService 内置的模拟权限，不启动同步。
+ */
+@Component
+public class PermissionSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionSyncService.class);
+
+    @Autowired
+    private PermissionService permissionService;
+
+    @Value("${data-platform.permissions.source:mock}")
+    private String sourceType;
+
+    @Value("${data-platform.permissions.file:./permissions.json}")
+    private String permissionFile;
+
+    @Value("${data-platform.permissions.sync-interval-ms:30000}")
+    private long syncIntervalMs;
+
+    private PermissionSource source;
+    private ScheduledExecutorService syncExecutor;
+    // 在 sync 的锁内读写（启动时的全量加载在调度之前完成）
+    private String cursor;
+    private volatile long lastSyncMillis;
+
+    @PostConstruct
+    public void init() {
+        source = createSource();
+        if (source == null) {
+            return;
+        }
+        try {
+            PermissionChangeSet changes = source.loadAll();
+            int changed = permissionService.applyChanges(changes);
+            source.commit(changes);
+            cursor = changes.getCursor();
+            lastSyncMillis = System.currentTimeMillis();
+            logger.info("权限全量加载完成: source={}, users={}", source.getName(), changed);
+        } catch (Exception e) {
+            // 启动时加载失败不阻止服务启动：清除内置的模拟权限，保持为空，由后台同步重试
+            logger.error("权限全量加载失败: source={}", source.getName(), e);
+            permissionService.applyChanges(PermissionChangeSet.full(Collections.emptyList(), null));
+        }
+
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "permission-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.scheduleWithFixedDelay(this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 拉取并应用一次增量变更
+     */
+    public synchronized void sync() {
+        if (source == null) {
+            return;
+        }
+        try {
+            PermissionChangeSet changes = source.changesSince(cursor);
+            if (!changes.isEmpty()) {
+                int changed = permissionService.applyChanges(changes);
+                logger.info("权限增量同步完成: source={}, changed={}", source.getName(), changed);
+            }
+            source.commit(changes);
+            cursor = changes.getCursor();
+            lastSyncMillis = System.currentTimeMillis();
+        } catch (Exception e) {
+            logger.warn("权限增量同步失败: source={}, {}", source.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 上一次成功同步的时间，从未成功时为 0
+     */
+    public long getLastSyncMillis() {
+        return lastSyncMillis;
+    }
+
+    private PermissionSource createSource() {
+        switch (sourceType.trim().toLowerCase()) {
+            case "mock":
+                return null;
+            case "file":
+                return new FilePermissionSource(Paths.get(permissionFile));
+            default:
+                throw new IllegalArgumentException("不支持的权限来源: " + sourceType);
+        }
+    }
+}
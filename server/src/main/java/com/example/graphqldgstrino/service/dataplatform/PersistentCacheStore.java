@@ -0,0 +1,673 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import com.example.graphqldgstrino.model.dataplatform.TableQueryResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化查询缓存 - 本地目录下的追加写分段日志，重启后仍可命中
+ *
+ * 每条记录格式：[int 长度][int CRC32][byte 类型][long 过期时间][long 写入时间][long 表版本][key][表名][用户ID][payload]。
+ * 启动时只读取记录头重建内存索引（含按写入用户的缓存键索引），payload 在命中时才按偏移读取并校验CRC，
+ * 因此启动耗时与缓存内容大小基本无关。表版本变化以 VERSION 记录追加写入，
+ * 每次切换分段时会重写全部表版本，保证删除旧分段不会丢失版本信息。
+ * 结果以 JSON 存储，恢复后的数值类型可能与 JDBC 原始类型不同（例如 BigDecimal 变为 Double）。
+ *
+ * 重启后能否命中取决于缓存键在进程之间是否稳定。目录下的 FORMAT 文件记录缓存键和记录格式版本，
+ * 与 KEY_FORMAT_VERSION 不一致时（例如键中含有对象默认 hashCode 的旧版本写入的记录）丢弃全部分段，
+ * 这些记录不可能再被命中或无法按当前格式解析，只会占用磁盘空间。
+ */
+@Component
+public class PersistentCacheStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentCacheStore.class);
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_VERSION = 3;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String FORMAT_FILE = "FORMAT";
+
+    // 缓存键和记录格式版本，键的生成方式或记录头变化后需要递增：
+    // 2 表示按有效策略指纹和规范 JSON 摘要生成的键，3 表示记录头含写入时间，4 表示记录头含写入用户
+    static final int KEY_FORMAT_VERSION = 4;
+
+    @Value("${data-platform.cache.persistent.enabled:false}")
+    private boolean enabled;
+
+    @Value("${data-platform.cache.persistent.directory:./data/query-cache}")
+    private String directory;
+
+    @Value("${data-platform.cache.persistent.segment-size-mb:64}")
+    private long segmentSizeMb;
+
+    @Value("${data-platform.cache.persistent.max-size-mb:2048}")
+    private long maxSizeMb;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    // key -> 记录位置
+    private final Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+    // 写入用户 -> key，按用户清理时不扫描全部记录
+    private final CacheKeyIndex userIndex = new CacheKeyIndex();
+    // 表名 -> 当前版本
+    private final Map<String, Long> tableVersions = new ConcurrentHashMap<>();
+    // 分段ID -> 分段
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    // 写入在单独的线程中进行，不阻塞请求线程
+    private ExecutorService writer;
+    private Segment activeSegment;
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            checkKeyFormat(dir);
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(dir)) {
+                files = stream
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                Segment segment = new Segment(parseSegmentId(file), file);
+                segments.put(segment.id, segment);
+                replay(segment);
+            }
+            dropInvalidEntries(System.currentTimeMillis());
+            rollSegment();
+        } catch (IOException e) {
+            logger.warn("持久化缓存初始化失败，已禁用: {}", e.getMessage());
+            enabled = false;
+            closeSegments();
+            return;
+        }
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "query-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("持久化缓存已加载: {} 条记录, {} 个分段, 耗时 {} ms",
+            index.size(), segments.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeSegments();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取缓存结果，过期或表版本落后的记录视为未命中
+     */
+    public StoredResult get(String cacheKey) {
+        if (!enabled) {
+            return null;
+        }
+        IndexEntry entry = index.get(cacheKey);
+        if (entry == null) {
+            return null;
+        }
+        if (!isValid(entry, System.currentTimeMillis())) {
+            remove(cacheKey);
+            return null;
+        }
+        Segment segment = segments.get(entry.segmentId);
+        if (segment == null) {
+            if (index.remove(cacheKey, entry)) {
+                unindexUser(cacheKey, entry);
+            }
+            return null;
+        }
+        try {
+            byte[] payload = segment.readPayload(entry);
+            TableQueryResult result = objectMapper.readValue(payload, TableQueryResult.class);
+            return new StoredResult(result, entry.cachedAtMillis, entry.expiresAtMillis, entry.tableVersion);
+        } catch (IOException e) {
+            logger.warn("读取持久化缓存失败: {} ({})", cacheKey, e.getMessage());
+            if (index.remove(cacheKey, entry)) {
+                unindexUser(cacheKey, entry);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 异步写入缓存结果，cachedAtMillis 为结果写入缓存的时间，按用户清理时据此判断条目是否已失效；
+     * userId 为写入结果的用户，用于按用户查找缓存键
+     */
+    public void put(String cacheKey, String tableName, String userId, long tableVersion, long cachedAtMillis,
+                    long expiresAtMillis, TableQueryResult result) {
+        if (!enabled) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                byte[] payload = objectMapper.writeValueAsBytes(result);
+                append(RECORD_PUT, cacheKey, tableName != null ? tableName : "", userId != null ? userId : "",
+                    tableVersion, cachedAtMillis, expiresAtMillis, payload);
+            } catch (IOException e) {
+                logger.warn("写入持久化缓存失败: {} ({})", cacheKey, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 删除单条缓存
+     */
+    public void remove(String cacheKey) {
+        if (!enabled) {
+            return;
+        }
+        IndexEntry removed = index.remove(cacheKey);
+        if (removed != null) {
+            dropEntry(cacheKey, removed);
+        }
+        // 写入线程中可能还有该键尚未进入索引的写入，REMOVE 记录排在其后，无论索引中是否存在都要追加
+        appendAsync(RECORD_REMOVE, cacheKey, "", 0L, 0L);
+    }
+
+    /**
+     * 该用户写入的缓存键，用户ID按字面量比较
+     */
+    public Set<String> keysForUser(String userId) {
+        return enabled ? userIndex.keysForUser(userId) : new HashSet<>();
+    }
+
+    /**
+     * 写入用户匹配模式的缓存键，只遍历不同的用户ID
+     */
+    public Set<String> keysForUsers(GlobPattern userPattern) {
+        return enabled ? userIndex.keysForUsers(userPattern) : new HashSet<>();
+    }
+
+    /**
+     * 清空持久化缓存（表版本保留）
+     */
+    public void clear() {
+        if (!enabled) {
+            return;
+        }
+        index.clear();
+        userIndex.clear();
+        writer.execute(() -> {
+            try {
+                synchronized (this) {
+                    rollSegment();
+                    deleteSegmentsBefore(activeSegment.id);
+                }
+            } catch (IOException e) {
+                logger.warn("清空持久化缓存失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 获取表的持久化版本
+     */
+    public long getTableVersion(String tableName) {
+        return tableName != null ? tableVersions.getOrDefault(tableName, 0L) : 0L;
+    }
+
+    /**
+     * 所有已持久化的表版本
+     */
+    public Map<String, Long> getTableVersions() {
+        return Collections.unmodifiableMap(tableVersions);
+    }
+
+    /**
+     * 记录表版本变化，低于该版本的记录将不再命中
+     */
+    public void updateTableVersion(String tableName, long version) {
+        if (!enabled) {
+            return;
+        }
+        tableVersions.merge(tableName, version, Math::max);
+        appendAsync(RECORD_VERSION, "", tableName, version, 0L);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    /**
+     * 缓存键格式与当前版本不一致时删除全部分段，然后写入当前版本
+     */
+    private void checkKeyFormat(Path dir) throws IOException {
+        Path formatFile = dir.resolve(FORMAT_FILE);
+        String stored = Files.exists(formatFile)
+            ? new String(Files.readAllBytes(formatFile), StandardCharsets.UTF_8).trim() : null;
+        if (String.valueOf(KEY_FORMAT_VERSION).equals(stored)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            for (Path file : stream.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.write(formatFile, String.valueOf(KEY_FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        if (stored != null) {
+            logger.info("缓存键格式已从 {} 变为 {}，丢弃旧的持久化缓存", stored, KEY_FORMAT_VERSION);
+        }
+    }
+
+    private boolean isValid(IndexEntry entry, long nowMillis) {
+        return entry.expiresAtMillis > nowMillis && entry.tableVersion >= getTableVersion(entry.tableName);
+    }
+
+    private void dropInvalidEntries(long nowMillis) {
+        index.entrySet().removeIf(e -> {
+            boolean invalid = !isValid(e.getValue(), nowMillis);
+            if (invalid) {
+                releaseEntry(e.getValue());
+                userIndex.remove(e.getKey(), null, users(e.getValue()));
+            }
+            return invalid;
+        });
+    }
+
+    private void appendAsync(byte type, String key, String tableName, long version, long expiresAtMillis) {
+        writer.execute(() -> {
+            try {
+                append(type, key, tableName, "", version, 0L, expiresAtMillis, new byte[0]);
+            } catch (IOException e) {
+                logger.warn("写入持久化缓存失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private synchronized void append(byte type, String key, String tableName, String userId, long version,
+                                     long cachedAtMillis, long expiresAtMillis, byte[] payload) throws IOException {
+        if (activeSegment.size >= segmentSizeMb * 1024 * 1024) {
+            rollSegment();
+            enforceMaxSize();
+        }
+        long offset = activeSegment.append(encode(type, key, tableName, userId, version, cachedAtMillis,
+            expiresAtMillis, payload));
+        if (type == RECORD_PUT) {
+            int headerLength = headerLength(key, tableName, userId);
+            IndexEntry entry = new IndexEntry(activeSegment.id, offset, headerLength, payload.length,
+                cachedAtMillis, expiresAtMillis, tableName, userId, version);
+            activeSegment.liveBytes.addAndGet(entry.recordLength());
+            indexEntry(key, entry);
+        } else if (type == RECORD_REMOVE) {
+            // 排在删除之前的写入可能刚刚进入索引
+            IndexEntry removed = index.remove(key);
+            if (removed != null) {
+                dropEntry(key, removed);
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        long nextId = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path file = Paths.get(directory, String.format("%s%012d%s", SEGMENT_PREFIX, nextId, SEGMENT_SUFFIX));
+        Segment segment = new Segment(nextId, file);
+        segments.put(nextId, segment);
+        activeSegment = segment;
+
+        // 新分段开头重写全部表版本，旧分段可以整体删除
+        for (Map.Entry<String, Long> version : tableVersions.entrySet()) {
+            segment.append(encode(RECORD_VERSION, "", version.getKey(), "", version.getValue(), 0L, 0L,
+                new byte[0]));
+        }
+        deleteDeadSegments();
+    }
+
+    private void deleteDeadSegments() {
+        // 只能从最老的分段开始连续删除，否则较新分段中的 REMOVE 记录丢失后，旧的 PUT 会在重放时复活
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment == activeSegment || segment.liveBytes.get() > 0) {
+                break;
+            }
+            deleteSegment(segment);
+        }
+    }
+
+    private void enforceMaxSize() {
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        long total = segments.values().stream().mapToLong(s -> s.size).sum();
+        while (total > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            total -= oldest.size;
+            index.entrySet().removeIf(e -> {
+                boolean inOldest = e.getValue().segmentId == oldest.id;
+                if (inOldest) {
+                    userIndex.remove(e.getKey(), null, users(e.getValue()));
+                }
+                return inOldest;
+            });
+            deleteSegment(oldest);
+        }
+    }
+
+    private void deleteSegmentsBefore(long segmentId) {
+        for (Segment segment : new ArrayList<>(segments.headMap(segmentId, false).values())) {
+            deleteSegment(segment);
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        segments.remove(segment.id);
+        segment.close();
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            logger.warn("删除缓存分段失败: {} ({})", segment.file, e.getMessage());
+        }
+    }
+
+    private void indexEntry(String cacheKey, IndexEntry entry) {
+        IndexEntry previous = index.put(cacheKey, entry);
+        if (previous != null) {
+            dropEntry(cacheKey, previous);
+        }
+        userIndex.add(cacheKey, null, users(entry));
+    }
+
+    /**
+     * 已从 index 中移除的记录：释放分段中的存活字节，删除用户索引
+     */
+    private void dropEntry(String cacheKey, IndexEntry entry) {
+        releaseEntry(entry);
+        unindexUser(cacheKey, entry);
+    }
+
+    private void unindexUser(String cacheKey, IndexEntry entry) {
+        userIndex.remove(cacheKey, null, users(entry));
+        // 删除索引期间同一个键可能被重新写入，需要补回新记录的索引
+        IndexEntry current = index.get(cacheKey);
+        if (current != null) {
+            userIndex.add(cacheKey, null, users(current));
+        }
+    }
+
+    private static Collection<String> users(IndexEntry entry) {
+        return entry.userId.isEmpty() ? Collections.emptyList() : Collections.singletonList(entry.userId);
+    }
+
+    private void releaseEntry(IndexEntry entry) {
+        Segment segment = segments.get(entry.segmentId);
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-entry.recordLength());
+        }
+    }
+
+    private void replay(Segment segment) throws IOException {
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || position + 4 + length > segment.size) {
+                    // 未写完整的尾部记录，截断
+                    segment.truncate(position);
+                    break;
+                }
+                in.readInt(); // CRC 在读取payload时校验
+                byte type = in.readByte();
+                long expiresAtMillis = in.readLong();
+                long cachedAtMillis = in.readLong();
+                long version = in.readLong();
+                String key = readString(in);
+                String tableName = readString(in);
+                String userId = readString(in);
+                int headerLength = headerLength(key, tableName, userId);
+                int payloadLength = length - 4 - headerLength;
+                skipFully(in, payloadLength);
+
+                switch (type) {
+                    case RECORD_PUT:
+                        IndexEntry entry = new IndexEntry(segment.id, position, headerLength, payloadLength,
+                            cachedAtMillis, expiresAtMillis, tableName, userId, version);
+                        segment.liveBytes.addAndGet(entry.recordLength());
+                        indexEntry(key, entry);
+                        break;
+                    case RECORD_REMOVE:
+                        IndexEntry removed = index.remove(key);
+                        if (removed != null) {
+                            dropEntry(key, removed);
+                        }
+                        break;
+                    case RECORD_VERSION:
+                        tableVersions.merge(tableName, version, Math::max);
+                        break;
+                    default:
+                        logger.warn("未知的缓存记录类型 {}，停止读取分段 {}", type, segment.file);
+                        segment.truncate(position);
+                        return;
+                }
+                position += 4 + length;
+            }
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException("缓存记录不完整");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static byte[] encode(byte type, String key, String tableName, String userId, long version,
+                                 long cachedAtMillis, long expiresAtMillis, byte[] payload) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(headerLength(key, tableName, userId) + payload.length);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeByte(type);
+        out.writeLong(expiresAtMillis);
+        out.writeLong(cachedAtMillis);
+        out.writeLong(version);
+        writeString(out, key);
+        writeString(out, tableName);
+        writeString(out, userId);
+        out.write(payload);
+        out.flush();
+        byte[] bodyBytes = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+
+        ByteBuffer record = ByteBuffer.allocate(8 + bodyBytes.length);
+        record.putInt(4 + bodyBytes.length);
+        record.putInt((int) crc.getValue());
+        record.put(bodyBytes);
+        record.flip();
+        return record.array();
+    }
+
+    private static int headerLength(String key, String tableName, String userId) {
+        return 1 + 8 + 8 + 8
+            + 2 + key.getBytes(StandardCharsets.UTF_8).length
+            + 2 + (tableName != null ? tableName : "").getBytes(StandardCharsets.UTF_8).length
+            + 2 + (userId != null ? userId : "").getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long parseSegmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void closeSegments() {
+        segments.values().forEach(Segment::close);
+    }
+
+    /**
+     * 从磁盘读取的缓存结果
+     */
+    public static class StoredResult {
+        private final TableQueryResult result;
+        private final long cachedAtMillis;
+        private final long expiresAtMillis;
+        private final long tableVersion;
+
+        StoredResult(TableQueryResult result, long cachedAtMillis, long expiresAtMillis, long tableVersion) {
+            this.result = result;
+            this.cachedAtMillis = cachedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+            this.tableVersion = tableVersion;
+        }
+
+        public TableQueryResult getResult() { return result; }
+        public long getCachedAtMillis() { return cachedAtMillis; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+        public long getTableVersion() { return tableVersion; }
+    }
+
+    /**
+     * 索引项 - 记录在分段中的位置
+     */
+    private static class IndexEntry {
+        private final long segmentId;
+        private final long offset;
+        private final int headerLength;
+        private final int payloadLength;
+        private final long cachedAtMillis;
+        private final long expiresAtMillis;
+        private final String tableName;
+        private final String userId;
+        private final long tableVersion;
+
+        IndexEntry(long segmentId, long offset, int headerLength, int payloadLength,
+                   long cachedAtMillis, long expiresAtMillis, String tableName, String userId, long tableVersion) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.headerLength = headerLength;
+            this.payloadLength = payloadLength;
+            this.cachedAtMillis = cachedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+            this.tableName = tableName;
+            this.userId = userId;
+            this.tableVersion = tableVersion;
+        }
+
+        long recordLength() {
+            return 8L + headerLength + payloadLength;
+        }
+    }
+
+    /**
+     * 日志分段文件
+     */
+    private static class Segment {
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private final AtomicLong liveBytes = new AtomicLong();
+        private volatile long size;
+
+        Segment(long id, Path file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        long append(byte[] record) throws IOException {
+            long offset = size;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            size = offset + record.length;
+            return offset;
+        }
+
+        byte[] readPayload(IndexEntry entry) throws IOException {
+            int bodyLength = entry.headerLength + entry.payloadLength;
+            ByteBuffer buffer = ByteBuffer.allocate(8 + bodyLength);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                    throw new EOFException("缓存记录不完整");
+                }
+            }
+            buffer.flip();
+            buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 8, bodyLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("缓存记录CRC校验失败");
+            }
+            return Arrays.copyOfRange(buffer.array(), 8 + entry.headerLength, 8 + bodyLength);
+        }
+
+        void truncate(long length) throws IOException {
+            channel.truncate(length);
+            size = length;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响后续操作
+            }
+        }
+    }
+}
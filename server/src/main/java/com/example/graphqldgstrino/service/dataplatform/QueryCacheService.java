@@ -1,11 +1,30 @@
 package com.example.graphqldgstrino.service.dataplatform;
 
 import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+import com.example.graphqldgstrino.model.dataplatform.TableQueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * 查询缓存服务 - 管理查询结果缓存、查询历史等
@@ -13,58 +32,146 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class QueryCacheService {
     
+    private static final Logger logger = LoggerFactory.getLogger(QueryCacheService.class);
+    
     // 查询结果缓存
     private final Map<String, CachedQueryResult> queryResultCache = new ConcurrentHashMap<>();
-    // 查询历史
-    private final Map<String, List<QueryHistory>> userQueryHistory = new ConcurrentHashMap<>();
+    // 查询历史，每个用户一个定长环形缓冲区
+    private final Map<String, ConcurrentRingBuffer<QueryHistory>> userQueryHistory = new ConcurrentHashMap<>();
+    // 热门查询的流式近似统计
+    private final SpaceSavingTopK popularQueries = new SpaceSavingTopK(MAX_TRACKED_QUERIES);
+    // 表版本，表数据变化后递增，旧版本的缓存不再命中
+    private final Map<String, Long> tableVersions = new ConcurrentHashMap<>();
+    // 按表、用户索引内存中的缓存键，用于按模式失效；用户维度记录写入和命中过该条目的所有用户
+    private final CacheKeyIndex keyIndex = new CacheKeyIndex();
+    // 按用户清理时其他用户仍在共享的条目不删除，只让被清理的用户跳过该时间之前写入的条目
+    private final Map<String, Long> userCutoffs = new ConcurrentHashMap<>();
+    private final List<PatternCutoff> patternCutoffs = new CopyOnWriteArrayList<>();
     // 缓存统计
-    private final Map<String, CacheStatistics> cacheStats = new ConcurrentHashMap<>();
+    @Autowired
+    private CacheStatisticsCollector statisticsCollector;
+    // 可选的持久化缓存层
+    @Autowired
+    private PersistentCacheStore persistentStore;
+    @Autowired
+    private MetadataService metadataService;
+    
+    // 后台维护：写入先进入无锁队列，由维护线程登记到时间轮和淘汰队列。
+    // 这些结构只保存缓存键和写入序号，条目被替换或删除后结果立即可以回收，过时的记录在到期或淘汰时按序号跳过
+    private final Queue<WriteTicket> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final HierarchicalTimerWheel<WriteTicket> expiryWheel =
+        new HierarchicalTimerWheel<>(TIMER_TICK_MILLIS, System.currentTimeMillis());
+    private final Deque<WriteTicket> evictionQueue = new ArrayDeque<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private final AtomicBoolean maintenanceRequested = new AtomicBoolean();
+    private ScheduledExecutorService maintenanceExecutor;
+    private long nextScheduledNanos;
+    
+    @Value("${data-platform.cache.maintenance-interval-ms:1000}")
+    private long maintenanceIntervalMs;
     
     // 缓存配置
     private static final int MAX_CACHE_SIZE = 1000;
     private static final int CACHE_TTL_MINUTES = 60;
+    private static final int MAX_HISTORY_PER_USER = 100;
+    private static final int MAX_TRACKED_QUERIES = 1000;
+    private static final long TIMER_TICK_MILLIS = 1000L;
+    
+    @PostConstruct
+    public void init() {
+        tableVersions.putAll(persistentStore.getTableVersions());
+        
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "query-cache-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        nextScheduledNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maintenanceIntervalMs);
+        maintenanceExecutor.scheduleAtFixedRate(this::scheduledMaintenance,
+            maintenanceIntervalMs, maintenanceIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdownNow();
+        }
+    }
     
     /**
      * 获取缓存的查询结果
      */
     public TableQueryResult getCachedResult(String cacheKey) {
-        CachedQueryResult cached = queryResultCache.get(cacheKey);
-        if (cached == null) {
-            return null;
-        }
+        return getQueryResult(cacheKey, null, extractUserIdFromCacheKey(cacheKey));
+    }
+    
+    /**
+     * 获取缓存的表查询结果，按表和用户维度记录命中统计
+     */
+    public TableQueryResult getQueryResult(String cacheKey, String tableName, String userId) {
+        long startNanos = System.nanoTime();
+        long cutoff = invalidatedBefore(userId);
+        TableQueryResult result = lookupMemory(cacheKey, userId, cutoff);
+        long memoryNanos = System.nanoTime() - startNanos;
+        statisticsCollector.recordTierLookup(CacheStatisticsCollector.TIER_MEMORY, result != null, memoryNanos);
         
-        // 检查是否过期
-        if (cached.getExpiresAt().isBefore(LocalDateTime.now())) {
-            queryResultCache.remove(cacheKey);
-            return null;
+        // 内存未命中时查找持久化缓存，命中后回填内存
+        if (result == null && persistentStore.isEnabled()) {
+            long diskStartNanos = System.nanoTime();
+            PersistentCacheStore.StoredResult stored = persistentStore.get(cacheKey);
+            if (stored != null && stored.getCachedAtMillis() > cutoff) {
+                result = stored.getResult();
+                LocalDateTime expiresAt = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(stored.getExpiresAtMillis()), ZoneId.systemDefault());
+                putMemory(cacheKey, tableName, userId, stored.getTableVersion(), result,
+                    stored.getCachedAtMillis(), expiresAt);
+            }
+            statisticsCollector.recordTierLookup(CacheStatisticsCollector.TIER_DISK, result != null,
+                System.nanoTime() - diskStartNanos);
         }
         
-        // 更新缓存统计
-        updateCacheHitStats(cacheKey);
-        
-        return cached.getResult();
+        statisticsCollector.recordLookup(tableName, userId, result != null, System.nanoTime() - startNanos);
+        return result;
     }
     
     /**
      * 缓存查询结果
      */
     public void cacheResult(String cacheKey, TableQueryResult result, int ttlMinutes) {
-        // 检查缓存大小限制
-        if (queryResultCache.size() >= MAX_CACHE_SIZE) {
-            evictOldestEntries();
-        }
-        
-        CachedQueryResult cached = new CachedQueryResult();
-        cached.setCacheKey(cacheKey);
-        cached.setResult(result);
-        cached.setCachedAt(LocalDateTime.now());
-        cached.setExpiresAt(LocalDateTime.now().plusMinutes(ttlMinutes > 0 ? ttlMinutes : CACHE_TTL_MINUTES));
-        cached.setHitCount(0);
-        
-        queryResultCache.put(cacheKey, cached);
-        
-        // 更新缓存统计
-        updateCacheMissStats(cacheKey);
+        putResult(cacheKey, null, extractUserIdFromCacheKey(cacheKey), result, ttlMinutes);
+    }
+    
+    /**
+     * 缓存表查询结果（使用默认TTL）
+     */
+    public void cacheQueryResult(String cacheKey, String tableName, String userId, TableQueryResult result) {
+        putResult(cacheKey, tableName, userId, result, CACHE_TTL_MINUTES);
+    }
+    
+    /**
+     * 表数据变化后使该表的所有缓存失效（内存和持久化缓存）
+     *
+     * 递增表版本使持久化缓存中的旧记录失效，内存中的条目通过索引直接删除，开销与该表的条目数成正比。
+     */
+    public int invalidateTable(String tableName) {
+        long version = tableVersions.merge(tableName, 1L, Long::sum);
+        persistentStore.updateTableVersion(tableName, version);
+        return removeKeys(keyIndex.keysForTable(tableName));
+    }
+    
+    /**
+     * 获取表的当前缓存版本
+     */
+    public long getTableVersion(String tableName) {
+        return tableName != null ? tableVersions.getOrDefault(tableName, 0L) : 0L;
+    }
+    
+    /**
+     * 记录实际执行查询的耗时，用于按表/用户的查询延迟分布
+     */
+    public void recordQueryExecution(String tableName, String userId, long executionNanos) {
+        statisticsCollector.recordQueryExecution(tableName, userId, executionNanos);
     }
     
     /**
@@ -118,66 +225,93 @@ public class QueryCacheService {
         history.setResultCount(resultCount);
         history.setFromCache(fromCache);
         
-        userQueryHistory.computeIfAbsent(userId, k -> new ArrayList<>()).add(history);
-        
-        // 限制历史记录数量
-        List<QueryHistory> userHistory = userQueryHistory.get(userId);
-        if (userHistory.size() > 100) {
-            userHistory.remove(0); // 移除最老的记录
+        ConcurrentRingBuffer<QueryHistory> userHistory = userQueryHistory.get(userId);
+        if (userHistory == null) {
+            userHistory = userQueryHistory.computeIfAbsent(userId,
+                k -> new ConcurrentRingBuffer<>(MAX_HISTORY_PER_USER));
         }
+        userHistory.add(history);
+        popularQueries.offer(query, executionTime, System.currentTimeMillis());
     }
     
     /**
      * 获取用户查询历史
      */
     public List<QueryHistory> getUserQueryHistory(String userId, int limit) {
-        List<QueryHistory> history = userQueryHistory.getOrDefault(userId, new ArrayList<>());
+        ConcurrentRingBuffer<QueryHistory> history = userQueryHistory.get(userId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
         
         // 返回最近的查询历史
-        int fromIndex = Math.max(0, history.size() - limit);
-        return new ArrayList<>(history.subList(fromIndex, history.size()));
+        return history.latest(limit);
     }
     
     /**
-     * 获取缓存统计信息
+     * 获取缓存统计信息（含按表、用户、缓存层级的细分）
      */
     public CacheStatistics getCacheStatistics() {
-        CacheStatistics stats = new CacheStatistics();
-        stats.setTotalEntries(queryResultCache.size());
-        stats.setMaxSize(MAX_CACHE_SIZE);
-        stats.setDefaultTtlMinutes(CACHE_TTL_MINUTES);
-        
-        long totalHits = 0;
-        long totalMisses = 0;
-        
-        for (CacheStatistics userStats : cacheStats.values()) {
-            totalHits += userStats.getHitCount();
-            totalMisses += userStats.getMissCount();
-        }
-        
-        stats.setHitCount(totalHits);
-        stats.setMissCount(totalMisses);
-        stats.setHitRate(totalHits + totalMisses > 0 ? 
-                        (double) totalHits / (totalHits + totalMisses) : 0.0);
-        
-        return stats;
+        return statisticsCollector.snapshot(queryResultCache.size(), MAX_CACHE_SIZE, CACHE_TTL_MINUTES);
     }
     
     /**
-     * 清理过期缓存
+     * 清理过期缓存并执行淘汰（通常由后台维护线程定期执行）
      */
     public void cleanupExpiredCache() {
-        LocalDateTime now = LocalDateTime.now();
-        queryResultCache.entrySet().removeIf(entry -> 
-            entry.getValue().getExpiresAt().isBefore(now));
+        runMaintenance();
     }
     
     /**
-     * 清空指定用户的缓存
+     * 清空指定用户的缓存，用户ID按字面量比较，其中的 * 和 ? 不作为通配符
      */
-    public void clearUserCache(String userId) {
-        queryResultCache.entrySet().removeIf(entry -> 
-            entry.getKey().startsWith("user:" + userId + ":"));
+    public int clearUserCache(String userId) {
+        if (userId == null) {
+            return 0;
+        }
+        int removed = clearUsers(keyIndex.keysForUser(userId), persistentStore.keysForUser(userId), userId::equals);
+        userCutoffs.merge(userId, System.currentTimeMillis(), Math::max);
+        return removed;
+    }
+    
+    /**
+     * 按模式清理缓存，返回删除的内存缓存条目数
+     *
+     * 支持的模式（值部分可使用 * 和 ? 通配符）：
+     * table:&lt;表名&gt;、user:&lt;用户ID&gt;、tag:&lt;表标签&gt;；不带前缀时按表名匹配，为空或 * 时清空所有缓存。
+     * 缓存条目按有效策略在用户之间共享，user: 只删除仅被匹配用户使用过的条目，
+     * 仍被其他用户共享的条目保留，匹配的用户之后跳过清理之前写入的条目。
+     */
+    public int clearCacheByPattern(String pattern) {
+        if (pattern == null || pattern.trim().isEmpty() || "*".equals(pattern.trim())) {
+            int size = queryResultCache.size();
+            clearAllCache();
+            return size;
+        }
+        
+        String trimmed = pattern.trim();
+        int separator = trimmed.indexOf(':');
+        String dimension = separator > 0 ? trimmed.substring(0, separator).toLowerCase() : "table";
+        GlobPattern valuePattern = GlobPattern.compile(separator > 0 ? trimmed.substring(separator + 1) : trimmed);
+        
+        switch (dimension) {
+            case "table": {
+                Set<String> tables = new HashSet<>(keyIndex.matchTables(valuePattern));
+                tables.addAll(metadataService.findTablesByName(valuePattern));
+                return invalidateTables(tables);
+            }
+            case "tag":
+                return invalidateTables(metadataService.findTablesByTag(valuePattern));
+            case "user":
+                if (valuePattern.isLiteral()) {
+                    return clearUserCache(valuePattern.getLiteral());
+                }
+                int removed = clearUsers(keyIndex.keysForUsers(valuePattern), persistentStore.keysForUsers(valuePattern),
+                    valuePattern::matches);
+                patternCutoffs.add(new PatternCutoff(valuePattern, System.currentTimeMillis()));
+                return removed;
+            default:
+                throw new IllegalArgumentException("不支持的缓存清理模式: " + pattern);
+        }
     }
     
     /**
@@ -185,59 +319,184 @@ public class QueryCacheService {
      */
     public void clearAllCache() {
         queryResultCache.clear();
-        cacheStats.clear();
+        keyIndex.clear();
+        persistentStore.clear();
+        userCutoffs.clear();
+        patternCutoffs.clear();
+        maintenanceLock.lock();
+        try {
+            pendingWrites.clear();
+            expiryWheel.clear();
+            evictionQueue.clear();
+        } finally {
+            maintenanceLock.unlock();
+        }
     }
     
     /**
      * 获取热门查询
      */
     public List<PopularQuery> getPopularQueries(int limit) {
-        Map<String, PopularQuery> queryFrequency = new HashMap<>();
+        List<PopularQuery> result = new ArrayList<>();
+        for (SpaceSavingTopK.Entry entry : popularQueries.topK(limit)) {
+            PopularQuery popular = new PopularQuery();
+            popular.setQuery(entry.getKey());
+            popular.setExecutionCount((int) Math.min(entry.getCount(), Integer.MAX_VALUE));
+            popular.setTotalExecutionTime(entry.getTotalExecutionTime());
+            popular.setLastExecuted(LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(entry.getLastExecutedMillis()), ZoneId.systemDefault()));
+            result.add(popular);
+        }
+        return result;
+    }
+    
+    private int invalidateTables(Collection<String> tableNames) {
+        int removed = 0;
+        for (String tableName : tableNames) {
+            removed += invalidateTable(tableName);
+        }
+        return removed;
+    }
+    
+    /**
+     * 删除所有使用者都匹配的条目，返回删除的内存缓存条目数
+     *
+     * cacheKeys 为内存中匹配用户使用过的键，storedKeys 为持久化缓存中匹配用户写入的键。
+     */
+    private int clearUsers(Set<String> cacheKeys, Set<String> storedKeys, Predicate<String> userMatcher) {
+        int removed = 0;
+        for (String cacheKey : cacheKeys) {
+            CachedQueryResult cached = queryResultCache.get(cacheKey);
+            if (cached == null || !cached.getReaders().stream().allMatch(userMatcher)) {
+                continue;
+            }
+            if (removeEntry(cached)) {
+                removed++;
+            }
+            persistentStore.remove(cacheKey);
+        }
+        // 只存在于磁盘的条目按写入用户清除；仍在内存中的条目已按使用者判断过，被其他用户共享的保留
+        for (String cacheKey : storedKeys) {
+            if (!cacheKeys.contains(cacheKey) && !queryResultCache.containsKey(cacheKey)) {
+                persistentStore.remove(cacheKey);
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * 该用户最近一次被按用户清理的时间，之前写入的条目对该用户视为未命中
+     */
+    private long invalidatedBefore(String userId) {
+        if (userId == null) {
+            return 0L;
+        }
+        long cutoff = userCutoffs.getOrDefault(userId, 0L);
+        for (PatternCutoff patternCutoff : patternCutoffs) {
+            if (patternCutoff.cutoffMillis > cutoff && patternCutoff.pattern.matches(userId)) {
+                cutoff = patternCutoff.cutoffMillis;
+            }
+        }
+        return cutoff;
+    }
+    
+    private int removeKeys(Collection<String> cacheKeys) {
+        int removed = 0;
+        for (String cacheKey : cacheKeys) {
+            CachedQueryResult cached = queryResultCache.get(cacheKey);
+            if (cached != null && removeEntry(cached)) {
+                removed++;
+            }
+            persistentStore.remove(cacheKey);
+        }
+        return removed;
+    }
+    
+    private boolean removeEntry(CachedQueryResult cached) {
+        if (!queryResultCache.remove(cached.getCacheKey(), cached)) {
+            return false;
+        }
+        keyIndex.remove(cached.getCacheKey(), cached.getTableName(), cached.getReaders());
+        // 删除索引期间同一个键可能被重新写入，需要补回新条目的索引
+        CachedQueryResult current = queryResultCache.get(cached.getCacheKey());
+        if (current != null) {
+            keyIndex.add(current.getCacheKey(), current.getTableName(), current.getReaders());
+        }
+        return true;
+    }
+    
+    private TableQueryResult lookupMemory(String cacheKey, String userId, long cutoff) {
+        CachedQueryResult cached = queryResultCache.get(cacheKey);
+        if (cached == null) {
+            return null;
+        }
         
-        // 统计查询频率
-        for (List<QueryHistory> userHistory : userQueryHistory.values()) {
-            for (QueryHistory history : userHistory) {
-                String queryKey = history.getQuery();
-                PopularQuery popular = queryFrequency.computeIfAbsent(queryKey, k -> {
-                    PopularQuery pq = new PopularQuery();
-                    pq.setQuery(k);
-                    pq.setExecutionCount(0);
-                    pq.setTotalExecutionTime(0L);
-                    pq.setLastExecuted(history.getExecutedAt());
-                    return pq;
-                });
-                
-                popular.setExecutionCount(popular.getExecutionCount() + 1);
-                popular.setTotalExecutionTime(popular.getTotalExecutionTime() + history.getExecutionTime());
-                if (history.getExecutedAt().isAfter(popular.getLastExecuted())) {
-                    popular.setLastExecuted(history.getExecutedAt());
-                }
+        // 该用户的缓存在条目写入之后被清理过；条目可能仍被其他用户共享，不删除
+        if (cached.getCachedAtMillis() <= cutoff) {
+            return null;
+        }
+        
+        // 检查是否过期
+        if (cached.getExpiresAt().isBefore(LocalDateTime.now())) {
+            if (removeEntry(cached)) {
+                statisticsCollector.recordExpiration();
             }
+            return null;
         }
         
-        // 按执行次数排序并返回前N个
-        return queryFrequency.values().stream()
-                .sorted((a, b) -> Integer.compare(b.getExecutionCount(), a.getExecutionCount()))
-                .limit(limit)
-                .collect(java.util.stream.Collectors.toList());
+        // 表数据已更新
+        if (cached.getTableVersion() < getTableVersion(cached.getTableName())) {
+            removeEntry(cached);
+            return null;
+        }
+        
+        // 更新缓存项的命中次数，记录使用者以便按用户清理
+        cached.recordHit();
+        if (userId != null && cached.getReaders().add(userId)) {
+            keyIndex.add(cacheKey, null, Collections.singleton(userId));
+        }
+        return cached.getResult();
     }
     
-    private void updateCacheHitStats(String cacheKey) {
-        String userId = extractUserIdFromCacheKey(cacheKey);
-        CacheStatistics stats = cacheStats.computeIfAbsent(userId, k -> new CacheStatistics());
-        stats.setHitCount(stats.getHitCount() + 1);
+    private void putResult(String cacheKey, String tableName, String userId, TableQueryResult result, int ttlMinutes) {
+        long tableVersion = getTableVersion(tableName);
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(ttlMinutes > 0 ? ttlMinutes : CACHE_TTL_MINUTES);
         
-        // 更新缓存项的命中次数
-        CachedQueryResult cached = queryResultCache.get(cacheKey);
-        if (cached != null) {
-            cached.setHitCount(cached.getHitCount() + 1);
-        }
+        long cachedAtMillis = System.currentTimeMillis();
+        putMemory(cacheKey, tableName, userId, tableVersion, result, cachedAtMillis, expiresAt);
+        persistentStore.put(cacheKey, tableName, userId, tableVersion, cachedAtMillis,
+            expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), result);
     }
     
-    private void updateCacheMissStats(String cacheKey) {
-        String userId = extractUserIdFromCacheKey(cacheKey);
-        CacheStatistics stats = cacheStats.computeIfAbsent(userId, k -> new CacheStatistics());
-        stats.setMissCount(stats.getMissCount() + 1);
+    private void putMemory(String cacheKey, String tableName, String userId, long tableVersion,
+                           TableQueryResult result, long cachedAtMillis, LocalDateTime expiresAt) {
+        CachedQueryResult cached = new CachedQueryResult();
+        cached.setCacheKey(cacheKey);
+        cached.setTableName(tableName);
+        cached.setUserId(userId);
+        if (userId != null) {
+            cached.getReaders().add(userId);
+        }
+        cached.setTableVersion(tableVersion);
+        cached.setResult(result);
+        cached.setCachedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(cachedAtMillis), ZoneId.systemDefault()));
+        cached.setCachedAtMillis(cachedAtMillis);
+        cached.setExpiresAt(expiresAt);
+        cached.setWriteStamp(writeSequence.incrementAndGet());
+        
+        CachedQueryResult previous = queryResultCache.put(cacheKey, cached);
+        if (previous != null) {
+            keyIndex.remove(cacheKey, previous.getTableName(), previous.getReaders());
+        }
+        keyIndex.add(cacheKey, tableName, cached.getReaders());
+        pendingWrites.offer(new WriteTicket(cacheKey, cached.getWriteStamp(),
+            expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        statisticsCollector.recordPut();
+        
+        // 超出容量时提前触发维护，淘汰在维护线程中进行
+        if (queryResultCache.size() > MAX_CACHE_SIZE) {
+            requestMaintenance();
+        }
     }
     
     private String extractUserIdFromCacheKey(String cacheKey) {
@@ -246,42 +505,149 @@ public class QueryCacheService {
         return parts.length > 1 ? parts[1] : "unknown";
     }
     
-    private void evictOldestEntries() {
-        // 移除最老的缓存项（简单的LRU策略）
-        LocalDateTime oldest = LocalDateTime.now();
-        String oldestKey = null;
+    private void requestMaintenance() {
+        if (maintenanceExecutor != null && maintenanceRequested.compareAndSet(false, true)) {
+            maintenanceExecutor.execute(this::runMaintenance);
+        }
+    }
+    
+    private void scheduledMaintenance() {
+        long startNanos = System.nanoTime();
+        long lagNanos = Math.max(0L, startNanos - nextScheduledNanos);
+        nextScheduledNanos += TimeUnit.MILLISECONDS.toNanos(maintenanceIntervalMs);
+        if (nextScheduledNanos < startNanos) {
+            // 落后超过一个周期时不再追赶
+            nextScheduledNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(maintenanceIntervalMs);
+        }
         
-        for (Map.Entry<String, CachedQueryResult> entry : queryResultCache.entrySet()) {
-            if (entry.getValue().getCachedAt().isBefore(oldest)) {
-                oldest = entry.getValue().getCachedAt();
-                oldestKey = entry.getKey();
+        try {
+            runMaintenance();
+        } catch (RuntimeException e) {
+            // 异常不能抛出，否则定时任务会被取消
+            logger.warn("查询缓存维护失败", e);
+        }
+        statisticsCollector.recordMaintenanceRun(maintenanceIntervalMs, lagNanos,
+            System.nanoTime() - startNanos, expiryWheel.size());
+    }
+    
+    /**
+     * 维护任务：登记新写入、按时间轮过期、按写入顺序淘汰、合并热门查询统计
+     */
+    private void runMaintenance() {
+        maintenanceRequested.set(false);
+        maintenanceLock.lock();
+        try {
+            WriteTicket written;
+            while ((written = pendingWrites.poll()) != null) {
+                expiryWheel.schedule(written, written.expiresAtMillis);
+                evictionQueue.addLast(written);
+            }
+            
+            // 时间轮不支持取消，已被替换或删除的条目按写入序号比较后跳过
+            expiryWheel.advance(System.currentTimeMillis(), ticket -> {
+                CachedQueryResult cached = currentEntry(ticket);
+                if (cached != null && removeEntry(cached)) {
+                    statisticsCollector.recordExpiration();
+                }
+            });
+            
+            // 按写入顺序淘汰最老的条目
+            while (queryResultCache.size() > MAX_CACHE_SIZE && !evictionQueue.isEmpty()) {
+                CachedQueryResult oldest = currentEntry(evictionQueue.pollFirst());
+                if (oldest != null && removeEntry(oldest)) {
+                    statisticsCollector.recordEviction();
+                }
+            }
+            // 淘汰队列中失效的记录过多时整体压缩，均摊 O(1)
+            if (evictionQueue.size() > 2 * MAX_CACHE_SIZE) {
+                evictionQueue.removeIf(ticket -> currentEntry(ticket) == null);
             }
+            
+            // 清理时间早于最长 TTL 的记录不再影响任何条目
+            long horizon = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(CACHE_TTL_MINUTES);
+            userCutoffs.values().removeIf(cutoff -> cutoff < horizon);
+            patternCutoffs.removeIf(cutoff -> cutoff.cutoffMillis < horizon);
+            
+            popularQueries.flush();
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+    
+    /**
+     * 写入记录对应的条目仍在缓存中时返回该条目，已被替换或删除时返回 null
+     */
+    private CachedQueryResult currentEntry(WriteTicket ticket) {
+        CachedQueryResult cached = queryResultCache.get(ticket.cacheKey);
+        return cached != null && cached.getWriteStamp() == ticket.writeStamp ? cached : null;
+    }
+    
+    // 内部类定义
+    
+    /**
+     * 一次写入的过期和淘汰记录，只引用缓存键，不持有结果
+     */
+    private static final class WriteTicket {
+        private final String cacheKey;
+        private final long writeStamp;
+        private final long expiresAtMillis;
+        
+        WriteTicket(String cacheKey, long writeStamp, long expiresAtMillis) {
+            this.cacheKey = cacheKey;
+            this.writeStamp = writeStamp;
+            this.expiresAtMillis = expiresAtMillis;
         }
+    }
+    
+    /**
+     * 按用户模式清理的时间
+     */
+    private static final class PatternCutoff {
+        private final GlobPattern pattern;
+        private final long cutoffMillis;
         
-        if (oldestKey != null) {
-            queryResultCache.remove(oldestKey);
+        PatternCutoff(GlobPattern pattern, long cutoffMillis) {
+            this.pattern = pattern;
+            this.cutoffMillis = cutoffMillis;
         }
     }
     
-    // 内部类定义
     private static class CachedQueryResult {
         private String cacheKey;
+        private String tableName;
+        private String userId;
+        // 写入和命中过该条目的用户，有效策略相同的用户共享同一条目
+        private final Set<String> readers = ConcurrentHashMap.newKeySet();
+        private long cachedAtMillis;
+        private long tableVersion;
         private TableQueryResult result;
         private LocalDateTime cachedAt;
         private LocalDateTime expiresAt;
-        private int hitCount;
+        private long writeStamp;
+        private final LongAdder hitCount = new LongAdder();
         
         // Getters and Setters
         public String getCacheKey() { return cacheKey; }
         public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+        public String getTableName() { return tableName; }
+        public void setTableName(String tableName) { this.tableName = tableName; }
+        public String getUserId() { return userId; }
+        public void setUserId(String userId) { this.userId = userId; }
+        public long getTableVersion() { return tableVersion; }
+        public void setTableVersion(long tableVersion) { this.tableVersion = tableVersion; }
         public TableQueryResult getResult() { return result; }
         public void setResult(TableQueryResult result) { this.result = result; }
+        public Set<String> getReaders() { return readers; }
+        public long getCachedAtMillis() { return cachedAtMillis; }
+        public void setCachedAtMillis(long cachedAtMillis) { this.cachedAtMillis = cachedAtMillis; }
         public LocalDateTime getCachedAt() { return cachedAt; }
         public void setCachedAt(LocalDateTime cachedAt) { this.cachedAt = cachedAt; }
         public LocalDateTime getExpiresAt() { return expiresAt; }
         public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
-        public int getHitCount() { return hitCount; }
-        public void setHitCount(int hitCount) { this.hitCount = hitCount; }
+        public long getWriteStamp() { return writeStamp; }
+        public void setWriteStamp(long writeStamp) { this.writeStamp = writeStamp; }
+        public long getHitCount() { return hitCount.sum(); }
+        public void recordHit() { hitCount.increment(); }
     }
     
     private static class QueryHistory {
@@ -310,29 +676,6 @@ public class QueryCacheService {
         public void setFromCache(boolean fromCache) { this.fromCache = fromCache; }
     }
     
-    private static class CacheStatistics {
-        private int totalEntries;
-        private int maxSize;
-        private int defaultTtlMinutes;
-        private long hitCount;
-        private long missCount;
-        private double hitRate;
-        
-        // Getters and Setters
-        public int getTotalEntries() { return totalEntries; }
-        public void setTotalEntries(int totalEntries) { this.totalEntries = totalEntries; }
-        public int getMaxSize() { return maxSize; }
-        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
-        public int getDefaultTtlMinutes() { return defaultTtlMinutes; }
-        public void setDefaultTtlMinutes(int defaultTtlMinutes) { this.defaultTtlMinutes = defaultTtlMinutes; }
-        public long getHitCount() { return hitCount; }
-        public void setHitCount(long hitCount) { this.hitCount = hitCount; }
-        public long getMissCount() { return missCount; }
-        public void setMissCount(long missCount) { this.missCount = missCount; }
-        public double getHitRate() { return hitRate; }
-        public void setHitRate(double hitRate) { this.hitRate = hitRate; }
-    }
-    
     private static class PopularQuery {
         private String query;
         private int executionCount;
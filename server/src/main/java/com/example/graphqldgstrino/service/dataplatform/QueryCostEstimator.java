@@ -0,0 +1,321 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 查询代价估算器 - 估算查询的扫描量和执行时间，供准入控制、异步调度和进度计算使用
+ *
+ * 估算分两部分：
+ *   统计信息：表的行数、数据量、文件数乘以分区字段条件的选择率（分区裁剪后的扫描比例，
+ *            有列级统计时按统计计算），按每秒扫描字节数和每个文件的打开开销换算为时间；
+ *   执行历史：按查询结构（常量替换为 ?）记录实际耗时的指数加权平均，历史越多权重越大。
+ * 每秒扫描字节数按表根据实际执行情况校正。实际耗时与估算的偏差导出为指标。
+ */
+@Component
+public class QueryCostEstimator implements MeterBinder {
+
+    /**
+     * 估算依据
+     */
+    public enum Source { HISTORY, STATISTICS, DEFAULT }
+
+    private static final int MAX_TRACKED_ENTRIES = 4096;
+    private static final double EWMA_ALPHA = 0.3;
+    // 吞吐量校正范围：配置值的 1/16 ~ 16 倍，避免个别异常执行把估算带偏
+    private static final double MAX_THROUGHPUT_FACTOR = 16.0;
+
+    private static final Pattern SQL_STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern SQL_NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern SQL_IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern SQL_WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private MetadataService metadataService;
+
+    // 既没有统计信息也没有历史时的估算
+    @Value("${data-platform.cost.default-duration-ms:60000}")
+    private long defaultDurationMillis;
+
+    // 每个查询固定的规划和调度开销
+    @Value("${data-platform.cost.base-overhead-ms:200}")
+    private long baseOverheadMillis;
+
+    @Value("${data-platform.cost.scan-bytes-per-second:104857600}")
+    private long scanBytesPerSecond;
+
+    @Value("${data-platform.cost.per-file-ms:10}")
+    private double perFileMillis;
+
+    // 历史耗时的完全信任所需执行次数，次数较少时与统计估算按比例混合
+    @Value("${data-platform.cost.history-trust-runs:3}")
+    private int historyTrustRuns;
+
+    private final Map<String, Ewma> historyByShape = new ConcurrentHashMap<>();
+    private final Map<String, Ewma> throughputByTable = new ConcurrentHashMap<>();
+
+    private final Map<Source, LongAdder> estimatesBySource = new EnumMap<>(Source.class);
+    private final LatencyHistogram absoluteError = new LatencyHistogram();
+    // 对称相对误差 |实际-估算|/max(实际,估算)，以万分之一为单位累加
+    private final LongAdder relativeErrorBasisPoints = new LongAdder();
+    private final LongAdder recordedExecutions = new LongAdder();
+    private final LongAdder underestimates = new LongAdder();
+
+    public QueryCostEstimator() {
+        for (Source source : Source.values()) {
+            estimatesBySource.put(source, new LongAdder());
+        }
+    }
+
+    /**
+     * 估算结构化的表查询，where 为用户条件与行级过滤组合后的谓词，limit 为 null 时不限制行数
+     */
+    public Estimate estimate(String tableName, QueryPredicate where, Integer limit) {
+        String shape = "table:" + tableName + ":" + (where != null ? where.shape() : "") + (limit != null ? ":limit" : "");
+        return estimate(tableName, where, limit, shape);
+    }
+
+    /**
+     * 估算 SQL 查询，按 SQL 结构匹配历史；tableName 为空时只能依赖历史
+     */
+    public Estimate estimateSql(String tableName, String sql) {
+        return estimate(tableName, null, null, "sql:" + sqlShape(sql));
+    }
+
+    /**
+     * 记录一次实际执行，更新历史耗时、扫描吞吐量和估算误差
+     */
+    public void recordExecution(Estimate estimate, long elapsedNanos) {
+        if (estimate == null) {
+            return;
+        }
+        double actualMillis = elapsedNanos / 1_000_000.0;
+        tracked(historyByShape, estimate.shape).update(actualMillis);
+
+        double scanMillis = actualMillis - baseOverheadMillis - estimate.scannedFiles * perFileMillis;
+        if (estimate.tableName != null && estimate.scannedBytes > 0 && scanMillis > 0) {
+            double observed = estimate.scannedBytes * 1000.0 / scanMillis;
+            double bounded = Math.max(scanBytesPerSecond / MAX_THROUGHPUT_FACTOR,
+                Math.min(scanBytesPerSecond * MAX_THROUGHPUT_FACTOR, observed));
+            tracked(throughputByTable, estimate.tableName).update(bounded);
+        }
+
+        double estimatedMillis = estimate.durationMillis;
+        double difference = Math.abs(actualMillis - estimatedMillis);
+        absoluteError.recordNanos((long) (difference * 1_000_000L));
+        double larger = Math.max(actualMillis, estimatedMillis);
+        relativeErrorBasisPoints.add(larger > 0 ? Math.round(difference / larger * 10_000) : 0L);
+        recordedExecutions.increment();
+        if (actualMillis > estimatedMillis * 2) {
+            underestimates.increment();
+        }
+    }
+
+    /**
+     * 按已执行时间估算进度（0~1）：估算时间内线性增长到 0.9，超出后逐渐逼近 0.99
+     */
+    public float progress(Estimate estimate, long elapsedMillis) {
+        long expected = estimate != null ? Math.max(1L, estimate.durationMillis) : defaultDurationMillis;
+        double ratio = Math.max(0L, elapsedMillis) / (double) expected;
+        if (ratio <= 1.0) {
+            return (float) (0.9 * ratio);
+        }
+        return (float) (0.99 - 0.09 * Math.exp(-(ratio - 1.0)));
+    }
+
+    /**
+     * 平均对称相对误差（0~1），尚无执行记录时为 0
+     */
+    public double getMeanRelativeError() {
+        long count = recordedExecutions.sum();
+        return count == 0 ? 0.0 : relativeErrorBasisPoints.sum() / 10_000.0 / count;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Map.Entry<Source, LongAdder> entry : estimatesBySource.entrySet()) {
+            FunctionCounter.builder("dataplatform.query.cost.estimates", entry.getValue(), LongAdder::sum)
+                .tag("source", entry.getKey().name().toLowerCase()).register(registry);
+        }
+        FunctionCounter.builder("dataplatform.query.cost.executions", recordedExecutions, LongAdder::sum)
+            .register(registry);
+        FunctionCounter.builder("dataplatform.query.cost.underestimates", underestimates, LongAdder::sum)
+            .description("实际耗时超过估算两倍的执行次数").register(registry);
+        Gauge.builder("dataplatform.query.cost.error.relative", this, QueryCostEstimator::getMeanRelativeError)
+            .register(registry);
+        Gauge.builder("dataplatform.query.cost.error.absolute", absoluteError, h -> h.getPercentileMillis(0.50))
+            .tag("quantile", "0.5").baseUnit("milliseconds").register(registry);
+        Gauge.builder("dataplatform.query.cost.error.absolute", absoluteError, h -> h.getPercentileMillis(0.90))
+            .tag("quantile", "0.9").baseUnit("milliseconds").register(registry);
+        Gauge.builder("dataplatform.query.cost.error.absolute", absoluteError, h -> h.getPercentileMillis(0.99))
+            .tag("quantile", "0.99").baseUnit("milliseconds").register(registry);
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private Estimate estimate(String tableName, QueryPredicate where, Integer limit, String shape) {
+        String[] qualified = splitTableName(tableName);
+        TableMetadata metadata = qualified != null ? metadataService.getTableMetadata(qualified[0], qualified[1]) : null;
+        TableStatistics statistics = metadata != null ? metadata.getStatistics() : null;
+
+        long rows = -1;
+        long scannedBytes = 0;
+        long scannedFiles = 0;
+        double statisticsMillis = -1;
+        if (statistics != null && statistics.getRowCount() != null) {
+            Map<String, ColumnStatistics> columnStatistics = where != null
+                ? metadataService.getColumnStatistics(qualified[0], qualified[1])
+                : Collections.emptyMap();
+            double selectivity = where != null ? where.selectivity(column -> true, columnStatistics) : 1.0;
+            Set<String> partitionKeys = metadata.getPartitionKeys() != null
+                ? new HashSet<>(metadata.getPartitionKeys()) : Collections.emptySet();
+            double scanFraction = where != null ? where.selectivity(partitionKeys::contains, columnStatistics) : 1.0;
+
+            rows = Math.round(statistics.getRowCount() * selectivity);
+            if (limit != null) {
+                rows = Math.min(rows, limit);
+            }
+            scannedBytes = statistics.getDataSize() != null ? Math.round(statistics.getDataSize() * scanFraction) : 0;
+            scannedFiles = statistics.getFileCount() != null ? (long) Math.ceil(statistics.getFileCount() * scanFraction) : 0;
+            statisticsMillis = baseOverheadMillis + scannedFiles * perFileMillis
+                + scannedBytes * 1000.0 / throughput(tableName);
+        }
+
+        Ewma history = historyByShape.get(shape);
+        Source source;
+        double durationMillis;
+        if (history != null && history.count() > 0) {
+            source = Source.HISTORY;
+            double historyMillis = history.value();
+            if (statisticsMillis < 0) {
+                durationMillis = historyMillis;
+            } else {
+                double weight = Math.min(1.0, history.count() / (double) Math.max(1, historyTrustRuns));
+                durationMillis = weight * historyMillis + (1 - weight) * statisticsMillis;
+            }
+        } else if (statisticsMillis >= 0) {
+            source = Source.STATISTICS;
+            durationMillis = statisticsMillis;
+        } else {
+            source = Source.DEFAULT;
+            durationMillis = defaultDurationMillis;
+        }
+        estimatesBySource.get(source).increment();
+        return new Estimate(tableName, shape, source, rows, scannedBytes, scannedFiles, Math.round(durationMillis));
+    }
+
+    /**
+     * 表名取最后两段作为 {库, 表}，前面可以带目录名；不足两段时返回 null
+     */
+    private static String[] splitTableName(String tableName) {
+        if (tableName == null) {
+            return null;
+        }
+        String[] parts = tableName.split("\\.");
+        if (parts.length < 2) {
+            return null;
+        }
+        return new String[] {parts[parts.length - 2], parts[parts.length - 1]};
+    }
+
+    private double throughput(String tableName) {
+        Ewma observed = throughputByTable.get(tableName);
+        return observed != null && observed.count() > 0 ? observed.value() : scanBytesPerSecond;
+    }
+
+    private static Ewma tracked(Map<String, Ewma> map, String key) {
+        Ewma ewma = map.get(key);
+        if (ewma == null) {
+            if (map.size() >= MAX_TRACKED_ENTRIES) {
+                map.clear();
+            }
+            ewma = map.computeIfAbsent(key, k -> new Ewma());
+        }
+        return ewma;
+    }
+
+    /**
+     * SQL 结构：字符串和数字常量替换为 ?，IN 列表合并为 (?)，空白合并，不区分大小写
+     */
+    static String sqlShape(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String shape = SQL_STRING.matcher(sql).replaceAll("?");
+        shape = SQL_NUMBER.matcher(shape).replaceAll("?");
+        shape = SQL_IN_LIST.matcher(shape).replaceAll("(?)");
+        return SQL_WHITESPACE.matcher(shape.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 指数加权平均，首个样本直接作为初值
+     */
+    private static final class Ewma {
+        private double value;
+        private long count;
+
+        synchronized void update(double sample) {
+            value = count == 0 ? sample : EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * value;
+            count++;
+        }
+
+        synchronized double value() {
+            return value;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+    }
+
+    /**
+     * 一次估算的结果，执行完成后交回 recordExecution 用于校正
+     */
+    public static final class Estimate {
+        private final String tableName;
+        private final String shape;
+        private final Source source;
+        private final long estimatedRows;
+        private final long scannedBytes;
+        private final long scannedFiles;
+        private final long durationMillis;
+
+        Estimate(String tableName, String shape, Source source, long estimatedRows,
+                 long scannedBytes, long scannedFiles, long durationMillis) {
+            this.tableName = tableName;
+            this.shape = shape;
+            this.source = source;
+            this.estimatedRows = estimatedRows;
+            this.scannedBytes = scannedBytes;
+            this.scannedFiles = scannedFiles;
+            this.durationMillis = durationMillis;
+        }
+
+        public String getShape() { return shape; }
+        public Source getSource() { return source; }
+        /** 预计返回行数，没有统计信息时为 -1 */
+        public long getEstimatedRows() { return estimatedRows; }
+        public long getScannedBytes() { return scannedBytes; }
+        public long getScannedFiles() { return scannedFiles; }
+        public long getDurationMillis() { return durationMillis; }
+
+        /**
+         * 向上取整的秒数，对应 AsyncQueryTask.estimatedDuration
+         */
+        public int getDurationSeconds() {
+            return (int) Math.min(Integer.MAX_VALUE, (durationMillis + 999) / 1000);
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 查询谓词语法树 - 用户的 TableFilter 和行级过滤条件都转换为该结构
+ *
+ * 节点不可变，构造时即规范化：AND/OR 展平嵌套并按规范形式排序去重，IN 列表排序去重，
+ * 因此语义相同、书写顺序不同的条件得到相同的规范形式和相同的 SQL 模板。
+ * 生成 SQL 时所有常量都作为 JDBC 参数绑定，字段名只接受标识符，避免拼接注入。
+ * 操作数可以是 ${user.xxx} 形式的用户属性引用，执行前通过 bind 替换为具体值。
+ */
+public abstract class QueryPredicate {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+
+    /**
+     * 比较操作符，名称与 GraphQL 的 ComparisonOperator 一致
+     */
+    public enum Operator {
+        EQ("="), NE("<>"), GT(">"), GTE(">="), LT("<"), LTE("<="),
+        LIKE("LIKE"), NOT_LIKE("NOT LIKE"), IN("IN"), NOT_IN("NOT IN"),
+        IS_NULL("IS NULL"), IS_NOT_NULL("IS NOT NULL");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() { return sql; }
+    }
+
+    private final String canonical;
+
+    private QueryPredicate(String canonical) {
+        this.canonical = canonical;
+    }
+
+    /**
+     * 规范形式，语义相同的谓词规范形式相同，可用于缓存键和指纹
+     */
+    public String canonical() {
+        return canonical;
+    }
+
+    @Override
+    public String toString() {
+        return canonical;
+    }
+
+    /**
+     * 生成参数化 SQL，常量依次追加到 params
+     */
+    public String toSql(List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+        appendSql(sql, params);
+        return sql.toString();
+    }
+
+    abstract void appendSql(StringBuilder sql, List<Object> params);
+
+    /**
+     * 把用户属性引用替换为具体值，没有属性引用时返回自身
+     *
+     * 缺少的属性绑定为 NULL，比较结果为假，即不返回任何行。
+     */
+    public abstract QueryPredicate bind(Map<String, Object> attributes);
+
+    public abstract boolean hasAttributes();
+
+    /**
+     * 谓词引用的字段
+     */
+    public Set<String> columns() {
+        Set<String> columns = new TreeSet<>();
+        collectColumns(columns);
+        return columns;
+    }
+
+    abstract void collectColumns(Set<String> columns);
+
+    /**
+     * 谓词的结构，常量替换为 ?、IN 列表不区分长度，只有常量不同的查询结构相同
+     */
+    public abstract String shape();
+
+    /**
+     * 估算满足谓词的行所占比例（0~1），只考虑 scope 接受的字段，其他字段上的条件视为不过滤
+     *
+     * 字段有列级统计时按统计计算：等值为 1/NDV，IS NULL 为空值比例，范围条件按直方图或最小/最大值插值；
+     * 否则采用常用的默认选择率：等值 1/10、范围 1/3、LIKE 1/4、IS NULL 1/20。
+     * AND 相乘，OR 按相互独立合并。scope 只接受分区字段时，结果即分区裁剪后需要扫描的数据比例。
+     */
+    public double selectivity(Predicate<String> scope, Map<String, ColumnStatistics> statistics) {
+        return Math.max(0.0, Math.min(1.0, estimateSelectivity(scope,
+            statistics != null ? statistics : Collections.emptyMap())));
+    }
+
+    public double selectivity(Predicate<String> scope) {
+        return selectivity(scope, null);
+    }
+
+    abstract double estimateSelectivity(Predicate<String> scope, Map<String, ColumnStatistics> statistics);
+
+    // ========== 构造 ==========
+
+    public static QueryPredicate comparison(String column, Operator operator, List<Operand> operands) {
+        if (column == null || !IDENTIFIER.matcher(column).matches()) {
+            throw new IllegalArgumentException("非法的字段名: " + column);
+        }
+        return new Comparison(column, operator, operands != null ? operands : Collections.emptyList());
+    }
+
+    /**
+     * AND 组合，null 子条件被忽略；没有子条件时返回 null
+     */
+    public static QueryPredicate and(List<QueryPredicate> children) {
+        return junction(true, children);
+    }
+
+    /**
+     * OR 组合，null 子条件被忽略；没有子条件时返回 null
+     */
+    public static QueryPredicate or(List<QueryPredicate> children) {
+        return junction(false, children);
+    }
+
+    public static QueryPredicate not(QueryPredicate child) {
+        if (child instanceof Not) {
+            return ((Not) child).child;
+        }
+        return new Not(child);
+    }
+
+    /**
+     * 把 GraphQL 的 TableFilter 转换为谓词，没有条件时返回 null
+     *
+     * operator 为 AND/OR 时按该方式组合各条件，为 NOT 时表示 NOT (c1 AND c2 ...)。
+     */
+    public static QueryPredicate fromFilter(TableFilter filter) {
+        if (filter == null || filter.getConditions() == null || filter.getConditions().isEmpty()) {
+            return null;
+        }
+        List<QueryPredicate> conditions = new ArrayList<>();
+        for (FilterCondition condition : filter.getConditions()) {
+            conditions.add(fromCondition(condition));
+        }
+        String logical = filter.getOperator() != null ? filter.getOperator().name() : "AND";
+        switch (logical) {
+            case "AND":
+                return and(conditions);
+            case "OR":
+                return or(conditions);
+            case "NOT":
+                return not(and(conditions));
+            default:
+                throw new IllegalArgumentException("不支持的逻辑操作符: " + logical);
+        }
+    }
+
+    private static QueryPredicate fromCondition(FilterCondition condition) {
+        Operator operator;
+        try {
+            operator = Operator.valueOf(condition.getOperator().name());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的操作符: " + condition.getOperator());
+        }
+        List<Operand> operands = new ArrayList<>();
+        if (operator == Operator.IN || operator == Operator.NOT_IN) {
+            if (condition.getValues() != null) {
+                for (Object value : condition.getValues()) {
+                    operands.add(Operand.literal(value));
+                }
+            }
+        } else if (operator != Operator.IS_NULL && operator != Operator.IS_NOT_NULL) {
+            operands.add(Operand.literal(condition.getValue()));
+        }
+        return comparison(condition.getField(), operator, operands);
+    }
+
+    private static QueryPredicate junction(boolean and, List<QueryPredicate> children) {
+        // 展平同类嵌套，按规范形式排序去重
+        TreeMap<String, QueryPredicate> flattened = new TreeMap<>();
+        for (QueryPredicate child : children) {
+            if (child == null) {
+                continue;
+            }
+            if (child instanceof Junction && ((Junction) child).and == and) {
+                for (QueryPredicate grandChild : ((Junction) child).children) {
+                    flattened.putIfAbsent(grandChild.canonical(), grandChild);
+                }
+            } else {
+                flattened.putIfAbsent(child.canonical(), child);
+            }
+        }
+        if (flattened.isEmpty()) {
+            return null;
+        }
+        if (flattened.size() == 1) {
+            return flattened.firstEntry().getValue();
+        }
+        return new Junction(and, new ArrayList<>(flattened.values()));
+    }
+
+    // ========== 节点 ==========
+
+    /**
+     * 操作数：常量或用户属性引用
+     */
+    public static final class Operand implements Comparable<Operand> {
+        private final Object value;
+        private final String attribute;
+        private final String canonical;
+
+        private Operand(Object value, String attribute) {
+            this.value = value;
+            this.attribute = attribute;
+            this.canonical = attribute != null ? "${user." + attribute + "}" : literalCanonical(value);
+        }
+
+        public static Operand literal(Object value) {
+            return new Operand(value, null);
+        }
+
+        public static Operand attribute(String name) {
+            return new Operand(null, name);
+        }
+
+        public boolean isAttribute() { return attribute != null; }
+        public String getAttribute() { return attribute; }
+        public Object getValue() { return value; }
+
+        @Override
+        public int compareTo(Operand other) {
+            return canonical.compareTo(other.canonical);
+        }
+
+        @Override
+        public String toString() {
+            return canonical;
+        }
+
+        private static String literalCanonical(Object value) {
+            if (value == null) {
+                return "NULL";
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                return value.toString().toUpperCase();
+            }
+            return "'" + value.toString().replace("'", "''") + "'";
+        }
+    }
+
+    private static final class Comparison extends QueryPredicate {
+        private final String column;
+        private final Operator operator;
+        private final List<Operand> operands;
+
+        Comparison(String column, Operator operator, List<Operand> operands) {
+            this(column, operator, normalize(operator, operands), operator.getSql());
+        }
+
+        private Comparison(String column, Operator operator, List<Operand> normalized, String sql) {
+            super(column + " " + sql + describe(operator, normalized));
+            this.column = column;
+            this.operator = operator;
+            this.operands = normalized;
+        }
+
+        private static List<Operand> normalize(Operator operator, List<Operand> operands) {
+            if (operator == Operator.IN || operator == Operator.NOT_IN) {
+                return Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(operands)));
+            }
+            if (operator == Operator.IS_NULL || operator == Operator.IS_NOT_NULL) {
+                return Collections.emptyList();
+            }
+            if (operands.size() != 1) {
+                throw new IllegalArgumentException("操作符 " + operator.getSql() + " 需要一个操作数");
+            }
+            return Collections.singletonList(operands.get(0));
+        }
+
+        private static String describe(Operator operator, List<Operand> operands) {
+            if (operator == Operator.IN || operator == Operator.NOT_IN) {
+                return operands.stream().map(Operand::toString).collect(Collectors.joining(", ", " (", ")"));
+            }
+            return operands.isEmpty() ? "" : " " + operands.get(0);
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> params) {
+            if (operator == Operator.IN || operator == Operator.NOT_IN) {
+                if (operands.isEmpty()) {
+                    // 空列表：IN 恒为假，NOT IN 恒为真
+                    sql.append(operator == Operator.IN ? "1 = 0" : "1 = 1");
+                    return;
+                }
+                sql.append(column).append(' ').append(operator.getSql()).append(" (");
+                for (int i = 0; i < operands.size(); i++) {
+                    sql.append(i > 0 ? ", " : "");
+                    appendOperand(sql, operands.get(i), params);
+                }
+                sql.append(')');
+                return;
+            }
+            sql.append(column).append(' ').append(operator.getSql());
+            if (!operands.isEmpty()) {
+                sql.append(' ');
+                appendOperand(sql, operands.get(0), params);
+            }
+        }
+
+        private static void appendOperand(StringBuilder sql, Operand operand, List<Object> params) {
+            if (operand.isAttribute()) {
+                throw new IllegalStateException("用户属性未绑定: " + operand);
+            }
+            if (operand.getValue() == null) {
+                sql.append("NULL");
+            } else {
+                sql.append('?');
+                params.add(operand.getValue());
+            }
+        }
+
+        @Override
+        public QueryPredicate bind(Map<String, Object> attributes) {
+            if (!hasAttributes()) {
+                return this;
+            }
+            List<Operand> bound = new ArrayList<>();
+            for (Operand operand : operands) {
+                if (!operand.isAttribute()) {
+                    bound.add(operand);
+                    continue;
+                }
+                Object value = attributes.get(operand.getAttribute());
+                if (value instanceof Collection) {
+                    if (operator != Operator.IN && operator != Operator.NOT_IN) {
+                        throw new IllegalArgumentException("多值用户属性只能用于 IN/NOT IN: " + operand);
+                    }
+                    for (Object element : (Collection<?>) value) {
+                        bound.add(Operand.literal(element));
+                    }
+                } else {
+                    bound.add(Operand.literal(value));
+                }
+            }
+            return new Comparison(column, operator, bound);
+        }
+
+        @Override
+        public boolean hasAttributes() {
+            for (Operand operand : operands) {
+                if (operand.isAttribute()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void collectColumns(Set<String> columns) {
+            columns.add(column);
+        }
+
+        @Override
+        public String shape() {
+            if (operator == Operator.IN || operator == Operator.NOT_IN) {
+                return column + " " + operator.getSql() + " (?)";
+            }
+            return column + " " + operator.getSql() + (operands.isEmpty() ? "" : " ?");
+        }
+
+        @Override
+        double estimateSelectivity(Predicate<String> scope, Map<String, ColumnStatistics> statistics) {
+            if (!scope.test(column)) {
+                return 1.0;
+            }
+            ColumnStatistics columnStatistics = statistics.get(column);
+            if (columnStatistics != null) {
+                double estimated = estimateFromStatistics(columnStatistics);
+                if (!Double.isNaN(estimated)) {
+                    return estimated;
+                }
+            }
+            switch (operator) {
+                case EQ: return 0.1;
+                case NE: return 0.9;
+                case GT:
+                case GTE:
+                case LT:
+                case LTE: return 1.0 / 3;
+                case LIKE: return 0.25;
+                case NOT_LIKE: return 0.75;
+                case IN: return Math.min(1.0, 0.1 * operands.size());
+                case NOT_IN: return 1.0 - Math.min(1.0, 0.1 * operands.size());
+                case IS_NULL: return 0.05;
+                case IS_NOT_NULL: return 0.95;
+                default: return 1.0;
+            }
+        }
+
+        /**
+         * 按列级统计估算选择率，统计不足以估算时返回 NaN
+         */
+        private double estimateFromStatistics(ColumnStatistics statistics) {
+            Double nullsFraction = statistics.getNullsFraction();
+            double nonNull = nullsFraction != null ? 1.0 - nullsFraction : 1.0;
+            Double distinctValues = statistics.getDistinctValuesCount();
+            double perValue = distinctValues != null && distinctValues >= 1 ? nonNull / distinctValues : Double.NaN;
+            switch (operator) {
+                case IS_NULL: return nullsFraction != null ? nullsFraction : Double.NaN;
+                case IS_NOT_NULL: return nullsFraction != null ? nonNull : Double.NaN;
+                case EQ: return perValue;
+                case NE: return nonNull - perValue;
+                case IN: return Math.min(nonNull, perValue * operands.size());
+                case NOT_IN: return nonNull - Math.min(nonNull, perValue * operands.size());
+                case GT:
+                case GTE:
+                case LT:
+                case LTE:
+                    double below = fractionBelow(statistics, operands.get(0).getValue());
+                    if (Double.isNaN(below)) {
+                        return Double.NaN;
+                    }
+                    return nonNull * (operator == Operator.LT || operator == Operator.LTE ? below : 1.0 - below);
+                default: return Double.NaN;
+            }
+        }
+
+        /**
+         * 非空值中小于 value 的比例：有直方图时在所在桶内线性插值，否则在最小/最大值之间线性插值
+         */
+        private static double fractionBelow(ColumnStatistics statistics, Object value) {
+            if (!(value instanceof Number)) {
+                return Double.NaN;
+            }
+            double target = ((Number) value).doubleValue();
+            List<Double> histogram = statistics.getHistogram();
+            if (histogram != null && histogram.size() >= 2) {
+                int buckets = histogram.size() - 1;
+                if (target <= histogram.get(0)) {
+                    return 0.0;
+                }
+                for (int i = 0; i < buckets; i++) {
+                    double low = histogram.get(i);
+                    double high = histogram.get(i + 1);
+                    if (target < high) {
+                        double within = high > low ? (target - low) / (high - low) : 0.5;
+                        return (i + within) / buckets;
+                    }
+                }
+                return 1.0;
+            }
+            Double low = parseNumber(statistics.getLowValue());
+            Double high = parseNumber(statistics.getHighValue());
+            if (low == null || high == null || high <= low) {
+                return Double.NaN;
+            }
+            return Math.max(0.0, Math.min(1.0, (target - low) / (high - low)));
+        }
+
+        private static Double parseNumber(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Double.valueOf(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Junction extends QueryPredicate {
+        private final boolean and;
+        private final List<QueryPredicate> children;
+
+        Junction(boolean and, List<QueryPredicate> children) {
+            super(children.stream().map(QueryPredicate::canonical)
+                .collect(Collectors.joining(and ? " AND " : " OR ", "(", ")")));
+            this.and = and;
+            this.children = Collections.unmodifiableList(children);
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> params) {
+            sql.append('(');
+            for (int i = 0; i < children.size(); i++) {
+                sql.append(i > 0 ? (and ? " AND " : " OR ") : "");
+                children.get(i).appendSql(sql, params);
+            }
+            sql.append(')');
+        }
+
+        @Override
+        public QueryPredicate bind(Map<String, Object> attributes) {
+            if (!hasAttributes()) {
+                return this;
+            }
+            List<QueryPredicate> bound = new ArrayList<>(children.size());
+            for (QueryPredicate child : children) {
+                bound.add(child.bind(attributes));
+            }
+            return junction(and, bound);
+        }
+
+        @Override
+        public boolean hasAttributes() {
+            for (QueryPredicate child : children) {
+                if (child.hasAttributes()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void collectColumns(Set<String> columns) {
+            for (QueryPredicate child : children) {
+                child.collectColumns(columns);
+            }
+        }
+
+        @Override
+        public String shape() {
+            return children.stream().map(QueryPredicate::shape).sorted().distinct()
+                .collect(Collectors.joining(and ? " AND " : " OR ", "(", ")"));
+        }
+
+        @Override
+        double estimateSelectivity(Predicate<String> scope, Map<String, ColumnStatistics> statistics) {
+            double result = 1.0;
+            for (QueryPredicate child : children) {
+                double selectivity = child.estimateSelectivity(scope, statistics);
+                // OR：1 - 各子条件都不满足的概率
+                result *= and ? selectivity : 1.0 - selectivity;
+            }
+            return and ? result : 1.0 - result;
+        }
+    }
+
+    private static final class Not extends QueryPredicate {
+        private final QueryPredicate child;
+
+        Not(QueryPredicate child) {
+            super("NOT " + child.canonical());
+            this.child = child;
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> params) {
+            sql.append("NOT (");
+            child.appendSql(sql, params);
+            sql.append(')');
+        }
+
+        @Override
+        public QueryPredicate bind(Map<String, Object> attributes) {
+            return hasAttributes() ? not(child.bind(attributes)) : this;
+        }
+
+        @Override
+        public boolean hasAttributes() {
+            return child.hasAttributes();
+        }
+
+        @Override
+        void collectColumns(Set<String> columns) {
+            child.collectColumns(columns);
+        }
+
+        @Override
+        public String shape() {
+            return "NOT " + child.shape();
+        }
+
+        @Override
+        double estimateSelectivity(Predicate<String> scope, Map<String, ColumnStatistics> statistics) {
+            // 子条件中有 scope 之外的字段时无法取反，按不过滤处理
+            for (String column : child.columns()) {
+                if (!scope.test(column)) {
+                    return 1.0;
+                }
+            }
+            return 1.0 - child.estimateSelectivity(scope, statistics);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步查询结果落盘 - 把 ResultSet 流式写入本地列式文件，按任务ID提供分页读取
+ *
+ * 结果大小只受磁盘限制，不占用堆内存。结果文件在 result-ttl-ms 后删除，
+ * 通过 onExpire 登记的任务状态清理也在同一时间执行；任务状态只保存在内存中，启动时清理上次运行遗留的文件。
+ */
+@Component
+public class QueryResultSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultSpool.class);
+    private static final String FILE_SUFFIX = ".spool";
+
+    @Value("${data-platform.async.spool-dir:./data/spool}")
+    private String spoolDir;
+
+    @Value("${data-platform.async.chunk-rows:8192}")
+    private int chunkRows;
+
+    @Value("${data-platform.async.result-ttl-ms:86400000}")
+    private long resultTtlMs;
+
+    private Path directory;
+    private final Map<String, SpooledResult> results = new ConcurrentHashMap<>();
+    // 已结束任务的清理动作和登记时间，任务失败或没有落盘结果时同样按 TTL 执行
+    private final Map<String, Expiry> expiries = new ConcurrentHashMap<>();
+    private ScheduledExecutorService cleanupExecutor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(spoolDir);
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "query-result-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(Math.min(resultTtlMs, TimeUnit.MINUTES.toMillis(10)), 1000L);
+        cleanupExecutor.scheduleWithFixedDelay(this::removeExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (cleanupExecutor != null) {
+            cleanupExecutor.shutdownNow();
+        }
+        for (String taskId : results.keySet()) {
+            remove(taskId);
+        }
+        expiries.clear();
+    }
+
+    /**
+     * 把查询结果写入该任务的结果文件，maskingPlan 为 null 时不脱敏
+     */
+    public SpooledResult spool(String taskId, ResultSet resultSet, MaskingPlan maskingPlan) throws SQLException {
+        Path file = directory.resolve(taskId + FILE_SUFFIX);
+        try {
+            SpooledResult result = SpooledResult.write(file, resultSet, maskingPlan, Math.max(chunkRows, 1));
+            results.put(taskId, result);
+            logger.debug("查询结果已落盘: taskId={}, rows={}, bytes={}", taskId, result.getRowCount(), Files.size(file));
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("写入查询结果文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 该任务的落盘结果，不存在或已过期时返回 null
+     */
+    public SpooledResult get(String taskId) {
+        return results.get(taskId);
+    }
+
+    /**
+     * 登记任务结束，result-ttl-ms 后删除该任务的结果文件并执行 cleanup
+     */
+    public void onExpire(String taskId, Runnable cleanup) {
+        expiries.put(taskId, new Expiry(System.currentTimeMillis(), cleanup));
+    }
+
+    public void remove(String taskId) {
+        SpooledResult result = results.remove(taskId);
+        if (result == null) {
+            return;
+        }
+        try {
+            // 已映射的块在回收前仍然有效，磁盘空间在映射释放后回收
+            result.close();
+            Files.deleteIfExists(result.getFile());
+        } catch (IOException e) {
+            logger.warn("删除查询结果文件失败: taskId={}, {}", taskId, e.getMessage());
+        }
+    }
+
+    void removeExpired() {
+        long expiredBefore = System.currentTimeMillis() - resultTtlMs;
+        for (Map.Entry<String, SpooledResult> entry : results.entrySet()) {
+            if (entry.getValue().getCreatedAtMillis() < expiredBefore) {
+                remove(entry.getKey());
+            }
+        }
+        for (Map.Entry<String, Expiry> entry : expiries.entrySet()) {
+            Expiry expiry = entry.getValue();
+            if (expiry.registeredAtMillis < expiredBefore && expiries.remove(entry.getKey(), expiry)) {
+                remove(entry.getKey());
+                try {
+                    expiry.cleanup.run();
+                } catch (RuntimeException e) {
+                    logger.warn("清理过期查询任务失败: taskId={}, {}", entry.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class Expiry {
+        final long registeredAtMillis;
+        final Runnable cleanup;
+
+        Expiry(long registeredAtMillis, Runnable cleanup) {
+            this.registeredAtMillis = registeredAtMillis;
+            this.cleanup = cleanup;
+        }
+    }
+}
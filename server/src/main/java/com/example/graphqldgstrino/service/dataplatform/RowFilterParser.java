@@ -0,0 +1,309 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 行级过滤条件解析器 - 把权限配置中的过滤表达式解析为 QueryPredicate
+ *
+ * 支持的语法：
+ *   字段 (= | != | <> | > | >= | < | <=) 操作数
+ *   字段 [NOT] LIKE 操作数
+ *   字段 [NOT] IN (操作数, ...)
+ *   字段 IS [NOT] NULL
+ *   以及 AND / OR / NOT 和括号组合，关键字不区分大小写
+ * 操作数为单引号字符串（'' 转义）、数字、TRUE/FALSE 或用户属性引用 ${user.属性名}。
+ */
+final class RowFilterParser {
+
+    private enum TokenType { IDENTIFIER, STRING, NUMBER, ATTRIBUTE, SYMBOL, END }
+
+    private static final class Token {
+        final TokenType type;
+        final String text;
+        final int position;
+
+        Token(TokenType type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.IDENTIFIER && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isSymbol(String symbol) {
+            return type == TokenType.SYMBOL && text.equals(symbol);
+        }
+    }
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+        "AND", "OR", "NOT", "LIKE", "IN", "IS", "NULL", "TRUE", "FALSE"));
+
+    private final String expression;
+    private final List<Token> tokens;
+    private int index;
+
+    private RowFilterParser(String expression) {
+        this.expression = expression;
+        this.tokens = tokenize(expression);
+    }
+
+    /**
+     * 解析过滤表达式，语法错误时抛出 IllegalArgumentException
+     */
+    static QueryPredicate parse(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            return null;
+        }
+        RowFilterParser parser = new RowFilterParser(expression);
+        QueryPredicate predicate = parser.parseOr();
+        if (parser.peek().type != TokenType.END) {
+            throw parser.error("多余的内容");
+        }
+        return predicate;
+    }
+
+    private QueryPredicate parseOr() {
+        List<QueryPredicate> children = new ArrayList<>();
+        children.add(parseAnd());
+        while (peek().isKeyword("OR")) {
+            index++;
+            children.add(parseAnd());
+        }
+        return children.size() == 1 ? children.get(0) : QueryPredicate.or(children);
+    }
+
+    private QueryPredicate parseAnd() {
+        List<QueryPredicate> children = new ArrayList<>();
+        children.add(parseNot());
+        while (peek().isKeyword("AND")) {
+            index++;
+            children.add(parseNot());
+        }
+        return children.size() == 1 ? children.get(0) : QueryPredicate.and(children);
+    }
+
+    private QueryPredicate parseNot() {
+        if (peek().isKeyword("NOT")) {
+            index++;
+            return QueryPredicate.not(parseNot());
+        }
+        if (peek().isSymbol("(")) {
+            index++;
+            QueryPredicate inner = parseOr();
+            expectSymbol(")");
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private QueryPredicate parseComparison() {
+        Token field = next();
+        if (field.type != TokenType.IDENTIFIER || KEYWORDS.contains(field.text.toUpperCase())) {
+            throw error("缺少字段名", field);
+        }
+        String column = field.text;
+        Token token = next();
+
+        if (token.isKeyword("IS")) {
+            boolean negated = consumeKeyword("NOT");
+            expectKeyword("NULL");
+            return QueryPredicate.comparison(column,
+                negated ? QueryPredicate.Operator.IS_NOT_NULL : QueryPredicate.Operator.IS_NULL, null);
+        }
+
+        boolean negated = false;
+        if (token.isKeyword("NOT")) {
+            negated = true;
+            token = next();
+        }
+        if (token.isKeyword("LIKE")) {
+            return QueryPredicate.comparison(column,
+                negated ? QueryPredicate.Operator.NOT_LIKE : QueryPredicate.Operator.LIKE,
+                Collections.singletonList(parseOperand()));
+        }
+        if (token.isKeyword("IN")) {
+            expectSymbol("(");
+            List<QueryPredicate.Operand> operands = new ArrayList<>();
+            operands.add(parseOperand());
+            while (peek().isSymbol(",")) {
+                index++;
+                operands.add(parseOperand());
+            }
+            expectSymbol(")");
+            return QueryPredicate.comparison(column,
+                negated ? QueryPredicate.Operator.NOT_IN : QueryPredicate.Operator.IN, operands);
+        }
+        if (negated) {
+            throw error("NOT 之后应为 LIKE 或 IN", token);
+        }
+
+        QueryPredicate.Operator operator = comparisonOperator(token);
+        return QueryPredicate.comparison(column, operator, Collections.singletonList(parseOperand()));
+    }
+
+    private QueryPredicate.Operator comparisonOperator(Token token) {
+        if (token.type == TokenType.SYMBOL) {
+            switch (token.text) {
+                case "=": return QueryPredicate.Operator.EQ;
+                case "!=":
+                case "<>": return QueryPredicate.Operator.NE;
+                case ">": return QueryPredicate.Operator.GT;
+                case ">=": return QueryPredicate.Operator.GTE;
+                case "<": return QueryPredicate.Operator.LT;
+                case "<=": return QueryPredicate.Operator.LTE;
+                default: break;
+            }
+        }
+        throw error("缺少比较操作符", token);
+    }
+
+    private QueryPredicate.Operand parseOperand() {
+        Token token = next();
+        switch (token.type) {
+            case STRING:
+                return QueryPredicate.Operand.literal(token.text);
+            case NUMBER:
+                return QueryPredicate.Operand.literal(token.text.contains(".")
+                    ? new BigDecimal(token.text) : (Object) Long.valueOf(token.text));
+            case ATTRIBUTE:
+                return QueryPredicate.Operand.attribute(token.text);
+            case IDENTIFIER:
+                if (token.isKeyword("TRUE") || token.isKeyword("FALSE")) {
+                    return QueryPredicate.Operand.literal(Boolean.valueOf(token.text.toLowerCase()));
+                }
+                break;
+            default:
+                break;
+        }
+        throw error("缺少操作数", token);
+    }
+
+    private Token peek() {
+        return tokens.get(index);
+    }
+
+    private Token next() {
+        Token token = tokens.get(index);
+        if (token.type != TokenType.END) {
+            index++;
+        }
+        return token;
+    }
+
+    private boolean consumeKeyword(String keyword) {
+        if (peek().isKeyword(keyword)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        Token token = next();
+        if (!token.isKeyword(keyword)) {
+            throw error("缺少 " + keyword, token);
+        }
+    }
+
+    private void expectSymbol(String symbol) {
+        Token token = next();
+        if (!token.isSymbol(symbol)) {
+            throw error("缺少 " + symbol, token);
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(message, peek());
+    }
+
+    private IllegalArgumentException error(String message, Token token) {
+        return new IllegalArgumentException(
+            "行级过滤条件语法错误(位置 " + token.position + "): " + message + ": " + expression);
+    }
+
+    private static List<Token> tokenize(String expression) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = expression.length();
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == ',') {
+                tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c), i));
+                i++;
+            } else if (c == '=' ) {
+                tokens.add(new Token(TokenType.SYMBOL, "=", i));
+                i++;
+            } else if (c == '<' || c == '>' || c == '!') {
+                int start = i++;
+                if (i < length && (expression.charAt(i) == '=' || (c == '<' && expression.charAt(i) == '>'))) {
+                    i++;
+                }
+                String symbol = expression.substring(start, i);
+                if (symbol.equals("!")) {
+                    throw new IllegalArgumentException("行级过滤条件语法错误(位置 " + start + "): 非法字符 !: " + expression);
+                }
+                tokens.add(new Token(TokenType.SYMBOL, symbol, start));
+            } else if (c == '\'') {
+                int start = i++;
+                StringBuilder value = new StringBuilder();
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("行级过滤条件语法错误(位置 " + start + "): 字符串未结束: " + expression);
+                    }
+                    char ch = expression.charAt(i++);
+                    if (ch == '\'') {
+                        if (i < length && expression.charAt(i) == '\'') {
+                            value.append('\'');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        value.append(ch);
+                    }
+                }
+                tokens.add(new Token(TokenType.STRING, value.toString(), start));
+            } else if (c == '$' && i + 1 < length && expression.charAt(i + 1) == '{') {
+                int start = i;
+                int end = expression.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("行级过滤条件语法错误(位置 " + start + "): 属性引用未结束: " + expression);
+                }
+                String name = expression.substring(i + 2, end).trim();
+                if (!name.startsWith("user.") || name.length() <= "user.".length()) {
+                    throw new IllegalArgumentException("行级过滤条件语法错误(位置 " + start + "): 只支持 ${user.属性名}: " + expression);
+                }
+                tokens.add(new Token(TokenType.ATTRIBUTE, name.substring("user.".length()), start));
+                i = end + 1;
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < length && Character.isDigit(expression.charAt(i + 1)))) {
+                int start = i++;
+                while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                    i++;
+                }
+                String number = expression.substring(start, i);
+                try {
+                    new BigDecimal(number);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("行级过滤条件语法错误(位置 " + start + "): 非法数字 " + number + ": " + expression);
+                }
+                tokens.add(new Token(TokenType.NUMBER, number, start));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i++;
+                while (i < length && (Character.isLetterOrDigit(expression.charAt(i))
+                        || expression.charAt(i) == '_' || expression.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.IDENTIFIER, expression.substring(start, i), start));
+            } else {
+                throw new IllegalArgumentException("行级过滤条件语法错误(位置 " + i + "): 非法字符 " + c + ": " + expression);
+            }
+        }
+        tokens.add(new Token(TokenType.END, "", length));
+        return tokens;
+    }
+}
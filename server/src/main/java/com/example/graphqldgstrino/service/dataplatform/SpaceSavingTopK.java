@@ -0,0 +1,252 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 流式热点统计 - Space-Saving 算法（Stream-Summary 结构）
+ *
+ * 用固定数量的计数器近似统计出现频率最高的 key，计数误差不超过 N/capacity。
+ * 计数器按计数值挂在有序的桶链表上，更新为 O(1)，取 top-K 只需从最大桶向下遍历 O(k)。
+ *
+ * 记录线程只把事件放入无锁缓冲区，再尝试获取锁批量合并；获取不到锁时直接返回，
+ * 由持锁线程或后台维护任务负责合并，因此记录路径不会阻塞。
+ * 缓冲区满时丢弃事件，只会让近似计数略微偏低。
+ */
+public class SpaceSavingTopK {
+
+    private static final int MAX_PENDING = 8192;
+    private static final int DRAIN_BATCH = 256;
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue<Event> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+
+    // 按计数升序排列的桶链表
+    private Bucket minBucket;
+    private Bucket maxBucket;
+
+    public SpaceSavingTopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于0: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 记录一次出现，不阻塞
+     */
+    public void offer(String key, long executionTime, long timestampMillis) {
+        if (pendingSize.incrementAndGet() > MAX_PENDING) {
+            pendingSize.decrementAndGet();
+        } else {
+            pending.offer(new Event(key, executionTime, timestampMillis));
+        }
+        if (lock.tryLock()) {
+            try {
+                drain(DRAIN_BATCH);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 合并所有待处理事件
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            drain(Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回计数最高的 k 个条目（按计数降序）
+     */
+    public List<Entry> topK(int k) {
+        lock.lock();
+        try {
+            drain(Integer.MAX_VALUE);
+            List<Entry> result = new ArrayList<>(Math.min(k, counters.size()));
+            for (Bucket bucket = maxBucket; bucket != null && result.size() < k; bucket = bucket.prev) {
+                for (Counter counter : bucket.counters) {
+                    if (result.size() >= k) {
+                        break;
+                    }
+                    result.add(new Entry(counter.key, bucket.count, counter.error,
+                        counter.totalExecutionTime, counter.lastExecuted));
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            pending.clear();
+            pendingSize.set(0);
+            counters.clear();
+            minBucket = null;
+            maxBucket = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain(int maxEvents) {
+        Event event;
+        int drained = 0;
+        while (drained < maxEvents && (event = pending.poll()) != null) {
+            pendingSize.decrementAndGet();
+            apply(event);
+            drained++;
+        }
+    }
+
+    private void apply(Event event) {
+        Counter counter = counters.get(event.key);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(event.key);
+            } else {
+                // 替换计数最小的条目，新条目继承其计数作为误差上界
+                counter = minBucket.counters.iterator().next();
+                counters.remove(counter.key);
+                counter.key = event.key;
+                counter.error = counter.bucket.count;
+                counter.totalExecutionTime = 0L;
+                counter.lastExecuted = 0L;
+            }
+            counters.put(event.key, counter);
+        }
+        increment(counter);
+        counter.totalExecutionTime += event.executionTime;
+        counter.lastExecuted = Math.max(counter.lastExecuted, event.timestampMillis);
+    }
+
+    private void increment(Counter counter) {
+        Bucket current = counter.bucket;
+        long newCount = current != null ? current.count + 1 : 1L;
+        Bucket next = current != null ? current.next : minBucket;
+
+        Bucket target;
+        if (next != null && next.count == newCount) {
+            target = next;
+        } else {
+            target = new Bucket(newCount);
+            linkBucket(target, current, next);
+        }
+        target.counters.add(counter);
+        counter.bucket = target;
+
+        if (current != null) {
+            current.counters.remove(counter);
+            if (current.counters.isEmpty()) {
+                unlinkBucket(current);
+            }
+        }
+    }
+
+    /**
+     * 在 prev 与 next 之间插入新桶（prev 为 null 表示链表头，next 为 null 表示链表尾）
+     */
+    private void linkBucket(Bucket bucket, Bucket prev, Bucket next) {
+        bucket.prev = prev;
+        bucket.next = next;
+        if (prev != null) {
+            prev.next = bucket;
+        } else {
+            minBucket = bucket;
+        }
+        if (next != null) {
+            next.prev = bucket;
+        } else {
+            maxBucket = bucket;
+        }
+    }
+
+    private void unlinkBucket(Bucket bucket) {
+        if (bucket.prev != null) {
+            bucket.prev.next = bucket.next;
+        } else {
+            minBucket = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        } else {
+            maxBucket = bucket.prev;
+        }
+        bucket.prev = null;
+        bucket.next = null;
+    }
+
+    /**
+     * 热点条目快照
+     */
+    public static class Entry {
+        private final String key;
+        private final long count;
+        private final long error;
+        private final long totalExecutionTime;
+        private final long lastExecutedMillis;
+
+        Entry(String key, long count, long error, long totalExecutionTime, long lastExecutedMillis) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.totalExecutionTime = totalExecutionTime;
+            this.lastExecutedMillis = lastExecutedMillis;
+        }
+
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+        public long getTotalExecutionTime() { return totalExecutionTime; }
+        public long getLastExecutedMillis() { return lastExecutedMillis; }
+    }
+
+    private static final class Event {
+        private final String key;
+        private final long executionTime;
+        private final long timestampMillis;
+
+        Event(String key, long executionTime, long timestampMillis) {
+            this.key = key;
+            this.executionTime = executionTime;
+            this.timestampMillis = timestampMillis;
+        }
+    }
+
+    private static final class Counter {
+        private String key;
+        private long error;
+        private long totalExecutionTime;
+        private long lastExecuted;
+        private Bucket bucket;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Bucket {
+        private final long count;
+        private final Set<Counter> counters = new LinkedHashSet<>();
+        private Bucket prev;
+        private Bucket next;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * 落盘的查询结果 - 按列存放的分块文件，读取分页时只映射覆盖该页的块
+ *
+ * 文件布局：
+ *   头部（48 字节）：魔数、格式版本、列数、行数、每块行数、块数、块索引和列定义的偏移
+ *   数据块：[int 行数][int 各列在块内的偏移...]，每列为 [空值位图][值]：
+ *          整数和浮点数每个 8 字节，布尔值每个 1 字节，字符串为 (行数 + 1) 个 int 偏移加 UTF-8 内容
+ *   块索引：每块 [long 偏移][int 长度]
+ *   列定义：每列 [byte 类型][int 长度][UTF-8 列名]
+ * 写入时从 ResultSet 流式读取，内存中只保留一个块；脱敏按列在块内执行，脱敏列统一存为字符串，
+ * 被拒绝的列不写入。除整数、浮点数和布尔值以外的类型按 ResultSet.getString 的文本存放。
+ */
+public final class SpooledResult implements AutoCloseable {
+
+    private static final long MAGIC = 0x4744505F53504F4CL; // "GDP_SPOL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    private static final byte TYPE_LONG = 0;
+    private static final byte TYPE_DOUBLE = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_STRING = 3;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<String> columns;
+    private final byte[] types;
+    private final long rowCount;
+    private final int chunkRows;
+    private final long[] chunkOffsets;
+    private final int[] chunkLengths;
+    private final long createdAtMillis = System.currentTimeMillis();
+
+    private SpooledResult(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        ByteBuffer header = readBytes(0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC || header.getInt(8) != FORMAT_VERSION) {
+            throw new IOException("不是查询结果文件: " + file);
+        }
+        int columnCount = header.getInt(12);
+        this.rowCount = header.getLong(16);
+        this.chunkRows = header.getInt(24);
+        int chunkCount = header.getInt(28);
+        long indexOffset = header.getLong(32);
+        long schemaOffset = header.getLong(40);
+
+        ByteBuffer index = readBytes(indexOffset, chunkCount * INDEX_ENTRY_SIZE);
+        this.chunkOffsets = new long[chunkCount];
+        this.chunkLengths = new int[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunkOffsets[i] = index.getLong();
+            chunkLengths[i] = index.getInt();
+        }
+
+        ByteBuffer schema = readBytes(schemaOffset, (int) (channel.size() - schemaOffset));
+        List<String> names = new ArrayList<>(columnCount);
+        this.types = new byte[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            types[i] = schema.get();
+            byte[] name = new byte[schema.getInt()];
+            schema.get(name);
+            names.add(new String(name, StandardCharsets.UTF_8));
+        }
+        this.columns = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * 打开已写入的结果文件
+     */
+    public static SpooledResult open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new SpooledResult(file, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 把 ResultSet 的剩余行按块写入 file 并打开；maskingPlan 为 null 时不脱敏
+     */
+    public static SpooledResult write(Path file, ResultSet resultSet, MaskingPlan maskingPlan, int chunkRows)
+            throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        List<Integer> sourceColumns = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Byte> columnTypes = new ArrayList<>();
+        List<Boolean> masked = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String name = metaData.getColumnLabel(i);
+            if (maskingPlan != null && maskingPlan.isDropped(name)) {
+                continue;
+            }
+            boolean maskedColumn = maskingPlan != null && maskingPlan.isMasked(name);
+            sourceColumns.add(i);
+            names.add(name);
+            columnTypes.add(maskedColumn ? TYPE_STRING : typeOf(metaData.getColumnType(i)));
+            masked.add(maskedColumn);
+        }
+
+        int columnCount = names.size();
+        Object[][] chunk = new Object[columnCount][chunkRows];
+        List<long[]> index = new ArrayList<>();
+        long rowCount = 0;
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.position(HEADER_SIZE);
+            int rows = 0;
+            while (resultSet.next()) {
+                for (int c = 0; c < columnCount; c++) {
+                    chunk[c][rows] = readValue(resultSet, sourceColumns.get(c), columnTypes.get(c), masked.get(c));
+                }
+                rows++;
+                rowCount++;
+                if (rows == chunkRows) {
+                    index.add(writeChunk(out, chunk, rows, names, columnTypes, masked, maskingPlan));
+                    rows = 0;
+                }
+            }
+            if (rows > 0) {
+                index.add(writeChunk(out, chunk, rows, names, columnTypes, masked, maskingPlan));
+            }
+
+            long indexOffset = out.position();
+            ByteBuffer indexBuffer = ByteBuffer.allocate(index.size() * INDEX_ENTRY_SIZE);
+            for (long[] entry : index) {
+                indexBuffer.putLong(entry[0]).putInt((int) entry[1]);
+            }
+            indexBuffer.flip();
+            writeFully(out, indexBuffer);
+
+            long schemaOffset = out.position();
+            ByteArrayOutputStream schema = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(schema);
+            for (int c = 0; c < columnCount; c++) {
+                byte[] name = names.get(c).getBytes(StandardCharsets.UTF_8);
+                data.writeByte(columnTypes.get(c));
+                data.writeInt(name.length);
+                data.write(name);
+            }
+            data.flush();
+            writeFully(out, ByteBuffer.wrap(schema.toByteArray()));
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(0, MAGIC).putInt(8, FORMAT_VERSION).putInt(12, columnCount).putLong(16, rowCount)
+                .putInt(24, chunkRows).putInt(28, index.size()).putLong(32, indexOffset).putLong(40, schemaOffset);
+            out.position(0);
+            writeFully(out, header);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return open(file);
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 读取 [offset, offset + limit) 范围内的行，只映射覆盖该范围的块
+     */
+    public List<Map<String, Object>> read(long offset, int limit) throws IOException {
+        long end = Math.min(rowCount, offset + Math.max(limit, 0));
+        if (offset < 0 || offset >= end) {
+            return new ArrayList<>();
+        }
+        List<Map<String, Object>> rows = new ArrayList<>((int) (end - offset));
+        for (int chunkIndex = (int) (offset / chunkRows); chunkIndex <= (end - 1) / chunkRows; chunkIndex++) {
+            ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                chunkOffsets[chunkIndex], chunkLengths[chunkIndex]);
+            long chunkStart = (long) chunkIndex * chunkRows;
+            int chunkRowCount = chunk.getInt(0);
+            int from = (int) Math.max(offset - chunkStart, 0);
+            int to = (int) Math.min(end - chunkStart, chunkRowCount);
+
+            int base = rows.size();
+            for (int row = from; row < to; row++) {
+                rows.add(new LinkedHashMap<>());
+            }
+            for (int c = 0; c < columns.size(); c++) {
+                int section = chunk.getInt(4 + 4 * c);
+                for (int row = from; row < to; row++) {
+                    rows.get(base + row - from).put(columns.get(c), decode(chunk, section, chunkRowCount, types[c], row));
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ========== 私有辅助方法 ==========
+
+    private static byte typeOf(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return TYPE_LONG;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return TYPE_DOUBLE;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return TYPE_BOOLEAN;
+            default:
+                return TYPE_STRING;
+        }
+    }
+
+    private static Object readValue(ResultSet resultSet, int column, byte type, boolean masked) throws SQLException {
+        if (masked) {
+            // 与按行脱敏一致，规则作用在原始值上
+            return resultSet.getObject(column);
+        }
+        switch (type) {
+            case TYPE_LONG: {
+                long value = resultSet.getLong(column);
+                return resultSet.wasNull() ? null : value;
+            }
+            case TYPE_DOUBLE: {
+                double value = resultSet.getDouble(column);
+                return resultSet.wasNull() ? null : value;
+            }
+            case TYPE_BOOLEAN: {
+                boolean value = resultSet.getBoolean(column);
+                return resultSet.wasNull() ? null : value;
+            }
+            default:
+                return resultSet.getString(column);
+        }
+    }
+
+    /**
+     * 编码并写入一个块，返回 {偏移, 长度}
+     */
+    private static long[] writeChunk(FileChannel out, Object[][] chunk, int rows, List<String> names,
+                                     List<Byte> columnTypes, List<Boolean> masked, MaskingPlan maskingPlan)
+            throws IOException {
+        int columnCount = names.size();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(buffer);
+        int[] sections = new int[columnCount];
+        int headerSize = 4 + 4 * columnCount;
+        for (int c = 0; c < columnCount; c++) {
+            Object[] values = chunk[c];
+            if (masked.get(c)) {
+                values = Arrays.copyOf(values, rows);
+                maskingPlan.applyColumn(names.get(c), values);
+            }
+            sections[c] = headerSize + data.size();
+
+            byte[] nulls = new byte[(rows + 7) / 8];
+            for (int row = 0; row < rows; row++) {
+                if (values[row] == null) {
+                    nulls[row >>> 3] |= (byte) (1 << (row & 7));
+                }
+            }
+            data.write(nulls);
+            switch (columnTypes.get(c)) {
+                case TYPE_LONG:
+                    for (int row = 0; row < rows; row++) {
+                        data.writeLong(values[row] != null ? (Long) values[row] : 0L);
+                    }
+                    break;
+                case TYPE_DOUBLE:
+                    for (int row = 0; row < rows; row++) {
+                        data.writeDouble(values[row] != null ? (Double) values[row] : 0.0);
+                    }
+                    break;
+                case TYPE_BOOLEAN:
+                    for (int row = 0; row < rows; row++) {
+                        data.writeBoolean(values[row] != null && (Boolean) values[row]);
+                    }
+                    break;
+                default:
+                    byte[][] encoded = new byte[rows][];
+                    int position = 0;
+                    data.writeInt(0);
+                    for (int row = 0; row < rows; row++) {
+                        encoded[row] = values[row] != null
+                            ? values[row].toString().getBytes(StandardCharsets.UTF_8) : new byte[0];
+                        position += encoded[row].length;
+                        data.writeInt(position);
+                    }
+                    for (byte[] value : encoded) {
+                        data.write(value);
+                    }
+            }
+            // 释放对上一块数据的引用
+            Arrays.fill(chunk[c], null);
+        }
+        data.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(rows);
+        for (int section : sections) {
+            header.putInt(section);
+        }
+        header.flip();
+        long offset = out.position();
+        writeFully(out, header);
+        writeFully(out, ByteBuffer.wrap(buffer.toByteArray()));
+        return new long[] {offset, headerSize + data.size()};
+    }
+
+    private static Object decode(ByteBuffer chunk, int section, int rows, byte type, int row) {
+        if ((chunk.get(section + (row >>> 3)) & (1 << (row & 7))) != 0) {
+            return null;
+        }
+        int values = section + (rows + 7) / 8;
+        switch (type) {
+            case TYPE_LONG:
+                return chunk.getLong(values + 8 * row);
+            case TYPE_DOUBLE:
+                return chunk.getDouble(values + 8 * row);
+            case TYPE_BOOLEAN:
+                return chunk.get(values + row) != 0;
+            default:
+                int start = chunk.getInt(values + 4 * row);
+                int end = chunk.getInt(values + 4 * (row + 1));
+                byte[] bytes = new byte[end - start];
+                ByteBuffer view = chunk.duplicate();
+                view.position(values + 4 * (rows + 1) + start);
+                view.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private ByteBuffer readBytes(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("查询结果文件不完整: " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 表属性二级索引 - 按表名前缀、表类型、所有者、标签和修改时间查找 "库.表"
+ *
+ * 写入由 MetadataService 在 writeLock 下进行，读取不加锁。更新一张表时先删旧条目再加新条目，
+ * 读取方可能短暂看到缺失或多余的键，因此候选结果仍需按完整过滤条件校验。
+ */
+final class TableAttributeIndex {
+
+    // 表名与 "库.表" 之间的分隔符，保证同名前缀的表在有序集合中连续
+    private static final char NAME_SEPARATOR = '\0';
+
+    private final NavigableSet<String> byName = new ConcurrentSkipListSet<>();
+    private final Map<String, Set<String>> byTableType = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byOwner = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byTag = new ConcurrentHashMap<>();
+    private final NavigableMap<LocalDateTime, Set<String>> byLastModified = new ConcurrentSkipListMap<>();
+
+    /**
+     * 以新版本替换一张表的索引条目，previous 为 null 表示新增
+     */
+    void put(String key, TableInfo previous, TableInfo current) {
+        if (previous != null) {
+            remove(key, previous);
+        }
+        byName.add(current.getTableName() + NAME_SEPARATOR + key);
+        add(byTableType, current.getTableType(), key);
+        add(byOwner, current.getOwner(), key);
+        if (current.getTags() != null) {
+            for (String tag : current.getTags()) {
+                add(byTag, tag, key);
+            }
+        }
+        add(byLastModified, current.getLastModified(), key);
+    }
+
+    void remove(String key, TableInfo previous) {
+        byName.remove(previous.getTableName() + NAME_SEPARATOR + key);
+        delete(byTableType, previous.getTableType(), key);
+        delete(byOwner, previous.getOwner(), key);
+        if (previous.getTags() != null) {
+            for (String tag : previous.getTags()) {
+                delete(byTag, tag, key);
+            }
+        }
+        delete(byLastModified, previous.getLastModified(), key);
+    }
+
+    Set<String> byTableType(String tableType) {
+        return byTableType.getOrDefault(tableType, Collections.emptySet());
+    }
+
+    Set<String> byOwner(String owner) {
+        return byOwner.getOrDefault(owner, Collections.emptySet());
+    }
+
+    /**
+     * 带有任一标签的表，超过 limit 张时返回 null
+     */
+    Set<String> byAnyTag(Collection<String> tags, int limit) {
+        Set<String> keys = new HashSet<>();
+        for (String tag : tags) {
+            Set<String> tagged = byTag.get(tag);
+            if (tagged == null) {
+                continue;
+            }
+            if (tagged.size() > limit) {
+                return null;
+            }
+            keys.addAll(tagged);
+            if (keys.size() > limit) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 表名以 prefix 开头的表，超过 limit 张时返回 null
+     */
+    Set<String> byNamePrefix(String prefix, int limit) {
+        Iterator<String> entries = byName.subSet(prefix, true, prefix + Character.MAX_VALUE, false).iterator();
+        Set<String> keys = new HashSet<>();
+        while (entries.hasNext()) {
+            String entry = entries.next();
+            keys.add(entry.substring(entry.indexOf(NAME_SEPARATOR) + 1));
+            if (keys.size() > limit) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 修改时间不早于 after 的表，超过 limit 张时返回 null
+     */
+    Set<String> modifiedSince(LocalDateTime after, int limit) {
+        Set<String> keys = new HashSet<>();
+        for (Set<String> modified : byLastModified.tailMap(after, true).values()) {
+            keys.addAll(modified);
+            if (keys.size() > limit) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    private static <K> void add(Map<K, Set<String>> index, K value, String key) {
+        if (value != null) {
+            index.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private static <K> void delete(Map<K, Set<String>> index, K value, String key) {
+        if (value == null) {
+            return;
+        }
+        Set<String> keys = index.get(value);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+}
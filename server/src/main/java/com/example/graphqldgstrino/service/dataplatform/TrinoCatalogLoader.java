@@ -0,0 +1,735 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Trino 目录同步 - 从 information_schema 批量读取表和字段，按需读取 Iceberg 元数据表和统计信息，
+ * 在后台增量写入 MetadataService
+ *
+ * 每个同步周期用三条批量查询读取整个目录的表、字段和表注释，再按 schema 用 UNION ALL 批量读取
+ * 各表 $snapshots 的最新快照（每条查询最多 SNAPSHOT_BATCH_SIZE 张表）。字段和快照都没有变化的表直接跳过，
+ * 只有变化的表才会以有限并发读取 $partitions 汇总、分区字段和 SHOW STATS（含列级统计）。目录中已不存在的表从 MetadataService 删除，
+ * 变化和删除的表在周期结束时批量写入，每个库的表列表只重建一次。
+ * 启用直方图抽样时，数值字段的直方图只在行数变化超过阈值或尚未收集时重新抽样，否则沿用上次结果。
+ * 每张表写入时附带 "字段签名:快照ID" 作为同步标记，标记随元数据快照持久化，
+ * 因此从快照恢复后的首次同步只重新读取重启期间变化的表。统计、分区字段或直方图读取失败时不记录同步标记，
+ * 下个周期重新读取该表。
+ * 查询路径只读取 MetadataService 的内存数据，不会等待这里的任何 Trino 调用。
+ * source 为 mock 时使用 MetadataService 内置的模拟元数据，不启动同步。
+ */
+@Component
+@DependsOn("metadataSnapshotStore") // 先挂载快照，首次同步才能按同步标记跳过未变化的表
+public class TrinoCatalogLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrinoCatalogLoader.class);
+    private static final Pattern CATALOG_NAME = Pattern.compile("[A-Za-z0-9_]+");
+    // 一条快照查询合并的表数，避免 schema 中表很多时生成过长的 SQL
+    static final int SNAPSHOT_BATCH_SIZE = 200;
+
+    @Autowired
+    private MetadataService metadataService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${data-platform.metadata.source:mock}")
+    private String sourceType;
+
+    @Value("${data-platform.metadata.catalog:iceberg}")
+    private String catalog;
+
+    // 逗号分隔的 schema 列表，为空时同步整个目录
+    @Value("${data-platform.metadata.schemas:}")
+    private String schemas;
+
+    @Value("${data-platform.metadata.table-type:ICEBERG}")
+    private String defaultTableType;
+
+    @Value("${data-platform.metadata.sync-interval-ms:300000}")
+    private long syncIntervalMs;
+
+    @Value("${data-platform.metadata.sync-concurrency:4}")
+    private int syncConcurrency;
+
+    // 数值字段直方图的抽样比例（百分比），0 表示不收集直方图
+    @Value("${data-platform.metadata.histogram-sample-percent:0}")
+    private double histogramSamplePercent;
+
+    @Value("${data-platform.metadata.histogram-buckets:16}")
+    private int histogramBuckets;
+
+    // 行数相对变化超过该比例时重新抽样直方图
+    @Value("${data-platform.metadata.histogram-refresh-change:0.1}")
+    private double histogramRefreshChange;
+
+    private List<String> schemaFilter = Collections.emptyList();
+    private ScheduledExecutorService syncExecutor;
+    // 逐表加载的有限并发线程池，同步周期和按需刷新共用
+    private ExecutorService tableLoader;
+    // 已提交、尚未完成的按需刷新，重复请求合并为一次
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    private volatile long lastSyncMillis;
+
+    @PostConstruct
+    public void init() {
+        if (!"trino".equalsIgnoreCase(sourceType.trim())) {
+            return;
+        }
+        if (!CATALOG_NAME.matcher(catalog).matches()) {
+            throw new IllegalArgumentException("非法的目录名: " + catalog);
+        }
+        schemaFilter = Arrays.stream(schemas.split(","))
+            .map(String::trim)
+            .filter(schema -> !schema.isEmpty())
+            .collect(Collectors.toList());
+
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("catalog-sync"));
+        tableLoader = Executors.newFixedThreadPool(Math.max(syncConcurrency, 1), daemonThreads("catalog-loader"));
+        metadataService.setRefreshRequester(this::requestRefresh);
+        // 首次同步也在后台执行，不阻塞启动；完成前继续使用已有的元数据
+        syncExecutor.scheduleWithFixedDelay(this::sync, 0, syncIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Trino 目录同步已启动: catalog={}, schemas={}, interval={}ms, concurrency={}",
+            catalog, schemaFilter.isEmpty() ? "*" : schemaFilter, syncIntervalMs, syncConcurrency);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+        if (tableLoader != null) {
+            tableLoader.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行一次同步周期，失败时保留已有元数据，下个周期重试
+     */
+    public synchronized void sync() {
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, CatalogTable> tables = loadCatalog(null, null);
+            Map<String, Snapshot> snapshots = loadLatestSnapshots(tables.values());
+
+            List<Callable<MetadataSnapshot.Entry>> tasks = new ArrayList<>(tables.size());
+            for (CatalogTable table : tables.values()) {
+                tasks.add(() -> refreshTable(table, snapshots.get(table.key()), false));
+            }
+            // 变化的表在本周期结束时一次写入，每个库的表列表只重建一次
+            List<MetadataSnapshot.Entry> changed = new ArrayList<>();
+            for (Future<MetadataSnapshot.Entry> result : tableLoader.invokeAll(tasks)) {
+                try {
+                    MetadataSnapshot.Entry entry = result.get();
+                    if (entry != null) {
+                        changed.add(entry);
+                    }
+                } catch (ExecutionException e) {
+                    logger.warn("加载表元数据失败: {}", e.getCause().getMessage());
+                }
+            }
+            metadataService.putTables(changed);
+
+            List<String> removed = new ArrayList<>();
+            for (String key : metadataService.getTableNames()) {
+                if (!tables.containsKey(key)) {
+                    removed.add(key);
+                }
+            }
+            metadataService.removeTables(removed);
+
+            lastSyncMillis = System.currentTimeMillis();
+            logger.info("Trino 目录同步完成: tables={}, changed={}, removed={}, elapsed={}ms",
+                tables.size(), changed.size(), removed.size(), lastSyncMillis - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Trino 目录同步失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 提交单张表的后台刷新并立即返回，同一张表已有未完成的刷新时忽略
+     */
+    public void requestRefresh(String database, String tableName) {
+        String key = database + "." + tableName;
+        if (tableLoader == null || !pendingRefreshes.add(key)) {
+            return;
+        }
+        try {
+            tableLoader.submit(() -> {
+                try {
+                    CatalogTable table = loadCatalog(database, tableName).get(key);
+                    if (table == null) {
+                        metadataService.removeTable(database, tableName);
+                    } else {
+                        Snapshot snapshot = loadLatestSnapshots(Collections.singletonList(table)).get(key);
+                        metadataService.putTables(Collections.singletonList(refreshTable(table, snapshot, true)));
+                    }
+                } catch (Exception e) {
+                    logger.warn("刷新表元数据失败: table={}, {}", key, e.getMessage());
+                } finally {
+                    pendingRefreshes.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRefreshes.remove(key);
+        }
+    }
+
+    /**
+     * 上一次成功同步的时间，从未成功时为 0
+     */
+    public long getLastSyncMillis() {
+        return lastSyncMillis;
+    }
+
+    // ========== 批量读取目录 ==========
+
+    /**
+     * 批量读取表、字段和表注释，database/tableName 为 null 时读取整个目录（受 schemas 配置限制）
+     */
+    private Map<String, CatalogTable> loadCatalog(String database, String tableName) {
+        List<Object> args = new ArrayList<>();
+        String scope = scopeCondition("table_schema", "table_name", database, tableName, args);
+
+        Map<String, CatalogTable> tables = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT table_schema, table_name, table_type FROM " + quote(catalog)
+                + ".information_schema.tables WHERE table_schema <> 'information_schema'" + scope,
+            rs -> {
+                CatalogTable table = new CatalogTable(rs.getString(1), rs.getString(2), rs.getString(3));
+                tables.put(table.key(), table);
+            }, args.toArray());
+
+        jdbcTemplate.query("SELECT table_schema, table_name, column_name, data_type, is_nullable FROM " + quote(catalog)
+                + ".information_schema.columns WHERE table_schema <> 'information_schema'" + scope
+                + " ORDER BY table_schema, table_name, ordinal_position",
+            rs -> {
+                CatalogTable table = tables.get(rs.getString(1) + "." + rs.getString(2));
+                if (table != null) {
+                    table.columns.add(new CatalogColumn(rs.getString(3), rs.getString(4), "YES".equalsIgnoreCase(rs.getString(5))));
+                }
+            }, args.toArray());
+
+        // 表注释来自 system 目录，部分连接器不支持，读取失败时不影响同步
+        List<Object> commentArgs = new ArrayList<>();
+        commentArgs.add(catalog);
+        String commentScope = scopeCondition("schema_name", "table_name", database, tableName, commentArgs);
+        try {
+            jdbcTemplate.query("SELECT schema_name, table_name, comment FROM system.metadata.table_comments"
+                    + " WHERE catalog_name = ?" + commentScope,
+                rs -> {
+                    CatalogTable table = tables.get(rs.getString(1) + "." + rs.getString(2));
+                    if (table != null) {
+                        table.comment = rs.getString(3);
+                    }
+                }, commentArgs.toArray());
+        } catch (DataAccessException e) {
+            logger.debug("读取表注释失败: catalog={}, {}", catalog, e.getMessage());
+        }
+        return tables;
+    }
+
+    private String scopeCondition(String schemaColumn, String tableColumn, String database, String tableName,
+                                  List<Object> args) {
+        StringBuilder condition = new StringBuilder();
+        if (database != null) {
+            condition.append(" AND ").append(schemaColumn).append(" = ?");
+            args.add(database);
+        } else if (!schemaFilter.isEmpty()) {
+            condition.append(" AND ").append(schemaColumn).append(" IN (")
+                .append(String.join(", ", Collections.nCopies(schemaFilter.size(), "?"))).append(")");
+            args.addAll(schemaFilter);
+        }
+        if (tableName != null) {
+            condition.append(" AND ").append(tableColumn).append(" = ?");
+            args.add(tableName);
+        }
+        return condition.toString();
+    }
+
+    // ========== 逐表加载 ==========
+
+    /**
+     * 检查一张表是否变化，变化时读取统计信息并组装待写入的记录，未变化时返回 null
+     *
+     * snapshot 为 null 表示不是 Iceberg 表或还没有快照，此时不读取 $partitions。
+     * 任何一项读取失败时记录不带同步标记，下个周期重新读取，不会因为标记已保存而一直跳过。
+     */
+    private MetadataSnapshot.Entry refreshTable(CatalogTable table, Snapshot snapshot, boolean force) {
+        String syncToken = table.signature() + ":" + (snapshot != null ? snapshot.id : "-");
+
+        if (!force && syncToken.equals(metadataService.getSyncToken(table.schema, table.name))) {
+            return null;
+        }
+
+        List<String> failures = new ArrayList<>();
+        List<String> partitionKeys = snapshot != null ? loadPartitionKeys(table, failures) : Collections.emptyList();
+        Map<String, ColumnStatistics> columnStatistics = new HashMap<>();
+        TableStatistics statistics = table.isView() ? null
+            : loadStatistics(table, snapshot != null, partitionKeys, columnStatistics, failures);
+        if (statistics != null && histogramSamplePercent > 0) {
+            loadHistograms(table, statistics.getRowCount(), columnStatistics, failures);
+        }
+        if (!failures.isEmpty()) {
+            logger.warn("表元数据未完整读取，下个周期重试: table={}, {}", table.key(), failures);
+            syncToken = null;
+        }
+        return assemble(table, snapshot, partitionKeys, statistics, columnStatistics, syncToken);
+    }
+
+    /**
+     * 按 schema 批量读取 Iceberg 表的最新快照，每条 UNION ALL 查询最多 SNAPSHOT_BATCH_SIZE 张表
+     *
+     * 某一批失败时（如 schema 中混有没有 $snapshots 的非 Iceberg 表）该批退回逐表读取。
+     * 返回 "库.表" 到快照，视图、非 Iceberg 表和没有快照的表不在结果中。
+     */
+    private Map<String, Snapshot> loadLatestSnapshots(Collection<CatalogTable> tables) {
+        Map<String, List<CatalogTable>> bySchema = new LinkedHashMap<>();
+        for (CatalogTable table : tables) {
+            if (!table.isView()) {
+                bySchema.computeIfAbsent(table.schema, schema -> new ArrayList<>()).add(table);
+            }
+        }
+        Map<String, Snapshot> snapshots = new HashMap<>();
+        for (List<CatalogTable> schemaTables : bySchema.values()) {
+            for (int from = 0; from < schemaTables.size(); from += SNAPSHOT_BATCH_SIZE) {
+                List<CatalogTable> batch = schemaTables.subList(from,
+                    Math.min(from + SNAPSHOT_BATCH_SIZE, schemaTables.size()));
+                try {
+                    loadSnapshotBatch(batch, snapshots);
+                } catch (DataAccessException e) {
+                    logger.debug("批量读取快照失败，改为逐表读取: schema={}, tables={}, {}",
+                        batch.get(0).schema, batch.size(), e.getMessage());
+                    for (CatalogTable table : batch) {
+                        Snapshot snapshot = loadLatestSnapshot(table);
+                        if (snapshot != null) {
+                            snapshots.put(table.key(), snapshot);
+                        }
+                    }
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    private void loadSnapshotBatch(List<CatalogTable> batch, Map<String, Snapshot> snapshots) {
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>(batch.size());
+        for (CatalogTable table : batch) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT CAST(? AS varchar), max_by(snapshot_id, committed_at), max(committed_at) FROM ")
+                .append(metadataTable(table, "snapshots"));
+            args.add(table.name);
+        }
+        String schema = batch.get(0).schema;
+        jdbcTemplate.query(sql.toString(), rs -> {
+            long snapshotId = rs.getLong(2);
+            // 没有快照的表聚合结果为 NULL
+            if (!rs.wasNull()) {
+                snapshots.put(schema + "." + rs.getString(1),
+                    new Snapshot(snapshotId, toLocalDateTime(rs.getTimestamp(3))));
+            }
+        }, args.toArray());
+    }
+
+    /**
+     * 读取单张 Iceberg 表的最新快照，非 Iceberg 表或没有快照时返回 null
+     */
+    private Snapshot loadLatestSnapshot(CatalogTable table) {
+        try {
+            List<Snapshot> snapshots = jdbcTemplate.query("SELECT snapshot_id, committed_at FROM "
+                    + metadataTable(table, "snapshots") + " ORDER BY committed_at DESC LIMIT 1",
+                (rs, rowNum) -> new Snapshot(rs.getLong(1), toLocalDateTime(rs.getTimestamp(2))));
+            return snapshots.isEmpty() ? null : snapshots.get(0);
+        } catch (DataAccessException e) {
+            logger.debug("读取快照失败: table={}, {}", table.key(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从 $partitions 的 partition 字段类型解析分区字段，未分区或不支持时返回空列表
+     */
+    private List<String> loadPartitionKeys(CatalogTable table, List<String> failures) {
+        try {
+            List<String> partitionKeys = new ArrayList<>();
+            jdbcTemplate.query("DESCRIBE " + metadataTable(table, "partitions"), rs -> {
+                if ("partition".equals(rs.getString(1))) {
+                    partitionKeys.addAll(rowFieldNames(rs.getString(2)));
+                }
+            });
+            return partitionKeys;
+        } catch (DataAccessException e) {
+            failures.add("分区字段: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 表统计：Iceberg 表的行数、文件数和大小优先取自 $partitions 汇总，缺失时用 SHOW STATS 补充；
+     * SHOW STATS 的字段行写入 columnStatistics
+     */
+    private TableStatistics loadStatistics(CatalogTable table, boolean iceberg, List<String> partitionKeys,
+                                           Map<String, ColumnStatistics> columnStatistics, List<String> failures) {
+        TableStatistics statistics = new TableStatistics();
+        if (iceberg) {
+            loadPartitionSummary(table, partitionKeys, statistics, failures);
+        }
+
+        LocalDateTime analyzedAt = LocalDateTime.now();
+        try {
+            long[] columnDataSize = {0L};
+            jdbcTemplate.query("SHOW STATS FOR " + qualifiedTable(table), rs -> {
+                String columnName = rs.getString("column_name");
+                if (columnName == null) {
+                    if (statistics.getRowCount() == null) {
+                        statistics.setRowCount(nullableLong(rs.getObject("row_count")));
+                    }
+                    return;
+                }
+                Long size = nullableLong(rs.getObject("data_size"));
+                columnDataSize[0] += size != null ? size : 0L;
+
+                ColumnStatistics column = new ColumnStatistics();
+                column.setDataSize(size);
+                column.setDistinctValuesCount(nullableDouble(rs.getObject("distinct_values_count")));
+                column.setNullsFraction(nullableDouble(rs.getObject("nulls_fraction")));
+                column.setLowValue(rs.getString("low_value"));
+                column.setHighValue(rs.getString("high_value"));
+                column.setLastAnalyzed(analyzedAt);
+                columnStatistics.put(columnName, column);
+            });
+            if (statistics.getDataSize() == null && columnDataSize[0] > 0) {
+                statistics.setDataSize(columnDataSize[0]);
+            }
+        } catch (DataAccessException e) {
+            failures.add("统计信息: " + e.getMessage());
+        }
+        statistics.setLastAnalyzed(analyzedAt);
+        return statistics;
+    }
+
+    private void loadPartitionSummary(CatalogTable table, List<String> partitionKeys, TableStatistics statistics,
+                                      List<String> failures) {
+        try {
+            jdbcTemplate.query("SELECT count(*), sum(record_count), sum(file_count), sum(total_size) FROM "
+                    + metadataTable(table, "partitions"), rs -> {
+                statistics.setPartitionCount(partitionKeys.isEmpty() ? 0 : rs.getInt(1));
+                statistics.setRowCount(nullableLong(rs.getObject(2)));
+                Long fileCount = nullableLong(rs.getObject(3));
+                statistics.setFileCount(fileCount != null ? fileCount.intValue() : null);
+                statistics.setDataSize(nullableLong(rs.getObject(4)));
+            });
+        } catch (DataAccessException e) {
+            failures.add("分区汇总: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 抽样计算数值字段的等深直方图，一条查询计算全部数值字段
+     *
+     * 行数相对上次写入的变化不超过阈值时沿用已有直方图，不重新抽样。
+     */
+    private void loadHistograms(CatalogTable table, Long rowCount, Map<String, ColumnStatistics> columnStatistics,
+                                List<String> failures) {
+        TableMetadata previousMetadata = metadataService.getTableMetadata(table.schema, table.name);
+        Long previousRows = previousMetadata != null && previousMetadata.getStatistics() != null
+            ? previousMetadata.getStatistics().getRowCount() : null;
+        boolean unchanged = rowCount != null && previousRows != null
+            && Math.abs(rowCount - previousRows) <= histogramRefreshChange * Math.max(previousRows, 1L);
+        Map<String, ColumnStatistics> previousStatistics = metadataService.getColumnStatistics(table.schema, table.name);
+
+        List<String> sampled = new ArrayList<>();
+        for (CatalogColumn column : table.columns) {
+            ColumnStatistics current = columnStatistics.get(column.name);
+            if (current == null || !isNumeric(column.dataType)) {
+                continue;
+            }
+            ColumnStatistics previous = previousStatistics.get(column.name);
+            if (unchanged && previous != null && previous.getHistogram() != null) {
+                current.setHistogram(previous.getHistogram());
+            } else {
+                sampled.add(column.name);
+            }
+        }
+        if (sampled.isEmpty()) {
+            return;
+        }
+
+        StringBuilder percentiles = new StringBuilder("ARRAY[");
+        for (int i = 0; i <= histogramBuckets; i++) {
+            percentiles.append(i > 0 ? ", " : "").append((double) i / histogramBuckets);
+        }
+        percentiles.append(']');
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < sampled.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append("approx_percentile(CAST(").append(quote(sampled.get(i)))
+                .append(" AS double), ").append(percentiles).append(')');
+        }
+        sql.append(" FROM ").append(qualifiedTable(table))
+            .append(" TABLESAMPLE BERNOULLI (").append(histogramSamplePercent).append(')');
+        try {
+            jdbcTemplate.query(sql.toString(), rs -> {
+                for (int i = 0; i < sampled.size(); i++) {
+                    List<Double> bounds = histogramBounds(rs.getArray(i + 1));
+                    if (bounds != null) {
+                        columnStatistics.get(sampled.get(i)).setHistogram(bounds);
+                    }
+                }
+            });
+        } catch (DataAccessException e) {
+            failures.add("直方图: " + e.getMessage());
+        }
+    }
+
+    private static List<Double> histogramBounds(Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        Object[] values = (Object[]) array.getArray();
+        List<Double> bounds = new ArrayList<>(values.length);
+        for (Object value : values) {
+            if (!(value instanceof Number)) {
+                // 抽样结果为空时各分位数为 NULL
+                return null;
+            }
+            bounds.add(((Number) value).doubleValue());
+        }
+        return Collections.unmodifiableList(bounds);
+    }
+
+    private static boolean isNumeric(String dataType) {
+        String type = dataType.toLowerCase();
+        return type.equals("tinyint") || type.equals("smallint") || type.equals("integer") || type.equals("bigint")
+            || type.equals("real") || type.equals("double") || type.startsWith("decimal");
+    }
+
+    /**
+     * 组装一张表的元数据记录，Trino 中没有的信息（标签、负责人、字段敏感标记等）沿用已有值
+     */
+    private MetadataSnapshot.Entry assemble(CatalogTable table, Snapshot snapshot, List<String> partitionKeys, TableStatistics statistics,
+                         Map<String, ColumnStatistics> columnStatistics, String syncToken) {
+        TableInfo previousInfo = metadataService.getTableInfo(table.schema, table.name);
+        TableMetadata previousMetadata = metadataService.getTableMetadata(table.schema, table.name);
+        TableSchema previousSchema = metadataService.getTableSchema(table.schema, table.name);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lastModified = snapshot != null && snapshot.committedAt != null ? snapshot.committedAt : now;
+        String tableType = table.isView() ? "VIEW" : defaultTableType;
+        String description = table.comment != null ? table.comment
+            : previousInfo != null ? previousInfo.getDescription() : null;
+        String owner = previousInfo != null ? previousInfo.getOwner() : null;
+
+        Map<String, ColumnInfo> previousColumns = previousSchema != null && previousSchema.getColumns() != null
+            ? previousSchema.getColumns().stream()
+                .collect(Collectors.toMap(ColumnInfo::getName, Function.identity(), (a, b) -> a))
+            : Collections.emptyMap();
+        List<ColumnInfo> columns = new ArrayList<>(table.columns.size());
+        for (CatalogColumn catalogColumn : table.columns) {
+            ColumnInfo previous = previousColumns.get(catalogColumn.name);
+            ColumnInfo column = new ColumnInfo();
+            column.setName(catalogColumn.name);
+            column.setDataType(catalogColumn.dataType);
+            column.setNullable(catalogColumn.nullable);
+            column.setComment(previous != null ? previous.getComment() : null);
+            column.setSensitive(previous != null && Boolean.TRUE.equals(previous.getSensitive()));
+            column.setStatistics(columnStatistics.get(catalogColumn.name));
+            columns.add(column);
+        }
+        Set<String> partitionKeySet = new HashSet<>(partitionKeys);
+
+        TableInfo info = new TableInfo();
+        info.setTableName(table.name);
+        info.setDatabase(table.schema);
+        info.setTableType(tableType);
+        info.setDescription(description);
+        info.setTags(previousInfo != null ? previousInfo.getTags() : Collections.emptyList());
+        info.setOwner(owner);
+        info.setCreatedAt(previousInfo != null ? previousInfo.getCreatedAt() : lastModified);
+        info.setLastModified(lastModified);
+        info.setRowCount(statistics != null ? statistics.getRowCount() : null);
+        info.setDataSize(statistics != null ? statistics.getDataSize() : null);
+
+        TableMetadata metadata = new TableMetadata();
+        metadata.setTableName(table.name);
+        metadata.setDatabase(table.schema);
+        metadata.setTableType(tableType);
+        metadata.setLocation(previousMetadata != null ? previousMetadata.getLocation() : null);
+        metadata.setPartitionKeys(partitionKeys);
+        metadata.setOwner(owner);
+        metadata.setDescription(description);
+        metadata.setLastModified(lastModified);
+        metadata.setStatistics(statistics);
+
+        TableSchema schema = TableSchema.builder()
+            .tableName(table.name)
+            .columns(Collections.unmodifiableList(columns))
+            .partitionColumns(columns.stream()
+                .filter(column -> partitionKeySet.contains(column.getName()))
+                .collect(Collectors.toList()))
+            .primaryKeys(previousSchema != null && previousSchema.getPrimaryKeys() != null
+                ? previousSchema.getPrimaryKeys() : Collections.emptyList())
+            .build();
+
+        return new MetadataSnapshot.Entry(info, metadata, schema, syncToken);
+    }
+
+    // ========== 辅助方法 ==========
+
+    private String qualifiedTable(CatalogTable table) {
+        return quote(catalog) + "." + quote(table.schema) + "." + quote(table.name);
+    }
+
+    private String metadataTable(CatalogTable table, String suffix) {
+        return quote(catalog) + "." + quote(table.schema) + "." + quote(table.name + "$" + suffix);
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * 解析 row(a date, "b c" bigint) 形式的类型，返回顶层字段名
+     */
+    static List<String> rowFieldNames(String rowType) {
+        if (rowType == null) {
+            return Collections.emptyList();
+        }
+        String type = rowType.trim();
+        if (!type.toLowerCase().startsWith("row(") || !type.endsWith(")")) {
+            return Collections.emptyList();
+        }
+        String body = type.substring(4, type.length() - 1);
+        List<String> names = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i <= body.length(); i++) {
+            char c = i < body.length() ? body.charAt(i) : ',';
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+            } else if (!quoted && depth == 0 && c == ',') {
+                String field = body.substring(start, i).trim();
+                if (!field.isEmpty()) {
+                    names.add(fieldName(field));
+                }
+                start = i + 1;
+            }
+        }
+        return names;
+    }
+
+    private static String fieldName(String field) {
+        if (field.startsWith("\"")) {
+            int end = field.indexOf('"', 1);
+            while (end > 0 && end + 1 < field.length() && field.charAt(end + 1) == '"') {
+                end = field.indexOf('"', end + 2);
+            }
+            return end > 0 ? field.substring(1, end).replace("\"\"", "\"") : field;
+        }
+        int space = field.indexOf(' ');
+        return space > 0 ? field.substring(0, space) : field;
+    }
+
+    private static Long nullableLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private static Double nullableDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class CatalogTable {
+        final String schema;
+        final String name;
+        final String type;
+        final List<CatalogColumn> columns = new ArrayList<>();
+        String comment;
+
+        CatalogTable(String schema, String name, String type) {
+            this.schema = schema;
+            this.name = name;
+            this.type = type;
+        }
+
+        String key() {
+            return schema + "." + name;
+        }
+
+        boolean isView() {
+            return "VIEW".equalsIgnoreCase(type);
+        }
+
+        /**
+         * 表类型、注释和字段定义的摘要，用于判断结构是否变化
+         */
+        String signature() {
+            StringBuilder canonical = new StringBuilder().append(type).append('|').append(comment);
+            for (CatalogColumn column : columns) {
+                canonical.append('|').append(column.name).append(':').append(column.dataType)
+                    .append(':').append(column.nullable);
+            }
+            return CompiledTablePermission.sha256Hex(canonical.toString());
+        }
+    }
+
+    private static final class CatalogColumn {
+        final String name;
+        final String dataType;
+        final boolean nullable;
+
+        CatalogColumn(String name, String dataType, boolean nullable) {
+            this.name = name;
+            this.dataType = dataType;
+            this.nullable = nullable;
+        }
+    }
+
+    private static final class Snapshot {
+        final long id;
+        final LocalDateTime committedAt;
+
+        Snapshot(long id, LocalDateTime committedAt) {
+            this.id = id;
+            this.committedAt = committedAt;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.graphqldgstrino.service;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import com.example.graphqldgstrino.service.dataplatform.AsyncQueryScheduler;
+import com.example.graphqldgstrino.service.dataplatform.PermissionService;
+import com.example.graphqldgstrino.service.dataplatform.QueryCostEstimator;
+import com.example.graphqldgstrino.service.dataplatform.QueryResultSpool;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataPlatformServiceTest {
+
+    private static final String TRINO_QUERY_ID = "20261019_080000_00001_abcde";
+
+    @TempDir
+    Path spoolDirectory;
+
+    private HttpServer coordinator;
+    private ExecutorService coordinatorExecutor;
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+    // 协调节点在返回 RUNNING 页和最后一页之前等待测试放行，测试借此观察中间状态
+    private final CountDownLatch releaseRunning = new CountDownLatch(1);
+    private final CountDownLatch releaseFinished = new CountDownLatch(1);
+
+    private AsyncQueryScheduler scheduler;
+    private QueryResultSpool spool;
+    private PermissionService permissionService;
+    private DataPlatformService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        coordinatorExecutor = Executors.newCachedThreadPool();
+        coordinator = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        coordinator.createContext("/v1/statement", this::handleStatement);
+        coordinator.setExecutor(coordinatorExecutor);
+        coordinator.start();
+
+        scheduler = new AsyncQueryScheduler();
+        ReflectionTestUtils.setField(scheduler, "highPriorityConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "defaultConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "batchConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "interactiveConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "maxQueued", 10);
+        ReflectionTestUtils.setField(scheduler, "userMaxConcurrency", 2);
+        ReflectionTestUtils.setField(scheduler, "agingIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(scheduler, "acquireTimeoutMs", 200L);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.init();
+
+        spool = new QueryResultSpool();
+        ReflectionTestUtils.setField(spool, "spoolDir", spoolDirectory.toString());
+        ReflectionTestUtils.setField(spool, "chunkRows", 2);
+        ReflectionTestUtils.setField(spool, "resultTtlMs", 3_600_000L);
+        spool.init();
+
+        permissionService = new PermissionService();
+        permissionService.updateUserPermissions(user("u1", "SELECT"));
+
+        String url = "jdbc:trino://127.0.0.1:" + coordinator.getAddress().getPort() + "?user=u1&explicitPrepare=false";
+        service = new DataPlatformService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", new JdbcTemplate(new DriverManagerDataSource(url)));
+        ReflectionTestUtils.setField(service, "permissionService", permissionService);
+        QueryCostEstimator costEstimator = new QueryCostEstimator();
+        ReflectionTestUtils.setField(costEstimator, "defaultDurationMillis", 60_000L);
+        ReflectionTestUtils.setField(service, "costEstimator", costEstimator);
+        ReflectionTestUtils.setField(service, "asyncQueryScheduler", scheduler);
+        ReflectionTestUtils.setField(service, "resultSpool", spool);
+        ReflectionTestUtils.setField(service, "maxResultPageSize", 100);
+        ReflectionTestUtils.setField(service, "batchThresholdMillis", 300_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseRunning.countDown();
+        releaseFinished.countDown();
+        scheduler.shutdown();
+        spool.shutdown();
+        coordinator.stop(0);
+        coordinatorExecutor.shutdownNow();
+    }
+
+    @Test
+    void tableScanReportsTrinoStatementProgress() throws Exception {
+        AsyncQueryTask task = service.submitAsyncQuery(tableScan("users"), "u1");
+
+        // 协调节点返回的第一页：查询在 Trino 资源组中排队
+        QueryTaskStatus queued = awaitStatus(task.getTaskId(),
+            status -> status.getTrinoQueryId() != null && status.getStatus() == QueryStatus.QUEUED);
+        assertEquals(QueryStatus.QUEUED, queued.getStatus());
+        assertEquals(TRINO_QUERY_ID, queued.getTrinoQueryId());
+        assertEquals(Integer.valueOf(0), queued.getRowsProcessed());
+        assertEquals(0.0f, queued.getProgress());
+
+        releaseRunning.countDown();
+        QueryTaskStatus running = awaitStatus(task.getTaskId(), status -> status.getStatus() == QueryStatus.RUNNING);
+        assertEquals(TRINO_QUERY_ID, running.getTrinoQueryId());
+        assertEquals(Integer.valueOf(100), running.getRowsProcessed());
+        assertEquals(0.25f, running.getProgress(), 0.0001f);
+
+        releaseFinished.countDown();
+        // 状态先于 future 完成更新，结果可读后进度才为 1
+        QueryTaskStatus completed = awaitStatus(task.getTaskId(),
+            status -> status.getStatus() == QueryStatus.COMPLETED && status.getProgress() == 1.0f);
+        assertEquals(Integer.valueOf(300), completed.getRowsProcessed());
+        assertNull(completed.getError());
+
+        QueryResult result = service.getQueryResult(task.getTaskId(), null, "u1");
+        assertEquals(Integer.valueOf(3), result.getTotalCount());
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(result.getData()));
+        assertTrue(statements.get(0).contains("FROM users"), statements.get(0));
+    }
+
+    @Test
+    void unsupportedQueryTypeIsRejectedAtSubmit() {
+        AsyncQueryInput input = new AsyncQueryInput();
+        input.setQueryType(QueryType.SQL);
+        input.setQuery("SELECT * FROM users");
+        input.setPriority(QueryPriority.NORMAL);
+
+        UnsupportedOperationException error = assertThrows(UnsupportedOperationException.class,
+            () -> service.submitAsyncQuery(input, "u1"));
+        assertTrue(error.getMessage().contains("SQL"), error.getMessage());
+
+        AsyncQueryInput missingTable = tableScan(null);
+        assertThrows(IllegalArgumentException.class, () -> service.submitAsyncQuery(missingTable, "u1"));
+        assertTrue(statements.isEmpty());
+    }
+
+    @Test
+    void spooledResultIsReadableOnlyBySubmitter() throws Exception {
+        releaseRunning.countDown();
+        releaseFinished.countDown();
+        permissionService.updateUserPermissions(user("u2", "SELECT"));
+        AsyncQueryTask task = service.submitAsyncQuery(tableScan("users"), "u1");
+        awaitStatus(task.getTaskId(),
+            status -> status.getStatus() == QueryStatus.COMPLETED && status.getProgress() == 1.0f);
+
+        // 结果已按 u1 的权限脱敏，同样有表权限的其他用户也不能读取
+        assertThrows(SecurityException.class, () -> service.getQueryResult(task.getTaskId(), null, "u2"));
+        assertThrows(SecurityException.class, () -> service.getQueryResult(task.getTaskId(), null, null));
+        assertEquals(Integer.valueOf(3), service.getQueryResult(task.getTaskId(), null, "u1").getTotalCount());
+    }
+
+    @Test
+    void finishedTaskIsEvictedWithItsResult() throws Exception {
+        releaseRunning.countDown();
+        releaseFinished.countDown();
+        AsyncQueryTask task = service.submitAsyncQuery(tableScan("users"), "u1");
+        awaitStatus(task.getTaskId(),
+            status -> status.getStatus() == QueryStatus.COMPLETED && status.getProgress() == 1.0f);
+        assertNotNull(spool.get(task.getTaskId()));
+
+        // 任务在 future 完成的回调中登记过期，回调可能稍晚于 future 完成执行
+        ReflectionTestUtils.setField(spool, "resultTtlMs", 0L);
+        Map<?, ?> queryTasks = (Map<?, ?>) ReflectionTestUtils.getField(service, "queryTasks");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!queryTasks.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5L);
+            ReflectionTestUtils.invokeMethod(spool, "removeExpired");
+        }
+
+        assertNull(spool.get(task.getTaskId()));
+        assertThrows(IllegalArgumentException.class, () -> service.getQueryTaskStatus(task.getTaskId()));
+        for (String field : Arrays.asList("queryTasks", "runningQueries", "taskEstimates", "trinoStats")) {
+            assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(service, field)).isEmpty(), field);
+        }
+    }
+
+    @Test
+    void pushedDownQueryWithoutReadableFieldsIsRejected() {
+        ReflectionTestUtils.setField(service, "maskingPushdown", true);
+        UpdatePermissionsInput input = user("u2", "SELECT");
+        input.getTablePermissions().get(0).setFieldPermissions(Arrays.asList(
+            field("password", FieldPermissionType.DENY, null),
+            field("id_card", FieldPermissionType.DENY, null)));
+        permissionService.updateUserPermissions(input);
+
+        // 没有可读字段时不能退回 SELECT *，否则被拒绝的字段原样返回
+        assertThrows(SecurityException.class,
+            () -> service.queryByTable("users", null, null, null, null, "u2"));
+        assertThrows(SecurityException.class,
+            () -> service.queryByTable("users", null, null, Collections.emptyList(), null, "u2"));
+        assertThrows(SecurityException.class,
+            () -> service.queryByTable("users", null, null, Collections.singletonList("password"), null, "u2"));
+        assertTrue(statements.isEmpty());
+    }
+
+    // ========== 模拟的 Trino 协调节点 ==========
+
+    /**
+     * 按语句协议返回三页：排队、运行中（25% 的 split 完成）、完成并带回数据
+     */
+    private void handleStatement(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if ("DELETE".equals(method)) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if ("POST".equals(method)) {
+                statements.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                respond(exchange, page(nextUri(1), null, null,
+                    stats("QUEUED", true, false, null, 0, 0)));
+            } else if (path.endsWith("/1")) {
+                await(releaseRunning);
+                respond(exchange, page(nextUri(2), "[{\"name\":\"id\",\"type\":\"bigint\","
+                    + "\"typeSignature\":{\"rawType\":\"bigint\",\"arguments\":[]}}]", null,
+                    stats("RUNNING", false, true, 25.0, 1, 100)));
+            } else {
+                await(releaseFinished);
+                respond(exchange, page(null, "[{\"name\":\"id\",\"type\":\"bigint\","
+                    + "\"typeSignature\":{\"rawType\":\"bigint\",\"arguments\":[]}}]", "[[1],[2],[3]]",
+                    stats("FINISHED", false, true, 100.0, 4, 300)));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String nextUri(int token) {
+        return "http://127.0.0.1:" + coordinator.getAddress().getPort() + "/v1/statement/executing/"
+            + TRINO_QUERY_ID + "/" + token;
+    }
+
+    private String page(String nextUri, String columns, String data, String stats) {
+        StringBuilder json = new StringBuilder("{\"id\":\"").append(TRINO_QUERY_ID).append('"')
+            .append(",\"infoUri\":\"http://127.0.0.1:").append(coordinator.getAddress().getPort())
+            .append("/ui/query.html?").append(TRINO_QUERY_ID).append('"');
+        if (nextUri != null) {
+            json.append(",\"nextUri\":\"").append(nextUri).append('"');
+        }
+        if (columns != null) {
+            json.append(",\"columns\":").append(columns);
+        }
+        if (data != null) {
+            json.append(",\"data\":").append(data);
+        }
+        return json.append(",\"stats\":").append(stats).append(",\"warnings\":[]}").toString();
+    }
+
+    private static String stats(String state, boolean queued, boolean scheduled, Double progress,
+                                int completedSplits, long processedRows) {
+        return "{\"state\":\"" + state + "\",\"queued\":" + queued + ",\"scheduled\":" + scheduled
+            + (progress != null ? ",\"progressPercentage\":" + progress : "")
+            + ",\"nodes\":1,\"totalSplits\":4,\"queuedSplits\":0,\"runningSplits\":0"
+            + ",\"completedSplits\":" + completedSplits
+            + ",\"cpuTimeMillis\":10,\"wallTimeMillis\":10,\"queuedTimeMillis\":1,\"elapsedTimeMillis\":20"
+            + ",\"processedRows\":" + processedRows
+            + ",\"processedBytes\":0,\"physicalInputBytes\":0,\"physicalWrittenBytes\":0"
+            + ",\"peakMemoryBytes\":0,\"spilledBytes\":0}";
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== 辅助方法 ==========
+
+    private QueryTaskStatus awaitStatus(String taskId, Predicate<QueryTaskStatus> condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        QueryTaskStatus status = service.getQueryTaskStatus(taskId);
+        while (!condition.test(status)) {
+            if (System.nanoTime() > deadline) {
+                fail("任务状态未达到预期: " + status.getStatus() + ", error=" + status.getError());
+            }
+            Thread.sleep(10L);
+            status = service.getQueryTaskStatus(taskId);
+        }
+        return status;
+    }
+
+    private static AsyncQueryInput tableScan(String tableName) {
+        AsyncQueryInput input = new AsyncQueryInput();
+        input.setQueryType(QueryType.TABLE_SCAN);
+        input.setTableName(tableName);
+        input.setPriority(QueryPriority.NORMAL);
+        return input;
+    }
+
+    private static List<Object> ids(List<Map<String, Object>> rows) {
+        List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            ids.add(row.get("id"));
+        }
+        return ids;
+    }
+
+    private static UpdatePermissionsInput user(String userId, String... permissions) {
+        TablePermissionInput table = new TablePermissionInput();
+        table.setDatabase("ecommerce");
+        table.setTableName("users");
+        table.setPermissions(Arrays.asList(permissions));
+        UpdatePermissionsInput input = new UpdatePermissionsInput();
+        input.setUserId(userId);
+        input.setTablePermissions(new ArrayList<>(Collections.singletonList(table)));
+        return input;
+    }
+
+    private static FieldPermissionInput field(String name, FieldPermissionType type, String maskingRule) {
+        FieldPermissionInput field = new FieldPermissionInput();
+        field.setFieldName(name);
+        field.setPermission(type);
+        field.setMaskingRule(maskingRule);
+        return field;
+    }
+}
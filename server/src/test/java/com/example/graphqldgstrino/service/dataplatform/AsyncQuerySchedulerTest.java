@@ -0,0 +1,101 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncQuerySchedulerTest {
+
+    private AsyncQueryScheduler scheduler;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new AsyncQueryScheduler();
+        ReflectionTestUtils.setField(scheduler, "highPriorityConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "defaultConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "batchConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "interactiveConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "maxQueued", 10);
+        ReflectionTestUtils.setField(scheduler, "userMaxConcurrency", 1);
+        ReflectionTestUtils.setField(scheduler, "agingIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(scheduler, "acquireTimeoutMs", 200L);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void interactiveWorkIsNotBlockedByAsyncQueries() throws Exception {
+        scheduler.submit("t1", AsyncQueryScheduler.DEFAULT_GROUP, QueryPriority.NORMAL, "u1", this::block);
+        scheduler.submit("t2", AsyncQueryScheduler.DEFAULT_GROUP, QueryPriority.NORMAL, "u2", this::block);
+        scheduler.submit("t3", AsyncQueryScheduler.BATCH_GROUP, QueryPriority.LOW, "u1", this::block);
+
+        assertEquals("ok", scheduler.runInteractive(() -> "ok"));
+        assertEquals(Integer.valueOf(1), scheduler.getQueuePosition("t2"));
+    }
+
+    @Test
+    void interactiveSlotsAreBoundedAndTimeOut() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> scheduler.runInteractive(() -> {
+                started.countDown();
+                return block();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertThrows(IllegalStateException.class, () -> scheduler.runInteractive(() -> "late"));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void asyncQueriesCannotUseInteractiveSlots() throws Exception {
+        // 未知的组（包括 interactive）按 default 处理
+        scheduler.submit("t1", AsyncQueryScheduler.INTERACTIVE_GROUP, QueryPriority.NORMAL, "u1", this::block);
+        scheduler.submit("t2", AsyncQueryScheduler.DEFAULT_GROUP, QueryPriority.NORMAL, "u2", this::block);
+
+        assertEquals(Integer.valueOf(1), scheduler.getQueuePosition("t2"));
+        assertEquals("ok", scheduler.runInteractive(() -> "ok"));
+    }
+
+    @Test
+    void higherPriorityRunsFirst() throws Exception {
+        scheduler.submit("t1", AsyncQueryScheduler.DEFAULT_GROUP, QueryPriority.NORMAL, "u1", this::block);
+        CompletableFuture<String> low = scheduler.submit("low", AsyncQueryScheduler.DEFAULT_GROUP,
+            QueryPriority.LOW, "u2", () -> "low");
+        CompletableFuture<String> urgent = scheduler.submit("urgent", AsyncQueryScheduler.DEFAULT_GROUP,
+            QueryPriority.URGENT, "u3", () -> "urgent");
+
+        assertEquals(Integer.valueOf(1), scheduler.getQueuePosition("urgent"));
+        assertEquals(Integer.valueOf(2), scheduler.getQueuePosition("low"));
+        release.countDown();
+        assertEquals("urgent", urgent.get(5, TimeUnit.SECONDS));
+        assertEquals("low", low.get(5, TimeUnit.SECONDS));
+    }
+
+    private String block() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
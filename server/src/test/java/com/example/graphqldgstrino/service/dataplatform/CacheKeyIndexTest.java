@@ -0,0 +1,52 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheKeyIndexTest {
+
+    private final CacheKeyIndex index = new CacheKeyIndex();
+
+    @Test
+    void keyCanBeRegisteredUnderSeveralUsers() {
+        index.add("k1", "orders", Arrays.asList("u1", "u2"));
+        index.add("k2", "orders", Collections.singleton("u1"));
+
+        assertEquals(new HashSet<>(Arrays.asList("k1", "k2")), index.keysForUser("u1"));
+        assertEquals(Collections.singleton("k1"), index.keysForUser("u2"));
+        assertEquals(new HashSet<>(Arrays.asList("k1", "k2")), index.keysForTable("orders"));
+    }
+
+    @Test
+    void exactUserLookupIgnoresWildcards() {
+        index.add("k1", "orders", Collections.singleton("u1"));
+        index.add("k2", "orders", Collections.singleton("u*"));
+
+        assertEquals(Collections.singleton("k2"), index.keysForUser("u*"));
+        assertEquals(new HashSet<>(Arrays.asList("k1", "k2")), index.keysForUsers(GlobPattern.compile("u*")));
+    }
+
+    @Test
+    void removeDropsEmptyBuckets() {
+        index.add("k1", "orders", Arrays.asList("u1", "u2"));
+        index.remove("k1", "orders", Arrays.asList("u1", "u2"));
+
+        assertTrue(index.keysForUser("u1").isEmpty());
+        assertTrue(index.matchTables(GlobPattern.compile("orders")).isEmpty());
+        assertTrue(index.matchTables(GlobPattern.compile("*")).isEmpty());
+    }
+
+    @Test
+    void matchTablesByPattern() {
+        index.add("k1", "ecommerce.orders", Collections.singleton("u1"));
+        index.add("k2", "ecommerce.users", Collections.singleton("u1"));
+        index.add("k3", "finance.ledger", Collections.singleton("u1"));
+
+        assertEquals(new HashSet<>(Arrays.asList("ecommerce.orders", "ecommerce.users")),
+            index.matchTables(GlobPattern.compile("ecommerce.*")));
+        assertEquals(Collections.singleton("finance.ledger"), index.matchTables(GlobPattern.compile("finance.ledger")));
+    }
+}
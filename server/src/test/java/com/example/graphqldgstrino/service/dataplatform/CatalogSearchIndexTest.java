@@ -0,0 +1,129 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSearchIndexTest {
+
+    private CatalogSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CatalogSearchIndex();
+        index.put(table("ecommerce", "orders", "Customer orders", "sales"), schema("order_id", "user_id", "amount"));
+        index.put(table("ecommerce", "order_items", "Line items", "sales"), schema("order_id", "sku"));
+        index.put(table("ecommerce", "users", "Registered users", "pii"), schema("user_id", "email", "phone"));
+        index.put(table("finance", "ledger", "General ledger for orders", "finance"), null);
+    }
+
+    @Test
+    void exactNameRanksAbovePrefixAndContains() {
+        assertEquals(Arrays.asList("ecommerce.orders", "finance.ledger"),
+            keys(index.search("orders", null, null, 0, 10)));
+        // 得分相同时按写入顺序
+        assertEquals(Arrays.asList("ecommerce.orders", "ecommerce.order_items", "finance.ledger"),
+            keys(index.search("order", null, null, 0, 10)));
+        assertEquals("ecommerce.order_items", keys(index.search("items", null, null, 0, 10)).get(0));
+    }
+
+    @Test
+    void everyTermMustMatchSomeField() {
+        assertEquals(Collections.singletonList("ecommerce.users"), keys(index.search("pii email", null, null, 0, 10)));
+        assertTrue(index.search("pii sku", null, null, 0, 10).isEmpty());
+        assertTrue(index.search("nothing", null, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    void shortTermsUsePrefixLookup() {
+        assertEquals(new HashSet<>(Arrays.asList("ecommerce.order_items")),
+            new HashSet<>(keys(index.search("sk", null, null, 0, 10))));
+        // 单个字符出现在文本末尾也能找到
+        assertTrue(keys(index.search("x", null, null, 0, 10)).isEmpty());
+        assertEquals(4, index.search("e", null, null, 0, 10).size());
+    }
+
+    @Test
+    void databaseScopeAndPaging() {
+        assertEquals(Collections.singletonList("finance.ledger"), keys(index.search("orders", "finance", null, 0, 10)));
+        Set<String> scope = new HashSet<>(Arrays.asList("ecommerce.orders", "finance.ledger"));
+        assertEquals(Arrays.asList("ecommerce.orders", "finance.ledger"), keys(index.search("orders", null, scope, 0, 10)));
+
+        List<String> all = keys(index.search("", null, null, 0, 10));
+        assertEquals(4, all.size());
+        assertEquals(all.subList(1, 3), keys(index.search(null, null, null, 1, 2)));
+        assertTrue(index.search("orders", null, null, 0, 0).isEmpty());
+    }
+
+    @Test
+    void replaceAndRemoveUpdateResults() {
+        index.put(table("ecommerce", "orders", "Archived", "archive"), schema("id"));
+        assertEquals(4, index.size());
+        assertTrue(keys(index.search("amount", null, null, 0, 10)).isEmpty());
+        assertEquals(Collections.singletonList("ecommerce.orders"), keys(index.search("archive", null, null, 0, 10)));
+
+        index.remove("ecommerce", "orders");
+        assertEquals(3, index.size());
+        assertFalse(keys(index.search("orders", null, null, 0, 10)).contains("ecommerce.orders"));
+    }
+
+    @Test
+    void matchesSameTablesAsSubstringScan() {
+        Random random = new Random(42);
+        String alphabet = "abcde_";
+        CatalogSearchIndex randomIndex = new CatalogSearchIndex();
+        Map<String, String> texts = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String name = randomWord(random, alphabet, 3 + random.nextInt(8)) + i;
+            String description = randomWord(random, alphabet, random.nextInt(12));
+            randomIndex.put(table("db", name, description), null);
+            texts.put("db." + name, name + " " + description);
+        }
+        for (int i = 0; i < 200; i++) {
+            String term = randomWord(random, alphabet, 1 + random.nextInt(4));
+            Set<String> expected = texts.entrySet().stream()
+                .filter(entry -> entry.getValue().contains(term))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+            Set<String> actual = new HashSet<>(keys(randomIndex.search(term, null, null, 0, 1000)));
+            assertEquals(expected, actual, term);
+        }
+    }
+
+    private static String randomWord(Random random, String alphabet, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return word.toString();
+    }
+
+    private static TableInfo table(String database, String name, String description, String... tags) {
+        TableInfo table = new TableInfo();
+        table.setDatabase(database);
+        table.setTableName(name);
+        table.setDescription(description);
+        table.setTags(Arrays.asList(tags));
+        return table;
+    }
+
+    private static TableSchema schema(String... columns) {
+        TableSchema schema = new TableSchema();
+        schema.setColumns(Arrays.stream(columns).map(name -> {
+            ColumnInfo column = new ColumnInfo();
+            column.setName(name);
+            return column;
+        }).collect(Collectors.toList()));
+        return schema;
+    }
+
+    private static List<String> keys(List<TableInfo> tables) {
+        return tables.stream().map(table -> table.getDatabase() + "." + table.getTableName()).collect(Collectors.toList());
+    }
+}
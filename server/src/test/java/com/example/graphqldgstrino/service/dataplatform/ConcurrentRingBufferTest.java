@@ -0,0 +1,81 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentRingBufferTest {
+
+    @Test
+    void returnsLatestElementsInWriteOrder() {
+        ConcurrentRingBuffer<Integer> buffer = new ConcurrentRingBuffer<>(4);
+        for (int i = 0; i < 3; i++) {
+            buffer.add(i);
+        }
+
+        assertEquals(Arrays.asList(0, 1, 2), buffer.latest(10));
+        assertEquals(Arrays.asList(1, 2), buffer.latest(2));
+        assertEquals(Collections.emptyList(), buffer.latest(0));
+    }
+
+    @Test
+    void overwritesOldestWhenFull() {
+        ConcurrentRingBuffer<Integer> buffer = new ConcurrentRingBuffer<>(3);
+        for (int i = 0; i < 7; i++) {
+            buffer.add(i);
+        }
+
+        assertEquals(Arrays.asList(4, 5, 6), buffer.latest(10));
+        assertEquals(7, buffer.totalAdded());
+        assertEquals(3, buffer.capacity());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentRingBuffer<>(0));
+    }
+
+    @Test
+    void concurrentWritersNeverProduceDuplicatesOrGaps() throws InterruptedException {
+        int threads = 8;
+        int perThread = 10_000;
+        ConcurrentRingBuffer<Integer> buffer = new ConcurrentRingBuffer<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean duplicateSeen = new AtomicBoolean();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    buffer.add(base + i);
+                    List<Integer> latest = buffer.latest(64);
+                    if (latest.size() != new HashSet<>(latest).size()) {
+                        duplicateSeen.set(true);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertFalse(duplicateSeen.get());
+
+        assertEquals((long) threads * perThread, buffer.totalAdded());
+        List<Integer> latest = buffer.latest(64);
+        assertEquals(64, latest.size());
+        assertEquals(64, new HashSet<>(latest).size());
+    }
+}
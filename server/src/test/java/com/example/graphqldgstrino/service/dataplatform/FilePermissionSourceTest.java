@@ -0,0 +1,120 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePermissionSourceTest {
+
+    @TempDir
+    Path directory;
+
+    private long modifiedAt = 1_000_000L;
+
+    @Test
+    void incrementalSyncReturnsOnlyChangedAndRemovedUsers() throws IOException {
+        Path file = write(user("u1", "READ"), user("u2", "READ"), user("u3", "READ"));
+        FilePermissionSource source = new FilePermissionSource(file);
+        PermissionChangeSet full = source.loadAll();
+        assertEquals(3, full.getUpserts().size());
+        source.commit(full);
+
+        write(user("u1", "READ"), user("u2", "READ", "SELECT"));
+        PermissionChangeSet changes = source.changesSince(full.getCursor());
+
+        assertFalse(changes.isFullSnapshot());
+        assertEquals(Collections.singletonList("u2"), userIds(changes));
+        assertEquals(Collections.singleton("u3"), changes.getRemovedUserIds());
+    }
+
+    @Test
+    void uncommittedChangesAreReturnedAgain() throws IOException {
+        Path file = write(user("u1", "READ"));
+        FilePermissionSource source = new FilePermissionSource(file);
+        PermissionChangeSet full = source.loadAll();
+        source.commit(full);
+
+        write(user("u1", "READ", "SELECT"));
+        PermissionChangeSet failed = source.changesSince(full.getCursor());
+        assertEquals(Collections.singletonList("u1"), userIds(failed));
+
+        // 上一次应用失败没有提交，同步任务用旧游标重试，仍应返回同样的变更
+        PermissionChangeSet retried = source.changesSince(full.getCursor());
+        assertEquals(Collections.singletonList("u1"), userIds(retried));
+        source.commit(retried);
+
+        touch(file);
+        assertTrue(source.changesSince(retried.getCursor()).getUpserts().isEmpty());
+    }
+
+    @Test
+    void unparsableEntryIsSkippedWithoutAbortingBatch() throws IOException {
+        Path file = write(user("u1", "READ"));
+        FilePermissionSource source = new FilePermissionSource(file);
+        PermissionChangeSet full = source.loadAll();
+        source.commit(full);
+
+        String broken = "{\"userId\": \"u1\", \"maxResultRows\": \"many\"}";
+        write(broken, user("u2", "READ"));
+        PermissionChangeSet changes = source.changesSince(full.getCursor());
+
+        assertEquals(Collections.singletonList("u2"), userIds(changes));
+        // u1 仍在文件中，保留原有授权，不作为删除处理
+        assertTrue(changes.getRemovedUserIds().isEmpty());
+        source.commit(changes);
+
+        // 修正后重新加载
+        write(user("u1", "READ", "SELECT"), user("u2", "READ"));
+        assertEquals(Collections.singletonList("u1"), userIds(source.changesSince(changes.getCursor())));
+    }
+
+    @Test
+    void appliedThroughPermissionService() throws IOException {
+        Path file = write(user("u1", "READ"));
+        FilePermissionSource source = new FilePermissionSource(file);
+        PermissionService service = new PermissionService();
+        PermissionChangeSet full = source.loadAll();
+        service.applyChanges(full);
+        source.commit(full);
+
+        // 内置的模拟用户在全量加载中被删除
+        assertNotNull(service.getUserPermissions("u1"));
+        assertNull(service.getUserPermissions("admin"));
+        assertTrue(service.hasTablePermission(service.getUserPermissions("u1"), "users", "READ"));
+    }
+
+    private Path write(String... users) throws IOException {
+        Path file = directory.resolve("permissions.json");
+        String json = "{\"users\": [" + String.join(",", users) + "]}";
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        touch(file);
+        return file;
+    }
+
+    private void touch(Path file) throws IOException {
+        // 游标由修改时间和大小组成，显式推进修改时间避免同一毫秒内写入
+        modifiedAt += 1000L;
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedAt));
+    }
+
+    private static String user(String userId, String... permissions) {
+        String quoted = Arrays.stream(permissions).map(p -> "\"" + p + "\"").collect(Collectors.joining(","));
+        return "{\"userId\": \"" + userId + "\", \"tablePermissions\": [{\"database\": \"ecommerce\","
+            + " \"tableName\": \"users\", \"permissions\": [" + quoted + "]}]}";
+    }
+
+    private static List<String> userIds(PermissionChangeSet changes) {
+        return changes.getUpserts().stream().map(UpdatePermissionsInput::getUserId).collect(Collectors.toList());
+    }
+}
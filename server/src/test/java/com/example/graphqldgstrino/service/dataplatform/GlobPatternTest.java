@@ -0,0 +1,57 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobPatternTest {
+
+    @Test
+    void literalMatchesExactly() {
+        GlobPattern pattern = GlobPattern.compile("orders");
+        assertTrue(pattern.isLiteral());
+        assertEquals("orders", pattern.getLiteral());
+        assertTrue(pattern.matches("orders"));
+        assertFalse(pattern.matches("orders_v2"));
+        assertFalse(pattern.matches(null));
+    }
+
+    @Test
+    void prefixSuffixAndInfix() {
+        assertTrue(GlobPattern.compile("ecommerce.*").matches("ecommerce.orders"));
+        assertFalse(GlobPattern.compile("ecommerce.*").matches("finance.orders"));
+        assertTrue(GlobPattern.compile("*_log").matches("access_log"));
+        assertFalse(GlobPattern.compile("*_log").matches("access_logs"));
+        assertTrue(GlobPattern.compile("*pii*").matches("user_pii_v1"));
+        assertTrue(GlobPattern.compile("*").matches(""));
+    }
+
+    @Test
+    void questionMarkMatchesSingleCharacter() {
+        GlobPattern pattern = GlobPattern.compile("u100?");
+        assertFalse(pattern.isLiteral());
+        assertTrue(pattern.matches("u1001"));
+        assertFalse(pattern.matches("u100"));
+        assertFalse(pattern.matches("u10011"));
+    }
+
+    @Test
+    void regexMetacharactersAreLiteral() {
+        GlobPattern pattern = GlobPattern.compile("a.b*c(d)");
+        assertTrue(pattern.matches("a.bxyzc(d)"));
+        assertFalse(pattern.matches("aXbxyzc(d)"));
+        assertTrue(GlobPattern.compile("[x]?").matches("[x]1"));
+    }
+
+    @Test
+    void literalPrefixStopsAtFirstWildcard() {
+        assertEquals("ecommerce.", GlobPattern.compile("ecommerce.*_v?").getLiteralPrefix());
+        assertEquals("", GlobPattern.compile("*orders").getLiteralPrefix());
+        assertEquals("orders", GlobPattern.compile("orders").getLiteralPrefix());
+    }
+
+    @Test
+    void nullPatternIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> GlobPattern.compile(null));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimerWheelTest {
+
+    private static final long TICK = 1000L;
+
+    @Test
+    void expiresElementsAtTheirDeadline() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 0L);
+        wheel.schedule("a", 3_000L);
+        wheel.schedule("b", 5_000L);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(2_999L, expired::add));
+        assertEquals(1, wheel.advance(3_000L, expired::add));
+        assertEquals(Collections.singletonList("a"), expired);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(5_000L, expired::add);
+        assertEquals(Arrays.asList("a", "b"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void roundsDeadlinesUpToTheNextTick() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 0L);
+        wheel.schedule("a", 1_500L);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(1_999L, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(2_000L, expired::add);
+        assertEquals(Collections.singletonList("a"), expired);
+    }
+
+    @Test
+    void pastDeadlinesExpireOnTheNextTick() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 10_000L);
+        wheel.schedule("late", 1_000L);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(10_999L, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(11_000L, expired::add);
+        assertEquals(Collections.singletonList("late"), expired);
+    }
+
+    @Test
+    void cascadesFromHigherLevelsWithoutExpiringEarly() {
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(TICK, 0L);
+        // 覆盖第 0~3 层以及超出时间轮范围的到期时间
+        long[] deadlineTicks = {1, 63, 64, 65, 4_095, 4_096, 4_097, 262_143, 262_144, 300_000, 20_000_000};
+        for (long tick : deadlineTicks) {
+            wheel.schedule(tick, tick * TICK);
+        }
+
+        List<Long> expired = new ArrayList<>();
+        long now = 0;
+        for (long tick : deadlineTicks) {
+            wheel.advance((tick - 1) * TICK, expired::add);
+            assertFalse(expired.contains(tick), "提前到期: " + tick);
+            wheel.advance(tick * TICK, expired::add);
+            assertEquals(tick, expired.get(expired.size() - 1), "未按时到期: " + tick);
+            now = tick;
+        }
+        assertEquals(deadlineTicks.length, expired.size());
+        assertEquals(now * TICK, wheel.currentTimeMillis());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void matchesANaiveScheduleForRandomDeadlines() {
+        Random random = new Random(7);
+        HierarchicalTimerWheel<Integer> wheel = new HierarchicalTimerWheel<>(TICK, 0L);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            long deadline = (1 + random.nextInt(10_000)) * TICK;
+            deadlines.put(i, deadline);
+            wheel.schedule(i, deadline);
+        }
+
+        Map<Integer, Long> expiredAt = new HashMap<>();
+        for (long now = 0; now <= 10_000 * TICK; now += 37 * TICK) {
+            long current = now;
+            wheel.advance(now, value -> expiredAt.put(value, current));
+        }
+        wheel.advance(10_001 * TICK, value -> expiredAt.put(value, 10_001 * TICK));
+
+        assertEquals(deadlines.keySet(), expiredAt.keySet());
+        for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+            long at = expiredAt.get(entry.getKey());
+            assertTrue(at >= entry.getValue() && at < entry.getValue() + 37 * TICK,
+                "到期时间不正确: " + entry.getKey());
+        }
+    }
+
+    @Test
+    void clearDropsPendingElements() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 0L);
+        wheel.schedule("a", 2_000L);
+        wheel.schedule("b", 600_000L);
+        wheel.clear();
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(1_000_000L, expired::add);
+        assertTrue(expired.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rejectsNonPositiveTick() {
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimerWheel<String>(0L, 0L));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaskingPlanTest {
+
+    private final CompiledTablePermission users = new CompiledTablePermission(table(
+        field("id", FieldPermissionType.ALLOW, null),
+        field("email", FieldPermissionType.MASK, "email_mask"),
+        field("phone", FieldPermissionType.MASK, "phone_mask"),
+        field("id_card", FieldPermissionType.HASH, null),
+        field("password", FieldPermissionType.DENY, null)));
+
+    @Test
+    void appliesRulesAndDropsDeniedColumns() {
+        MaskingPlan plan = MaskingPlan.compile(users, Arrays.asList("id", "email", "phone", "id_card", "password"));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("id", 1, "email", "alice@example.com", "phone", "13812345678", "id_card", "abc", "password", "x"));
+
+        plan.apply(rows);
+
+        Map<String, Object> masked = rows.get(0);
+        assertEquals(1, masked.get("id"));
+        assertEquals("a***@example.com", masked.get("email"));
+        assertEquals("138****5678", masked.get("phone"));
+        assertEquals(MaskingRule.SHA256_HASH.apply("abc"), masked.get("id_card"));
+        assertFalse(masked.containsKey("password"));
+    }
+
+    @Test
+    void planWithoutRestrictedColumnsIsIdentity() {
+        MaskingPlan plan = MaskingPlan.compile(users, Collections.singletonList("id"));
+        assertTrue(plan.isIdentity());
+        assertSame(MaskingPlan.identity(), plan);
+        assertEquals("", plan.signature());
+    }
+
+    @Test
+    void signatureDependsOnlyOnPlanContent() {
+        MaskingPlan first = MaskingPlan.compile(users, Arrays.asList("id", "email", "password"));
+        MaskingPlan second = MaskingPlan.compile(users, Arrays.asList("email", "password"));
+        assertEquals(first.signature(), second.signature());
+        assertNotEquals(first.signature(), MaskingPlan.compile(users, Arrays.asList("phone")).signature());
+    }
+
+    @Test
+    void selectItemsPushDownMasking() {
+        MaskingPlan plan = MaskingPlan.compile(users, Arrays.asList("id", "email", "password"));
+        assertEquals("id", plan.toSelectItem("id"));
+        assertEquals(MaskingRule.EMAIL_MASK.toSql("email") + " AS email", plan.toSelectItem("email"));
+        assertNull(plan.toSelectItem("password"));
+        assertTrue(plan.isMasked("email"));
+        assertTrue(plan.isDropped("password"));
+    }
+
+    @Test
+    void columnarApplyMasksInPlace() {
+        MaskingPlan plan = MaskingPlan.compile(users, Arrays.asList("id", "phone"));
+        Object[] phones = {"13812345678", null};
+        Object[] ids = {1, 2};
+
+        plan.applyColumn("phone", phones);
+        plan.applyColumn("id", ids);
+
+        assertArrayEquals(new Object[] {"138****5678", null}, phones);
+        assertArrayEquals(new Object[] {1, 2}, ids);
+    }
+
+    @Test
+    void largeResultsAreMaskedInParallelChunks() {
+        MaskingPlan plan = MaskingPlan.compile(users, Arrays.asList("id", "email"));
+        int count = MaskingPlan.PARALLEL_THRESHOLD + 100;
+        List<Map<String, Object>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(row("id", i, "email", "user" + i + "@example.com"));
+        }
+
+        plan.apply(rows);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("u***@example.com", rows.get(i).get("email"), "row " + i);
+        }
+    }
+
+    private static TablePermission table(FieldPermission... fields) {
+        TablePermission table = new TablePermission();
+        table.setDatabase("ecommerce");
+        table.setTableName("users");
+        table.setPermissions(Collections.singletonList("READ"));
+        table.setFieldPermissions(Arrays.asList(fields));
+        return table;
+    }
+
+    private static FieldPermission field(String name, FieldPermissionType type, String maskingRule) {
+        FieldPermission field = new FieldPermission();
+        field.setFieldName(name);
+        field.setPermission(type);
+        field.setMaskingRule(maskingRule);
+        return field;
+    }
+
+    private static Map<String, Object> row(Object... keyValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            row.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return row;
+    }
+}
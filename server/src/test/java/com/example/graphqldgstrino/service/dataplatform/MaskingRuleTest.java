@@ -0,0 +1,79 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaskingRuleTest {
+
+    @Test
+    void emailKeepsFirstCharacterAndDomain() {
+        assertEquals("a***@example.com", MaskingRule.EMAIL_MASK.apply("alice@example.com"));
+        assertEquals("******", MaskingRule.EMAIL_MASK.apply("@example.com"));
+        assertEquals("******", MaskingRule.EMAIL_MASK.apply("not-an-email"));
+    }
+
+    @Test
+    void phoneKeepsPrefixAndSuffix() {
+        assertEquals("138****5678", MaskingRule.PHONE_MASK.apply("13812345678"));
+        assertEquals("******", MaskingRule.PHONE_MASK.apply("1234567"));
+        // 非字符串值按 toString 处理
+        assertEquals("138****5678", MaskingRule.PHONE_MASK.apply(13812345678L));
+    }
+
+    @Test
+    void hashIsLowercaseSha256() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+            MaskingRule.SHA256_HASH.apply("abc"));
+        assertEquals(CompiledTablePermission.sha256Hex("alice"), MaskingRule.SHA256_HASH.apply("alice"));
+    }
+
+    @Test
+    void nullStaysNull() {
+        for (MaskingRule rule : MaskingRule.values()) {
+            assertNull(rule.apply(null), rule.name());
+        }
+    }
+
+    @Test
+    void unknownRuleMasksFully() {
+        assertSame(MaskingRule.FULL_MASK, MaskingRule.forName(null));
+        assertSame(MaskingRule.FULL_MASK, MaskingRule.forName("custom"));
+        assertSame(MaskingRule.EMAIL_MASK, MaskingRule.forName(" Email_Mask "));
+        assertSame(MaskingRule.SHA256_HASH, MaskingRule.forName("hash"));
+    }
+
+    @Test
+    void sqlExpressionPreservesNull() {
+        String sql = MaskingRule.SHA256_HASH.toSql("email");
+        assertTrue(sql.startsWith("CASE WHEN email IS NULL THEN NULL ELSE "), sql);
+        assertTrue(sql.contains("lower(to_hex(sha256(to_utf8(CAST(email AS varchar)))))"), sql);
+    }
+
+    @Test
+    void concurrentHashingIsConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        String value = "user" + i;
+                        if (!CompiledTablePermission.sha256Hex(value).equals(MaskingRule.SHA256_HASH.apply(value))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
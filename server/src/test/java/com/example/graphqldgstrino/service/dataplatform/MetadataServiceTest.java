@@ -0,0 +1,254 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.example.graphqldgstrino.service.dataplatform.MetadataSnapshotTest.tables;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataServiceTest {
+
+    private final MetadataService service = new MetadataService();
+
+    @Test
+    void batchedWritesRebuildDatabaseListingOnce() {
+        long version = service.getCatalogVersion();
+
+        service.putTables(Arrays.asList(entry("sales", "refunds", "t1"), entry("sales", "orders", "t2"),
+            entry("finance", "ledger", "t3")));
+
+        assertEquals(version + 1, service.getCatalogVersion());
+        assertEquals(Arrays.asList("orders", "refunds"), names(service.listTables("sales", null, null)));
+        assertEquals(Collections.singletonList("ledger"), names(service.listTables("finance", null, null)));
+        assertEquals("t2", service.getSyncToken("sales", "orders"));
+        assertTrue(service.tableExists("sales", "refunds"));
+    }
+
+    @Test
+    void batchedRemovalsDropEmptyDatabases() {
+        service.putTables(Arrays.asList(entry("sales", "refunds", "t1"), entry("sales", "orders", "t2"),
+            entry("finance", "ledger", "t3")));
+        long version = service.getCatalogVersion();
+
+        service.removeTables(Arrays.asList("sales.refunds", "finance.ledger", "finance.missing"));
+
+        assertEquals(version + 1, service.getCatalogVersion());
+        assertEquals(Collections.singletonList("orders"), names(service.listTables("sales", null, null)));
+        assertFalse(service.listDatabases().contains("finance"));
+        assertNull(service.getSyncToken("finance", "ledger"));
+        assertFalse(service.getTableNames().contains("sales.refunds"));
+    }
+
+    @Test
+    void emptyBatchDoesNotBumpVersion() {
+        long version = service.getCatalogVersion();
+        service.putTables(Collections.emptyList());
+        service.removeTables(Collections.emptyList());
+        assertEquals(version, service.getCatalogVersion());
+    }
+
+    @Test
+    void snapshotListingMergesLiveOverlayAndDeletes(@TempDir Path directory) throws IOException {
+        attachSnapshot(directory, false);
+        MetadataSnapshot.Entry updated = entry("sales", "orders", "t9");
+        updated.info.setOwner("new-owner");
+        service.putTables(Arrays.asList(updated, entry("sales", "returns", "t4"), entry("hr", "staff", "t5")));
+        service.removeTables(Collections.singletonList("finance.ledger"));
+
+        List<TableInfo> sales = service.listTables("sales", null, null);
+        assertEquals(Arrays.asList("orders", "refunds", "returns"), names(sales));
+        // 同一张表以内存中的新版本为准，不重复列出
+        assertEquals("new-owner", sales.get(0).getOwner());
+
+        // 服务自带示例表，按测试写入的表限定范围
+        Set<String> scope = new HashSet<>(Arrays.asList("hr.staff", "sales.orders", "sales.refunds",
+            "sales.returns", "finance.ledger"));
+        assertEquals(Arrays.asList("staff", "orders", "refunds", "returns"),
+            names(service.listTables((TableListFilter) null, null, scope)));
+        assertEquals(Arrays.asList("refunds", "returns"), names(service.listTables((TableListFilter) null, null,
+            new HashSet<>(Arrays.asList("sales.refunds", "sales.returns", "finance.ledger")))));
+        PaginationInput page = new PaginationInput();
+        page.setOffset(1);
+        page.setLimit(2);
+        assertEquals(Arrays.asList("orders", "refunds"),
+            names(service.listTables((TableListFilter) null, page, scope)));
+
+        Set<String> tableNames = service.getTableNames();
+        assertTrue(tableNames.containsAll(Arrays.asList("hr.staff", "sales.orders", "sales.refunds", "sales.returns")));
+        assertFalse(tableNames.contains("finance.ledger"));
+        assertTrue(service.listDatabases().containsAll(Arrays.asList("hr", "sales")));
+        assertFalse(service.listDatabases().contains("finance"));
+        assertFalse(service.tableExists("finance", "ledger"));
+        assertNull(service.getTableInfo("finance", "ledger"));
+        // 未被覆盖的表直接从快照读取
+        assertEquals("t2", service.getSyncToken("sales", "refunds"));
+        assertEquals("t9", service.getSyncToken("sales", "orders"));
+    }
+
+    @Test
+    void hydrateSnapshotLoadsRemainingTablesAndDetaches(@TempDir Path directory) throws IOException {
+        attachSnapshot(directory, false);
+        service.putTables(Collections.singletonList(entry("sales", "orders", "t9")));
+        service.removeTables(Collections.singletonList("finance.ledger"));
+
+        service.hydrateSnapshot();
+
+        assertFalse(service.isSnapshotAttached());
+        assertEquals(Arrays.asList("orders", "refunds"), names(service.listTables("sales", null, null)));
+        assertEquals("t9", service.getSyncToken("sales", "orders"));
+        assertEquals("t2", service.getSyncToken("sales", "refunds"));
+        assertFalse(service.tableExists("finance", "ledger"));
+        assertFalse(service.listDatabases().contains("finance"));
+    }
+
+    @Test
+    void hydrateSnapshotSkipsCorruptRecords(@TempDir Path directory) throws IOException {
+        attachSnapshot(directory, true);
+
+        assertThrows(IllegalStateException.class, service::hydrateSnapshot);
+
+        // 损坏的表留给目录同步重新读取，其余表正常载入
+        assertFalse(service.isSnapshotAttached());
+        assertFalse(service.tableExists("finance", "ledger"));
+        assertEquals(Arrays.asList("orders", "refunds"), names(service.listTables("sales", null, null)));
+    }
+
+    @Test
+    void selectiveKeysPicksSmallestIndexedCandidateSet() {
+        putWarehouseTables();
+
+        assertEquals(keys("wh.dim_0", "wh.dim_1"), selectiveKeys(filter("ICEBERG", "owner-a", null), 100));
+        // 名称前缀 5 张，标签 3 张，取较小的标签候选
+        assertEquals(keys("wh.fact_0", "wh.fact_1", "wh.dim_0"),
+            selectiveKeys(filter(null, null, "fact_*", "pii-test"), 100));
+        assertEquals(keys("wh.fact_0", "wh.fact_1", "wh.fact_2", "wh.fact_3", "wh.fact_4"),
+            selectiveKeys(filter(null, null, "fact_*"), 100));
+        TableListFilter recent = new TableListFilter();
+        recent.setModifiedAfter(LocalDateTime.of(2030, 1, 19, 0, 0));
+        assertEquals(keys("wh.dim_13", "wh.dim_14"), selectiveKeys(recent, 100));
+
+        // 没有字面量前缀、候选不少于 bound 或没有过滤条件时不走索引
+        assertNull(selectiveKeys(filter(null, null, "*_1"), 100));
+        assertNull(selectiveKeys(filter(null, "etl-test", null), 10));
+        assertNull(selectiveKeys(filter(null, null, "fact_*"), 5));
+        assertNull(selectiveKeys(null, 100));
+    }
+
+    @Test
+    void indexedListingStillAppliesFullFilter() {
+        putWarehouseTables();
+
+        assertEquals(Arrays.asList("fact_0", "fact_1"),
+            names(service.listTables(filter(null, "etl-test", "fact_*", "pii-test"), null, null)));
+        TableListFilter recentDims = filter(null, null, "dim_1*");
+        recentDims.setModifiedAfter(LocalDateTime.of(2030, 1, 18, 0, 0));
+        assertEquals(Arrays.asList("dim_12", "dim_13", "dim_14"), names(service.listTables(recentDims, null, null)));
+
+        // 替换后旧属性不再命中
+        MetadataSnapshot.Entry moved = warehouseTable("dim_0", "etl-test", 0);
+        service.putTables(Collections.singletonList(moved));
+        assertEquals(Collections.singletonList("dim_1"),
+            names(service.listTables(filter(null, "owner-a", null), null, null)));
+        assertEquals(keys("wh.dim_1"), selectiveKeys(filter(null, "owner-a", null), 100));
+    }
+
+    /**
+     * wh 库：fact_0..fact_4 和 dim_0..dim_14，dim_0、dim_1 属于 owner-a，fact_0、fact_1、dim_0 带 pii-test 标签，
+     * 修改时间为 2030-01-01 之后的第 day 天，晚于示例表
+     */
+    private void putWarehouseTables() {
+        List<MetadataSnapshot.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entries.add(warehouseTable("fact_" + i, "etl-test", i));
+        }
+        for (int i = 0; i < 15; i++) {
+            entries.add(warehouseTable("dim_" + i, i < 2 ? "owner-a" : "etl-test", i + 5));
+        }
+        service.putTables(entries);
+    }
+
+    private static MetadataSnapshot.Entry warehouseTable(String name, String owner, int day) {
+        MetadataSnapshot.Entry entry = entry("wh", name, null);
+        entry.info.setOwner(owner);
+        entry.info.setLastModified(LocalDateTime.of(2030, 1, 1, 0, 0).plusDays(day));
+        boolean pii = name.equals("fact_0") || name.equals("fact_1") || name.equals("dim_0") && "owner-a".equals(owner);
+        entry.info.setTags(pii ? Collections.singletonList("pii-test") : Collections.emptyList());
+        return entry;
+    }
+
+    private Set<String> selectiveKeys(TableListFilter filter, int bound) {
+        return ReflectionTestUtils.invokeMethod(service, "selectiveKeys", filter, bound);
+    }
+
+    private static TableListFilter filter(String tableType, String owner, String namePattern, String... tags) {
+        TableListFilter filter = new TableListFilter();
+        filter.setTableType(tableType);
+        filter.setOwner(owner);
+        filter.setNamePattern(namePattern);
+        filter.setTags(tags.length > 0 ? Arrays.asList(tags) : null);
+        return filter;
+    }
+
+    private static Set<String> keys(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+
+    /**
+     * 挂载包含 finance.ledger、sales.orders、sales.refunds 的快照，corruptFirst 时破坏第一张表的记录
+     */
+    private void attachSnapshot(Path directory, boolean corruptFirst) throws IOException {
+        Path file = directory.resolve("metadata.snapshot");
+        MetadataSnapshot.write(file, tables(entry("finance", "ledger", "t1"), entry("sales", "refunds", "t2"),
+            entry("sales", "orders", "t3")), 1L);
+        if (corruptFirst) {
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[64 + 4 + 2] ^= 0x5A;
+            Files.write(file, bytes);
+        }
+        service.attachSnapshot(MetadataSnapshot.open(file));
+    }
+
+    static MetadataSnapshot.Entry entry(String database, String tableName, String syncToken) {
+        TableInfo info = new TableInfo();
+        info.setTableName(tableName);
+        info.setDatabase(database);
+        info.setTableType("ICEBERG");
+        info.setTags(Collections.singletonList("test"));
+        info.setOwner("owner");
+        info.setCreatedAt(LocalDateTime.of(2026, 1, 1, 0, 0));
+        info.setLastModified(LocalDateTime.of(2026, 1, 2, 0, 0));
+        info.setRowCount(10L);
+
+        TableMetadata metadata = new TableMetadata();
+        metadata.setTableName(tableName);
+        metadata.setDatabase(database);
+        metadata.setTableType("ICEBERG");
+        metadata.setPartitionKeys(Collections.emptyList());
+
+        ColumnInfo id = new ColumnInfo();
+        id.setName("id");
+        id.setDataType("bigint");
+        id.setNullable(false);
+        TableSchema schema = TableSchema.builder()
+            .tableName(tableName)
+            .columns(Collections.singletonList(id))
+            .partitionColumns(Collections.emptyList())
+            .primaryKeys(Collections.emptyList())
+            .build();
+        return new MetadataSnapshot.Entry(info, metadata, schema, syncToken);
+    }
+
+    static List<String> names(List<TableInfo> tables) {
+        return tables.stream().map(TableInfo::getTableName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static com.example.graphqldgstrino.service.dataplatform.MetadataServiceTest.entry;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsTablesInKeyOrder() throws IOException {
+        Path file = directory.resolve("metadata.snapshot");
+        MetadataSnapshot.write(file, tables(entry("sales", "orders", "t1"), entry("finance", "ledger", "t2"),
+            entry("sales", "refunds", null)), 42L);
+
+        MetadataSnapshot snapshot = MetadataSnapshot.open(file);
+        assertEquals(3, snapshot.size());
+        assertEquals(42L, snapshot.getCatalogVersion());
+        assertEquals(Arrays.asList("finance", "sales"), snapshot.getDatabases());
+        assertEquals("finance.ledger", snapshot.keyAt(0));
+        assertEquals("sales.refunds", snapshot.keyAt(2));
+
+        int orders = snapshot.find("sales.orders");
+        assertEquals(1, orders);
+        MetadataSnapshot.Entry entry = snapshot.entry(orders);
+        assertEquals("orders", entry.info.getTableName());
+        assertEquals("sales", entry.metadata.getDatabase());
+        assertEquals("id", entry.schema.getColumns().get(0).getName());
+        assertEquals("t1", entry.syncToken);
+        assertNull(snapshot.entry(snapshot.find("sales.refunds")).syncToken);
+
+        assertEquals(-1, snapshot.find("sales.missing"));
+        assertEquals(2, snapshot.lowerBound("sales.p"));
+        assertEquals(3, snapshot.lowerBound("zzz"));
+    }
+
+    @Test
+    void emptySnapshotOpens() throws IOException {
+        Path file = directory.resolve("metadata.snapshot");
+        MetadataSnapshot.write(file, new TreeMap<>(), 0L);
+
+        MetadataSnapshot snapshot = MetadataSnapshot.open(file);
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.getDatabases().isEmpty());
+        assertEquals(-1, snapshot.find("sales.orders"));
+    }
+
+    @Test
+    void corruptRecordDecodesAsNullWithoutAffectingOthers() throws IOException {
+        Path file = directory.resolve("metadata.snapshot");
+        MetadataSnapshot.write(file, tables(entry("finance", "ledger", "t1"), entry("sales", "orders", "t2")), 1L);
+
+        // 第一条记录紧跟 64 字节的头部：[int CRC32][JSON]，改动 JSON 中的一个字节
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[64 + 4 + 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        MetadataSnapshot snapshot = MetadataSnapshot.open(file);
+        assertNull(snapshot.info(0));
+        assertNull(snapshot.entry(0));
+        assertEquals("orders", snapshot.entry(1).info.getTableName());
+    }
+
+    @Test
+    void corruptHeaderIsRejected() throws IOException {
+        Path file = directory.resolve("metadata.snapshot");
+        MetadataSnapshot.write(file, tables(entry("sales", "orders", "t1")), 1L);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[24] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> MetadataSnapshot.open(file));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = directory.resolve("metadata.snapshot");
+        MetadataSnapshot.write(file, tables(entry("sales", "orders", "t1"), entry("sales", "refunds", "t2")), 1L);
+        long size = Files.size(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size / 2);
+        }
+        assertThrows(IOException.class, () -> MetadataSnapshot.open(file));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(10);
+        }
+        assertThrows(IOException.class, () -> MetadataSnapshot.open(file));
+    }
+
+    @Test
+    void rewriteReplacesFileWhileOldMappingStaysReadable() throws IOException {
+        Path file = directory.resolve("metadata.snapshot");
+        MetadataSnapshot.write(file, tables(entry("sales", "orders", "t1")), 1L);
+        MetadataSnapshot old = MetadataSnapshot.open(file);
+
+        MetadataSnapshot.write(file, tables(entry("sales", "orders", "t2"), entry("sales", "refunds", "t3")), 2L);
+
+        assertEquals("t1", old.entry(0).syncToken);
+        MetadataSnapshot current = MetadataSnapshot.open(file);
+        assertEquals(2, current.size());
+        assertEquals("t2", current.entry(0).syncToken);
+    }
+
+    static SortedMap<String, MetadataSnapshot.Entry> tables(MetadataSnapshot.Entry... entries) {
+        SortedMap<String, MetadataSnapshot.Entry> tables = new TreeMap<>();
+        for (MetadataSnapshot.Entry entry : entries) {
+            tables.put(entry.info.getDatabase() + "." + entry.info.getTableName(), entry);
+        }
+        return tables;
+    }
+}
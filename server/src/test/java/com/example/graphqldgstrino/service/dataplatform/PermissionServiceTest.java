@@ -0,0 +1,180 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionServiceTest {
+
+    private PermissionService service;
+    private final List<String> notifications = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new PermissionService();
+        service.addChangeListener((userId, previous, current) -> notifications.add(userId));
+    }
+
+    @Test
+    void identicalUpdateKeepsVersionAndSkipsNotification() {
+        service.updateUserPermissions(user("u1", "READ"));
+        long version = service.getPermissionVersion("u1");
+        PermissionSnapshot snapshot = service.getSnapshot("u1");
+        notifications.clear();
+
+        service.updateUserPermissions(user("u1", "READ"));
+
+        assertEquals(version, service.getPermissionVersion("u1"));
+        assertSame(snapshot, service.getSnapshot("u1"));
+        assertTrue(notifications.isEmpty());
+    }
+
+    @Test
+    void changedUpdateBumpsVersionAndNotifies() {
+        service.updateUserPermissions(user("u1", "READ"));
+        long version = service.getPermissionVersion("u1");
+        notifications.clear();
+
+        service.updateUserPermissions(user("u1", "READ", "SELECT"));
+
+        assertTrue(service.getPermissionVersion("u1") > version);
+        assertEquals(Collections.singletonList("u1"), notifications);
+    }
+
+    @Test
+    void recompiledRoleWithSameContentDoesNotNotifyMembers() {
+        service.updateRole(role("viewer", "READ"));
+        service.assignUserRoles("u1", Collections.singletonList("viewer"));
+        long version = service.getPermissionVersion("u1");
+        notifications.clear();
+
+        service.updateRole(role("viewer", "READ"));
+        assertEquals(version, service.getPermissionVersion("u1"));
+        assertTrue(notifications.isEmpty());
+
+        service.updateRole(role("viewer", "READ", "SELECT"));
+        assertTrue(service.getPermissionVersion("u1") > version);
+        assertEquals(Collections.singletonList("u1"), notifications);
+    }
+
+    @Test
+    void applyChangesCountsOnlyChangedUsers() {
+        service.updateUserPermissions(user("u1", "READ"));
+        service.updateUserPermissions(user("u2", "READ"));
+
+        int changed = service.applyChanges(new PermissionChangeSet(false,
+            Arrays.asList(user("u1", "READ"), user("u2", "READ", "SELECT")), null, "c1"));
+
+        assertEquals(1, changed);
+    }
+
+    @Test
+    void invalidRowFilterKeepsExistingGrant() {
+        service.updateUserPermissions(user("u1", "READ"));
+        long version = service.getPermissionVersion("u1");
+
+        UpdatePermissionsInput invalid = user("u1", "READ");
+        invalid.getTablePermissions().get(0).setRowLevelFilter("user_id = ");
+        assertThrows(IllegalArgumentException.class, () -> service.updateUserPermissions(invalid));
+        assertEquals(version, service.getPermissionVersion("u1"));
+    }
+
+    @Test
+    void maskedAndDeniedFieldsAreAppliedToRows() {
+        UpdatePermissionsInput input = user("u1", "READ", "SELECT");
+        input.getTablePermissions().get(0).setFieldPermissions(Arrays.asList(
+            field("id", FieldPermissionType.ALLOW, null),
+            field("email", FieldPermissionType.MASK, "email_mask"),
+            field("password", FieldPermissionType.DENY, null)));
+        UserPermissions permissions = service.updateUserPermissions(input);
+
+        assertEquals(Arrays.asList("id", "email"), service.filterAllowedFields(permissions, "users", null));
+
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 1);
+        row.put("email", "alice@example.com");
+        row.put("password", "secret");
+        List<Map<String, Object>> rows = service.applyDataMasking(
+            new ArrayList<>(Collections.singletonList(row)), permissions, "users");
+
+        assertEquals("a***@example.com", rows.get(0).get("email"));
+        assertFalse(rows.get(0).containsKey("password"));
+    }
+
+    @Test
+    void maskingPlanWithoutColumnsIsNotIdentityForRestrictedTable() {
+        UpdatePermissionsInput input = user("u1", "SELECT");
+        input.getTablePermissions().get(0).setFieldPermissions(Arrays.asList(
+            field("email", FieldPermissionType.MASK, "email_mask"),
+            field("password", FieldPermissionType.DENY, null)));
+        UserPermissions restricted = service.updateUserPermissions(input);
+        UserPermissions unrestricted = service.updateUserPermissions(user("u2", "SELECT"));
+
+        // SELECT * 会带出被拒绝和未脱敏的字段，不能按无需处理对待
+        assertNull(service.getMaskingPlan(restricted, "users", Collections.emptyList()));
+        assertNull(service.getMaskingPlan(restricted, "users", null));
+        assertTrue(service.getMaskingPlan(unrestricted, "users", null).isIdentity());
+        assertTrue(service.getMaskingPlan(restricted, "users", Collections.singletonList("email")).isMasked("email"));
+    }
+
+    @Test
+    void usersWithSamePolicyShareFingerprint() {
+        UserPermissions first = service.updateUserPermissions(user("u1", "READ"));
+        UserPermissions second = service.updateUserPermissions(user("u2", "READ"));
+        List<String> columns = Arrays.asList("id", "email");
+
+        assertEquals(service.effectivePolicyFingerprint(first, "users", columns),
+            service.effectivePolicyFingerprint(second, "users", columns));
+    }
+
+    @Test
+    void rowFilterWithUserAttributeIsBoundPerUser() {
+        UpdatePermissionsInput input = user("u1", "READ");
+        input.getTablePermissions().get(0).setRowLevelFilter("owner_id = ${user.id}");
+        UserPermissions first = service.updateUserPermissions(input);
+        UpdatePermissionsInput other = user("u2", "READ");
+        other.getTablePermissions().get(0).setRowLevelFilter("owner_id = ${user.id}");
+        UserPermissions second = service.updateUserPermissions(other);
+
+        List<Object> params = new ArrayList<>();
+        assertEquals("owner_id = ?", service.getRowFilter(first, "users").toSql(params));
+        assertEquals(Collections.singletonList("u1"), params);
+        assertNotEquals(service.effectivePolicyFingerprint(first, "users", null),
+            service.effectivePolicyFingerprint(second, "users", null));
+    }
+
+    private static UpdatePermissionsInput user(String userId, String... permissions) {
+        UpdatePermissionsInput input = new UpdatePermissionsInput();
+        input.setUserId(userId);
+        input.setTablePermissions(new ArrayList<>(Collections.singletonList(table(permissions))));
+        return input;
+    }
+
+    private static RolePermissionsInput role(String roleName, String... permissions) {
+        RolePermissionsInput input = new RolePermissionsInput();
+        input.setRoleName(roleName);
+        input.setTablePermissions(Collections.singletonList(table(permissions)));
+        return input;
+    }
+
+    private static TablePermissionInput table(String... permissions) {
+        TablePermissionInput table = new TablePermissionInput();
+        table.setDatabase("ecommerce");
+        table.setTableName("users");
+        table.setPermissions(Arrays.asList(permissions));
+        return table;
+    }
+
+    private static FieldPermissionInput field(String name, FieldPermissionType type, String maskingRule) {
+        FieldPermissionInput field = new FieldPermissionInput();
+        field.setFieldName(name);
+        field.setPermission(type);
+        field.setMaskingRule(maskingRule);
+        return field;
+    }
+}
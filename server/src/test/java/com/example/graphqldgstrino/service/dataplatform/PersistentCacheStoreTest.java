@@ -0,0 +1,195 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import com.example.graphqldgstrino.model.dataplatform.TableQueryResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentCacheStoreTest {
+
+    private static final long CACHED_AT = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private PersistentCacheStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void replaysEntriesAfterRestart() {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, farFuture(), result("a"));
+        store = reopen();
+
+        PersistentCacheStore.StoredResult stored = store.get("k1");
+        assertNotNull(stored);
+        assertEquals("a", stored.getResult().getData().get(0).get("value"));
+        assertEquals(0L, stored.getTableVersion());
+        assertEquals(CACHED_AT, stored.getCachedAtMillis());
+    }
+
+    @Test
+    void replaysRemovals() {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, farFuture(), result("a"));
+        store.put("k2", "orders", "u1", 0L, CACHED_AT, farFuture(), result("b"));
+        store.remove("k1");
+        store = reopen();
+
+        assertNull(store.get("k1"));
+        assertNotNull(store.get("k2"));
+    }
+
+    @Test
+    void tableVersionSurvivesRestartAndHidesOlderEntries() {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, farFuture(), result("a"));
+        store.updateTableVersion("orders", 1L);
+        store = reopen();
+
+        assertEquals(1L, store.getTableVersion("orders"));
+        assertNull(store.get("k1"));
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, System.currentTimeMillis() - 1, result("a"));
+        store = reopen();
+
+        assertNull(store.get("k1"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void corruptedPayloadFailsCrcCheck() throws IOException {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, farFuture(), result("a"));
+        store.close();
+
+        // 翻转最后一个字节，记录头完整但 payload 与 CRC 不一致
+        Path segment = nonEmptySegments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        store = open();
+        assertNull(store.get("k1"));
+    }
+
+    @Test
+    void truncatedTailRecordIsDropped() throws IOException {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, farFuture(), result("a"));
+        store.put("k2", "orders", "u1", 0L, CACHED_AT, farFuture(), result("b"));
+        store.close();
+
+        Path segment = nonEmptySegments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        store = open();
+        assertNotNull(store.get("k1"));
+        assertNull(store.get("k2"));
+        // 截断后继续写入不受影响
+        store.put("k3", "orders", "u1", 0L, CACHED_AT, farFuture(), result("c"));
+        store = reopen();
+        assertNotNull(store.get("k3"));
+    }
+
+    @Test
+    void indexesKeysByWritingUserAcrossRestart() {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, farFuture(), result("a"));
+        store.put("k2", "orders", "u2", 0L, CACHED_AT, farFuture(), result("b"));
+        store.put("k3", "users", "u1", 0L, CACHED_AT, farFuture(), result("c"));
+        store.remove("k3");
+        store = reopen();
+
+        assertEquals(Collections.singleton("k1"), store.keysForUser("u1"));
+        assertEquals(new HashSet<>(Arrays.asList("k1", "k2")), store.keysForUsers(GlobPattern.compile("u?")));
+
+        // 同一个键被其他用户重写后只登记在新用户下
+        store.put("k1", "orders", "u2", 0L, CACHED_AT, farFuture(), result("d"));
+        store = reopen();
+        assertTrue(store.keysForUser("u1").isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("k1", "k2")), store.keysForUser("u2"));
+
+        store.clear();
+        assertTrue(store.keysForUser("u2").isEmpty());
+    }
+
+    @Test
+    void discardsSegmentsWrittenWithAnotherKeyFormat() throws IOException {
+        store = open();
+        store.put("k1", "orders", "u1", 0L, CACHED_AT, farFuture(), result("a"));
+        store.close();
+        Files.write(directory.resolve("FORMAT"), "1".getBytes(StandardCharsets.UTF_8));
+
+        store = open();
+        assertNull(store.get("k1"));
+        assertEquals(String.valueOf(PersistentCacheStore.KEY_FORMAT_VERSION),
+            new String(Files.readAllBytes(directory.resolve("FORMAT")), StandardCharsets.UTF_8));
+    }
+
+    private PersistentCacheStore open() {
+        PersistentCacheStore opened = new PersistentCacheStore();
+        ReflectionTestUtils.setField(opened, "enabled", true);
+        ReflectionTestUtils.setField(opened, "directory", directory.toString());
+        ReflectionTestUtils.setField(opened, "segmentSizeMb", 64L);
+        ReflectionTestUtils.setField(opened, "maxSizeMb", 2048L);
+        opened.open();
+        assertTrue(opened.isEnabled());
+        return opened;
+    }
+
+    /**
+     * 关闭时等待后台写入完成，再从磁盘重新打开
+     */
+    private PersistentCacheStore reopen() {
+        store.close();
+        return open();
+    }
+
+    private List<Path> nonEmptySegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("segment-"))
+                .filter(p -> p.toFile().length() > 0)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static long farFuture() {
+        return System.currentTimeMillis() + 3_600_000L;
+    }
+
+    private static TableQueryResult result(String value) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("value", value);
+        return TableQueryResult.builder()
+            .data(Collections.singletonList(row))
+            .totalCount(1)
+            .build();
+    }
+}
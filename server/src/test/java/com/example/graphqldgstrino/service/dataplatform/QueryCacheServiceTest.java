@@ -0,0 +1,158 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import com.example.graphqldgstrino.model.dataplatform.TableQueryResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheServiceTest {
+
+    private QueryCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        // 未启用的持久化缓存，只测试内存层
+        PersistentCacheStore store = new PersistentCacheStore();
+        store.open();
+        service = newService(store);
+    }
+
+    @Test
+    void clearUserCacheTreatsWildcardsLiterally() {
+        service.cacheQueryResult("k1", "orders", "u1", result("a"));
+        service.cacheQueryResult("k2", "orders", "u*", result("b"));
+
+        assertEquals(1, service.clearUserCache("u*"));
+        assertNotNull(service.getQueryResult("k1", "orders", "u1"));
+        assertNull(service.getQueryResult("k2", "orders", "u*"));
+    }
+
+    @Test
+    void userPatternKeepsGlobMatching() {
+        service.cacheQueryResult("k1", "orders", "u1", result("a"));
+        service.cacheQueryResult("k2", "orders", "u2", result("b"));
+        service.cacheQueryResult("k3", "orders", "admin", result("c"));
+
+        assertEquals(2, service.clearCacheByPattern("user:u?"));
+        assertNotNull(service.getQueryResult("k3", "orders", "admin"));
+    }
+
+    @Test
+    void sharedEntryStaysForOtherUsersButNotForClearedUser() throws InterruptedException {
+        service.cacheQueryResult("shared", "orders", "u1", result("a"));
+        // u2 的有效策略相同，命中 u1 写入的条目
+        assertNotNull(service.getQueryResult("shared", "orders", "u2"));
+
+        assertEquals(0, service.clearUserCache("u2"));
+        assertNotNull(service.getQueryResult("shared", "orders", "u1"));
+        assertNull(service.getQueryResult("shared", "orders", "u2"));
+
+        // 清理之后写入的结果对 u2 正常命中
+        Thread.sleep(2);
+        service.cacheQueryResult("shared", "orders", "u2", result("b"));
+        assertNotNull(service.getQueryResult("shared", "orders", "u2"));
+    }
+
+    @Test
+    void entryReadOnlyByClearedUsersIsRemoved() {
+        service.cacheQueryResult("k1", "orders", "u1", result("a"));
+        assertNotNull(service.getQueryResult("k1", "orders", "u2"));
+
+        assertEquals(1, service.clearCacheByPattern("user:u*"));
+        assertNull(service.getQueryResult("k1", "orders", "admin"));
+    }
+
+    @Test
+    void invalidateTableRemovesOnlyThatTable() {
+        service.cacheQueryResult("k1", "orders", "u1", result("a"));
+        service.cacheQueryResult("k2", "users", "u1", result("b"));
+
+        assertEquals(1, service.invalidateTable("orders"));
+        assertNull(service.getQueryResult("k1", "orders", "u1"));
+        assertNotNull(service.getQueryResult("k2", "users", "u1"));
+    }
+
+    @Test
+    void diskHitUsesStoredWriteTimeForUserCutoff(@TempDir Path directory) throws InterruptedException {
+        PersistentCacheStore store = enablePersistentStore(directory);
+        try {
+            // TTL 长于默认值时，按默认 TTL 从过期时间推算的写入时间会晚于实际写入时间
+            service.cacheResult("user:u1:query:1", result("a"), 180);
+            while (store.size() == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(2);
+            service.clearUserCache("u2");
+
+            // 内存条目对 u2 已失效，磁盘上同一条目在清理之前写入，也不能命中
+            assertNull(service.getQueryResult("user:u1:query:1", null, "u2"));
+            assertNotNull(service.getQueryResult("user:u1:query:1", null, "u1"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void clearUserRemovesDiskOnlyEntriesWrittenByThatUser(@TempDir Path directory) throws InterruptedException {
+        PersistentCacheStore store = enablePersistentStore(directory);
+        try {
+            service.cacheQueryResult("k1", "orders", "u1", result("a"));
+            service.cacheQueryResult("k2", "orders", "u2", result("b"));
+            service.cacheQueryResult("shared", "orders", "u1", result("c"));
+            while (store.size() < 3) {
+                Thread.sleep(1);
+            }
+            // 重启后内存为空，条目只存在于磁盘
+            service = newService(store);
+            // u3 命中磁盘上的共享条目，条目回填内存并记录 u3 为使用者
+            assertNotNull(service.getQueryResult("shared", "orders", "u3"));
+
+            service.clearUserCache("u1");
+
+            assertTrue(store.keysForUser("u1").contains("shared"));
+            assertFalse(store.keysForUser("u1").contains("k1"));
+            assertNull(store.get("k1"));
+            assertNotNull(store.get("k2"));
+        } finally {
+            store.close();
+        }
+    }
+
+    private static QueryCacheService newService(PersistentCacheStore store) {
+        CacheStatisticsCollector collector = new CacheStatisticsCollector();
+        ReflectionTestUtils.setField(collector, "maxTrackedUsers", 100);
+        ReflectionTestUtils.setField(collector, "userIdleMinutes", 60L);
+        collector.init();
+
+        QueryCacheService service = new QueryCacheService();
+        ReflectionTestUtils.setField(service, "statisticsCollector", collector);
+        ReflectionTestUtils.setField(service, "persistentStore", store);
+        return service;
+    }
+
+    private PersistentCacheStore enablePersistentStore(Path directory) {
+        PersistentCacheStore store = new PersistentCacheStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        ReflectionTestUtils.setField(store, "segmentSizeMb", 64L);
+        ReflectionTestUtils.setField(store, "maxSizeMb", 2048L);
+        store.open();
+        ReflectionTestUtils.setField(service, "persistentStore", store);
+        return store;
+    }
+
+    private static TableQueryResult result(String value) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("value", value);
+        return TableQueryResult.builder()
+            .data(Collections.singletonList(row))
+            .totalCount(1)
+            .build();
+    }
+}
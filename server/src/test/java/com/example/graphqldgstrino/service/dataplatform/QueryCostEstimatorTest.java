@@ -0,0 +1,166 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static com.example.graphqldgstrino.service.dataplatform.MetadataServiceTest.entry;
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCostEstimatorTest {
+
+    private static final long MIB = 1024L * 1024;
+
+    private final MetadataService metadataService = new MetadataService();
+    private final QueryCostEstimator estimator = new QueryCostEstimator();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(estimator, "metadataService", metadataService);
+        ReflectionTestUtils.setField(estimator, "defaultDurationMillis", 60000L);
+        ReflectionTestUtils.setField(estimator, "baseOverheadMillis", 200L);
+        ReflectionTestUtils.setField(estimator, "scanBytesPerSecond", 100 * MIB);
+        ReflectionTestUtils.setField(estimator, "perFileMillis", 10.0);
+        ReflectionTestUtils.setField(estimator, "historyTrustRuns", 3);
+
+        // wh.events：100 万行、100MiB、100 个文件，按 dt 分区，dt 有 100 个不同值；wh.small 只有行数
+        metadataService.putTables(Arrays.asList(
+            statisticsTable("events", 1_000_000L, 100 * MIB, 100),
+            statisticsTable("small", 1_000L, null, null)));
+    }
+
+    @Test
+    void statisticsEstimateAppliesPartitionSelectivityToScan() {
+        QueryCostEstimator.Estimate full = estimator.estimate("wh.events", null, null);
+        assertEquals(QueryCostEstimator.Source.STATISTICS, full.getSource());
+        assertEquals(1_000_000L, full.getEstimatedRows());
+        assertEquals(100 * MIB, full.getScannedBytes());
+        assertEquals(100L, full.getScannedFiles());
+        // 200 固定开销 + 100 个文件 × 10ms + 100MiB / 100MiB/s
+        assertEquals(2200L, full.getDurationMillis());
+        assertEquals(3, full.getDurationSeconds());
+
+        // 分区字段条件按列级统计 1/100 裁剪扫描量
+        QueryCostEstimator.Estimate partition = estimator.estimate("wh.events", eq("dt", "2026-01-01"), null);
+        assertEquals(10_000L, partition.getEstimatedRows());
+        assertEquals(MIB, partition.getScannedBytes());
+        assertEquals(1L, partition.getScannedFiles());
+        assertEquals(220L, partition.getDurationMillis());
+
+        // 非分区字段只影响行数，仍然全表扫描
+        QueryCostEstimator.Estimate column = estimator.estimate("wh.events", eq("id", 5), null);
+        assertEquals(100_000L, column.getEstimatedRows());
+        assertEquals(100 * MIB, column.getScannedBytes());
+        assertEquals(2200L, column.getDurationMillis());
+
+        assertEquals(50L, estimator.estimate("wh.events", eq("dt", "2026-01-01"), 50).getEstimatedRows());
+        // 前面可以带目录名
+        assertEquals(2200L, estimator.estimate("iceberg.wh.events", null, null).getDurationMillis());
+    }
+
+    @Test
+    void fallsBackToDefaultWithoutStatisticsOrHistory() {
+        for (String tableName : Arrays.asList("wh.missing", "events", null)) {
+            QueryCostEstimator.Estimate estimate = estimator.estimate(tableName, eq("dt", "2026-01-01"), null);
+            assertEquals(QueryCostEstimator.Source.DEFAULT, estimate.getSource());
+            assertEquals(60000L, estimate.getDurationMillis());
+            assertEquals(-1L, estimate.getEstimatedRows());
+            assertEquals(0L, estimate.getScannedBytes());
+        }
+        assertEquals(QueryCostEstimator.Source.DEFAULT, estimator.estimateSql(null, "SELECT 1").getSource());
+    }
+
+    @Test
+    void historyIsExponentiallyWeightedByShape() {
+        QueryCostEstimator.Estimate first = estimator.estimate("wh.missing", eq("id", 1), null);
+        estimator.recordExecution(first, millis(1000));
+
+        // 首个样本直接作为初值，同结构不同常量共用历史
+        QueryCostEstimator.Estimate second = estimator.estimate("wh.missing", eq("id", 2), null);
+        assertEquals(QueryCostEstimator.Source.HISTORY, second.getSource());
+        assertEquals(first.getShape(), second.getShape());
+        assertEquals(1000L, second.getDurationMillis());
+
+        estimator.recordExecution(second, millis(2000));
+        // 0.3 × 2000 + 0.7 × 1000
+        assertEquals(1300L, estimator.estimate("wh.missing", eq("id", 3), null).getDurationMillis());
+
+        // 不同结构不受影响
+        assertEquals(QueryCostEstimator.Source.DEFAULT,
+            estimator.estimate("wh.missing", eq("id", 3), 10).getSource());
+    }
+
+    @Test
+    void historyBlendsWithStatisticsUntilTrusted() {
+        // wh.small 没有数据量，统计估算只有固定开销 200ms，也不会校正吞吐量
+        QueryCostEstimator.Estimate estimate = estimator.estimate("wh.small", null, null);
+        assertEquals(200L, estimate.getDurationMillis());
+
+        estimator.recordExecution(estimate, millis(800));
+        estimate = estimator.estimate("wh.small", null, null);
+        assertEquals(QueryCostEstimator.Source.HISTORY, estimate.getSource());
+        assertEquals(400L, estimate.getDurationMillis());
+
+        estimator.recordExecution(estimate, millis(800));
+        assertEquals(600L, estimator.estimate("wh.small", null, null).getDurationMillis());
+
+        estimator.recordExecution(estimate, millis(800));
+        assertEquals(800L, estimator.estimate("wh.small", null, null).getDurationMillis());
+    }
+
+    @Test
+    void throughputIsCalibratedPerTableWithinBounds() {
+        // 扫描 100MiB 实际用了 4000ms（扣除固定开销和文件开销），吞吐量校正为 25MiB/s
+        estimator.recordExecution(estimator.estimate("wh.events", null, null), millis(5200));
+        assertEquals(250L, estimator.estimate("wh.events", eq("dt", "2026-01-01"), null).getDurationMillis());
+
+        // 极慢的一次执行最多把吞吐量压到配置值的 1/16：0.3 × 6.25MiB/s + 0.7 × 25MiB/s
+        estimator.recordExecution(estimator.estimate("wh.events", eq("id", 5), null), millis(10_000_000));
+        double throughput = 0.3 * 100 * MIB / 16 + 0.7 * 25 * MIB;
+        assertEquals(Math.round(200 + 10 + MIB * 1000.0 / throughput),
+            estimator.estimate("wh.events", eq("dt", "2026-01-02"), null).getDurationMillis());
+    }
+
+    @Test
+    void sqlShapeIgnoresConstantsAndFormatting() {
+        assertEquals("select * from t where a = ? and b in (?)",
+            QueryCostEstimator.sqlShape("SELECT *\n  FROM t WHERE a = 'x''y' AND b IN (1, 2,3)"));
+        assertEquals(QueryCostEstimator.sqlShape("select * from t where a = 'q'"),
+            QueryCostEstimator.sqlShape("SELECT * FROM t WHERE a = 'other'"));
+    }
+
+    private static long millis(long millis) {
+        return millis * 1_000_000L;
+    }
+
+    private static QueryPredicate eq(String column, Object value) {
+        return QueryPredicate.comparison(column, QueryPredicate.Operator.EQ,
+            Collections.singletonList(QueryPredicate.Operand.literal(value)));
+    }
+
+    private static MetadataSnapshot.Entry statisticsTable(String name, Long rowCount, Long dataSize, Integer fileCount) {
+        MetadataSnapshot.Entry entry = entry("wh", name, null);
+        TableStatistics statistics = new TableStatistics();
+        statistics.setRowCount(rowCount);
+        statistics.setDataSize(dataSize);
+        statistics.setFileCount(fileCount);
+        entry.metadata.setStatistics(statistics);
+        entry.metadata.setPartitionKeys(Collections.singletonList("dt"));
+
+        ColumnStatistics dtStatistics = new ColumnStatistics();
+        dtStatistics.setDistinctValuesCount(100.0);
+        dtStatistics.setNullsFraction(0.0);
+        ColumnInfo dt = new ColumnInfo();
+        dt.setName("dt");
+        dt.setDataType("date");
+        dt.setStatistics(dtStatistics);
+        List<ColumnInfo> columns = new ArrayList<>(entry.schema.getColumns());
+        columns.add(dt);
+        entry.schema.setColumns(columns);
+        return entry;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPredicateTest {
+
+    @Test
+    void canonicalFormIgnoresConditionOrder() {
+        QueryPredicate first = QueryPredicate.fromFilter(filter(LogicalOperator.AND,
+            condition("region", ComparisonOperator.EQ, "east"), condition("amount", ComparisonOperator.GT, 10)));
+        QueryPredicate second = QueryPredicate.fromFilter(filter(LogicalOperator.AND,
+            condition("amount", ComparisonOperator.GT, 10), condition("region", ComparisonOperator.EQ, "east")));
+
+        assertEquals(first.canonical(), second.canonical());
+        assertEquals(first.toSql(new ArrayList<>()), second.toSql(new ArrayList<>()));
+    }
+
+    @Test
+    void nestedJunctionsAreFlattenedAndDeduplicated() {
+        QueryPredicate a = eq("a", 1);
+        QueryPredicate b = eq("b", 2);
+        QueryPredicate nested = QueryPredicate.and(Arrays.asList(a, QueryPredicate.and(Arrays.asList(b, a)), null));
+        assertEquals("(a = 1 AND b = 2)", nested.canonical());
+        assertSame(a, QueryPredicate.and(Arrays.asList(a, null)));
+        assertNull(QueryPredicate.or(Arrays.asList(null, null)));
+        assertSame(a, QueryPredicate.not(QueryPredicate.not(a)));
+    }
+
+    @Test
+    void sqlBindsEveryConstant() {
+        FilterCondition in = new FilterCondition();
+        in.setField("status");
+        in.setOperator(ComparisonOperator.IN);
+        in.setValues(Arrays.asList("b", "a", "b"));
+        QueryPredicate predicate = QueryPredicate.fromFilter(filter(LogicalOperator.OR,
+            condition("name", ComparisonOperator.LIKE, "x' OR '1'='1"), in));
+
+        List<Object> params = new ArrayList<>();
+        String sql = predicate.toSql(params);
+
+        assertEquals("(name LIKE ? OR status IN (?, ?))", sql);
+        assertEquals(Arrays.asList("x' OR '1'='1", "a", "b"), params);
+    }
+
+    @Test
+    void notFilterNegatesConjunction() {
+        QueryPredicate predicate = QueryPredicate.fromFilter(filter(LogicalOperator.NOT,
+            condition("a", ComparisonOperator.EQ, 1), condition("b", ComparisonOperator.IS_NULL, null)));
+        List<Object> params = new ArrayList<>();
+        assertEquals("NOT ((a = ? AND b IS NULL))", predicate.toSql(params));
+        assertEquals(Collections.singletonList(1), params);
+    }
+
+    @Test
+    void emptyInListRendersConstantCondition() {
+        List<Object> params = new ArrayList<>();
+        assertEquals("1 = 0", QueryPredicate.comparison("id", QueryPredicate.Operator.IN,
+            Collections.emptyList()).toSql(params));
+        assertEquals("1 = 1", QueryPredicate.comparison("id", QueryPredicate.Operator.NOT_IN,
+            Collections.emptyList()).toSql(params));
+        assertTrue(params.isEmpty());
+    }
+
+    @Test
+    void rejectsNonIdentifierColumns() {
+        assertThrows(IllegalArgumentException.class, () -> QueryPredicate.comparison("a; DROP TABLE t",
+            QueryPredicate.Operator.EQ, Collections.singletonList(QueryPredicate.Operand.literal(1))));
+        assertThrows(IllegalArgumentException.class, () -> QueryPredicate.comparison("a",
+            QueryPredicate.Operator.EQ, Collections.emptyList()));
+    }
+
+    @Test
+    void unboundAttributeCannotBeRendered() {
+        QueryPredicate predicate = QueryPredicate.comparison("owner_id", QueryPredicate.Operator.EQ,
+            Collections.singletonList(QueryPredicate.Operand.attribute("id")));
+        assertThrows(IllegalStateException.class, () -> predicate.toSql(new ArrayList<>()));
+    }
+
+    @Test
+    void shapeIgnoresConstants() {
+        assertEquals(eq("a", 1).shape(), eq("a", 2).shape());
+        assertEquals("a = ?", eq("a", 1).shape());
+        assertEquals(Collections.singleton("a"), eq("a", 1).columns());
+    }
+
+    @Test
+    void selectivityUsesStatisticsOrDefaults() {
+        assertEquals(0.1, eq("a", 1).selectivity(column -> true), 1e-9);
+        assertEquals(1.0, eq("a", 1).selectivity(column -> false), 1e-9);
+
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.setDistinctValuesCount(50.0);
+        statistics.setNullsFraction(0.0);
+        statistics.setLowValue("0");
+        statistics.setHighValue("100");
+        Map<String, ColumnStatistics> byColumn = Collections.singletonMap("a", statistics);
+
+        assertEquals(0.02, eq("a", 1).selectivity(column -> true, byColumn), 1e-9);
+        QueryPredicate below = QueryPredicate.comparison("a", QueryPredicate.Operator.LT,
+            Collections.singletonList(QueryPredicate.Operand.literal(25)));
+        assertEquals(0.25, below.selectivity(column -> true, byColumn), 1e-9);
+        QueryPredicate both = QueryPredicate.and(Arrays.asList(below, eq("b", 1)));
+        assertEquals(0.025, both.selectivity(column -> true, byColumn), 1e-9);
+    }
+
+    private static QueryPredicate eq(String column, Object value) {
+        return QueryPredicate.comparison(column, QueryPredicate.Operator.EQ,
+            Collections.singletonList(QueryPredicate.Operand.literal(value)));
+    }
+
+    private static TableFilter filter(LogicalOperator operator, FilterCondition... conditions) {
+        TableFilter filter = new TableFilter();
+        filter.setOperator(operator);
+        filter.setConditions(Arrays.asList(conditions));
+        return filter;
+    }
+
+    private static FilterCondition condition(String field, ComparisonOperator operator, Object value) {
+        FilterCondition condition = new FilterCondition();
+        condition.setField(field);
+        condition.setOperator(operator);
+        condition.setValue(value);
+        return condition;
+    }
+}
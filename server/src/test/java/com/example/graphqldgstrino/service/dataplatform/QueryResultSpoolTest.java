@@ -0,0 +1,89 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryResultSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private QueryResultSpool spool;
+
+    @AfterEach
+    void tearDown() {
+        if (spool != null) {
+            spool.shutdown();
+        }
+    }
+
+    @Test
+    void removesLeftoverFilesOnStartup() throws IOException {
+        Path leftover = Files.write(directory.resolve("old-task.spool"), new byte[] {1});
+        Path other = Files.write(directory.resolve("keep.txt"), new byte[] {1});
+        spool = open(60_000L);
+
+        assertFalse(Files.exists(leftover));
+        assertTrue(Files.exists(other));
+    }
+
+    @Test
+    void runsCleanupOnceAfterTtl() throws Exception {
+        spool = open(50L);
+        AtomicInteger evicted = new AtomicInteger();
+        spool.onExpire("t1", evicted::incrementAndGet);
+
+        spool.removeExpired();
+        assertEquals(0, evicted.get());
+
+        Thread.sleep(80L);
+        spool.removeExpired();
+        spool.removeExpired();
+        assertEquals(1, evicted.get());
+    }
+
+    @Test
+    void reRegisteringRestartsTtl() throws Exception {
+        spool = open(60L);
+        AtomicInteger evicted = new AtomicInteger();
+        spool.onExpire("t1", evicted::incrementAndGet);
+        Thread.sleep(80L);
+        spool.onExpire("t1", evicted::incrementAndGet);
+
+        spool.removeExpired();
+        assertEquals(0, evicted.get());
+    }
+
+    @Test
+    void failingCleanupDoesNotStopOthers() throws Exception {
+        spool = open(10L);
+        AtomicInteger evicted = new AtomicInteger();
+        spool.onExpire("t1", () -> {
+            throw new IllegalStateException("boom");
+        });
+        spool.onExpire("t2", evicted::incrementAndGet);
+        Thread.sleep(30L);
+
+        spool.removeExpired();
+        assertEquals(1, evicted.get());
+    }
+
+    private QueryResultSpool open(long ttlMillis) throws IOException {
+        QueryResultSpool spool = new QueryResultSpool();
+        ReflectionTestUtils.setField(spool, "spoolDir", directory.toString());
+        ReflectionTestUtils.setField(spool, "chunkRows", 4);
+        // 测试中手动调用 removeExpired，后台清理的间隔至少为 1 秒
+        ReflectionTestUtils.setField(spool, "resultTtlMs", ttlMillis);
+        spool.init();
+        return spool;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowFilterParserTest {
+
+    @Test
+    void emptyExpressionHasNoFilter() {
+        assertNull(RowFilterParser.parse(null));
+        assertNull(RowFilterParser.parse("   "));
+    }
+
+    @Test
+    void parsesComparisonOperators() {
+        assertEquals("region = 'east'", RowFilterParser.parse("region = 'east'").canonical());
+        assertEquals("status <> 'x'", RowFilterParser.parse("status != 'x'").canonical());
+        assertEquals("status <> 'x'", RowFilterParser.parse("status <> 'x'").canonical());
+        assertEquals("amount >= 10", RowFilterParser.parse("amount >= 10").canonical());
+        assertEquals("t.amount < -1.5", RowFilterParser.parse("t.amount < -1.5").canonical());
+        assertEquals("active = TRUE", RowFilterParser.parse("active = true").canonical());
+    }
+
+    @Test
+    void parsesLikeInAndNullChecks() {
+        assertEquals("name NOT LIKE 'a%'", RowFilterParser.parse("name not like 'a%'").canonical());
+        assertEquals("id IN (1, 2, 3)", RowFilterParser.parse("id IN (3, 1, 2, 1)").canonical());
+        assertEquals("id NOT IN ('a')", RowFilterParser.parse("id NOT IN ('a')").canonical());
+        assertEquals("deleted_at IS NULL", RowFilterParser.parse("deleted_at IS NULL").canonical());
+        assertEquals("deleted_at IS NOT NULL", RowFilterParser.parse("deleted_at is not null").canonical());
+    }
+
+    @Test
+    void andBindsTighterThanOr() {
+        QueryPredicate predicate = RowFilterParser.parse("a = 1 OR b = 2 AND c = 3");
+        assertEquals("((b = 2 AND c = 3) OR a = 1)", predicate.canonical());
+        assertEquals("((a = 1 OR b = 2) AND c = 3)",
+            RowFilterParser.parse("(a = 1 OR b = 2) AND c = 3").canonical());
+        assertEquals("NOT (a = 1 AND b = 2)", RowFilterParser.parse("NOT (a = 1 AND b = 2)").canonical());
+    }
+
+    @Test
+    void stringEscapesAndNumberTypes() {
+        List<Object> params = new ArrayList<>();
+        RowFilterParser.parse("name = 'O''Brien' AND qty = 3 AND price = 2.50").toSql(params);
+        assertTrue(params.contains("O'Brien"));
+        assertTrue(params.contains(3L));
+        assertTrue(params.contains(new BigDecimal("2.50")));
+    }
+
+    @Test
+    void userAttributesAreBoundPerUser() {
+        QueryPredicate predicate = RowFilterParser.parse("owner_id = ${user.id} AND region IN (${user.regions})");
+        assertTrue(predicate.hasAttributes());
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("id", "u1");
+        attributes.put("regions", Arrays.asList("west", "east"));
+        QueryPredicate bound = predicate.bind(attributes);
+
+        assertFalse(bound.hasAttributes());
+        List<Object> params = new ArrayList<>();
+        assertEquals("(owner_id = ? AND region IN (?, ?))", bound.toSql(params));
+        assertEquals(Arrays.asList("u1", "east", "west"), params);
+    }
+
+    @Test
+    void missingAttributeBindsToNull() {
+        QueryPredicate bound = RowFilterParser.parse("owner_id = ${user.id}").bind(Collections.emptyMap());
+        List<Object> params = new ArrayList<>();
+        assertEquals("owner_id = NULL", bound.toSql(params));
+        assertTrue(params.isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidSyntax() {
+        for (String expression : Arrays.asList(
+                "region =", "= 'x'", "region 'x'", "a = 1 b = 2", "(a = 1", "a = 'open",
+                "a = ${id}", "a NOT = 1", "a = 1; DROP TABLE t", "a ! 1", "AND = 1", "a IN 1")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> RowFilterParser.parse(expression), expression);
+            assertTrue(e.getMessage().startsWith("行级过滤条件语法错误"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTopKTest {
+
+    @Test
+    void countsExactlyWhileBelowCapacity() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(10);
+        offer(topK, "a", 5);
+        offer(topK, "b", 3);
+        offer(topK, "c", 1);
+
+        List<SpaceSavingTopK.Entry> entries = topK.topK(10);
+        assertEquals(Arrays.asList("a", "b", "c"), keys(entries));
+        assertEquals(5, entries.get(0).getCount());
+        assertEquals(0, entries.get(0).getError());
+        assertEquals(3, entries.get(1).getCount());
+        assertEquals(1, entries.get(2).getCount());
+    }
+
+    @Test
+    void limitsResultToK() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(10);
+        offer(topK, "a", 3);
+        offer(topK, "b", 2);
+        offer(topK, "c", 1);
+
+        assertEquals(Arrays.asList("a", "b"), keys(topK.topK(2)));
+    }
+
+    @Test
+    void replacesMinimumCounterAndCarriesItsCountAsError() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(2);
+        offer(topK, "a", 4);
+        offer(topK, "b", 2);
+        offer(topK, "c", 1);
+
+        List<SpaceSavingTopK.Entry> entries = topK.topK(2);
+        assertEquals(Arrays.asList("a", "c"), keys(entries));
+        SpaceSavingTopK.Entry replaced = entries.get(1);
+        assertEquals(3, replaced.getCount());
+        assertEquals(2, replaced.getError());
+        assertEquals(1L, replaced.getTotalExecutionTime());
+    }
+
+    @Test
+    void keepsHeavyHittersWithinErrorBound() {
+        int capacity = 20;
+        SpaceSavingTopK topK = new SpaceSavingTopK(capacity);
+        Random random = new Random(42);
+        Map<String, Integer> exact = new HashMap<>();
+        int total = 0;
+        for (int i = 0; i < 20_000; i++) {
+            // 少数热点 key 加大量长尾 key
+            String key = random.nextInt(4) == 0 ? "hot" + random.nextInt(3) : "tail" + random.nextInt(5_000);
+            exact.merge(key, 1, Integer::sum);
+            topK.offer(key, 1L, i);
+            total++;
+        }
+
+        List<SpaceSavingTopK.Entry> entries = topK.topK(3);
+        assertEquals(new HashSet<>(Arrays.asList("hot0", "hot1", "hot2")), new HashSet<>(keys(entries)));
+        for (SpaceSavingTopK.Entry entry : entries) {
+            int actual = exact.get(entry.getKey());
+            assertTrue(entry.getCount() >= actual, "计数不应低估: " + entry.getKey());
+            assertTrue(entry.getCount() - entry.getError() <= actual, "误差上界应覆盖高估部分: " + entry.getKey());
+            assertTrue(entry.getError() <= total / capacity);
+        }
+    }
+
+    @Test
+    void tracksExecutionTimeAndLastExecution() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(4);
+        topK.offer("q", 10L, 100L);
+        topK.offer("q", 15L, 300L);
+        topK.offer("q", 5L, 200L);
+
+        SpaceSavingTopK.Entry entry = topK.topK(1).get(0);
+        assertEquals(30L, entry.getTotalExecutionTime());
+        assertEquals(300L, entry.getLastExecutedMillis());
+    }
+
+    @Test
+    void clearDropsAllCounters() {
+        SpaceSavingTopK topK = new SpaceSavingTopK(4);
+        offer(topK, "a", 2);
+        topK.clear();
+
+        assertTrue(topK.topK(10).isEmpty());
+        offer(topK, "b", 1);
+        assertEquals(Collections.singletonList("b"), keys(topK.topK(10)));
+    }
+
+    private static void offer(SpaceSavingTopK topK, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            topK.offer(key, 1L, i);
+        }
+    }
+
+    private static List<String> keys(List<SpaceSavingTopK.Entry> entries) {
+        return entries.stream().map(SpaceSavingTopK.Entry::getKey).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpooledResultTest {
+
+    private static final String[] COLUMNS = {"id", "amount", "active", "name", "email", "password"};
+    private static final int[] TYPES = {Types.BIGINT, Types.DOUBLE, Types.BOOLEAN, Types.VARCHAR, Types.VARCHAR,
+        Types.VARCHAR};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryTypeAcrossChunks() throws Exception {
+        Object[][] rows = rows(10);
+        try (SpooledResult result = SpooledResult.write(directory.resolve("a.spool"), resultSet(rows), null, 3)) {
+            assertEquals(10, result.getRowCount());
+            assertEquals(Arrays.asList(COLUMNS), result.getColumns());
+
+            List<Map<String, Object>> all = result.read(0, 100);
+            assertEquals(10, all.size());
+            for (int i = 0; i < rows.length; i++) {
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    assertEquals(rows[i][c], all.get(i).get(COLUMNS[c]), "row " + i + " column " + COLUMNS[c]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void pageSpanningChunkBoundaryKeepsRowOrder() throws Exception {
+        try (SpooledResult result = SpooledResult.write(directory.resolve("a.spool"), resultSet(rows(10)), null, 3)) {
+            List<Map<String, Object>> page = result.read(2, 5);
+            assertEquals(5, page.size());
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals((long) (i + 2), page.get(i).get("id"));
+            }
+            assertEquals(1, result.read(9, 5).size());
+            assertTrue(result.read(10, 5).isEmpty());
+            assertTrue(result.read(-1, 5).isEmpty());
+            assertTrue(result.read(0, 0).isEmpty());
+        }
+    }
+
+    @Test
+    void preservesNulls() throws Exception {
+        Object[][] rows = {{null, null, null, null, null, null}, {1L, 2.0, false, "", "b@example.com", "x"}};
+        try (SpooledResult result = SpooledResult.write(directory.resolve("a.spool"), resultSet(rows), null, 8)) {
+            List<Map<String, Object>> read = result.read(0, 2);
+            for (String column : COLUMNS) {
+                assertTrue(read.get(0).containsKey(column));
+                assertNull(read.get(0).get(column));
+            }
+            assertEquals("", read.get(1).get("name"));
+            assertEquals(false, read.get(1).get("active"));
+        }
+    }
+
+    @Test
+    void masksAndDropsColumnsWhileWriting() throws Exception {
+        CompiledTablePermission users = new CompiledTablePermission(table(
+            field("id", FieldPermissionType.HASH, null),
+            field("amount", FieldPermissionType.ALLOW, null),
+            field("active", FieldPermissionType.ALLOW, null),
+            field("name", FieldPermissionType.ALLOW, null),
+            field("email", FieldPermissionType.MASK, "email_mask"),
+            field("password", FieldPermissionType.DENY, null)));
+        MaskingPlan plan = MaskingPlan.compile(users, Arrays.asList(COLUMNS));
+
+        try (SpooledResult result = SpooledResult.write(directory.resolve("a.spool"), resultSet(rows(2)), plan, 8)) {
+            assertFalse(result.getColumns().contains("password"));
+            Map<String, Object> row = result.read(1, 1).get(0);
+            assertEquals("u***@example.com", row.get("email"));
+            // 哈希列按原始值的文本计算，存为字符串
+            assertEquals(MaskingRule.SHA256_HASH.apply(1L), row.get("id"));
+            assertEquals("name-1", row.get("name"));
+            assertFalse(row.containsKey("password"));
+        }
+    }
+
+    @Test
+    void emptyResultHasSchemaButNoRows() throws Exception {
+        try (SpooledResult result = SpooledResult.write(directory.resolve("a.spool"), resultSet(new Object[0][]),
+                null, 8)) {
+            assertEquals(0, result.getRowCount());
+            assertEquals(Arrays.asList(COLUMNS), result.getColumns());
+            assertTrue(result.read(0, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void reopensWrittenFile() throws Exception {
+        Path file = directory.resolve("a.spool");
+        SpooledResult.write(file, resultSet(rows(5)), null, 2).close();
+
+        try (SpooledResult reopened = SpooledResult.open(file)) {
+            assertEquals(5, reopened.getRowCount());
+            assertEquals("name-4", reopened.read(4, 1).get(0).get("name"));
+        }
+    }
+
+    @Test
+    void rejectsFileWithoutHeader() throws Exception {
+        Path file = directory.resolve("bad.spool");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> SpooledResult.open(file));
+    }
+
+    @Test
+    void failedWriteRemovesPartialFile() {
+        Path file = directory.resolve("a.spool");
+        ResultSet failing = resultSet(rows(5), 3);
+        assertThrows(SQLException.class, () -> SpooledResult.write(file, failing, null, 2));
+        assertFalse(Files.exists(file));
+    }
+
+    private static Object[][] rows(int count) {
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Object[] {(long) i, i * 1.5, i % 2 == 0, "name-" + i, "user" + i + "@example.com", "secret"};
+        }
+        return rows;
+    }
+
+    private static ResultSet resultSet(Object[][] rows) {
+        return resultSet(rows, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按 COLUMNS 和 TYPES 描述的内存 ResultSet，读到第 failAt 行时抛出 SQLException
+     */
+    private static ResultSet resultSet(Object[][] rows, int failAt) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            SpooledResultTest.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getColumnCount":
+                        return COLUMNS.length;
+                    case "getColumnLabel":
+                    case "getColumnName":
+                        return COLUMNS[(Integer) args[0] - 1];
+                    case "getColumnType":
+                        return TYPES[(Integer) args[0] - 1];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        int[] cursor = {-1};
+        Object[] last = new Object[1];
+        return (ResultSet) Proxy.newProxyInstance(
+            SpooledResultTest.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getMetaData":
+                        return metaData;
+                    case "next":
+                        cursor[0]++;
+                        if (cursor[0] == failAt) {
+                            throw new SQLException("connection reset");
+                        }
+                        return cursor[0] < rows.length;
+                    case "wasNull":
+                        return last[0] == null;
+                    case "getObject":
+                        last[0] = rows[cursor[0]][(Integer) args[0] - 1];
+                        return last[0];
+                    case "getLong":
+                        last[0] = rows[cursor[0]][(Integer) args[0] - 1];
+                        return last[0] != null ? (Long) last[0] : 0L;
+                    case "getDouble":
+                        last[0] = rows[cursor[0]][(Integer) args[0] - 1];
+                        return last[0] != null ? (Double) last[0] : 0.0;
+                    case "getBoolean":
+                        last[0] = rows[cursor[0]][(Integer) args[0] - 1];
+                        return last[0] != null && (Boolean) last[0];
+                    case "getString":
+                        last[0] = rows[cursor[0]][(Integer) args[0] - 1];
+                        return last[0] != null ? last[0].toString() : null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static TablePermission table(FieldPermission... fields) {
+        TablePermission table = new TablePermission();
+        table.setDatabase("ecommerce");
+        table.setTableName("users");
+        table.setPermissions(Collections.singletonList("READ"));
+        table.setFieldPermissions(Arrays.asList(fields));
+        return table;
+    }
+
+    private static FieldPermission field(String name, FieldPermissionType type, String maskingRule) {
+        FieldPermission field = new FieldPermission();
+        field.setFieldName(name);
+        field.setPermission(type);
+        field.setMaskingRule(maskingRule);
+        return field;
+    }
+}
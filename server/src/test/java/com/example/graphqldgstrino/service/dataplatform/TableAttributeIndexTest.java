@@ -0,0 +1,101 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableAttributeIndexTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    private final TableAttributeIndex index = new TableAttributeIndex();
+
+    @Test
+    void looksUpEachAttribute() {
+        index.put("sales.orders", null, table("orders", "ICEBERG", "etl", DAY, "pii", "finance"));
+        index.put("sales.order_items", null, table("order_items", "ICEBERG", "etl", DAY.plusDays(1), "finance"));
+        index.put("hr.staff", null, table("staff", "VIEW", "alice", DAY.plusDays(2), "pii"));
+
+        assertEquals(keys("sales.orders", "sales.order_items"), index.byTableType("ICEBERG"));
+        assertEquals(keys("hr.staff"), index.byOwner("alice"));
+        assertTrue(index.byOwner("bob").isEmpty());
+        assertEquals(keys("sales.orders", "hr.staff"), index.byAnyTag(Collections.singletonList("pii"), 10));
+        assertEquals(keys("sales.orders", "sales.order_items", "hr.staff"),
+            index.byAnyTag(Arrays.asList("pii", "finance", "unknown"), 10));
+        assertEquals(keys("sales.order_items", "hr.staff"), index.modifiedSince(DAY.plusDays(1), 10));
+    }
+
+    @Test
+    void namePrefixMatchesTableNameOnly() {
+        index.put("sales.orders", null, table("orders", "ICEBERG", "etl", DAY));
+        index.put("sales.order_items", null, table("order_items", "ICEBERG", "etl", DAY));
+        // 库名以 order 开头不影响按表名前缀查找
+        index.put("orders_archive.events", null, table("events", "ICEBERG", "etl", DAY));
+
+        assertEquals(keys("sales.orders", "sales.order_items"), index.byNamePrefix("order", 10));
+        assertEquals(keys("sales.order_items"), index.byNamePrefix("order_", 10));
+        assertTrue(index.byNamePrefix("ordersx", 10).isEmpty());
+    }
+
+    @Test
+    void returnsNullWhenCandidatesExceedLimit() {
+        for (int i = 0; i < 5; i++) {
+            index.put("sales.t" + i, null, table("t" + i, "ICEBERG", "etl", DAY.plusDays(i), "pii"));
+        }
+
+        assertNull(index.byNamePrefix("t", 4));
+        assertEquals(5, index.byNamePrefix("t", 5).size());
+        assertNull(index.byAnyTag(Collections.singletonList("pii"), 4));
+        assertNull(index.modifiedSince(DAY, 4));
+        assertEquals(2, index.modifiedSince(DAY.plusDays(3), 2).size());
+    }
+
+    @Test
+    void replacingMovesEntriesAndRemovingClearsThem() {
+        TableInfo before = table("orders", "ICEBERG", "etl", DAY, "pii");
+        index.put("sales.orders", null, before);
+        TableInfo after = table("orders", "ICEBERG", "alice", DAY.plusDays(1), "finance");
+        index.put("sales.orders", before, after);
+
+        assertTrue(index.byOwner("etl").isEmpty());
+        assertEquals(keys("sales.orders"), index.byOwner("alice"));
+        assertTrue(index.byAnyTag(Collections.singletonList("pii"), 10).isEmpty());
+        assertTrue(index.modifiedSince(DAY, 10).contains("sales.orders"));
+        assertEquals(1, index.modifiedSince(DAY, 10).size());
+
+        index.remove("sales.orders", after);
+        assertTrue(index.byTableType("ICEBERG").isEmpty());
+        assertTrue(index.byNamePrefix("orders", 10).isEmpty());
+        assertTrue(index.modifiedSince(DAY, 10).isEmpty());
+    }
+
+    @Test
+    void toleratesMissingAttributes() {
+        TableInfo bare = new TableInfo();
+        bare.setTableName("bare");
+        index.put("sales.bare", null, bare);
+
+        assertEquals(keys("sales.bare"), index.byNamePrefix("ba", 10));
+        index.remove("sales.bare", bare);
+        assertTrue(index.byNamePrefix("ba", 10).isEmpty());
+    }
+
+    static TableInfo table(String name, String tableType, String owner, LocalDateTime lastModified, String... tags) {
+        TableInfo table = new TableInfo();
+        table.setTableName(name);
+        table.setTableType(tableType);
+        table.setOwner(owner);
+        table.setLastModified(lastModified);
+        table.setTags(Arrays.asList(tags));
+        return table;
+    }
+
+    private static Set<String> keys(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+}
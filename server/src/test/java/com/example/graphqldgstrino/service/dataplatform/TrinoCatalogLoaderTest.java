@@ -0,0 +1,307 @@
+package com.example.graphqldgstrino.service.dataplatform;
+
+import static com.example.graphqldgstrino.model.dataplatform.DataPlatformModels.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrinoCatalogLoaderTest {
+
+    private static final Pattern SNAPSHOTS_TABLE = Pattern.compile("\"([^\"]+)\\$snapshots\"");
+
+    private final MetadataService metadataService = new MetadataService();
+    private final FakeTrino trino = new FakeTrino();
+    private final TrinoCatalogLoader loader = new TrinoCatalogLoader();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(loader, "metadataService", metadataService);
+        ReflectionTestUtils.setField(loader, "jdbcTemplate", trino);
+        ReflectionTestUtils.setField(loader, "catalog", "iceberg");
+        ReflectionTestUtils.setField(loader, "defaultTableType", "ICEBERG");
+        ReflectionTestUtils.setField(loader, "histogramSamplePercent", 0.0);
+        ReflectionTestUtils.setField(loader, "histogramBuckets", 16);
+        ReflectionTestUtils.setField(loader, "histogramRefreshChange", 0.1);
+        // 不调用 init，避免后台定时同步与测试中手动调用的 sync 交错
+        ReflectionTestUtils.setField(loader, "tableLoader", Executors.newFixedThreadPool(2));
+
+        trino.addTable("sales", "orders", 10L);
+        trino.addTable("sales", "refunds", 20L);
+        trino.addTable("hr", "staff", 30L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+    }
+
+    @Test
+    void rowFieldNamesReadsTopLevelFields() {
+        assertEquals(Arrays.asList("dt", "bucket"), TrinoCatalogLoader.rowFieldNames("row(dt date, bucket integer)"));
+        assertEquals(Arrays.asList("a", "b"),
+            TrinoCatalogLoader.rowFieldNames("ROW(a row(x bigint, y varchar(10)), b decimal(10, 2))"));
+        assertEquals(Arrays.asList("order date", "say \"hi\", bye"),
+            TrinoCatalogLoader.rowFieldNames("row(\"order date\" date, \"say \"\"hi\"\", bye\" varchar)"));
+        assertEquals(Collections.emptyList(), TrinoCatalogLoader.rowFieldNames("row()"));
+        assertEquals(Collections.emptyList(), TrinoCatalogLoader.rowFieldNames("bigint"));
+        assertEquals(Collections.emptyList(), TrinoCatalogLoader.rowFieldNames(null));
+    }
+
+    @Test
+    void unchangedTablesAreSkippedUntilSnapshotChanges() {
+        loader.sync();
+        assertEquals(3, trino.count("SHOW STATS"));
+        String token = metadataService.getSyncToken("sales", "orders");
+        assertNotNull(token);
+        assertTrue(token.endsWith(":10"), token);
+        assertEquals(Collections.singletonList("dt"),
+            metadataService.getTableMetadata("sales", "orders").getPartitionKeys());
+        assertEquals(Long.valueOf(100L), metadataService.getTableStatistics("sales", "orders").getRowCount());
+        // 目录中不存在的内置示例表被删除
+        assertEquals(new TreeSet<>(Arrays.asList("hr.staff", "sales.orders", "sales.refunds")),
+            metadataService.getTableNames());
+
+        loader.sync();
+        assertEquals(3, trino.count("SHOW STATS"));
+
+        trino.snapshotIds.put("sales.orders", 11L);
+        loader.sync();
+        assertEquals(4, trino.count("SHOW STATS"));
+        assertTrue(trino.statements.get(trino.statements.size() - 1).contains("\"orders\""));
+        assertTrue(metadataService.getSyncToken("sales", "orders").endsWith(":11"));
+    }
+
+    @Test
+    void tableWithFailedStatisticsIsRetriedNextCycle() {
+        trino.failStatistics = true;
+        loader.sync();
+
+        // 表已发布，但没有同步标记
+        assertTrue(metadataService.tableExists("sales", "orders"));
+        assertNull(metadataService.getSyncToken("sales", "orders"));
+        assertEquals(3, trino.count("SHOW STATS"));
+
+        trino.failStatistics = false;
+        loader.sync();
+        assertEquals(6, trino.count("SHOW STATS"));
+        assertNotNull(metadataService.getSyncToken("sales", "orders"));
+        assertEquals(Long.valueOf(100L), metadataService.getTableStatistics("sales", "orders").getRowCount());
+
+        loader.sync();
+        assertEquals(6, trino.count("SHOW STATS"));
+    }
+
+    @Test
+    void snapshotsAreReadWithOneQueryPerSchema() {
+        loader.sync();
+
+        List<String> snapshotQueries = trino.matching("$snapshots");
+        assertEquals(2, snapshotQueries.size());
+        assertTrue(snapshotQueries.stream().anyMatch(sql -> sql.contains("UNION ALL")));
+        assertEquals(0, trino.count("SELECT snapshot_id"));
+    }
+
+    @Test
+    void failedSnapshotBatchFallsBackToPerTableQueries() {
+        trino.failSnapshotBatch = true;
+        loader.sync();
+
+        assertEquals(3, trino.count("SELECT snapshot_id"));
+        assertTrue(metadataService.getSyncToken("sales", "refunds").endsWith(":20"));
+    }
+
+    @Test
+    void tableWithoutSnapshotSkipsIcebergMetadataTables() {
+        trino.snapshotIds.remove("hr.staff");
+        loader.sync();
+
+        assertTrue(metadataService.getSyncToken("hr", "staff").endsWith(":-"));
+        assertTrue(trino.matching("$partitions").stream().noneMatch(sql -> sql.contains("\"staff$partitions\"")));
+        assertEquals(Collections.emptyList(), metadataService.getTableMetadata("hr", "staff").getPartitionKeys());
+    }
+
+    /**
+     * 按语句前缀应答的 Trino，只实现 TrinoCatalogLoader 用到的查询方法
+     */
+    private static final class FakeTrino extends JdbcTemplate {
+        final List<String> statements = new CopyOnWriteArrayList<>();
+        final Map<String, Long> snapshotIds = new ConcurrentHashMap<>();
+        volatile boolean failStatistics;
+        volatile boolean failSnapshotBatch;
+
+        void addTable(String schema, String table, long snapshotId) {
+            snapshotIds.put(schema + "." + table, snapshotId);
+        }
+
+        int count(String prefix) {
+            return (int) statements.stream().filter(sql -> sql.startsWith(prefix)).count();
+        }
+
+        List<String> matching(String fragment) {
+            List<String> result = new ArrayList<>();
+            for (String sql : statements) {
+                if (sql.contains(fragment)) {
+                    result.add(sql);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler) {
+            query(sql, handler, new Object[0]);
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler, Object... args) {
+            try {
+                for (Map<String, Object> row : respond(sql, args)) {
+                    handler.processRow(resultSet(row));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> mapper) {
+            List<T> result = new ArrayList<>();
+            try {
+                int rowNum = 0;
+                for (Map<String, Object> row : respond(sql, new Object[0])) {
+                    result.add(mapper.mapRow(resultSet(row), rowNum++));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        }
+
+        private List<Map<String, Object>> respond(String sql, Object[] args) {
+            statements.add(sql);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            if (sql.contains("information_schema.tables")) {
+                for (String key : new TreeSet<>(tableKeys())) {
+                    String[] parts = key.split("\\.");
+                    rows.add(row("table_schema", parts[0], "table_name", parts[1], "table_type", "BASE TABLE"));
+                }
+            } else if (sql.contains("information_schema.columns")) {
+                for (String key : new TreeSet<>(tableKeys())) {
+                    String[] parts = key.split("\\.");
+                    rows.add(row("table_schema", parts[0], "table_name", parts[1], "column_name", "id",
+                        "data_type", "bigint", "is_nullable", "NO"));
+                    rows.add(row("table_schema", parts[0], "table_name", parts[1], "column_name", "dt",
+                        "data_type", "date", "is_nullable", "YES"));
+                }
+            } else if (sql.contains("table_comments")) {
+                return rows;
+            } else if (sql.startsWith("SELECT CAST(? AS varchar)")) {
+                if (failSnapshotBatch) {
+                    throw new DataAccessResourceFailureException("Table 'x$snapshots' does not exist");
+                }
+                // 同一批的表都在一个 schema 内，按表名找到快照
+                for (Object table : args) {
+                    Long id = snapshotId((String) table, sql);
+                    rows.add(row("name", table, "snapshot_id", id, "committed_at",
+                        id != null ? new Timestamp(id * 1000L) : null));
+                }
+            } else if (sql.startsWith("SELECT snapshot_id")) {
+                Matcher matcher = SNAPSHOTS_TABLE.matcher(sql);
+                Long id = matcher.find() ? snapshotId(matcher.group(1), sql) : null;
+                if (id != null) {
+                    rows.add(row("snapshot_id", id, "committed_at", new Timestamp(id * 1000L)));
+                }
+            } else if (sql.startsWith("DESCRIBE")) {
+                rows.add(row("Column", "partition", "Type", "row(dt date)"));
+                rows.add(row("Column", "record_count", "Type", "bigint"));
+            } else if (sql.startsWith("SELECT count(*)")) {
+                rows.add(row("partitions", 3L, "records", 100L, "files", 2L, "size", 4096L));
+            } else if (sql.startsWith("SHOW STATS")) {
+                if (failStatistics) {
+                    throw new DataAccessResourceFailureException("Query exceeded maximum time limit");
+                }
+                rows.add(row("column_name", "id", "data_size", null, "distinct_values_count", 100.0,
+                    "nulls_fraction", 0.0, "row_count", null, "low_value", "1", "high_value", "100"));
+                rows.add(row("column_name", null, "data_size", null, "distinct_values_count", null,
+                    "nulls_fraction", null, "row_count", 100.0, "low_value", null, "high_value", null));
+            } else {
+                throw new IllegalStateException("未预期的查询: " + sql);
+            }
+            return rows;
+        }
+
+        private Set<String> tableKeys() {
+            Set<String> keys = new HashSet<>(snapshotIds.keySet());
+            keys.add("hr.staff");
+            keys.add("sales.orders");
+            keys.add("sales.refunds");
+            return keys;
+        }
+
+        private Long snapshotId(String table, String sql) {
+            for (Map.Entry<String, Long> entry : snapshotIds.entrySet()) {
+                String[] parts = entry.getKey().split("\\.");
+                if (parts[1].equals(table) && sql.contains("\"" + parts[0] + "\"")) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
+        private static Map<String, Object> row(Object... labelsAndValues) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < labelsAndValues.length; i += 2) {
+                row.put((String) labelsAndValues[i], labelsAndValues[i + 1]);
+            }
+            return row;
+        }
+
+        /**
+         * 单行 ResultSet，按位置（从 1 开始）或列名读取
+         */
+        private static ResultSet resultSet(Map<String, Object> row) {
+            List<Object> values = new ArrayList<>(row.values());
+            Object[] last = new Object[1];
+            return (ResultSet) Proxy.newProxyInstance(TrinoCatalogLoaderTest.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    if ("wasNull".equals(method.getName())) {
+                        return last[0] == null;
+                    }
+                    Object value = args[0] instanceof Integer ? values.get((Integer) args[0] - 1) : row.get(args[0]);
+                    last[0] = value;
+                    switch (method.getName()) {
+                        case "getObject":
+                        case "getTimestamp":
+                            return value;
+                        case "getString":
+                            return value != null ? value.toString() : null;
+                        case "getLong":
+                            return value != null ? ((Number) value).longValue() : 0L;
+                        case "getInt":
+                            return value != null ? ((Number) value).intValue() : 0;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        }
+    }
+}